@@ -0,0 +1,99 @@
+package com.starling.assignment;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.service.BankingService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link BankingService} that serves a fixed, pre-built feed for every account, so benchmarks measure the code under
+ * test rather than HTTP or decoding.
+ *
+ * It has a single GBP account, created at {@link SyntheticFeed#START_MILLIS}, with a fixed balance. Savings-goals
+ * live in memory: created goals are kept, and transfers to them add to their total saved, once per transfer UID as in
+ * the real API, so benchmarks can run a round-up through to its transfer.
+ */
+public class SyntheticBankingService implements BankingService {
+
+    private static final String CURRENCY = "GBP";
+    private static final long BALANCE_MINOR_UNITS = 1_000_000_00L;
+
+    private final List<Transaction> transactions;
+    private final Account account = new Account("account", "category", CURRENCY,
+        new Date(SyntheticFeed.START_MILLIS));
+    private final Map<String, SavingsGoal> savingsGoals = new ConcurrentHashMap<>();
+    private final Set<String> transferUids = ConcurrentHashMap.newKeySet();
+
+    public SyntheticBankingService(List<Transaction> transactions) {
+
+        this.transactions = transactions;
+    }
+
+    @Override
+    public List<Account> getAccounts() {
+
+        return Collections.singletonList(account);
+    }
+
+    @Override
+    public Balance getAccountBalance(String accountUid) {
+
+        return new Balance(new Amount(CURRENCY, BALANCE_MINOR_UNITS));
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String accountUid, String categoryUid) {
+
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String accountUid, String categoryUid, Date from, Date to) {
+
+        return transactions;
+    }
+
+    @Override
+    public List<SavingsGoal> getSavingsGoals(String accountUid) {
+
+        return new ArrayList<>(savingsGoals.values());
+    }
+
+    @Override
+    public SavingsGoal getSavingsGoal(String accountUid, String savingsGoalUid) {
+
+        return savingsGoals.get(savingsGoalUid);
+    }
+
+    @Override
+    public String createSavingsGoal(String accountUid, SavingsGoalRequest savingsGoalRequest) {
+
+        String savingsGoalUid = UUID.randomUUID().toString();
+        savingsGoals.put(savingsGoalUid, new SavingsGoal(savingsGoalUid, savingsGoalRequest.getName(),
+            savingsGoalRequest.getTarget(), new Amount(savingsGoalRequest.getCurrency(), 0L)));
+        return savingsGoalUid;
+    }
+
+    @Override
+    public boolean transferMoneyToSavingsGoal(String accountUid, String savingsGoalUid, String transferUid,
+                                              SavingsGoalAmount savingGoalsAmount) {
+
+        if (!savingsGoals.containsKey(savingsGoalUid)) return false;
+        if (!transferUids.add(transferUid)) return true;
+
+        return savingsGoals.computeIfPresent(savingsGoalUid, (uid, goal) -> new SavingsGoal(uid, goal.getName(),
+            goal.getTarget(), new Amount(goal.getTotalSaved().getCurrency(),
+                goal.getTotalSaved().getMinorUnits() + savingGoalsAmount.getAmount().getMinorUnits()))) != null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.starling.assignment;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Transaction;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic synthetic data shaped like the Starling transaction feed, for use by benchmarks.
+ */
+public final class SyntheticFeed {
+
+    private static final String[] SOURCES = {
+        "MASTER_CARD", "DIRECT_DEBIT", "FASTER_PAYMENTS_IN", "FASTER_PAYMENTS_OUT", "INTERNAL_TRANSFER"
+    };
+    private static final String[] STATUSES = {"SETTLED", "SETTLED", "SETTLED", "PENDING", "DECLINED"};
+    private static final String CATEGORY_UID = new UUID(7L, 7L).toString();
+
+    /**
+     * Time of the first synthetic feed item; later ones are between one minute and an hour apart.
+     */
+    public static final long START_MILLIS = 1546300800000L;
+
+    private SyntheticFeed() {
+    }
+
+    /**
+     * Build a transaction feed response body with {@code items} feed items, each carrying the full set of fields the
+     * real API returns, not just the ones round-up needs.
+     */
+    public static String json(int items) {
+
+        Random random = new Random(42L);
+        StringBuilder json = new StringBuilder(items * 900).append("{\"feedItems\":[");
+        long time = START_MILLIS;
+        for (int i = 0; i < items; i++) {
+            if (i > 0) json.append(',');
+            long minorUnits = 1 + random.nextInt(100_000);
+            String transactionTime = Instant.ofEpochMilli(time).toString();
+            time += 60_000L + random.nextInt(3_600_000);
+            json.append("{\"feedItemUid\":\"").append(new UUID(random.nextLong(), random.nextLong()))
+                .append("\",\"categoryUid\":\"").append(new UUID(7L, 7L))
+                .append("\",\"amount\":{\"currency\":\"GBP\",\"minorUnits\":").append(minorUnits)
+                .append("},\"sourceAmount\":{\"currency\":\"GBP\",\"minorUnits\":").append(minorUnits)
+                .append("},\"direction\":\"").append(random.nextInt(4) == 0 ? "IN" : "OUT")
+                .append("\",\"updatedAt\":\"").append(transactionTime)
+                .append("\",\"transactionTime\":\"").append(transactionTime)
+                .append("\",\"settlementTime\":\"").append(transactionTime)
+                .append("\",\"source\":\"").append(SOURCES[random.nextInt(SOURCES.length)])
+                .append("\",\"sourceSubType\":\"CONTACTLESS\",\"status\":\"")
+                .append(STATUSES[random.nextInt(STATUSES.length)])
+                .append("\",\"counterPartyType\":\"MERCHANT\",\"counterPartyUid\":\"").append(new UUID(3L, i))
+                .append("\",\"counterPartyName\":\"Merchant ").append(i % 500)
+                .append("\",\"counterPartySubEntityUid\":\"").append(new UUID(5L, i))
+                .append("\",\"reference\":\"Card purchase ").append(i)
+                .append("\",\"country\":\"GB\",\"spendingCategory\":\"EATING_OUT\",\"userNote\":null")
+                .append(",\"roundUp\":{\"goalCategoryUid\":\"").append(new UUID(9L, 9L))
+                .append("\",\"amount\":{\"currency\":\"GBP\",\"minorUnits\":").append(100 - minorUnits % 100)
+                .append("}},\"hasAttachment\":false,\"receiptPresent\":false}");
+        }
+
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Build {@code count} transactions with the same distribution of amounts, directions, statuses and sources as
+     * {@link #json(int)}. Category, currency and source strings are shared between transactions, as they would be
+     * after decoding.
+     */
+    public static List<Transaction> transactions(int count) {
+
+        Random random = new Random(42L);
+        List<Transaction> transactions = new ArrayList<>(count);
+        long time = START_MILLIS;
+        for (int i = 0; i < count; i++) {
+            long minorUnits = 1 + random.nextInt(100_000);
+            transactions.add(new Transaction(new UUID(random.nextLong(), random.nextLong()).toString(), CATEGORY_UID,
+                new Amount("GBP", minorUnits), new Date(time),
+                random.nextInt(4) == 0 ? Transaction.Direction.IN : Transaction.Direction.OUT,
+                Transaction.Status.valueOf(STATUSES[random.nextInt(STATUSES.length)]),
+                SOURCES[random.nextInt(SOURCES.length)]));
+            time += 60_000L + random.nextInt(3_600_000);
+        }
+
+        return transactions;
+    }
+}
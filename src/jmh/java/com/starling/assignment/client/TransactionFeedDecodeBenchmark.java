@@ -0,0 +1,72 @@
+package com.starling.assignment.client;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.starling.assignment.SyntheticFeed;
+import com.starling.assignment.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the tree-based feed decoding {@link StarlingApiClientImpl} used to do (whole body as a {@code String},
+ * a {@code JsonObject} tree, then {@code fromJson} per item) with the streaming {@link TransactionFeedReader}.
+ * Run with the {@code gc} profiler to compare allocation per decoded feed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TransactionFeedDecodeBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int feedItems;
+
+    private byte[] feed;
+    private Gson gson;
+
+    @Setup
+    public void setup() {
+
+        feed = SyntheticFeed.json(feedItems).getBytes(StandardCharsets.UTF_8);
+        gson = new Gson();
+    }
+
+    @Benchmark
+    public List<Transaction> treeDecode() {
+
+        String feedJson = new String(feed, StandardCharsets.UTF_8);
+        JsonObject feedJsonObject = gson.fromJson(feedJson, JsonObject.class);
+        JsonArray feedItemsJsonArray = feedJsonObject.getAsJsonArray("feedItems");
+        List<Transaction> transactions = new ArrayList<>();
+        feedItemsJsonArray.forEach(jsonElement -> transactions.add(gson.fromJson(jsonElement, Transaction.class)));
+
+        return transactions;
+    }
+
+    @Benchmark
+    public List<Transaction> streamingDecode() throws IOException {
+
+        return TransactionFeedReader.readFeedItems(
+            new InputStreamReader(new ByteArrayInputStream(feed), StandardCharsets.UTF_8), "category");
+    }
+}
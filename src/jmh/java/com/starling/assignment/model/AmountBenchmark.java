@@ -0,0 +1,54 @@
+package com.starling.assignment.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting of amounts for display, for small, large and negative values, both as a new string and appended to a
+ * reused builder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmountBenchmark {
+
+    @Param({"87", "123456789", "-4200"})
+    public long minorUnits;
+
+    private Amount amount;
+    private StringBuilder out;
+
+    @Setup
+    public void setup() {
+
+        amount = new Amount("GBP", minorUnits);
+        out = new StringBuilder(32);
+    }
+
+    @Benchmark
+    public String getDisplayValue() {
+
+        return amount.getDisplayValue();
+    }
+
+    @Benchmark
+    public StringBuilder appendDisplayValue() {
+
+        out.setLength(0);
+        return amount.appendDisplayValue(out);
+    }
+}
@@ -0,0 +1,146 @@
+package com.starling.assignment.model;
+
+import com.starling.assignment.model.Transaction.Direction;
+import com.starling.assignment.model.Transaction.Status;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained by a decoded feed, with {@link Transaction} as it is and with the previous layout of one object per
+ * field ({@link LegacyTransaction}). Every operation decodes {@code items} feed items the way the JSON reader does,
+ * each string field a new string, and reports the heap still used per item after a full GC as the
+ * {@code bytesPerTransaction} secondary result. The primary result is the time to decode and collect, so it is only
+ * of interest for comparing the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class TransactionFootprintBenchmark {
+
+    private static final String CATEGORY_UID = new UUID(7L, 7L).toString();
+    private static final String[] SOURCES = {"MASTER_CARD", "DIRECT_DEBIT", "FASTER_PAYMENTS_OUT", "INTERNAL_TRANSFER"};
+
+    @Param({"100000"})
+    public int items;
+
+    private char[][] feedItemUids;
+    private char[][] sources;
+    private long[] minorUnits;
+    private long[] transactionTimes;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long bytesPerTransaction;
+    }
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(42L);
+        feedItemUids = new char[items][];
+        sources = new char[items][];
+        minorUnits = new long[items];
+        transactionTimes = new long[items];
+        for (int i = 0; i < items; i++) {
+            feedItemUids[i] = new UUID(random.nextLong(), random.nextLong()).toString().toCharArray();
+            sources[i] = SOURCES[random.nextInt(SOURCES.length)].toCharArray();
+            minorUnits[i] = 1 + random.nextInt(100_000);
+            transactionTimes[i] = 1546300800000L + i * 60_000L;
+        }
+    }
+
+    @Benchmark
+    public List<Transaction> compact(Footprint footprint) {
+
+        long before = usedHeap();
+        List<Transaction> feed = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            feed.add(new Transaction(new String(feedItemUids[i]), CATEGORY_UID,
+                new Amount(new String("GBP".toCharArray()), minorUnits[i]), new Date(transactionTimes[i]),
+                Direction.OUT, Status.SETTLED, new String(sources[i])));
+        }
+        footprint.bytesPerTransaction = (usedHeap() - before) / items;
+        return feed;
+    }
+
+    @Benchmark
+    public List<LegacyTransaction> legacy(Footprint footprint) {
+
+        long before = usedHeap();
+        List<LegacyTransaction> feed = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            feed.add(new LegacyTransaction(new String(feedItemUids[i]), CATEGORY_UID,
+                new Amount(new String("GBP".toCharArray()), minorUnits[i]), new Date(transactionTimes[i]),
+                Direction.OUT, Status.SETTLED, new String(sources[i])));
+        }
+        footprint.bytesPerTransaction = (usedHeap() - before) / items;
+        return feed;
+    }
+
+    private static long usedHeap() {
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * {@link Transaction} as it was before the compact layout.
+     */
+    public static final class LegacyTransaction {
+
+        private final String feedItemUid;
+        private final String categoryUid;
+        private final Amount amount;
+        private final Date transactionTime;
+        private final Direction direction;
+        private final Status status;
+        private final String source;
+
+        LegacyTransaction(String feedItemUid, String categoryUid, Amount amount, Date transactionTime,
+                          Direction direction, Status status, String source) {
+
+            this.feedItemUid = feedItemUid;
+            this.categoryUid = categoryUid;
+            this.amount = amount;
+            this.transactionTime = transactionTime;
+            this.direction = direction;
+            this.status = status;
+            this.source = source;
+        }
+
+        public String getFeedItemUid() {
+            return feedItemUid;
+        }
+
+        public Amount getAmount() {
+            return amount;
+        }
+    }
+}
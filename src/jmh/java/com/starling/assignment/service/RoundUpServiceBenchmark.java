@@ -0,0 +1,100 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.SyntheticBankingService;
+import com.starling.assignment.SyntheticFeed;
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.TransactionBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-up hot paths of {@link RoundUpService} over synthetic feeds from 1k to 10M transactions: eligibility and
+ * round-up calculation over the object model and over a columnar {@link TransactionBatch}, and date-range filtering
+ * of a fetched feed. The filtered window covers the middle half of the
+ * feed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class RoundUpServiceBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public int transactionCount;
+
+    private List<Transaction> transactions;
+    private TransactionBatch batch;
+    private RoundUpService roundUpService;
+    private RoundUpService parallelRoundUpService;
+    private Account account;
+    private Date from;
+    private Date to;
+
+    @Setup
+    public void setup() {
+
+        transactions = SyntheticFeed.transactions(transactionCount);
+        batch = TransactionBatch.of(transactions);
+        roundUpService = new RoundUpService(new SyntheticBankingService(transactions));
+        parallelRoundUpService = new RoundUpService(
+            new SyntheticBankingService(transactions), null, new ParallelRoundUpCalculator());
+        account = new Account("account", "category", "GBP", new Date(SyntheticFeed.START_MILLIS));
+        long first = transactions.get(0).getTransactionTime().getTime();
+        long last = transactions.get(transactions.size() - 1).getTransactionTime().getTime();
+        from = new Date(first + (last - first) / 4);
+        to = new Date(last - (last - first) / 4);
+    }
+
+    @Benchmark
+    public Amount calculateRoundUp() {
+
+        return roundUpService.calculateRoundUp(transactions);
+    }
+
+    @Benchmark
+    public Amount calculateRoundUpParallel() {
+
+        return parallelRoundUpService.calculateRoundUp(transactions);
+    }
+
+    @Benchmark
+    public Amount calculateRoundUpBatchParallel() {
+
+        return parallelRoundUpService.calculateRoundUp(batch);
+    }
+
+    @Benchmark
+    public Amount calculateRoundUpBatch() {
+
+        return roundUpService.calculateRoundUp(batch);
+    }
+
+    @Benchmark
+    public Amount calculateRoundUpBatchWithin() {
+
+        return roundUpService.calculateRoundUp(batch, from, to);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactions() {
+
+        return roundUpService.getTransactions(account, from, to);
+    }
+}
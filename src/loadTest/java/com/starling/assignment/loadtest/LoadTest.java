@@ -0,0 +1,257 @@
+package com.starling.assignment.loadtest;
+
+import com.starling.assignment.client.ApiMetrics;
+import com.starling.assignment.client.LatencyHistogram;
+import com.starling.assignment.client.StarlingApiClientImpl;
+import com.starling.assignment.client.TrafficControlInterceptor;
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.RoundUp;
+import com.starling.assignment.model.RoundUpPreview;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.service.BankingService;
+import com.starling.assignment.service.CoalescingBankingService;
+import com.starling.assignment.service.RoundUpService;
+import com.starling.assignment.service.StarlingBankingServiceImpl;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load driver. Starts a {@link StubStarlingServer} and runs the round-up flow of {@code Main} for every
+ * synthetic account, {@code concurrency} accounts at a time, through the real {@link StarlingApiClientImpl},
+ * {@link StarlingBankingServiceImpl} and {@link RoundUpService}: balance, feed and savings-goals fetched concurrently,
+ * round-up calculated, and transferred to the first eligible savings-goal. Reports throughput, the latency
+ * distribution of whole flows and the client's per-endpoint {@link ApiMetrics}.
+ *
+ * Options are given as {@code key=value} arguments, e.g. {@code accounts=5000 concurrency=64 latencyMs=50}; see
+ * {@link #DEFAULTS}. With {@code maxP99Ms} or {@code maxFailures} set, the run exits with status 1 when the flow p99 or
+ * the number of failed flows is above it, so it can gate a build. With {@code stream=true} the round-up is calculated
+ * with {@link RoundUpService#streamRoundUp} as the feed is read, and the time to its first partial total is reported.
+ */
+public class LoadTest {
+
+    private static final String ACCESS_TOKEN = "load-test-token";
+    private static final Map<String, String> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put("accounts", "1000");
+        DEFAULTS.put("rounds", "1");
+        DEFAULTS.put("concurrency", "32");
+        DEFAULTS.put("feedItems", "500");
+        DEFAULTS.put("feedDays", "30");
+        DEFAULTS.put("windowDays", "7");
+        DEFAULTS.put("goals", "3");
+        DEFAULTS.put("latencyMs", "20");
+        DEFAULTS.put("jitterMs", "10");
+        DEFAULTS.put("errorRate", "0");
+        DEFAULTS.put("serverThreads", "64");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("coalesce", "true");
+        DEFAULTS.put("stream", "false");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                System.err.println("Usage: LoadTest [key=value ...], keys: " + DEFAULTS.keySet()
+                    + ", maxP99Ms, maxFailures");
+                System.exit(1);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        StubServerConfig serverConfig = new StubServerConfig(
+            integer(options, "accounts"),
+            integer(options, "feedItems"),
+            integer(options, "feedDays"),
+            integer(options, "goals"),
+            Duration.ofMillis(Long.parseLong(options.get("latencyMs"))),
+            Duration.ofMillis(Long.parseLong(options.get("jitterMs"))),
+            Double.parseDouble(options.get("errorRate")),
+            integer(options, "serverThreads"),
+            Long.parseLong(options.get("seed")));
+        int rounds = integer(options, "rounds");
+        int concurrency = integer(options, "concurrency");
+        long windowDays = Long.parseLong(options.get("windowDays"));
+
+        System.out.printf(Locale.ROOT, "Load test: %d accounts x %d rounds, concurrency %d, %d feed items, "
+                + "latency %s + up to %s, error rate %.3f%n", serverConfig.getAccounts(), rounds, concurrency,
+            serverConfig.getFeedItemsPerAccount(), serverConfig.getLatency(), serverConfig.getLatencyJitter(),
+            serverConfig.getErrorRate());
+
+        boolean passed;
+        try (StubStarlingServer server = new StubStarlingServer(serverConfig)) {
+            passed = run(server, rounds, concurrency, windowDays, options);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static boolean run(StubStarlingServer server, int rounds, int concurrency, long windowDays,
+                               Map<String, String> options) throws Exception {
+
+        ApiMetrics apiMetrics = new ApiMetrics();
+        StarlingApiClientImpl apiClient = new StarlingApiClientImpl(server.getBaseUrl(),
+            StubStarlingServer.API_VERSION, ACCESS_TOKEN, null, 0L, TrafficControlInterceptor.withDefaults(),
+            apiMetrics);
+        StarlingBankingServiceImpl starlingBankingService = new StarlingBankingServiceImpl(apiClient);
+        CoalescingBankingService coalescingBankingService = Boolean.parseBoolean(options.get("coalesce"))
+            ? new CoalescingBankingService(starlingBankingService) : null;
+        BankingService bankingService =
+            (coalescingBankingService != null) ? coalescingBankingService : starlingBankingService;
+        RoundUpService roundUpService = new RoundUpService(bankingService);
+
+        ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        Date from = Date.from(today.minusDays(windowDays).toInstant());
+        Date to = Date.from(today.toInstant());
+        List<Account> accounts = bankingService.getAccounts();
+
+        boolean stream = Boolean.parseBoolean(options.get("stream"));
+        LatencyHistogram flowLatency = new LatencyHistogram();
+        LatencyHistogram firstTotalLatency = new LatencyHistogram();
+        AtomicLong failures = new AtomicLong();
+        AtomicLong transferred = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        List<Future<?>> flows = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            for (Account account : accounts) {
+                flows.add(executor.submit(() -> {
+                    long flowStart = System.nanoTime();
+                    try {
+                        boolean flowTransferred = stream
+                            ? runStreamingFlow(roundUpService, account, from, to, firstTotalLatency)
+                            : runFlow(roundUpService, account, from, to);
+                        if (flowTransferred) transferred.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        flowLatency.record(System.nanoTime() - flowStart);
+                    }
+                }));
+            }
+        }
+        for (Future<?> flow : flows) {
+            flow.get();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        executor.shutdown();
+
+        long completed = flowLatency.getCount();
+        System.out.printf(Locale.ROOT, "Flows: %d, %d failed, %d transferred in %.2f s, %.1f flows/s%n", completed,
+            failures.get(), transferred.get(), elapsed.toMillis() / 1_000d,
+            completed * 1_000d / Math.max(elapsed.toMillis(), 1L));
+        double p99Millis = flowLatency.getValueAtQuantile(0.99d) / 1_000_000d;
+        System.out.printf(Locale.ROOT, "Flow latency: p50=%.3f p99=%.3f p999=%.3f max=%.3f ms%n",
+            flowLatency.getValueAtQuantile(0.5d) / 1_000_000d, p99Millis,
+            flowLatency.getValueAtQuantile(0.999d) / 1_000_000d, flowLatency.getMax() / 1_000_000d);
+        if (stream) {
+            System.out.printf(Locale.ROOT, "First partial round-up: p50=%.3f p99=%.3f ms%n",
+                firstTotalLatency.getValueAtQuantile(0.5d) / 1_000_000d,
+                firstTotalLatency.getValueAtQuantile(0.99d) / 1_000_000d);
+        }
+        System.out.printf("Server: %d requests, %d injected errors, %d transfers, %d duplicate transfers%n",
+            server.getRequestCount(), server.getInjectedErrorCount(), server.getTransferCount(),
+            server.getDuplicateTransferCount());
+        if (coalescingBankingService != null) {
+            System.out.printf("Coalescing: %d reads sent, %d coalesced into reads in flight%n",
+                coalescingBankingService.getRequestCount(), coalescingBankingService.getCoalescedCount());
+        }
+        System.out.println();
+        System.out.print(apiMetrics.toText());
+
+        boolean passed = true;
+        if (options.containsKey("maxP99Ms") && p99Millis > Double.parseDouble(options.get("maxP99Ms"))) {
+            System.out.println("FAILED: flow p99 above maxP99Ms=" + options.get("maxP99Ms"));
+            passed = false;
+        }
+        if (options.containsKey("maxFailures") && failures.get() > Long.parseLong(options.get("maxFailures"))) {
+            System.out.println("FAILED: failed flows above maxFailures=" + options.get("maxFailures"));
+            passed = false;
+        }
+        return passed;
+    }
+
+    // The non-interactive part of Main's flow, transferring to the first eligible savings-goal.
+    private static boolean runFlow(RoundUpService roundUpService, Account account, Date from, Date to) {
+
+        RoundUpPreview preview = roundUpService.prepareRoundUpAsync(account, from, to).join();
+        Amount roundUpAmount = preview.getRoundUpAmount();
+        if (roundUpAmount.getMinorUnits() == 0L || preview.getSavingsGoals().isEmpty()) return false;
+
+        RoundUp roundUp = roundUpService.transferRoundUpToSavingsGoal(account, roundUpAmount, from, to,
+            preview.getSavingsGoals().get(0).getSavingsGoalUid());
+        if (roundUp == null) throw new RuntimeException("Transfer to savings-goal was not accepted");
+        return true;
+    }
+
+    // The same flow with the round-up streamed, and savings-goals fetched once its total is known.
+    private static boolean runStreamingFlow(RoundUpService roundUpService, Account account, Date from, Date to,
+                                            LatencyHistogram firstTotalLatency) {
+
+        long start = System.nanoTime();
+        CompletableFuture<Amount> total = new CompletableFuture<>();
+        roundUpService.streamRoundUp(account, from, to).subscribe(new Flow.Subscriber<Amount>() {
+
+            private Amount last;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Amount runningTotal) {
+
+                if (last == null) firstTotalLatency.record(System.nanoTime() - start);
+                last = runningTotal;
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+
+                total.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+
+                total.complete(last);
+            }
+        });
+
+        Amount roundUpAmount = total.join();
+        if (roundUpAmount.getMinorUnits() == 0L) return false;
+        List<SavingsGoal> savingsGoals =
+            roundUpService.fetchSavingsGoalsForAmount(account.getAccountUid(), roundUpAmount);
+        if (savingsGoals.isEmpty()) return false;
+
+        RoundUp roundUp = roundUpService.transferRoundUpToSavingsGoal(account, roundUpAmount, from, to,
+            savingsGoals.get(0).getSavingsGoalUid());
+        if (roundUp == null) throw new RuntimeException("Transfer to savings-goal was not accepted");
+        return true;
+    }
+
+    private static int integer(Map<String, String> options, String key) {
+
+        return Integer.parseInt(options.get(key));
+    }
+}
@@ -0,0 +1,86 @@
+package com.starling.assignment.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Shape and behaviour of the data served by a {@link StubStarlingServer}.
+ */
+public class StubServerConfig {
+
+    private final int accounts;
+    private final int feedItemsPerAccount;
+    private final int feedDays;
+    private final int savingsGoalsPerAccount;
+    private final Duration latency;
+    private final Duration latencyJitter;
+    private final double errorRate;
+    private final int threads;
+    private final long seed;
+
+    /**
+     * @param accounts number of accounts returned by the accounts endpoint
+     * @param feedItemsPerAccount feed items of every account, spread evenly over {@code feedDays} up to now
+     * @param feedDays days of history in every feed
+     * @param savingsGoalsPerAccount savings-goals of every account
+     * @param latency time every response is held back for
+     * @param latencyJitter maximum random time added to {@code latency}
+     * @param errorRate fraction of requests, between 0 and 1, answered with 503 Service Unavailable
+     * @param threads threads serving requests; a request holds its thread for its whole latency
+     * @param seed seed of the generated accounts and feeds
+     */
+    public StubServerConfig(int accounts, int feedItemsPerAccount, int feedDays, int savingsGoalsPerAccount,
+                            Duration latency, Duration latencyJitter, double errorRate, int threads, long seed) {
+
+        if (accounts < 1) throw new IllegalArgumentException("accounts must be at least 1");
+        if (feedItemsPerAccount < 0) throw new IllegalArgumentException("feedItemsPerAccount must not be negative");
+        if (feedDays < 1) throw new IllegalArgumentException("feedDays must be at least 1");
+        if (errorRate < 0d || errorRate > 1d) throw new IllegalArgumentException("errorRate must be between 0 and 1");
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+
+        this.accounts = accounts;
+        this.feedItemsPerAccount = feedItemsPerAccount;
+        this.feedDays = feedDays;
+        this.savingsGoalsPerAccount = savingsGoalsPerAccount;
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+        this.errorRate = errorRate;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    public int getAccounts() {
+        return accounts;
+    }
+
+    public int getFeedItemsPerAccount() {
+        return feedItemsPerAccount;
+    }
+
+    public int getFeedDays() {
+        return feedDays;
+    }
+
+    public int getSavingsGoalsPerAccount() {
+        return savingsGoalsPerAccount;
+    }
+
+    public Duration getLatency() {
+        return latency;
+    }
+
+    public Duration getLatencyJitter() {
+        return latencyJitter;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
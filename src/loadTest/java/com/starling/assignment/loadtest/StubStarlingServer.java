@@ -0,0 +1,375 @@
+package com.starling.assignment.loadtest;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the parts of the Starling API used by the application: accounts, balance, transaction feed
+ * (whole and between timestamps), savings-goals and add-money. It listens on an ephemeral port of the loopback
+ * address and serves synthetic, deterministic data shaped by a {@link StubServerConfig}, holding every response back
+ * by the configured latency and failing the configured fraction of requests with 503.
+ *
+ * Transfers to savings-goals are applied once per transfer UID, as by the real API, so retried transfers can be
+ * told apart from duplicated ones with {@link #getTransferCount()} and {@link #getDuplicateTransferCount()}.
+ */
+public class StubStarlingServer implements Closeable {
+
+    public static final String API_VERSION = "/api/v2";
+
+    private static final String[] SOURCES = {
+        "MASTER_CARD", "DIRECT_DEBIT", "FASTER_PAYMENTS_IN", "FASTER_PAYMENTS_OUT", "INTERNAL_TRANSFER"
+    };
+    private static final String[] STATUSES = {"SETTLED", "SETTLED", "SETTLED", "PENDING", "DECLINED"};
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final StubServerConfig config;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, StubAccount> accounts = new LinkedHashMap<>();
+    private final Set<String> transferUids = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong injectedErrorCount = new AtomicLong();
+    private final AtomicLong duplicateTransferCount = new AtomicLong();
+
+    public StubStarlingServer(StubServerConfig config) throws IOException {
+
+        this.config = config;
+        generateAccounts(Instant.now().toEpochMilli());
+        this.executor = Executors.newFixedThreadPool(config.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "stub-starling-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.server.createContext(API_VERSION + "/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /**
+     * @return base URL to hand to the API client, without the API version
+     */
+    public String getBaseUrl() {
+
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+
+        return requestCount.get();
+    }
+
+    public long getInjectedErrorCount() {
+
+        return injectedErrorCount.get();
+    }
+
+    /**
+     * @return number of distinct transfers applied to savings-goals
+     */
+    public long getTransferCount() {
+
+        return transferUids.size();
+    }
+
+    /**
+     * @return number of add-money requests repeating the transfer UID of an applied transfer
+     */
+    public long getDuplicateTransferCount() {
+
+        return duplicateTransferCount.get();
+    }
+
+    @Override
+    public void close() {
+
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try {
+            requestCount.incrementAndGet();
+            delay();
+            if (exchange.getRequestHeaders().getFirst("Authorization") == null) {
+                respond(exchange, 403, "{\"error\":\"Missing access token\"}");
+            } else if (config.getErrorRate() > 0d && ThreadLocalRandom.current().nextDouble() < config.getErrorRate()) {
+                injectedErrorCount.incrementAndGet();
+                respond(exchange, SERVICE_UNAVAILABLE, "{\"error\":\"Injected failure\"}");
+            } else {
+                route(exchange);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring(API_VERSION.length() + 1).split("/");
+        int accountSegment = "feed".equals(path[0]) ? 2 : 1;
+        StubAccount account = (path.length > accountSegment) ? accounts.get(path[accountSegment]) : null;
+
+        if ("GET".equals(method) && path.length == 1 && "accounts".equals(path[0])) {
+            respond(exchange, 200, accountsJson());
+        } else if (account == null) {
+            respond(exchange, 404, "{\"error\":\"Not found\"}");
+        } else if ("GET".equals(method) && path.length == 3 && "accounts".equals(path[0])
+            && "balance".equals(path[2])) {
+            respond(exchange, 200, "{\"amount\":" + amountJson(account.balance) + "}");
+        } else if ("GET".equals(method) && "feed".equals(path[0]) && (path.length == 5 || path.length == 6)) {
+            feed(exchange, account, path.length == 6);
+        } else if ("account".equals(path[0]) && path.length >= 3 && "savings-goals".equals(path[2])) {
+            savingsGoals(exchange, account, method, path);
+        } else {
+            respond(exchange, 404, "{\"error\":\"Not found\"}");
+        }
+    }
+
+    private void feed(HttpExchange exchange, StubAccount account, boolean between) throws IOException {
+
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        if (between) {
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            try {
+                from = Instant.parse(query.getOrDefault("minTransactionTimestamp", "")).toEpochMilli();
+                to = Instant.parse(query.getOrDefault("maxTransactionTimestamp", "")).toEpochMilli();
+            } catch (DateTimeParseException e) {
+                respond(exchange, 400, "{\"error\":\"Invalid timestamps\"}");
+                return;
+            }
+        }
+
+        StringBuilder json = new StringBuilder(account.times.length * 600).append("{\"feedItems\":[");
+        boolean first = true;
+        for (int i = 0; i < account.times.length; i++) {
+            if (account.times[i] < from || account.times[i] > to) continue;
+            if (!first) json.append(',');
+            first = false;
+            appendFeedItem(json, account, i);
+        }
+        respond(exchange, 200, json.append("]}").toString());
+    }
+
+    private void savingsGoals(HttpExchange exchange, StubAccount account, String method, String[] path)
+        throws IOException {
+
+        if (path.length == 3 && "GET".equals(method)) {
+            StringBuilder json = new StringBuilder("{\"savingsGoalList\":[");
+            boolean first = true;
+            for (StubSavingsGoal savingsGoal : account.savingsGoals.values()) {
+                if (!first) json.append(',');
+                first = false;
+                json.append(savingsGoal.toJson());
+            }
+            respond(exchange, 200, json.append("]}").toString());
+        } else if (path.length == 3 && "PUT".equals(method)) {
+            JsonObject request = readJson(exchange);
+            String savingsGoalUid = UUID.randomUUID().toString();
+            JsonObject target = request.getAsJsonObject("target");
+            account.savingsGoals.put(savingsGoalUid, new StubSavingsGoal(savingsGoalUid,
+                request.get("name").getAsString(), target.get("minorUnits").getAsLong()));
+            respond(exchange, 200, "{\"savingsGoalUid\":\"" + savingsGoalUid + "\",\"success\":true}");
+        } else {
+            StubSavingsGoal savingsGoal = account.savingsGoals.get(path[3]);
+            if (savingsGoal == null) {
+                respond(exchange, 404, "{\"error\":\"Savings-goal not found\"}");
+            } else if (path.length == 4 && "GET".equals(method)) {
+                respond(exchange, 200, savingsGoal.toJson());
+            } else if (path.length == 6 && "PUT".equals(method) && "add-money".equals(path[4])) {
+                long minorUnits = readJson(exchange).getAsJsonObject("amount").get("minorUnits").getAsLong();
+                if (transferUids.add(path[5])) {
+                    savingsGoal.totalSaved.addAndGet(minorUnits);
+                } else {
+                    duplicateTransferCount.incrementAndGet();
+                }
+                respond(exchange, 200, "{\"transferUid\":\"" + path[5] + "\",\"success\":true}");
+            } else {
+                respond(exchange, 404, "{\"error\":\"Not found\"}");
+            }
+        }
+    }
+
+    private String accountsJson() {
+
+        StringBuilder json = new StringBuilder(accounts.size() * 200).append("{\"accounts\":[");
+        boolean first = true;
+        for (StubAccount account : accounts.values()) {
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"accountUid\":\"").append(account.accountUid)
+                .append("\",\"accountType\":\"PRIMARY\",\"defaultCategory\":\"").append(account.categoryUid)
+                .append("\",\"currency\":\"GBP\",\"createdAt\":\"").append(Instant.ofEpochMilli(account.createdAt))
+                .append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private void appendFeedItem(StringBuilder json, StubAccount account, int i) {
+
+        String time = Instant.ofEpochMilli(account.times[i]).toString();
+        json.append("{\"feedItemUid\":\"").append(new UUID(account.accountIndex, i))
+            .append("\",\"categoryUid\":\"").append(account.categoryUid)
+            .append("\",\"amount\":").append(amountJson(account.minorUnits[i]))
+            .append(",\"sourceAmount\":").append(amountJson(account.minorUnits[i]))
+            .append(",\"direction\":\"").append(account.directions[i] ? "OUT" : "IN")
+            .append("\",\"updatedAt\":\"").append(time)
+            .append("\",\"transactionTime\":\"").append(time)
+            .append("\",\"settlementTime\":\"").append(time)
+            .append("\",\"source\":\"").append(SOURCES[account.sources[i]])
+            .append("\",\"status\":\"").append(STATUSES[account.statuses[i]])
+            .append("\",\"counterPartyType\":\"MERCHANT\",\"counterPartyName\":\"Merchant ").append(i % 500)
+            .append("\",\"reference\":\"Card purchase ").append(i)
+            .append("\",\"country\":\"GB\",\"spendingCategory\":\"EATING_OUT\",\"hasAttachment\":false}");
+    }
+
+    private void generateAccounts(long now) {
+
+        Random random = new Random(config.getSeed());
+        long feedMillis = TimeUnit.DAYS.toMillis(config.getFeedDays());
+        int items = config.getFeedItemsPerAccount();
+        for (int a = 0; a < config.getAccounts(); a++) {
+            StubAccount account = new StubAccount(a, items, now - feedMillis - TimeUnit.DAYS.toMillis(30));
+            for (int i = 0; i < items; i++) {
+                account.times[i] = now - feedMillis + (feedMillis * i) / Math.max(items, 1);
+                account.minorUnits[i] = 1 + random.nextInt(20_000);
+                account.directions[i] = random.nextInt(4) != 0;
+                account.sources[i] = (byte) random.nextInt(SOURCES.length);
+                account.statuses[i] = (byte) random.nextInt(STATUSES.length);
+            }
+            for (int g = 0; g < config.getSavingsGoalsPerAccount(); g++) {
+                String savingsGoalUid = new UUID(1_000L + a, g).toString();
+                account.savingsGoals.put(savingsGoalUid,
+                    new StubSavingsGoal(savingsGoalUid, "Goal " + g, 100_000_000_000L));
+            }
+            accounts.put(account.accountUid, account);
+        }
+    }
+
+    private void delay() {
+
+        long delayMillis = config.getLatency().toMillis();
+        long jitterMillis = config.getLatencyJitter().toMillis();
+        if (jitterMillis > 0L) delayMillis += ThreadLocalRandom.current().nextLong(jitterMillis + 1L);
+        if (delayMillis == 0L) return;
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static JsonObject readJson(HttpExchange exchange) {
+
+        return new JsonParser().parse(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))
+            .getAsJsonObject();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) return query;
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                query.put(parameter.substring(0, separator),
+                    URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String amountJson(long minorUnits) {
+
+        return "{\"currency\":\"GBP\",\"minorUnits\":" + minorUnits + "}";
+    }
+
+    private static final class StubAccount {
+
+        private final long accountIndex;
+        private final String accountUid;
+        private final String categoryUid;
+        private final long createdAt;
+        private final long balance;
+        private final long[] times;
+        private final long[] minorUnits;
+        private final boolean[] directions;
+        private final byte[] sources;
+        private final byte[] statuses;
+        private final Map<String, StubSavingsGoal> savingsGoals = new ConcurrentSkipListMap<>();
+
+        private StubAccount(long accountIndex, int items, long createdAt) {
+
+            this.accountIndex = accountIndex;
+            this.accountUid = new UUID(1L, accountIndex).toString();
+            this.categoryUid = new UUID(2L, accountIndex).toString();
+            this.createdAt = createdAt;
+            this.balance = 1_000_000L + accountIndex;
+            this.times = new long[items];
+            this.minorUnits = new long[items];
+            this.directions = new boolean[items];
+            this.sources = new byte[items];
+            this.statuses = new byte[items];
+        }
+    }
+
+    private static final class StubSavingsGoal {
+
+        private final String savingsGoalUid;
+        private final String name;
+        private final long target;
+        private final AtomicLong totalSaved = new AtomicLong();
+
+        private StubSavingsGoal(String savingsGoalUid, String name, long target) {
+
+            this.savingsGoalUid = savingsGoalUid;
+            this.name = name;
+            this.target = target;
+        }
+
+        private String toJson() {
+
+            return "{\"savingsGoalUid\":\"" + savingsGoalUid + "\",\"name\":\"" + name + "\",\"target\":"
+                + amountJson(target) + ",\"totalSaved\":" + amountJson(totalSaved.get()) + ",\"savedPercentage\":0}";
+        }
+    }
+}
@@ -1,19 +1,40 @@
 package com.starling.assignment;
 
+import com.starling.assignment.client.ApiMetrics;
+import com.starling.assignment.client.ApiMetricsReporter;
 import com.starling.assignment.client.StarlingApiClient;
 import com.starling.assignment.client.StarlingApiClientImpl;
+import com.starling.assignment.client.TrafficControlInterceptor;
+import com.starling.assignment.daemon.DaemonConfig;
+import com.starling.assignment.daemon.RoundUpDaemon;
 import com.starling.assignment.model.Account;
+import com.starling.assignment.model.AccountRoundUp;
 import com.starling.assignment.model.Amount;
 import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.IncrementalRoundUp;
 import com.starling.assignment.model.RoundUp;
+import com.starling.assignment.model.RoundUpPreview;
 import com.starling.assignment.model.SavingsGoal;
 import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.WindowRoundUp;
 import com.starling.assignment.service.BankingService;
+import com.starling.assignment.service.BatchRoundUpRunner;
+import com.starling.assignment.service.CachingBankingService;
+import com.starling.assignment.service.CoalescingBankingService;
+import com.starling.assignment.service.DailyRoundUpAggregates;
+import com.starling.assignment.service.FileRoundUpCheckpointStore;
+import com.starling.assignment.service.ProcessedFeedItems;
+import com.starling.assignment.service.RoundUpReportEngine;
 import com.starling.assignment.service.RoundUpService;
 import com.starling.assignment.service.StarlingBankingServiceImpl;
+import com.starling.assignment.service.TransferJournal;
+import com.starling.assignment.service.TransferPipeline;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -27,23 +48,83 @@ public class Main {
     private static final String STARLING_BASE_URL = "https://api-sandbox.starlingbank.com";
     private static final String STARLING_API_VERSION = "/api/v2";
     private static final DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    private static final String INCREMENTAL = "incremental";
+    private static final String ALL_ACCOUNTS = "all-accounts";
+    private static final String DAEMON = "daemon";
+    private static final String DAILY_ROUND_UPS = "daily-round-ups";
+    private static final String WEEKLY_HISTORY = "weekly-history";
+    private static final long[] REPORTED_DAYS = {7L, 30L, 90L, 365L};
+    private static final int MAX_CONCURRENT_ACCOUNTS = 8;
+    private static final Duration ACCOUNT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration ACCOUNTS_TTL = Duration.ofHours(1);
+    private static final Duration BALANCE_TTL = Duration.ofMinutes(1);
+    private static final Duration SAVINGS_GOALS_TTL = Duration.ofMinutes(10);
+    private static final int MAX_CACHED_ENTRIES = 1_000;
+    private static final Path CHECKPOINT_FILE =
+        Paths.get(System.getProperty("user.home"), ".savings-goals", "round-up-checkpoints.properties");
+    private static final Path HTTP_CACHE_DIRECTORY =
+        Paths.get(System.getProperty("user.home"), ".savings-goals", "http-cache");
+    private static final long HTTP_CACHE_SIZE = 10L * 1024L * 1024L;
+    private static final Path DAEMON_CONFIG_FILE =
+        Paths.get(System.getProperty("user.home"), ".savings-goals", "daemon.properties");
+    private static final Path TRANSFER_JOURNAL_FILE =
+        Paths.get(System.getProperty("user.home"), ".savings-goals", "transfer-journal.log");
+    private static final Path PROCESSED_FEED_ITEMS_DIRECTORY =
+        Paths.get(System.getProperty("user.home"), ".savings-goals", "processed-feed-items");
+    private static final Path DAILY_ROUND_UPS_DIRECTORY =
+        Paths.get(System.getProperty("user.home"), ".savings-goals", "daily-round-ups");
 
     public static void main(String[] args) throws Exception {
 
         System.out.println("Starling Savings-Goals Test");
         System.out.println();
 
-        if (args.length != 2) {
-            System.err.println(
-                "Usage: java -jar <path/to/executable/savings-goals.jar> <access-token> <days-from-today>");
+        String mode = (args.length >= 3) ? args[2] : "";
+        boolean validMode = mode.isEmpty() || INCREMENTAL.equals(mode) || ALL_ACCOUNTS.equals(mode)
+            || DAEMON.equals(mode) || DAILY_ROUND_UPS.equals(mode) || WEEKLY_HISTORY.equals(mode);
+        if (args.length < 2 || args.length > (DAEMON.equals(mode) ? 4 : 3) || !validMode) {
+            System.err.println("Usage: java -jar <path/to/executable/savings-goals.jar> <access-token> "
+                + "<days-from-today> [" + INCREMENTAL + "|" + ALL_ACCOUNTS + "|" + DAILY_ROUND_UPS + "|"
+                + WEEKLY_HISTORY + "|" + DAEMON + " [config-file]]");
             System.exit(1);
         }
 
         String accessToken = args[0];
         long daysFromToday = Long.parseLong(args[1]);
-        StarlingApiClient apiClient = new StarlingApiClientImpl(STARLING_BASE_URL, STARLING_API_VERSION, accessToken);
-        BankingService bankingService = new StarlingBankingServiceImpl(apiClient);
-        RoundUpService roundUpService = new RoundUpService(bankingService);
+        boolean incremental = INCREMENTAL.equals(mode);
+        ApiMetrics apiMetrics = new ApiMetrics();
+        apiMetrics.registerMBean();
+        StarlingApiClient apiClient = new StarlingApiClientImpl(STARLING_BASE_URL, STARLING_API_VERSION, accessToken,
+            HTTP_CACHE_DIRECTORY.toFile(), HTTP_CACHE_SIZE, TrafficControlInterceptor.withDefaults(), apiMetrics);
+        // Repeat reads, such as those of the daemon's ticks, are answered from memory until a write invalidates them.
+        BankingService bankingService = new CachingBankingService(
+            new CoalescingBankingService(new StarlingBankingServiceImpl(apiClient)), ACCOUNTS_TTL, BALANCE_TTL,
+            SAVINGS_GOALS_TTL, MAX_CACHED_ENTRIES);
+        // The daemon reruns overlapping windows, so it keeps track of the feed items it has counted.
+        RoundUpService roundUpService = new RoundUpService(bankingService,
+            new FileRoundUpCheckpointStore(CHECKPOINT_FILE), null,
+            DAEMON.equals(mode) ? new ProcessedFeedItems(PROCESSED_FEED_ITEMS_DIRECTORY, true, true) : null);
+
+        if (ALL_ACCOUNTS.equals(mode)) {
+            printAllAccountsRoundUp(bankingService, roundUpService, daysFromToday);
+            System.exit(0);
+        }
+
+        if (DAILY_ROUND_UPS.equals(mode)) {
+            printDailyRoundUps(bankingService, new DailyRoundUpAggregates(DAILY_ROUND_UPS_DIRECTORY), daysFromToday);
+            System.exit(0);
+        }
+
+        if (WEEKLY_HISTORY.equals(mode)) {
+            printWeeklyHistory(bankingService, new RoundUpReportEngine(bankingService));
+            System.exit(0);
+        }
+
+        if (DAEMON.equals(mode)) {
+            Path configFile = (args.length == 4) ? Paths.get(args[3]) : DAEMON_CONFIG_FILE;
+            runDaemon(bankingService, roundUpService, DaemonConfig.load(configFile, daysFromToday), apiMetrics);
+            return;
+        }
 
         List<Account> accounts = bankingService.getAccounts();
         if (accounts.isEmpty()) {
@@ -55,35 +136,50 @@ public class Main {
         String accountUid = account.getAccountUid();
         System.out.println("Account UID: " + accountUid);
 
-        Balance balance = bankingService.getAccountBalance(accountUid);
-        System.out.println("Account Balance: " + balance.getAmount().getDisplayValue());
-        System.out.println();
-
-        System.out.println("Calculating round-up...");
         ZonedDateTime ldToday = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
         ZonedDateTime ldWeekAgo = ldToday.minusDays(daysFromToday);
         Date from = Date.from(ldWeekAgo.toInstant());
         Date to = Date.from(ldToday.toInstant());
+
+        // Balance, transactions and savings-goals are fetched concurrently, except in incremental mode.
+        RoundUpPreview preview = incremental ? null : roundUpService.prepareRoundUpAsync(account, from, to).join();
+
+        Balance balance = incremental ? bankingService.getAccountBalance(accountUid) : preview.getBalance();
+        System.out.println("Account Balance: " + balance.getAmount().getDisplayValue());
+        System.out.println();
+
+        System.out.println("Calculating round-up...");
         System.out.println("From: " + df.format(from));
         System.out.println("To: " + df.format(to));
-        List<Transaction> transactions = roundUpService.getTransactions(account, from, to);
-        System.out.println("Transactions: " + transactions.size());
 
-        if (transactions.isEmpty()) {
-            System.out.println("No transactions found for the given period. Program will terminate.");
-            System.exit(0);
-        }
+        Amount roundUpAmount;
+        IncrementalRoundUp incrementalRoundUp = null;
+        if (incremental) {
+            System.out.println("Incremental: only transactions since the last incremental run are included");
+            incrementalRoundUp = roundUpService.calculateIncrementalRoundUp(account, from, to);
+            roundUpAmount = incrementalRoundUp.getAmount();
+        } else {
+            List<Transaction> transactions = preview.getTransactions();
+            System.out.println("Transactions: " + transactions.size());
+
+            if (transactions.isEmpty()) {
+                System.out.println("No transactions found for the given period. Program will terminate.");
+                System.exit(0);
+            }
 
-        Amount roundUpAmount = roundUpService.calculateRoundUp(transactions);
+            roundUpAmount = preview.getRoundUpAmount();
+        }
         System.out.println("Round-up amount: " + roundUpAmount.getDisplayValue());
         System.out.println();
 
         if (roundUpAmount.getMinorUnits() == 0) {
+            if (incremental) roundUpService.saveCheckpoint(incrementalRoundUp);
             System.out.println("Nothing to transfer. Program will terminate.");
             System.exit(0);
         }
 
-        List<SavingsGoal> savingsGoals = roundUpService.fetchSavingsGoalsForAmount(accountUid, roundUpAmount);
+        List<SavingsGoal> savingsGoals = incremental
+            ? roundUpService.fetchSavingsGoalsForAmount(accountUid, roundUpAmount) : preview.getSavingsGoals();
 
         if (savingsGoals.isEmpty()) {
             System.out.println("No svaings-goals found for this account. Program will terminate.");
@@ -122,10 +218,111 @@ public class Main {
         }
 
         System.out.println("Transfer of round-up amount to savings-goal succeeded!");
+        // Only now are the transactions of an incremental run counted; until then the next run includes them again.
+        if (incremental) roundUpService.saveCheckpoint(incrementalRoundUp);
         TimeUnit.SECONDS.sleep(2L);
         targetSavingsGoal = bankingService.getSavingsGoal(accountUid, targetSavingsGoal.getSavingsGoalUid());
         System.out.println("Savings-Goal: " + targetSavingsGoal.getName());
         System.out.println("Target: " + targetSavingsGoal.getTarget().getDisplayValue());
         System.out.println("Saved: " + targetSavingsGoal.getTotalSaved().getDisplayValue());
     }
+
+    private static void runDaemon(BankingService bankingService, RoundUpService roundUpService, DaemonConfig config,
+                                  ApiMetrics apiMetrics) throws InterruptedException {
+
+        System.out.println("Running round-up daemon, stop with Ctrl-C or SIGTERM...");
+        TransferPipeline transferPipeline = (config.getTransferFlushInterval() == null) ? null
+            : new TransferPipeline(bankingService, new TransferJournal(TRANSFER_JOURNAL_FILE),
+                config.getTransferFlushInterval());
+        RoundUpDaemon daemon = new RoundUpDaemon(bankingService, roundUpService, config, transferPipeline);
+        ApiMetricsReporter metricsReporter = (config.getMetricsDumpInterval() == null) ? null
+            : new ApiMetricsReporter(apiMetrics, config.getMetricsDumpInterval(),
+                config.isMetricsDumpJson() ? ApiMetricsReporter.Format.JSON : ApiMetricsReporter.Format.TEXT,
+                System.out::print);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            daemon.shutdown();
+            if (metricsReporter != null) metricsReporter.shutdown();
+        }, "round-up-daemon-shutdown"));
+        if (metricsReporter != null) metricsReporter.start();
+        daemon.start();
+        daemon.awaitTermination();
+    }
+
+    private static void printDailyRoundUps(BankingService bankingService, DailyRoundUpAggregates aggregates,
+                                           long daysFromToday) {
+
+        System.out.println("Calculating daily round-ups for all accounts...");
+        ZonedDateTime ldToday = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        Date today = Date.from(ldToday.toInstant());
+        Date now = new Date();
+        System.out.println();
+
+        for (Account account : bankingService.getAccounts()) {
+            // Only the feed since the oldest item awaiting settlement, or else the last recorded transaction, is
+            // fetched; the first time, days-from-today of it.
+            Date rescanFrom = aggregates.getRescanFrom(account);
+            Date since = (rescanFrom != null) ? rescanFrom
+                : Date.from(ldToday.minusDays(daysFromToday).toInstant());
+            List<Transaction> transactions = now.after(since) ? bankingService.getTransactions(
+                account.getAccountUid(), account.getDefaultCategory(), since, now) : null;
+            int recorded = aggregates.record(account, transactions);
+
+            System.out.println("Account UID: " + account.getAccountUid());
+            System.out.println("   New eligible transactions: " + recorded);
+            for (long days : REPORTED_DAYS) {
+                WindowRoundUp roundUp =
+                    aggregates.query(account, Date.from(ldToday.minusDays(days).toInstant()), today);
+                System.out.printf("   Last %d days: %s from %d transactions\n", days,
+                    roundUp.getAmount().getDisplayValue(), roundUp.getTransactionCount());
+            }
+            System.out.println();
+        }
+    }
+
+    private static void printWeeklyHistory(BankingService bankingService, RoundUpReportEngine reportEngine) {
+
+        System.out.println("Calculating weekly round-ups since each account was created...");
+        Date today = Date.from(LocalDate.now().atStartOfDay(ZoneId.of("UTC")).toInstant());
+        System.out.println();
+
+        for (Account account : bankingService.getAccounts()) {
+            System.out.println("Account UID: " + account.getAccountUid());
+            for (WindowRoundUp roundUp : reportEngine.backfillWeekly(account, today)) {
+                System.out.printf("   %s: %s from %d transactions\n", df.format(roundUp.getFrom()),
+                    roundUp.getAmount().getDisplayValue(), roundUp.getTransactionCount());
+            }
+            System.out.println();
+        }
+    }
+
+    private static void printAllAccountsRoundUp(BankingService bankingService, RoundUpService roundUpService,
+                                                long daysFromToday) {
+
+        System.out.println("Calculating round-up for all accounts...");
+        ZonedDateTime ldToday = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        Date from = Date.from(ldToday.minusDays(daysFromToday).toInstant());
+        Date to = Date.from(ldToday.toInstant());
+        System.out.println("From: " + df.format(from));
+        System.out.println("To: " + df.format(to));
+        System.out.println();
+
+        BatchRoundUpRunner runner =
+            new BatchRoundUpRunner(bankingService, roundUpService, MAX_CONCURRENT_ACCOUNTS, ACCOUNT_TIMEOUT);
+        List<AccountRoundUp> roundUps = runner.run(from, to);
+        runner.shutdown();
+
+        if (roundUps.isEmpty()) {
+            System.out.println("No accounts found for provided access token.");
+        }
+        for (AccountRoundUp roundUp : roundUps) {
+            System.out.println("Account UID: " + roundUp.getAccount().getAccountUid());
+            if (roundUp.isSuccessful()) {
+                System.out.println("   Transactions: " + roundUp.getTransactionCount());
+                System.out.println("   Round-up amount: " + roundUp.getAmount().getDisplayValue());
+            } else {
+                System.out.println("   Round-up failed: " + roundUp.getError().getMessage());
+            }
+            System.out.printf("   Took: %d ms\n", roundUp.getElapsed().toMillis());
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package com.starling.assignment.client;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.function.IntConsumer;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) limit on the number of requests in flight. The limit grows by
+ * about one for every limit's worth of requests answered faster than {@code latencyThreshold}, and is cut by
+ * {@code backoffRatio} whenever a request is slower than that, is rejected with 429/503, or fails outright. Callers
+ * beyond the current limit wait in {@link #acquire()} until a request completes.
+ *
+ * A listener can follow the whole-number limit, so that a queue in front of the limiter, such as an HTTP client's
+ * dispatcher, admits no more requests than the limiter lets through and its threads are not left waiting here.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private IntConsumer limitListener = limit -> { };
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                                      double backoffRatio) {
+
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        if (backoffRatio <= 0d || backoffRatio >= 1d) {
+            throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Call the given listener with the current limit, and again whenever the whole-number limit changes. It is called
+     * while the limiter is locked, so it must not block.
+     */
+    public synchronized void setLimitListener(IntConsumer limitListener) {
+
+        this.limitListener = limitListener;
+        limitListener.accept((int) limit);
+    }
+
+    public synchronized void acquire() throws InterruptedIOException {
+
+        while (inFlight >= (int) limit) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a request slot.");
+            }
+        }
+        inFlight++;
+    }
+
+    /**
+     * Release the slot of a request that received a response, adjusting the limit by its latency.
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (inFlight >= (int) limit / 2) {
+            // Only grow while the current limit is actually being used.
+            setLimit(Math.min(maxLimit, limit + 1d / limit));
+        }
+        release();
+    }
+
+    /**
+     * Release the slot of a request that was rejected because of load, or that failed without a response.
+     */
+    public synchronized void onDropped() {
+
+        decrease();
+        release();
+    }
+
+    public synchronized int getLimit() {
+
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+
+        return inFlight;
+    }
+
+    private void decrease() {
+
+        setLimit(Math.max(minLimit, limit * backoffRatio));
+    }
+
+    private void setLimit(double newLimit) {
+
+        boolean changed = (int) newLimit != (int) limit;
+        limit = newLimit;
+        if (changed) limitListener.accept((int) limit);
+    }
+
+    private void release() {
+
+        inFlight--;
+        notifyAll();
+    }
+}
@@ -0,0 +1,249 @@
+package com.starling.assignment.client;
+
+import com.google.gson.stream.JsonWriter;
+import okhttp3.EventListener;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and throughput of the calls made by a {@link StarlingApiClientImpl}, per {@link Endpoint}. Every phase of
+ * a call is recorded in its own {@link LatencyHistogram}, in nanoseconds, from the client's OkHttp
+ * {@link EventListener} and from the client itself for parsing:
+ * <ul>
+ * <li>{@link Phase#DNS}, {@link Phase#CONNECT} and {@link Phase#TLS}: only for calls that opened a new connection;
+ * connect includes TLS</li>
+ * <li>{@link Phase#TIME_TO_FIRST_BYTE}: from sending the request headers to receiving the response headers</li>
+ * <li>{@link Phase#BODY_READ}: from the response headers to the end of the body</li>
+ * <li>{@link Phase#PARSE}: decoding the response body; bodies are decoded as they stream in, so this overlaps the
+ * body read</li>
+ * <li>{@link Phase#TOTAL}: the whole call, including retries and responses served from the HTTP cache</li>
+ * </ul>
+ * Response body sizes are recorded in a histogram of their own. A call counts as failed if it ended with an I/O
+ * error or with a response other than 2xx. Recording takes no locks, so one instance can stay attached to a client
+ * in production and be read at any time, through {@link #toText()}, {@link #toJson()} or JMX.
+ */
+public class ApiMetrics implements ApiMetricsMXBean {
+
+    /**
+     * Name under which {@link #registerMBean()} registers the metrics.
+     */
+    public static final String OBJECT_NAME = "com.starling.assignment:type=ApiMetrics";
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    private static final double[] QUANTILES = {0.5d, 0.99d, 0.999d};
+    private static final String[] QUANTILE_NAMES = {"p50", "p99", "p999"};
+
+    public enum Phase {
+        DNS,
+        CONNECT,
+        TLS,
+        TIME_TO_FIRST_BYTE,
+        BODY_READ,
+        PARSE,
+        TOTAL
+    }
+
+    // Filled in once by the constructor and only read afterwards.
+    private final Map<Endpoint, EndpointMetrics> endpoints = new EnumMap<>(Endpoint.class);
+
+    public ApiMetrics() {
+
+        for (Endpoint endpoint : Endpoint.values()) {
+            endpoints.put(endpoint, new EndpointMetrics());
+        }
+    }
+
+    /**
+     * Register these metrics with the platform MBean server under {@link #OBJECT_NAME}.
+     */
+    public void registerMBean() {
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new RuntimeException("Failed to register API metrics MBean " + OBJECT_NAME, e);
+        }
+    }
+
+    EventListener.Factory eventListenerFactory() {
+
+        return call -> new MetricsEventListener(this);
+    }
+
+    void record(Endpoint endpoint, Phase phase, long nanos) {
+
+        endpoints.get(endpoint).phases.get(phase).record(nanos);
+    }
+
+    void recordResponseBytes(Endpoint endpoint, long bytes) {
+
+        endpoints.get(endpoint).responseBytes.record(bytes);
+    }
+
+    void recordFailure(Endpoint endpoint) {
+
+        endpoints.get(endpoint).failures.increment();
+    }
+
+    LatencyHistogram latency(Endpoint endpoint, Phase phase) {
+
+        return endpoints.get(endpoint).phases.get(phase);
+    }
+
+    @Override
+    public Map<String, Long> getRequestCounts() {
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        forEachCalled((endpoint, metrics) -> counts.put(endpoint.name(), metrics.requestCount()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts() {
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        forEachCalled((endpoint, metrics) -> counts.put(endpoint.name(), metrics.failures.sum()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getResponseBytes() {
+
+        Map<String, Long> bytes = new LinkedHashMap<>();
+        forEachCalled((endpoint, metrics) -> bytes.put(endpoint.name(), metrics.responseBytes.getTotal()));
+        return bytes;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyPercentilesMillis() {
+
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        forEachCalled((endpoint, metrics) -> metrics.phases.forEach((phase, histogram) -> {
+            for (int i = 0; i < QUANTILES.length; i++) {
+                percentiles.put(endpoint.name() + "." + phase.name() + "." + QUANTILE_NAMES[i],
+                    histogram.getValueAtQuantile(QUANTILES[i]) / NANOS_PER_MILLI);
+            }
+        }));
+        return percentiles;
+    }
+
+    @Override
+    public String getJson() {
+
+        return toJson();
+    }
+
+    /**
+     * @return one block per called endpoint, with a line per recorded phase, latencies in milliseconds
+     */
+    public String toText() {
+
+        StringBuilder text = new StringBuilder();
+        forEachCalled((endpoint, metrics) -> {
+            LatencyHistogram bytes = metrics.responseBytes;
+            text.append(String.format(Locale.ROOT, "%s requests=%d failures=%d bytes=%d bytes.p50=%d bytes.p99=%d%n",
+                endpoint.name(), metrics.requestCount(), metrics.failures.sum(), bytes.getTotal(),
+                bytes.getValueAtQuantile(0.5d), bytes.getValueAtQuantile(0.99d)));
+            metrics.phases.forEach((phase, histogram) -> {
+                if (histogram.getCount() == 0L) return;
+                text.append(String.format(Locale.ROOT,
+                    "  %-18s n=%d p50=%.3f p99=%.3f p999=%.3f max=%.3f ms%n", phase.name(), histogram.getCount(),
+                    millis(histogram, 0.5d), millis(histogram, 0.99d), millis(histogram, 0.999d),
+                    histogram.getMax() / NANOS_PER_MILLI));
+            });
+        });
+        return text.toString();
+    }
+
+    /**
+     * @return the metrics of every called endpoint as a JSON object keyed by endpoint name, latencies in milliseconds
+     */
+    public String toJson() {
+
+        StringWriter json = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(json)) {
+            writer.beginObject();
+            for (Map.Entry<Endpoint, EndpointMetrics> entry : endpoints.entrySet()) {
+                EndpointMetrics metrics = entry.getValue();
+                if (metrics.requestCount() == 0L) continue;
+
+                writer.name(entry.getKey().name()).beginObject();
+                writer.name("requests").value(metrics.requestCount());
+                writer.name("failures").value(metrics.failures.sum());
+                writer.name("responseBytes");
+                writeHistogram(writer, metrics.responseBytes, 1d);
+                writer.name("latencyMillis").beginObject();
+                for (Map.Entry<Phase, LatencyHistogram> phase : metrics.phases.entrySet()) {
+                    if (phase.getValue().getCount() == 0L) continue;
+                    writer.name(phase.getKey().name());
+                    writeHistogram(writer, phase.getValue(), NANOS_PER_MILLI);
+                }
+                writer.endObject();
+                writer.endObject();
+            }
+            writer.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
+    private void forEachCalled(EndpointConsumer consumer) {
+
+        endpoints.forEach((endpoint, metrics) -> {
+            if (metrics.requestCount() > 0L) consumer.accept(endpoint, metrics);
+        });
+    }
+
+    private static void writeHistogram(JsonWriter writer, LatencyHistogram histogram, double unit) throws IOException {
+
+        writer.beginObject();
+        writer.name("count").value(histogram.getCount());
+        writer.name("mean").value(histogram.getMean() / unit);
+        for (int i = 0; i < QUANTILES.length; i++) {
+            writer.name(QUANTILE_NAMES[i]).value(histogram.getValueAtQuantile(QUANTILES[i]) / unit);
+        }
+        writer.name("max").value(histogram.getMax() / unit);
+        writer.endObject();
+    }
+
+    private static double millis(LatencyHistogram histogram, double quantile) {
+
+        return histogram.getValueAtQuantile(quantile) / NANOS_PER_MILLI;
+    }
+
+    @FunctionalInterface
+    private interface EndpointConsumer {
+
+        void accept(Endpoint endpoint, EndpointMetrics metrics);
+    }
+
+    private static final class EndpointMetrics {
+
+        private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+        private final LatencyHistogram responseBytes = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder();
+
+        private EndpointMetrics() {
+
+            for (Phase phase : Phase.values()) {
+                phases.put(phase, new LatencyHistogram());
+            }
+        }
+
+        private long requestCount() {
+
+            return phases.get(Phase.TOTAL).getCount();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.starling.assignment.client;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link ApiMetrics}. Maps are keyed by endpoint name, e.g. {@code TRANSACTION_FEED}, and only hold
+ * endpoints that have been called.
+ */
+public interface ApiMetricsMXBean {
+
+    Map<String, Long> getRequestCounts();
+
+    Map<String, Long> getFailureCounts();
+
+    Map<String, Long> getResponseBytes();
+
+    /**
+     * @return p50, p99 and p999 of every phase in milliseconds, keyed {@code <endpoint>.<phase>.<percentile>}, e.g.
+     * {@code ACCOUNTS.TIME_TO_FIRST_BYTE.p99}
+     */
+    Map<String, Double> getLatencyPercentilesMillis();
+
+    /**
+     * @return all metrics as a JSON document, the same as {@link ApiMetrics#toJson()}
+     */
+    String getJson();
+}
@@ -0,0 +1,64 @@
+package com.starling.assignment.client;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Periodically hands a dump of {@link ApiMetrics} to a sink, e.g. {@code System.out::print}, as text or JSON. The
+ * metrics are cumulative since the client was created, so consecutive dumps can be compared.
+ */
+public class ApiMetricsReporter {
+
+    public enum Format {
+        TEXT,
+        JSON
+    }
+
+    private final ApiMetrics metrics;
+    private final Duration interval;
+    private final Format format;
+    private final Consumer<String> sink;
+    private final ScheduledExecutorService scheduler;
+
+    public ApiMetricsReporter(ApiMetrics metrics, Duration interval, Format format, Consumer<String> sink) {
+
+        if (interval.isNegative() || interval.isZero()) throw new IllegalArgumentException("interval must be positive");
+
+        this.metrics = metrics;
+        this.interval = interval;
+        this.format = format;
+        this.sink = sink;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "api-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop reporting, after one last dump.
+     */
+    public void shutdown() {
+
+        scheduler.shutdown();
+        report();
+    }
+
+    /**
+     * Hand one dump to the sink now.
+     */
+    public void report() {
+
+        String dump = (format == Format.JSON) ? metrics.toJson() + System.lineSeparator() : metrics.toText();
+        if (!dump.trim().isEmpty()) sink.accept(dump);
+    }
+}
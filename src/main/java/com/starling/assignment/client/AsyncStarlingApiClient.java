@@ -0,0 +1,40 @@
+package com.starling.assignment.client;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.service.BankingService;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Non-blocking variant of {@link StarlingApiClient}. Each call is sent as soon as it is made and the returned future
+ * completes when its response has been parsed, so independent calls can be in flight at the same time.
+ */
+public interface AsyncStarlingApiClient extends StarlingApiClient {
+
+    CompletableFuture<List<Account>> getAccountsAsync();
+
+    CompletableFuture<Balance> getAccountBalanceAsync(String accountUid);
+
+    CompletableFuture<List<Transaction>> getTransactionFeedAsync(String accountUid, String categoryUid);
+
+    CompletableFuture<List<Transaction>> getTransactionFeedAsync(String accountUid, String categoryUid, Date from, Date to);
+
+    /**
+     * Stream the transaction feed instead of building a list of it. Every subscriber sends its own request, once it
+     * first requests items, and feed items are decoded from the response only as they are requested, so the first
+     * ones are delivered before the rest of the feed has been downloaded.
+     */
+    Flow.Publisher<Transaction> getTransactionFeedPublisher(String accountUid, String categoryUid, Date from, Date to);
+
+    CompletableFuture<List<SavingsGoal>> getSavingsGoalsAsync(String accountUid);
+
+    CompletableFuture<SavingsGoal> getSavingsGoalAsync(String accountUid, String savingsGoalUid);
+
+    CompletableFuture<Boolean> transferMoneyToSavingsGoalAsync(String accountUid, String savingsGoalUid, String transferUid, BankingService.SavingsGoalAmount savingGoalAmount);
+}
@@ -0,0 +1,82 @@
+package com.starling.assignment.client;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for one endpoint. After {@code failureThreshold} consecutive failures the circuit opens and
+ * requests are refused without being sent. Once {@code openDuration} has passed a single trial request is let
+ * through: if it succeeds the circuit closes again, otherwise it stays open for another {@code openDuration}.
+ *
+ * Every request let through must be settled with exactly one of {@link #onSuccess()}, {@link #onFailure()} or
+ * {@link #onIgnored()}, whatever way it ends, or a half-open circuit waits for its trial request forever.
+ */
+public class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return whether a request may be sent now; a {@code true} result while half-open claims the trial request
+     */
+    public synchronized boolean allowRequest() {
+
+        if (state == State.CLOSED) return true;
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    /**
+     * Settle a request that says nothing about the endpoint's health, such as one throttled with 429, cancelled or
+     * never sent. A trial request settled this way lets the next request be the trial.
+     */
+    public synchronized void onIgnored() {
+
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong() - openDurationNanos;
+        }
+    }
+
+    synchronized State getState() {
+
+        return state;
+    }
+}
@@ -0,0 +1,17 @@
+package com.starling.assignment.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link TrafficControlInterceptor} instead of sending a request while its endpoint's circuit is open.
+ * An {@code IOException}, so that OkHttp reports it to asynchronous callers too.
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String message) {
+
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package com.starling.assignment.client;
+
+/**
+ * Starling API endpoints called by {@link StarlingApiClientImpl}. Every request is tagged with its endpoint, so
+ * interceptors can tell calls apart by what they do rather than by their URL.
+ */
+enum Endpoint {
+
+    ACCOUNTS(true),
+    BALANCE(false),
+    TRANSACTION_FEED(false),
+    TRANSACTION_FEED_BETWEEN(false),
+    SAVINGS_GOALS(true),
+    SAVINGS_GOAL(true),
+    CREATE_SAVINGS_GOAL(false),
+    TRANSFER_TO_SAVINGS_GOAL(false);
+
+    /**
+     * Whether responses of this endpoint change rarely enough to be kept in the HTTP cache and revalidated.
+     */
+    final boolean revalidated;
+
+    Endpoint(boolean revalidated) {
+        this.revalidated = revalidated;
+    }
+}
@@ -0,0 +1,71 @@
+package com.starling.assignment.client;
+
+/**
+ * Snapshot of the HTTP cache counters of a {@link StarlingApiClientImpl}.
+ */
+public class HttpCacheStats {
+
+    private final long requestCount;
+    private final long hitCount;
+    private final long networkCount;
+    private final long notModifiedCount;
+    private final long parseSkippedCount;
+
+    public HttpCacheStats(long requestCount, long hitCount, long networkCount, long notModifiedCount,
+                          long parseSkippedCount) {
+
+        this.requestCount = requestCount;
+        this.hitCount = hitCount;
+        this.networkCount = networkCount;
+        this.notModifiedCount = notModifiedCount;
+        this.parseSkippedCount = parseSkippedCount;
+    }
+
+    /**
+     * @return number of requests that went through the cache
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return number of requests answered from the cache, including after a 304 revalidation
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of requests that were not answered from the cache
+     */
+    public long getMissCount() {
+        return requestCount - hitCount;
+    }
+
+    /**
+     * @return number of requests sent to the network, including conditional ones
+     */
+    public long getNetworkCount() {
+        return networkCount;
+    }
+
+    /**
+     * @return number of conditional requests answered with 304 Not Modified
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount;
+    }
+
+    /**
+     * @return number of responses whose previously parsed result was reused instead of parsing the cached body
+     */
+    public long getParseSkippedCount() {
+        return parseSkippedCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests=%d, hits=%d, misses=%d, network=%d, notModified=%d, parseSkipped=%d",
+            requestCount, hitCount, getMissCount(), networkCount, notModifiedCount, parseSkippedCount);
+    }
+}
@@ -0,0 +1,122 @@
+package com.starling.assignment.client;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parser for the ISO-8601 timestamps used by the API, e.g. {@code 2019-03-01T12:34:56.789Z}. The common shape,
+ * {@code yyyy-MM-ddTHH:mm:ss}, optional fraction and a {@code Z} or numeric offset, is decoded straight from the
+ * characters into epoch millis with no intermediate objects. Anything else is handed to {@link OffsetDateTime#parse},
+ * so the accepted inputs and results are the same as {@code OffsetDateTime.parse(value).toInstant().toEpochMilli()}.
+ */
+final class Iso8601 {
+
+    private static final long NOT_PARSED = Long.MIN_VALUE;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private Iso8601() {
+    }
+
+    /**
+     * @return the instant of the given timestamp, in millis since the epoch; sub-millisecond digits are truncated
+     * @throws DateTimeParseException if the value is not an ISO-8601 date-time with an offset
+     */
+    static long parseEpochMillis(String value) {
+
+        long millis = parseFast(value);
+        return (millis != NOT_PARSED) ? millis : OffsetDateTime.parse(value).toInstant().toEpochMilli();
+    }
+
+    private static long parseFast(String value) {
+
+        int length = value.length();
+        if (length < 20 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T'
+            || value.charAt(13) != ':' || value.charAt(16) != ':') return NOT_PARSED;
+
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        int second = digits(value, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+            || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) return NOT_PARSED;
+
+        int position = 19;
+        int millis = 0;
+        if (value.charAt(position) == '.') {
+            int start = ++position;
+            while (position < length && isDigit(value.charAt(position))) {
+                if (position - start < 3) millis = millis * 10 + (value.charAt(position) - '0');
+                position++;
+            }
+            int fractionDigits = position - start;
+            if (fractionDigits == 0 || fractionDigits > 9) return NOT_PARSED;
+            for (int digit = fractionDigits; digit < 3; digit++) {
+                millis *= 10;
+            }
+        }
+
+        int offsetSeconds = offsetSeconds(value, position);
+        if (offsetSeconds == Integer.MIN_VALUE) return NOT_PARSED;
+
+        long epochSeconds = daysSinceEpoch(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second
+            - offsetSeconds;
+        return epochSeconds * 1_000L + millis;
+    }
+
+    // Returns the offset at the end of the value in seconds, or Integer.MIN_VALUE if it is not Z or +HH:mm.
+    private static int offsetSeconds(String value, int position) {
+
+        int remaining = value.length() - position;
+        if (remaining < 1) return Integer.MIN_VALUE;
+
+        char sign = value.charAt(position);
+        if (sign == 'Z') return (remaining == 1) ? 0 : Integer.MIN_VALUE;
+        if ((sign != '+' && sign != '-') || remaining != 6 || value.charAt(position + 3) != ':') {
+            return Integer.MIN_VALUE;
+        }
+
+        int hours = digits(value, position + 1, 2);
+        int minutes = digits(value, position + 4, 2);
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) return Integer.MIN_VALUE;
+
+        int seconds = hours * 3_600 + minutes * 60;
+        if (seconds > 18 * 3_600) return Integer.MIN_VALUE;
+        return (sign == '-') ? -seconds : seconds;
+    }
+
+    // Returns the value of count decimal digits starting at start, or -1 if any of them is not a digit.
+    private static int digits(String value, int start, int count) {
+
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char c) {
+
+        return c >= '0' && c <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+
+        boolean leapYear = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+        return (month == 2 && leapYear) ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    // Days from 1970-01-01 to the given proleptic Gregorian date.
+    private static long daysSinceEpoch(int year, int month, int day) {
+
+        int y = (month <= 2) ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+}
@@ -0,0 +1,112 @@
+package com.starling.assignment.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values, such as latencies in nanoseconds or sizes in bytes. Values are counted
+ * in log-linear buckets: 32 buckets for every power of two, so a reported percentile is within about 3% of the
+ * recorded value. Values from {@code 2^42} up (about 73 minutes in nanoseconds) share the last bucket.
+ *
+ * Recording is a bucket increment plus a few atomic updates, with no locks and no allocation, so it is cheap enough
+ * to do on every request from any number of threads. Reads see the counts as they are at that moment; a percentile
+ * read while values are being recorded may be off by the values recorded meanwhile.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 42;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one value. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+
+        long recorded = Math.max(value, 0L);
+        buckets.incrementAndGet(bucketOf(recorded));
+        count.increment();
+        total.add(recorded);
+        long currentMax = max.get();
+        while (recorded > currentMax && !max.compareAndSet(currentMax, recorded)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+
+        return count.sum();
+    }
+
+    public long getTotal() {
+
+        return total.sum();
+    }
+
+    public long getMax() {
+
+        return max.get();
+    }
+
+    /**
+     * @return mean of the recorded values, 0 if there are none
+     */
+    public double getMean() {
+
+        long n = count.sum();
+        return (n == 0L) ? 0d : (double) total.sum() / n;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return the highest value of the bucket holding the given quantile, capped at the largest recorded value, or 0
+     * if nothing has been recorded
+     */
+    public long getValueAtQuantile(double quantile) {
+
+        if (quantile < 0d || quantile > 1d) throw new IllegalArgumentException("quantile must be between 0 and 1");
+
+        long[] counts = new long[BUCKETS];
+        long n = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        if (n == 0L) return 0L;
+
+        long rank = Math.max(1L, (long) Math.ceil(quantile * n));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return (i == BUCKETS - 1) ? max.get() : Math.min(highestValueOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    static int bucketOf(long value) {
+
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueOf(int bucket) {
+
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,119 @@
+package com.starling.assignment.client;
+
+import com.starling.assignment.client.ApiMetrics.Phase;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+/**
+ * Records the phases of one call into {@link ApiMetrics}, under the {@link Endpoint} the request is tagged with. A
+ * new listener is created for every call and OkHttp delivers a call's events one after the other, so the start times
+ * are plain fields. Calls without an endpoint tag are not recorded.
+ */
+class MetricsEventListener extends EventListener {
+
+    private final ApiMetrics metrics;
+    private Endpoint endpoint;
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestStart;
+    private long responseHeadersEnd;
+
+    MetricsEventListener(ApiMetrics metrics) {
+
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void callStart(Call call) {
+
+        endpoint = call.request().tag(Endpoint.class);
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+
+        record(Phase.DNS, dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+
+        record(Phase.TLS, secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+
+        record(Phase.CONNECT, connectStart);
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+
+        requestStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+
+        responseHeadersEnd = record(Phase.TIME_TO_FIRST_BYTE, requestStart);
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+
+        record(Phase.BODY_READ, responseHeadersEnd);
+        if (endpoint != null) metrics.recordResponseBytes(endpoint, byteCount);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+
+        record(Phase.TOTAL, callStart);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+
+        record(Phase.TOTAL, callStart);
+        if (endpoint != null) metrics.recordFailure(endpoint);
+    }
+
+    // Returns the current time, so the end of one phase can start the next.
+    private long record(Phase phase, long start) {
+
+        long now = System.nanoTime();
+        if (endpoint != null) metrics.record(endpoint, phase, now - start);
+        return now;
+    }
+}
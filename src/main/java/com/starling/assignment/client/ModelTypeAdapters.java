@@ -0,0 +1,376 @@
+package com.starling.assignment.client;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.Transaction.Direction;
+import com.starling.assignment.model.Transaction.Status;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Hand-written Gson {@link TypeAdapter}s for the model classes returned by the API. Each adapter reads the fields it
+ * needs by name straight from a {@link JsonReader} and calls the model constructor, so decoding needs no reflection,
+ * no {@code Unsafe} allocation and no locale-dependent {@code Date} formats, and there is nothing to build up on
+ * first use. Timestamps are parsed with {@link Iso8601}. Unknown fields are skipped.
+ */
+final class ModelTypeAdapters {
+
+    static final TypeAdapter<Amount> AMOUNT = new AmountAdapter().nullSafe();
+    static final TypeAdapter<Transaction> TRANSACTION = new TransactionAdapter().nullSafe();
+    static final TypeAdapter<Account> ACCOUNT = new AccountAdapter().nullSafe();
+    static final TypeAdapter<SavingsGoal> SAVINGS_GOAL = new SavingsGoalAdapter().nullSafe();
+    static final TypeAdapter<Balance> BALANCE = new BalanceAdapter().nullSafe();
+
+    private ModelTypeAdapters() {
+    }
+
+    /**
+     * @return a {@link Gson} with the model adapters registered
+     */
+    static Gson gson() {
+
+        return new GsonBuilder()
+            .registerTypeAdapter(Amount.class, AMOUNT)
+            .registerTypeAdapter(Transaction.class, TRANSACTION)
+            .registerTypeAdapter(Account.class, ACCOUNT)
+            .registerTypeAdapter(SavingsGoal.class, SAVINGS_GOAL)
+            .registerTypeAdapter(Balance.class, BALANCE)
+            .create();
+    }
+
+    /**
+     * Read the array held by the named field of the top-level object, e.g. {@code {"accounts": [ ... ]}}. The reader
+     * is closed once the object has been consumed.
+     *
+     * @return the decoded elements in order, empty if the field is missing or null
+     */
+    static <T> List<T> readList(Reader in, String fieldName, TypeAdapter<T> elementAdapter) throws IOException {
+
+        List<T> elements = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (fieldName.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        elements.add(elementAdapter.read(reader));
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return elements;
+    }
+
+    /**
+     * Read a single value, closing the reader afterwards.
+     */
+    static <T> T read(Reader in, TypeAdapter<T> adapter) throws IOException {
+
+        try (JsonReader reader = new JsonReader(in)) {
+            return adapter.read(reader);
+        }
+    }
+
+    static Date readDate(JsonReader reader) throws IOException {
+
+        String value = reader.nextString();
+        try {
+            return new Date(Iso8601.parseEpochMillis(value));
+        } catch (DateTimeParseException e) {
+            throw new JsonParseException("Invalid timestamp '" + value + "' at " + reader.getPath(), e);
+        }
+    }
+
+    // Unknown values map to null, matching Gson's reflective enum handling.
+    static Direction toDirection(String value) {
+
+        for (Direction direction : Direction.values()) {
+            if (direction.direction.equals(value)) return direction;
+        }
+        return null;
+    }
+
+    static Status toStatus(String value) {
+
+        for (Status status : Status.values()) {
+            if (status.status.equals(value)) return status;
+        }
+        return null;
+    }
+
+    /**
+     * Read one feed item. The {@code categoryUid} field of the item is used unless a category is given.
+     */
+    static Transaction readTransaction(JsonReader reader, String categoryUid) throws IOException {
+
+        String feedItemUid = null;
+        String itemCategoryUid = null;
+        Amount amount = null;
+        Date transactionTime = null;
+        Direction direction = null;
+        Status status = null;
+        String source = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (skipNull(reader)) continue;
+            switch (name) {
+                case "feedItemUid":
+                    feedItemUid = reader.nextString();
+                    break;
+                case "categoryUid":
+                    itemCategoryUid = reader.nextString();
+                    break;
+                case "amount":
+                    amount = AMOUNT.read(reader);
+                    break;
+                case "transactionTime":
+                    transactionTime = readDate(reader);
+                    break;
+                case "direction":
+                    direction = toDirection(reader.nextString());
+                    break;
+                case "status":
+                    status = toStatus(reader.nextString());
+                    break;
+                case "source":
+                    source = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new Transaction(feedItemUid, (categoryUid != null) ? categoryUid : itemCategoryUid, amount,
+            transactionTime, direction, status, source);
+    }
+
+    private static void writeDate(JsonWriter writer, Date date) throws IOException {
+
+        writer.value(date == null ? null : Instant.ofEpochMilli(date.getTime()).toString());
+    }
+
+    // Returns true if the next value is null, consuming it.
+    private static boolean skipNull(JsonReader reader) throws IOException {
+
+        if (reader.peek() != JsonToken.NULL) return false;
+
+        reader.nextNull();
+        return true;
+    }
+
+    private static final class AmountAdapter extends TypeAdapter<Amount> {
+
+        @Override
+        public void write(JsonWriter writer, Amount amount) throws IOException {
+
+            writer.beginObject();
+            writer.name("currency").value(amount.getCurrency());
+            writer.name("minorUnits").value(amount.getMinorUnits());
+            writer.endObject();
+        }
+
+        @Override
+        public Amount read(JsonReader reader) throws IOException {
+
+            String currency = null;
+            long minorUnits = 0L;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (skipNull(reader)) continue;
+                switch (name) {
+                    case "currency":
+                        currency = reader.nextString();
+                        break;
+                    case "minorUnits":
+                        minorUnits = reader.nextLong();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new Amount(currency, minorUnits);
+        }
+    }
+
+    private static final class TransactionAdapter extends TypeAdapter<Transaction> {
+
+        @Override
+        public void write(JsonWriter writer, Transaction transaction) throws IOException {
+
+            writer.beginObject();
+            writer.name("feedItemUid").value(transaction.getFeedItemUid());
+            writer.name("categoryUid").value(transaction.getCategoryUid());
+            writer.name("amount");
+            AMOUNT.write(writer, transaction.getAmount());
+            writer.name("transactionTime");
+            writeDate(writer, transaction.getTransactionTime());
+            writer.name("direction").value(transaction.getDirection() == null ? null
+                : transaction.getDirection().direction);
+            writer.name("status").value(transaction.getStatus() == null ? null : transaction.getStatus().status);
+            writer.name("source").value(transaction.getSource());
+            writer.endObject();
+        }
+
+        @Override
+        public Transaction read(JsonReader reader) throws IOException {
+
+            return readTransaction(reader, null);
+        }
+    }
+
+    private static final class AccountAdapter extends TypeAdapter<Account> {
+
+        @Override
+        public void write(JsonWriter writer, Account account) throws IOException {
+
+            writer.beginObject();
+            writer.name("accountUid").value(account.getAccountUid());
+            writer.name("defaultCategory").value(account.getDefaultCategory());
+            writer.name("currency").value(account.getCurrency());
+            writer.name("createdAt");
+            writeDate(writer, account.getCreatedAt());
+            writer.endObject();
+        }
+
+        @Override
+        public Account read(JsonReader reader) throws IOException {
+
+            String accountUid = null;
+            String defaultCategory = null;
+            String currency = null;
+            Date createdAt = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (skipNull(reader)) continue;
+                switch (name) {
+                    case "accountUid":
+                        accountUid = reader.nextString();
+                        break;
+                    case "defaultCategory":
+                        defaultCategory = reader.nextString();
+                        break;
+                    case "currency":
+                        currency = reader.nextString();
+                        break;
+                    case "createdAt":
+                        createdAt = readDate(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new Account(accountUid, defaultCategory, currency, createdAt);
+        }
+    }
+
+    private static final class SavingsGoalAdapter extends TypeAdapter<SavingsGoal> {
+
+        @Override
+        public void write(JsonWriter writer, SavingsGoal savingsGoal) throws IOException {
+
+            writer.beginObject();
+            writer.name("savingsGoalUid").value(savingsGoal.getSavingsGoalUid());
+            writer.name("name").value(savingsGoal.getName());
+            writer.name("target");
+            AMOUNT.write(writer, savingsGoal.getTarget());
+            writer.name("totalSaved");
+            AMOUNT.write(writer, savingsGoal.getTotalSaved());
+            writer.endObject();
+        }
+
+        @Override
+        public SavingsGoal read(JsonReader reader) throws IOException {
+
+            String savingsGoalUid = null;
+            String name = null;
+            Amount target = null;
+            Amount totalSaved = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (skipNull(reader)) continue;
+                switch (field) {
+                    case "savingsGoalUid":
+                        savingsGoalUid = reader.nextString();
+                        break;
+                    case "name":
+                        name = reader.nextString();
+                        break;
+                    case "target":
+                        target = AMOUNT.read(reader);
+                        break;
+                    case "totalSaved":
+                        totalSaved = AMOUNT.read(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new SavingsGoal(savingsGoalUid, name, target, totalSaved);
+        }
+    }
+
+    private static final class BalanceAdapter extends TypeAdapter<Balance> {
+
+        @Override
+        public void write(JsonWriter writer, Balance balance) throws IOException {
+
+            writer.beginObject();
+            writer.name("amount");
+            AMOUNT.write(writer, balance.getAmount());
+            writer.endObject();
+        }
+
+        @Override
+        public Balance read(JsonReader reader) throws IOException {
+
+            Amount amount = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("amount".equals(reader.nextName())) {
+                    amount = AMOUNT.read(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new Balance(amount);
+        }
+    }
+}
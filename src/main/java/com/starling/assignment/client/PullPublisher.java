@@ -0,0 +1,193 @@
+package com.starling.assignment.client;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * {@link Flow.Publisher} that pulls items one at a time from a blocking {@link Source}, only as far as its subscriber
+ * has requested. Nothing is read ahead or buffered: while there is no outstanding demand the source is simply not
+ * read, which for a streamed HTTP response leaves the rest of it in the socket.
+ *
+ * Every subscriber gets its own source, opened on the first request. Reads and signals to the subscriber run on the
+ * given executor, at most one task per subscription at a time, and the task returns as soon as demand runs out
+ * rather than waiting for more. Cancelling closes the source before the next item is read.
+ */
+public final class PullPublisher<T> implements Flow.Publisher<T> {
+
+    /**
+     * Blocking source of items. Failures are reported by throwing a {@link RuntimeException}.
+     */
+    public interface Source<T> extends AutoCloseable {
+
+        /**
+         * @return the next item, or {@code null} after the last one
+         */
+        T next();
+
+        @Override
+        void close();
+    }
+
+    private final Supplier<? extends Source<T>> opener;
+    private final Executor executor;
+
+    /**
+     * @param opener opens a new source for every subscriber
+     * @param executor executor the source is opened and read on
+     */
+    public PullPublisher(Supplier<? extends Source<T>> opener, Executor executor) {
+
+        this.opener = opener;
+        this.executor = executor;
+    }
+
+    /**
+     * Publisher of the items of a list that is fetched for every subscriber, on its first request. The list itself is
+     * held in full; only its delivery is paced by demand.
+     */
+    public static <T> PullPublisher<T> ofList(Supplier<? extends List<? extends T>> list, Executor executor) {
+
+        return new PullPublisher<>(() -> {
+            Iterator<? extends T> items = list.get().iterator();
+            return new Source<T>() {
+
+                @Override
+                public T next() {
+
+                    return items.hasNext() ? items.next() : null;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }, executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+
+        Objects.requireNonNull(subscriber, "subscriber");
+        subscriber.onSubscribe(new PullSubscription<>(subscriber, opener, executor));
+    }
+
+    private static final class PullSubscription<T> implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Supplier<? extends Source<T>> opener;
+        private final Executor executor;
+        private final AtomicLong requested = new AtomicLong();
+        // Signals not yet handled by a drain; a drain is scheduled only on the first of them.
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile long invalidRequest;
+
+        // Only touched by the drain task, which the pending counter runs one at a time.
+        private Source<T> source;
+        private boolean done;
+
+        PullSubscription(Flow.Subscriber<? super T> subscriber, Supplier<? extends Source<T>> opener,
+                         Executor executor) {
+
+            this.subscriber = subscriber;
+            this.opener = opener;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                invalidRequest = n;
+            } else {
+                requested.accumulateAndGet(n, (current, added) -> (current + added < 0) ? Long.MAX_VALUE
+                    : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+
+            cancelled = true;
+            schedule();
+        }
+
+        @Override
+        public void run() {
+
+            int missed = 1;
+            do {
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void schedule() {
+
+            if (pending.getAndIncrement() == 0) executor.execute(this);
+        }
+
+        private void drain() {
+
+            if (done) return;
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (invalidRequest != 0) {
+                finish();
+                subscriber.onError(new IllegalArgumentException("Requested " + invalidRequest + " items; the number "
+                    + "of items requested must be positive."));
+                return;
+            }
+
+            long emitted = 0;
+            long demand = requested.get();
+            while (!cancelled) {
+                if (emitted == demand) {
+                    demand = requested.addAndGet(-emitted);
+                    emitted = 0;
+                    if (demand == 0) return;
+                }
+
+                T item;
+                try {
+                    if (source == null) source = opener.get();
+                    item = source.next();
+                } catch (RuntimeException e) {
+                    finish();
+                    subscriber.onError(e);
+                    return;
+                }
+                if (item == null) {
+                    finish();
+                    subscriber.onComplete();
+                    return;
+                }
+                subscriber.onNext(item);
+                emitted++;
+            }
+            finish();
+        }
+
+        private void finish() {
+
+            done = true;
+            if (source != null) {
+                try {
+                    source.close();
+                } catch (RuntimeException e) {
+                    // Nothing more will be read from it.
+                }
+                source = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.starling.assignment.client;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Number of attempts and delay between them for retried requests: exponential backoff with full jitter, unless the
+ * server said how long to wait with a {@code Retry-After} header. A request the server asks to wait for longer than
+ * the maximum delay is not retried, rather than retried too early.
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be at least 1");
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempt number of the attempt that just failed, starting at 1
+     * @param retryAfter value of the failed response's {@code Retry-After} header, or {@code null}
+     * @return milliseconds to wait before the next attempt, or -1 if {@code Retry-After} asks to wait for longer than
+     * the maximum delay and the request should not be retried
+     */
+    public long delayMillis(int attempt, String retryAfter) {
+
+        long retryAfterMillis = parseRetryAfterMillis(retryAfter);
+        if (retryAfterMillis >= 0L) return (retryAfterMillis <= maxDelayMillis) ? retryAfterMillis : -1L;
+
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1L);
+    }
+
+    // Retry-After is either a number of seconds or an HTTP date; -1 when absent or unparseable.
+    private static long parseRetryAfterMillis(String retryAfter) {
+
+        if (retryAfter == null || retryAfter.isEmpty()) return -1L;
+        try {
+            return Math.max(0L, Long.parseLong(retryAfter.trim()) * 1000L);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0L, retryAt.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ignored) {
+                return -1L;
+            }
+        }
+    }
+}
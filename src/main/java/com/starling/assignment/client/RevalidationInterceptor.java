@@ -0,0 +1,56 @@
+package com.starling.assignment.client;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Network interceptor that makes responses of {@link Endpoint#revalidated} endpoints storable by the HTTP cache, but
+ * only on condition that they are revalidated before every use: a response carrying an {@code ETag} or
+ * {@code Last-Modified} validator gets {@code Cache-Control: no-cache}. The cache then sends
+ * {@code If-None-Match}/{@code If-Modified-Since} on the next request, and an unchanged resource comes back as a
+ * bodiless 304.
+ *
+ * A 304 gets the same header: the cache merges its headers into the stored response, so a 304 carrying
+ * {@code max-age} or {@code Expires} would otherwise make the stored response fresh and skip later revalidations.
+ */
+class RevalidationInterceptor implements Interceptor {
+
+    private final AtomicLong notModifiedCount = new AtomicLong();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        Endpoint endpoint = request.tag(Endpoint.class);
+        if (endpoint == null || !endpoint.revalidated || !"GET".equals(request.method())) return response;
+
+        if (response.code() == 304) {
+            notModifiedCount.incrementAndGet();
+            return revalidateBeforeUse(response);
+        }
+        if (response.isSuccessful() && (response.header("ETag") != null || response.header("Last-Modified") != null)) {
+            return revalidateBeforeUse(response);
+        }
+
+        return response;
+    }
+
+    private static Response revalidateBeforeUse(Response response) {
+
+        return response.newBuilder()
+            .header("Cache-Control", "no-cache")
+            .removeHeader("Pragma")
+            .removeHeader("Expires")
+            .build();
+    }
+
+    long getNotModifiedCount() {
+
+        return notModifiedCount.get();
+    }
+}
@@ -6,6 +6,7 @@ import com.starling.assignment.model.SavingsGoal;
 import com.starling.assignment.model.Transaction;
 import com.starling.assignment.service.BankingService;
 
+import java.util.Date;
 import java.util.List;
 
 public interface StarlingApiClient {
@@ -16,6 +17,8 @@ public interface StarlingApiClient {
 
     List<Transaction> getTransactionFeed(String accountUid, String categoryUid);
 
+    List<Transaction> getTransactionFeed(String accountUid, String categoryUid, Date from, Date to);
+
     List<SavingsGoal> getSavingsGoals(String accountUid);
 
     SavingsGoal getSavingsGoal(String accountUid, String savingsGoalUid);
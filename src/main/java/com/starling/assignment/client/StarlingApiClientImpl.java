@@ -1,15 +1,18 @@
 package com.starling.assignment.client;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import com.starling.assignment.model.Account;
-import com.starling.assignment.model.Amount;
 import com.starling.assignment.model.Balance;
 import com.starling.assignment.model.SavingsGoal;
 import com.starling.assignment.model.Transaction;
 import com.starling.assignment.service.BankingService;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -17,113 +20,217 @@ import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class StarlingApiClientImpl implements StarlingApiClient {
+public class StarlingApiClientImpl implements AsyncStarlingApiClient {
 
     private static final String ACCOUNTS = "/accounts";
     private static final String BALANCE = "/{accountUid}/balance";
     private static final String TRANSACTION_FEED = "/feed/account/{accountUid}/category/{categoryUid}";
+    private static final String TRANSACTION_FEED_BETWEEN = TRANSACTION_FEED
+        + "/transactions-between?minTransactionTimestamp={from}&maxTransactionTimestamp={to}";
     private static final String SAVINGS_GOALS = "/account/{accountUid}/savings-goals";
     private static final String SAVINGS_GOAL = SAVINGS_GOALS + "/{savingsGoalUid}";
     private static final String TRANSFER_TO_SAVINGS_GOAL = SAVINGS_GOAL + "/add-money/{transferUid}";
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
 
+    private static final int MAX_PARSED_RESPONSES = 256;
+
     private final String STARLING_API_URL;
     private final String accessToken;
     private final OkHttpClient httpClient;
     private final Gson gson;
+    private final RevalidationInterceptor revalidationInterceptor;
+    private final Map<String, ParsedResponse> parsedResponses;
+    private final AtomicLong parseSkippedCount = new AtomicLong();
+    private final ApiMetrics metrics;
 
     public StarlingApiClientImpl(String baseUrl, String apiVersion, String accessToken) {
 
+        this(baseUrl, apiVersion, accessToken, null, 0L);
+    }
+
+    public StarlingApiClientImpl(String baseUrl, String apiVersion, String accessToken, File cacheDirectory,
+                                 long maxCacheSize) {
+
+        this(baseUrl, apiVersion, accessToken, cacheDirectory, maxCacheSize, TrafficControlInterceptor.withDefaults());
+    }
+
+    public StarlingApiClientImpl(String baseUrl, String apiVersion, String accessToken, File cacheDirectory,
+                                 long maxCacheSize, TrafficControlInterceptor trafficControl) {
+
+        this(baseUrl, apiVersion, accessToken, cacheDirectory, maxCacheSize, trafficControl, new ApiMetrics());
+    }
+
+    /**
+     * Create a client that keeps responses of slow-changing resources (accounts and savings-goals) in a bounded
+     * on-disk HTTP cache and revalidates them with {@code If-None-Match}/{@code If-Modified-Since}. When a resource
+     * comes back 304 Not Modified, the result parsed from it last time is reused and the cached body is not parsed
+     * again.
+     *
+     * Entries are kept in a sub-directory of {@code cacheDirectory} derived from a hash of the access token, so a
+     * client never sees entries cached for another token.
+     *
+     * All requests go through {@code trafficControl}, which limits concurrency, retries idempotent requests and
+     * stops calling failing endpoints for a while. The latency of every phase of every call is recorded in
+     * {@code metrics}.
+     *
+     * @param cacheDirectory directory for the HTTP cache, or {@code null} for no caching
+     * @param maxCacheSize maximum size of the cache for this access token, in bytes
+     * @param trafficControl traffic controller for all requests
+     * @param metrics per-endpoint metrics to record into
+     */
+    public StarlingApiClientImpl(String baseUrl, String apiVersion, String accessToken, File cacheDirectory,
+                                 long maxCacheSize, TrafficControlInterceptor trafficControl, ApiMetrics metrics) {
+
         this.STARLING_API_URL = baseUrl + apiVersion;
         this.accessToken = accessToken;
-        this.httpClient = new OkHttpClient();
-        this.gson = new Gson();
+        this.metrics = metrics;
+        this.revalidationInterceptor = new RevalidationInterceptor();
+        // The dispatcher follows the adaptive limit, so asynchronous calls beyond it wait in its queue rather than
+        // holding a dispatcher thread each while they wait for a slot in the limiter.
+        Dispatcher dispatcher = new Dispatcher();
+        trafficControl.getLimiter().setLimitListener(limit -> {
+            dispatcher.setMaxRequests(limit);
+            dispatcher.setMaxRequestsPerHost(limit);
+        });
+        OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .eventListenerFactory(metrics.eventListenerFactory())
+            .addInterceptor(trafficControl);
+        if (cacheDirectory != null) {
+            httpClientBuilder
+                .cache(new Cache(new File(cacheDirectory, sha256Hex(accessToken)), maxCacheSize))
+                .addNetworkInterceptor(revalidationInterceptor);
+        }
+        this.httpClient = httpClientBuilder.build();
+        this.gson = ModelTypeAdapters.gson();
+        this.parsedResponses = Collections.synchronizedMap(
+            new LinkedHashMap<String, ParsedResponse>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ParsedResponse> eldest) {
+                    return size() > MAX_PARSED_RESPONSES;
+                }
+            });
+    }
+
+    /**
+     * @return current HTTP cache counters, all zero if this client was created without a cache
+     */
+    public HttpCacheStats getCacheStats() {
+
+        Cache cache = httpClient.cache();
+        if (cache == null) return new HttpCacheStats(0L, 0L, 0L, 0L, 0L);
+
+        return new HttpCacheStats(cache.requestCount(), cache.hitCount(), cache.networkCount(),
+            revalidationInterceptor.getNotModifiedCount(), parseSkippedCount.get());
+    }
+
+    /**
+     * @return latency and throughput metrics of the calls made by this client
+     */
+    public ApiMetrics getMetrics() {
+
+        return metrics;
     }
 
     @Override
     public List<Account> getAccounts() {
 
-        Request accountsRequest = requestBuilder(STARLING_API_URL + ACCOUNTS)
-            .get()
-            .build();
-
-        String accountsJson = getResponseString(accountsRequest);
+        return executeRequest(accountsRequest(), this::readAccounts);
+    }
 
-        JsonObject accountsJsonObject = gson.fromJson(accountsJson, JsonObject.class);
-        JsonArray accountsJsonArray = accountsJsonObject.getAsJsonArray("accounts");
-        List<Account> accounts = new ArrayList<>();
-        accountsJsonArray.forEach(jsonElement -> accounts.add(gson.fromJson(jsonElement, Account.class)));
+    @Override
+    public CompletableFuture<List<Account>> getAccountsAsync() {
 
-        return accounts;
+        return enqueueRequest(accountsRequest(), this::readAccounts);
     }
 
     @Override
     public Balance getAccountBalance(String accountUid) {
 
-        String pathParams = BALANCE.replace("{accountUid}", accountUid);
-        Request accountBalanceRequest = requestBuilder(STARLING_API_URL + ACCOUNTS + pathParams)
-            .get()
-            .build();
+        return executeRequest(accountBalanceRequest(accountUid), this::readAccountBalance);
+    }
 
-        String accountBalanceJson = getResponseString(accountBalanceRequest);
-        JsonObject accountBalanceJsonObject = gson.fromJson(accountBalanceJson, JsonObject.class);
-        JsonElement amountElement = accountBalanceJsonObject.get("amount");
+    @Override
+    public CompletableFuture<Balance> getAccountBalanceAsync(String accountUid) {
 
-        return new Balance(gson.fromJson(amountElement, Amount.class));
+        return enqueueRequest(accountBalanceRequest(accountUid), this::readAccountBalance);
     }
 
     @Override
     public List<Transaction> getTransactionFeed(String accountUid, String categoryUid) {
 
-        String pathParams = TRANSACTION_FEED.replace("{accountUid}", accountUid)
-            .replace("{categoryUid}", categoryUid);
-        Request transactionFeedRequest = requestBuilder(STARLING_API_URL + pathParams)
-            .get()
-            .build();
+        return executeRequest(transactionFeedRequest(accountUid, categoryUid),
+            body -> TransactionFeedReader.readFeedItems(body.charStream(), categoryUid));
+    }
 
-        String transactionFeedJson = getResponseString(transactionFeedRequest);
+    @Override
+    public CompletableFuture<List<Transaction>> getTransactionFeedAsync(String accountUid, String categoryUid) {
+
+        return enqueueRequest(transactionFeedRequest(accountUid, categoryUid),
+            body -> TransactionFeedReader.readFeedItems(body.charStream(), categoryUid));
+    }
+
+    @Override
+    public List<Transaction> getTransactionFeed(String accountUid, String categoryUid, Date from, Date to) {
+
+        return executeRequest(transactionFeedRequest(accountUid, categoryUid, from, to),
+            body -> TransactionFeedReader.readFeedItems(body.charStream(), categoryUid));
+    }
+
+    @Override
+    public CompletableFuture<List<Transaction>> getTransactionFeedAsync(String accountUid, String categoryUid,
+                                                                        Date from, Date to) {
+
+        return enqueueRequest(transactionFeedRequest(accountUid, categoryUid, from, to),
+            body -> TransactionFeedReader.readFeedItems(body.charStream(), categoryUid));
+    }
 
-        JsonObject transactionFeedJsonObject = gson.fromJson(transactionFeedJson, JsonObject.class);
-        JsonArray transactionsJsonArray = transactionFeedJsonObject.getAsJsonArray("feedItems");
-        List<Transaction> transactions = new ArrayList<>();
-        transactionsJsonArray.forEach(jsonElement -> transactions.add(gson.fromJson(jsonElement, Transaction.class)));
+    @Override
+    public Flow.Publisher<Transaction> getTransactionFeedPublisher(String accountUid, String categoryUid, Date from,
+                                                                   Date to) {
 
-        return transactions;
+        Request request = transactionFeedRequest(accountUid, categoryUid, from, to);
+        return new PullPublisher<>(() -> openFeedItems(request, categoryUid),
+            httpClient.dispatcher().executorService());
     }
 
     @Override
     public List<SavingsGoal> getSavingsGoals(String accountUid) {
 
-        String pathParams = SAVINGS_GOALS.replace("{accountUid}", accountUid);
-        Request savingsGoalsRequest = requestBuilder(STARLING_API_URL + pathParams)
-            .get()
-            .build();
+        return executeRequest(savingsGoalsRequest(accountUid), this::readSavingsGoals);
+    }
 
-        String savingsGoalsJson = getResponseString(savingsGoalsRequest);
-        JsonObject savingsGoalsJsonObject = gson.fromJson(savingsGoalsJson, JsonObject.class);
-        JsonArray savingsGoalsJsonArray = savingsGoalsJsonObject.getAsJsonArray("savingsGoalList");
-        List<SavingsGoal> savingsGoals = new ArrayList<>();
-        savingsGoalsJsonArray.forEach(jsonElement -> savingsGoals.add(gson.fromJson(jsonElement, SavingsGoal.class)));
+    @Override
+    public CompletableFuture<List<SavingsGoal>> getSavingsGoalsAsync(String accountUid) {
 
-        return savingsGoals;
+        return enqueueRequest(savingsGoalsRequest(accountUid), this::readSavingsGoals);
     }
 
     @Override
     public SavingsGoal getSavingsGoal(String accountUid, String savingsGoalUid) {
 
-        String pathParams = SAVINGS_GOAL.replace("{accountUid}", accountUid)
-            .replace("{savingsGoalUid}", savingsGoalUid);
-        Request savingsGoalsRequest = requestBuilder(STARLING_API_URL + pathParams)
-            .get()
-            .build();
+        return executeRequest(savingsGoalRequest(accountUid, savingsGoalUid), this::readSavingsGoal);
+    }
 
-        String savingsGoalJson = getResponseString(savingsGoalsRequest);
+    @Override
+    public CompletableFuture<SavingsGoal> getSavingsGoalAsync(String accountUid, String savingsGoalUid) {
 
-        return gson.fromJson(savingsGoalJson, SavingsGoal.class);
+        return enqueueRequest(savingsGoalRequest(accountUid, savingsGoalUid), this::readSavingsGoal);
     }
 
     @Override
@@ -132,12 +239,12 @@ public class StarlingApiClientImpl implements StarlingApiClient {
         String savingsGoalRequestJson = gson.toJson(savingsGoalRequest);
         RequestBody requestBody = RequestBody.create(JSON, savingsGoalRequestJson);
         String pathParams = SAVINGS_GOALS.replace("{accountUid}", accountUid);
-        Request createSavingsGoalRequest = requestBuilder(STARLING_API_URL + pathParams)
+        Request createSavingsGoalRequest = requestBuilder(STARLING_API_URL + pathParams, Endpoint.CREATE_SAVINGS_GOAL)
             .put(requestBody)
             .build();
 
-        String createSavingsGoalJson = getResponseString(createSavingsGoalRequest);
-        JsonObject createSavingsGoalJsonObject = gson.fromJson(createSavingsGoalJson, JsonObject.class);
+        JsonObject createSavingsGoalJsonObject =
+            executeRequest(createSavingsGoalRequest, body -> gson.fromJson(body.string(), JsonObject.class));
 
         return createSavingsGoalJsonObject.get("savingsGoalUid").toString();
     }
@@ -145,47 +252,354 @@ public class StarlingApiClientImpl implements StarlingApiClient {
     @Override
     public boolean transferMoneyToSavingsGoal(String accountUid, String savingsGoalUid, String transferUid, BankingService.SavingsGoalAmount savingGoalAmount) {
 
+        return executeRequest(transferToSavingsGoalRequest(accountUid, savingsGoalUid, transferUid, savingGoalAmount),
+            this::readTransferToSavingsGoal);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transferMoneyToSavingsGoalAsync(String accountUid, String savingsGoalUid, String transferUid, BankingService.SavingsGoalAmount savingGoalAmount) {
+
+        return enqueueRequest(transferToSavingsGoalRequest(accountUid, savingsGoalUid, transferUid, savingGoalAmount),
+            this::readTransferToSavingsGoal);
+    }
+
+    private Request accountsRequest() {
+
+        return requestBuilder(STARLING_API_URL + ACCOUNTS, Endpoint.ACCOUNTS)
+            .get()
+            .build();
+    }
+
+    private List<Account> readAccounts(ResponseBody body) throws IOException {
+
+        return ModelTypeAdapters.readList(body.charStream(), "accounts", ModelTypeAdapters.ACCOUNT);
+    }
+
+    private Request accountBalanceRequest(String accountUid) {
+
+        String pathParams = BALANCE.replace("{accountUid}", accountUid);
+        return requestBuilder(STARLING_API_URL + ACCOUNTS + pathParams, Endpoint.BALANCE)
+            .get()
+            .build();
+    }
+
+    private Balance readAccountBalance(ResponseBody body) throws IOException {
+
+        return ModelTypeAdapters.read(body.charStream(), ModelTypeAdapters.BALANCE);
+    }
+
+    private Request transactionFeedRequest(String accountUid, String categoryUid) {
+
+        String pathParams = TRANSACTION_FEED.replace("{accountUid}", accountUid)
+            .replace("{categoryUid}", categoryUid);
+        return requestBuilder(STARLING_API_URL + pathParams, Endpoint.TRANSACTION_FEED)
+            .get()
+            .build();
+    }
+
+    private Request transactionFeedRequest(String accountUid, String categoryUid, Date from, Date to) {
+
+        String pathParams = TRANSACTION_FEED_BETWEEN.replace("{accountUid}", accountUid)
+            .replace("{categoryUid}", categoryUid)
+            .replace("{from}", from.toInstant().toString()).replace("{to}", to.toInstant().toString());
+        return requestBuilder(STARLING_API_URL + pathParams, Endpoint.TRANSACTION_FEED_BETWEEN)
+            .get()
+            .build();
+    }
+
+    private Request savingsGoalsRequest(String accountUid) {
+
+        String pathParams = SAVINGS_GOALS.replace("{accountUid}", accountUid);
+        return requestBuilder(STARLING_API_URL + pathParams, Endpoint.SAVINGS_GOALS)
+            .get()
+            .build();
+    }
+
+    private List<SavingsGoal> readSavingsGoals(ResponseBody body) throws IOException {
+
+        return ModelTypeAdapters.readList(body.charStream(), "savingsGoalList", ModelTypeAdapters.SAVINGS_GOAL);
+    }
+
+    private Request savingsGoalRequest(String accountUid, String savingsGoalUid) {
+
+        String pathParams = SAVINGS_GOAL.replace("{accountUid}", accountUid)
+            .replace("{savingsGoalUid}", savingsGoalUid);
+        return requestBuilder(STARLING_API_URL + pathParams, Endpoint.SAVINGS_GOAL)
+            .get()
+            .build();
+    }
+
+    private SavingsGoal readSavingsGoal(ResponseBody body) throws IOException {
+
+        return ModelTypeAdapters.read(body.charStream(), ModelTypeAdapters.SAVINGS_GOAL);
+    }
+
+    private Request transferToSavingsGoalRequest(String accountUid, String savingsGoalUid, String transferUid,
+                                                 BankingService.SavingsGoalAmount savingGoalAmount) {
+
         String savingsGoalAmountJson = gson.toJson(savingGoalAmount);
         RequestBody requestBody = RequestBody.create(JSON, savingsGoalAmountJson);
         String pathParams = TRANSFER_TO_SAVINGS_GOAL.replace("{accountUid}", accountUid)
             .replace("{savingsGoalUid}", savingsGoalUid).replace("{transferUid}", transferUid);
-        Request moneyToSavingsGoalRequest = requestBuilder(STARLING_API_URL + pathParams)
+        return requestBuilder(STARLING_API_URL + pathParams, Endpoint.TRANSFER_TO_SAVINGS_GOAL)
             .put(requestBody)
             .build();
+    }
+
+    private boolean readTransferToSavingsGoal(ResponseBody body) throws IOException {
 
-        String transferToSavingsGoalJson = getResponseString(moneyToSavingsGoalRequest);
-        JsonObject transferToSavingsGoalJsonObject = gson.fromJson(transferToSavingsGoalJson, JsonObject.class);
+        JsonObject transferToSavingsGoalJsonObject = gson.fromJson(body.string(), JsonObject.class);
 
         return transferToSavingsGoalJsonObject.get("success").getAsBoolean();
     }
 
-    private Request.Builder requestBuilder(String url) {
+    private Request.Builder requestBuilder(String url, Endpoint endpoint) {
 
         return new Request.Builder()
             .url(url)
+            .tag(Endpoint.class, endpoint)
             .addHeader("Authorization", "Bearer " + accessToken)
             .addHeader("Accept", "application/json")
             .addHeader("User-Agent", "Agile Developer")
             .addHeader("Content-Type", "application/json");
     }
 
-    private String getResponseString(Request request) {
+    /**
+     * Execute the given request and hand the successful response body to {@code bodyReader}, which may consume it
+     * as a stream instead of buffering it into a {@code String}.
+     */
+    private <T> T executeRequest(Request request, ResponseBodyReader<T> bodyReader) {
 
-        String responseString;
         try (Response response = httpClient.newCall(request).execute()) {
-            ResponseBody body = response.body();
-            if (body == null) {
-                throw new RuntimeException("No response body received from Starling API.");
+            return readResponse(request, response, bodyReader);
+        } catch (IOException e) {
+            throw new StarlingApiException("Encountered IOException calling Starling API: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Enqueue the given request on the HTTP client's dispatcher and complete the returned future with the result of
+     * {@code bodyReader}, or exceptionally with the same errors {@link #executeRequest} would throw. Cancelling the
+     * future cancels the call.
+     */
+    private <T> CompletableFuture<T> enqueueRequest(Request request, ResponseBodyReader<T> bodyReader) {
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Call call = httpClient.newCall(request);
+        call.enqueue(new Callback() {
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+
+                result.completeExceptionally(
+                    new StarlingApiException("Encountered IOException calling Starling API: " + e.getMessage()));
             }
-            if (!response.isSuccessful()) {
-                throw new RuntimeException(
-                    String.format("HTTP response code %d received from Starling API.", response.code()));
+
+            @Override
+            public void onResponse(Call call, Response response) {
+
+                try (Response closeable = response) {
+                    result.complete(readResponse(request, closeable, bodyReader));
+                } catch (IOException e) {
+                    onFailure(call, e);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
             }
-            responseString = body.string();
+        });
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) call.cancel();
+        });
+
+        return result;
+    }
+
+    private <T> T readResponse(Request request, Response response, ResponseBodyReader<T> bodyReader)
+        throws IOException {
+
+        Endpoint endpoint = request.tag(Endpoint.class);
+        ResponseBody body = successfulBody(endpoint, response);
+
+        if (httpClient.cache() == null || endpoint == null || !endpoint.revalidated) {
+            return parse(endpoint, body, bodyReader);
+        }
+
+        String url = request.url().toString();
+        String validator = response.header("ETag", response.header("Last-Modified"));
+        Response networkResponse = response.networkResponse();
+        boolean notModified = networkResponse == null || networkResponse.code() == 304;
+        ParsedResponse parsedResponse = parsedResponses.get(url);
+        if (notModified && validator != null && parsedResponse != null && validator.equals(parsedResponse.validator)) {
+            parseSkippedCount.incrementAndGet();
+            return parsedResponse.copyValue();
+        }
+
+        T value = parse(endpoint, body, bodyReader);
+        if (validator != null) {
+            parsedResponses.put(url, new ParsedResponse(validator, value));
+        }
+        return value;
+    }
+
+    private ResponseBody successfulBody(Endpoint endpoint, Response response) {
+
+        if (endpoint != null && !response.isSuccessful()) metrics.recordFailure(endpoint);
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            throw new StarlingApiException("No response body received from Starling API.", response.code());
+        }
+        if (!response.isSuccessful()) {
+            throw new StarlingApiException(
+                String.format("HTTP response code %d received from Starling API.", response.code()), response.code());
+        }
+        return body;
+    }
+
+    /**
+     * Execute the given transaction feed request and position a reader at its first feed item. The response stays
+     * open until the returned source is closed.
+     */
+    private FeedItemSource openFeedItems(Request request, String categoryUid) {
+
+        Endpoint endpoint = request.tag(Endpoint.class);
+        Response response;
+        try {
+            response = httpClient.newCall(request).execute();
         } catch (IOException e) {
-            throw new RuntimeException("Encountered IOException calling Starling API: " + e.getMessage());
+            throw new StarlingApiException("Encountered IOException calling Starling API: " + e.getMessage());
+        }
+
+        try {
+            FeedItemSource source = new FeedItemSource(response, successfulBody(endpoint, response), endpoint,
+                categoryUid);
+            source.begin();
+            return source;
+        } catch (RuntimeException e) {
+            response.close();
+            throw e;
+        }
+    }
+
+    private <T> T parse(Endpoint endpoint, ResponseBody body, ResponseBodyReader<T> bodyReader) throws IOException {
+
+        long start = System.nanoTime();
+        T value;
+        try {
+            value = bodyReader.read(body);
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            throw malformedResponse(e);
+        }
+        if (endpoint != null) metrics.record(endpoint, ApiMetrics.Phase.PARSE, System.nanoTime() - start);
+        return value;
+    }
+
+    // A body that is not what the API documents, such as a malformed timestamp, fails like an unreadable one.
+    private static StarlingApiException malformedResponse(RuntimeException e) {
+
+        return new StarlingApiException("Malformed response received from Starling API: " + e.getMessage());
+    }
+
+    private static String sha256Hex(String value) {
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Feed items of an open transaction feed response, decoded one at a time. The time spent decoding is recorded
+     * as the parse phase of the request once the source is closed.
+     */
+    private class FeedItemSource implements PullPublisher.Source<Transaction> {
+
+        private final Response response;
+        private final JsonReader reader;
+        private final Endpoint endpoint;
+        private final String categoryUid;
+        private boolean hasItems;
+        private long parseNanos;
+
+        FeedItemSource(Response response, ResponseBody body, Endpoint endpoint, String categoryUid) {
+
+            this.response = response;
+            this.reader = new JsonReader(body.charStream());
+            this.endpoint = endpoint;
+            this.categoryUid = categoryUid;
+        }
+
+        void begin() {
+
+            long start = System.nanoTime();
+            try {
+                hasItems = TransactionFeedReader.beginFeedItems(reader);
+            } catch (IOException e) {
+                throw new StarlingApiException("Encountered IOException calling Starling API: " + e.getMessage());
+            } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+                throw malformedResponse(e);
+            } finally {
+                parseNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public Transaction next() {
+
+            if (!hasItems) return null;
+
+            long start = System.nanoTime();
+            try {
+                if (reader.hasNext()) return ModelTypeAdapters.readTransaction(reader, categoryUid);
+                hasItems = false;
+                TransactionFeedReader.endFeedItems(reader);
+                return null;
+            } catch (IOException e) {
+                throw new StarlingApiException("Encountered IOException calling Starling API: " + e.getMessage());
+            } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+                throw malformedResponse(e);
+            } finally {
+                parseNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void close() {
+
+            response.close();
+            if (endpoint != null) metrics.record(endpoint, ApiMetrics.Phase.PARSE, parseNanos);
         }
+    }
+
+    /**
+     * Result parsed from a response of a {@link Endpoint#revalidated} endpoint, with the validator of that response.
+     */
+    private static class ParsedResponse {
+
+        private final String validator;
+        private final Object value;
+
+        private ParsedResponse(String validator, Object value) {
+            this.validator = validator;
+            this.value = value;
+        }
+
+        // Lists are copied, so a caller modifying its result cannot affect later ones.
+        @SuppressWarnings("unchecked")
+        private <T> T copyValue() {
+            return (T) ((value instanceof List) ? new ArrayList<>((List<?>) value) : value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseBodyReader<T> {
 
-        return responseString;
+        T read(ResponseBody body) throws IOException;
     }
 }
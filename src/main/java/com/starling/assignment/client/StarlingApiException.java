@@ -0,0 +1,30 @@
+package com.starling.assignment.client;
+
+/**
+ * Thrown when a call to the Starling API fails, either with an unsuccessful HTTP response or without one, or when a
+ * response cannot be decoded.
+ */
+public class StarlingApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public StarlingApiException(String message) {
+
+        this(message, 0);
+    }
+
+    public StarlingApiException(String message, int statusCode) {
+
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return HTTP status code of the failed response, or 0 if no response was received or it could not be decoded
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
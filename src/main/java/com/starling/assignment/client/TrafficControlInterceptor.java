@@ -0,0 +1,207 @@
+package com.starling.assignment.client;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Application interceptor that controls the traffic {@link StarlingApiClientImpl} sends to the API:
+ * <ul>
+ * <li>an {@link AdaptiveConcurrencyLimiter} shared by all endpoints, backing off on slow responses, 429 and 503</li>
+ * <li>a {@link CircuitBreaker} per {@link Endpoint}, counting 5xx responses and I/O failures</li>
+ * <li>retries following a {@link RetryPolicy} for requests that are safe to repeat: GETs, and transfers to
+ * savings-goals, which carry their own {@code transferUid}</li>
+ * </ul>
+ * Once its attempts are exhausted, or the server asks to wait for longer than the policy's maximum delay, a request's
+ * last response is returned as it is, so the client reports its status.
+ *
+ * A request holds its limiter slot until the body of its response is closed, not just until the headers arrive.
+ * Every attempt let through by a circuit breaker settles it however it ends, 429s, cancellations and interrupts
+ * included.
+ */
+public class TrafficControlInterceptor implements Interceptor {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final RetryPolicy retryPolicy;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Map<Endpoint, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public TrafficControlInterceptor(AdaptiveConcurrencyLimiter limiter, RetryPolicy retryPolicy,
+                                     int failureThreshold, Duration openDuration) {
+
+        this.limiter = limiter;
+        this.retryPolicy = retryPolicy;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Start at 8 concurrent requests and adapt between 1 and 64, backing off above 2 seconds of latency. Retry up to
+     * 4 attempts from 200 ms to 10 s apart, and open an endpoint's circuit for 30 s after 5 consecutive failures.
+     */
+    public static TrafficControlInterceptor withDefaults() {
+
+        return new TrafficControlInterceptor(
+            new AdaptiveConcurrencyLimiter(8, 1, 64, Duration.ofSeconds(2), 0.5d),
+            new RetryPolicy(4, Duration.ofMillis(200), Duration.ofSeconds(10)),
+            5, Duration.ofSeconds(30));
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+
+        Request request = chain.request();
+        Endpoint endpoint = request.tag(Endpoint.class);
+        CircuitBreaker circuitBreaker = (endpoint == null) ? null
+            : circuitBreakers.computeIfAbsent(endpoint, ignored -> new CircuitBreaker(failureThreshold, openDuration));
+        int maxAttempts = isRetryable(request, endpoint) ? retryPolicy.getMaxAttempts() : 1;
+
+        for (int attempt = 1; ; attempt++) {
+            if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                throw new CircuitOpenException("Circuit open for Starling API endpoint " + endpoint + ".");
+            }
+
+            Response response;
+            try {
+                response = attempt(chain, request, circuitBreaker);
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || chain.call().isCanceled()) throw e;
+                sleep(retryPolicy.delayMillis(attempt, null));
+                continue;
+            }
+
+            int code = response.code();
+            boolean retry = code == TOO_MANY_REQUESTS || code >= 500;
+            if (!retry || attempt >= maxAttempts || chain.call().isCanceled()) return response;
+
+            long delayMillis = retryPolicy.delayMillis(attempt, response.header("Retry-After"));
+            if (delayMillis < 0L) return response;
+            response.close();
+            sleep(delayMillis);
+        }
+    }
+
+    // One attempt, which settles the circuit breaker whatever way it ends.
+    private Response attempt(Chain chain, Request request, CircuitBreaker circuitBreaker) throws IOException {
+
+        Boolean healthy = null;
+        try {
+            limiter.acquire();
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException | RuntimeException e) {
+                limiter.onDropped();
+                if (e instanceof IOException && !chain.call().isCanceled()) healthy = false;
+                throw e;
+            }
+
+            int code = response.code();
+            if (code >= 500) {
+                healthy = false;
+            } else if (code != TOO_MANY_REQUESTS) {
+                healthy = true;
+            }
+            long latencyNanos = System.nanoTime() - start;
+            boolean dropped = code == TOO_MANY_REQUESTS || code == SERVICE_UNAVAILABLE;
+            return releaseSlotOnClose(response, dropped ? limiter::onDropped : () -> limiter.onSuccess(latencyNanos));
+        } finally {
+            if (circuitBreaker != null) {
+                if (healthy == null) {
+                    circuitBreaker.onIgnored();
+                } else if (healthy) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+            }
+        }
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+
+        return limiter;
+    }
+
+    private static boolean isRetryable(Request request, Endpoint endpoint) {
+
+        return "GET".equals(request.method())
+            || ("PUT".equals(request.method()) && endpoint == Endpoint.TRANSFER_TO_SAVINGS_GOAL);
+    }
+
+    private static Response releaseSlotOnClose(Response response, Runnable releaseSlot) {
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            releaseSlot.run();
+            return response;
+        }
+        return response.newBuilder().body(new SlotReleasingBody(body, releaseSlot)).build();
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to retry request.");
+        }
+    }
+
+    /**
+     * Response body that gives its request's limiter slot back when it is closed, once.
+     */
+    private static class SlotReleasingBody extends ResponseBody {
+
+        private final ResponseBody body;
+        private final Runnable releaseSlot;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private SlotReleasingBody(ResponseBody body, Runnable releaseSlot) {
+
+            this.body = body;
+            this.releaseSlot = releaseSlot;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return body.source();
+        }
+
+        @Override
+        public void close() {
+
+            try {
+                body.close();
+            } finally {
+                if (released.compareAndSet(false, true)) releaseSlot.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.starling.assignment.client;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.starling.assignment.model.Transaction;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming decoder for the transaction feed response ({@code {"feedItems": [ ... ]}}). Tokens are pulled straight
+ * from the response with a {@link JsonReader}, so no intermediate JSON tree is built and each feed item is
+ * materialised exactly once, as a {@link Transaction}.
+ *
+ * Only the fields needed for round-up are kept: {@code feedItemUid}, {@code amount}, {@code transactionTime},
+ * {@code direction}, {@code status} and {@code source}. Every other field is skipped without being decoded. Items
+ * are decoded with the same code as {@link ModelTypeAdapters#TRANSACTION}.
+ */
+class TransactionFeedReader {
+
+    private static final String FEED_ITEMS = "feedItems";
+
+    private TransactionFeedReader() {
+    }
+
+    /**
+     * Decode all feed items from the given reader. The reader is closed once the feed has been consumed.
+     *
+     * @param in reader positioned at the start of a transaction feed response
+     * @param categoryUid category the feed was requested for, shared by all returned transactions
+     * @return list of transactions in feed order
+     * @throws IOException if the response cannot be read or is not a well-formed feed
+     */
+    static List<Transaction> readFeedItems(Reader in, String categoryUid) throws IOException {
+
+        List<Transaction> transactions = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(in)) {
+            if (beginFeedItems(reader)) {
+                while (reader.hasNext()) {
+                    transactions.add(ModelTypeAdapters.readTransaction(reader, categoryUid));
+                }
+                endFeedItems(reader);
+            }
+        }
+
+        return transactions;
+    }
+
+    /**
+     * Advance the reader to the first feed item, so items can be decoded one at a time with
+     * {@link ModelTypeAdapters#readTransaction} while {@link JsonReader#hasNext()}.
+     *
+     * @return {@code false} if the response has no feed items array, in which case it has been read to the end
+     */
+    static boolean beginFeedItems(JsonReader reader) throws IOException {
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (FEED_ITEMS.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                return true;
+            }
+            reader.skipValue();
+        }
+        reader.endObject();
+        return false;
+    }
+
+    /**
+     * Read the rest of the response after the last feed item.
+     */
+    static void endFeedItems(JsonReader reader) throws IOException {
+
+        reader.endArray();
+        while (reader.hasNext()) {
+            reader.nextName();
+            reader.skipValue();
+        }
+        reader.endObject();
+    }
+}
@@ -0,0 +1,262 @@
+package com.starling.assignment.daemon;
+
+import com.starling.assignment.service.SavingsGoalAllocator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Settings of the {@link RoundUpDaemon}, read from a properties file:
+ *
+ * <pre>
+ * interval=PT24H              # time between round-ups of an account (ISO-8601 duration)
+ * jitter=PT5M                 # random delay added to every scheduled run
+ * window.days=7               # days of transactions covered by a run, at most the interval outside incremental mode
+ * incremental=true            # only count transactions since the previous run
+ * workers=4                   # round-ups running at the same time
+ * queue.capacity=64           # runs waiting for a worker before further runs are skipped
+ * drain.timeout=PT30S         # time given to queued and running round-ups on shutdown
+ * goal.default=first-eligible # savings-goal for accounts without their own, first-eligible, or an allocation policy
+ * goal.&lt;accountUid&gt;=&lt;savingsGoalUid&gt;   # or first-eligible, best-fit, proportional, priority
+ * transfer.flush.interval=PT1H # journal round-ups and send them merged at this interval
+ * metrics.dump.interval=PT15M  # print the API client metrics at this interval
+ * metrics.dump.format=text     # text or json
+ * </pre>
+ *
+ * Every key is optional. Accounts with no goal, and no default goal, are not rounded up. Without
+ * {@code transfer.flush.interval} each round-up is transferred as soon as it is calculated.
+ */
+public class DaemonConfig {
+
+    /**
+     * Goal setting that picks the first savings-goal with enough of its target left for the round-up.
+     */
+    public static final String FIRST_ELIGIBLE = "first-eligible";
+
+    /**
+     * Goal settings that split the round-up across all savings-goals of the account, see {@link SavingsGoalAllocator}.
+     */
+    public static final String BEST_FIT = "best-fit";
+    public static final String PROPORTIONAL = "proportional";
+    public static final String PRIORITY = "priority";
+
+    private static final String GOAL_PREFIX = "goal.";
+    private static final String DEFAULT_GOAL = GOAL_PREFIX + "default";
+
+    private final Duration interval;
+    private final Duration jitter;
+    private final long windowDays;
+    private final boolean incremental;
+    private final int workers;
+    private final int queueCapacity;
+    private final Duration drainTimeout;
+    private final String defaultGoal;
+    private final Map<String, String> goals;
+    private final Duration transferFlushInterval;
+    private final Duration metricsDumpInterval;
+    private final boolean metricsDumpJson;
+
+    public DaemonConfig(Duration interval, Duration jitter, long windowDays, boolean incremental, int workers,
+                        int queueCapacity, Duration drainTimeout, String defaultGoal, Map<String, String> goals) {
+
+        this(interval, jitter, windowDays, incremental, workers, queueCapacity, drainTimeout, defaultGoal, goals, null,
+            null, false);
+    }
+
+    public DaemonConfig(Duration interval, Duration jitter, long windowDays, boolean incremental, int workers,
+                        int queueCapacity, Duration drainTimeout, String defaultGoal, Map<String, String> goals,
+                        Duration transferFlushInterval, Duration metricsDumpInterval, boolean metricsDumpJson) {
+
+        if (interval.isNegative() || interval.isZero()) throw new IllegalArgumentException("interval must be positive");
+        if (jitter.isNegative()) throw new IllegalArgumentException("jitter must not be negative");
+        if (windowDays < 1) throw new IllegalArgumentException("window.days must be at least 1");
+        // Outside incremental mode, successive windows would overlap.
+        if (!incremental && Duration.ofDays(windowDays).compareTo(interval) > 0) {
+            throw new IllegalArgumentException("window.days must not be longer than the interval unless incremental");
+        }
+        if (workers < 1) throw new IllegalArgumentException("workers must be at least 1");
+        if (queueCapacity < 1) throw new IllegalArgumentException("queue.capacity must be at least 1");
+        if (transferFlushInterval != null && (transferFlushInterval.isNegative() || transferFlushInterval.isZero())) {
+            throw new IllegalArgumentException("transfer.flush.interval must be positive");
+        }
+        if (metricsDumpInterval != null && (metricsDumpInterval.isNegative() || metricsDumpInterval.isZero())) {
+            throw new IllegalArgumentException("metrics.dump.interval must be positive");
+        }
+
+        this.interval = interval;
+        this.jitter = jitter;
+        this.windowDays = windowDays;
+        this.incremental = incremental;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.drainTimeout = drainTimeout;
+        this.defaultGoal = defaultGoal;
+        this.goals = Collections.unmodifiableMap(new HashMap<>(goals));
+        this.transferFlushInterval = transferFlushInterval;
+        this.metricsDumpInterval = metricsDumpInterval;
+        this.metricsDumpJson = metricsDumpJson;
+    }
+
+    /**
+     * Read the configuration from the given file, using defaults for missing keys, or for all of them if the file
+     * does not exist.
+     *
+     * @param file properties file to read
+     * @param defaultWindowDays window used when the file has no {@code window.days}
+     */
+    public static DaemonConfig load(Path file, long defaultWindowDays) {
+
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read daemon configuration from " + file, e);
+            }
+        }
+
+        Map<String, String> goals = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(GOAL_PREFIX) && !key.equals(DEFAULT_GOAL)) {
+                goals.put(key.substring(GOAL_PREFIX.length()), properties.getProperty(key).trim());
+            }
+        }
+
+        return new DaemonConfig(
+            duration(properties, "interval", Duration.ofHours(24)),
+            duration(properties, "jitter", Duration.ofMinutes(5)),
+            number(properties, "window.days", defaultWindowDays),
+            Boolean.parseBoolean(properties.getProperty("incremental", "true").trim()),
+            (int) number(properties, "workers", 4),
+            (int) number(properties, "queue.capacity", 64),
+            duration(properties, "drain.timeout", Duration.ofSeconds(30)),
+            properties.getProperty(DEFAULT_GOAL) == null ? null : properties.getProperty(DEFAULT_GOAL).trim(),
+            goals,
+            duration(properties, "transfer.flush.interval", null),
+            duration(properties, "metrics.dump.interval", null),
+            metricsDumpJson(properties.getProperty("metrics.dump.format", "text")));
+    }
+
+    public Duration getInterval() {
+
+        return interval;
+    }
+
+    public Duration getJitter() {
+
+        return jitter;
+    }
+
+    public long getWindowDays() {
+
+        return windowDays;
+    }
+
+    public boolean isIncremental() {
+
+        return incremental;
+    }
+
+    public int getWorkers() {
+
+        return workers;
+    }
+
+    public int getQueueCapacity() {
+
+        return queueCapacity;
+    }
+
+    public Duration getDrainTimeout() {
+
+        return drainTimeout;
+    }
+
+    /**
+     * @return savings-goal uid configured for the account, {@link #FIRST_ELIGIBLE}, an allocation policy, or
+     * {@code null} if round-ups of the account are not to be transferred
+     */
+    public String getSavingsGoal(String accountUid) {
+
+        return goals.getOrDefault(accountUid, defaultGoal);
+    }
+
+    /**
+     * @return the allocation policy named by the given goal setting, or {@code null} if it names a single goal
+     */
+    public static SavingsGoalAllocator.Policy getAllocationPolicy(String goalSetting) {
+
+        if (BEST_FIT.equals(goalSetting)) return SavingsGoalAllocator.Policy.BEST_FIT;
+        if (PROPORTIONAL.equals(goalSetting)) return SavingsGoalAllocator.Policy.PROPORTIONAL;
+        if (PRIORITY.equals(goalSetting)) return SavingsGoalAllocator.Policy.PRIORITY;
+        return null;
+    }
+
+    /**
+     * @return interval between merged transfers of journalled round-ups, or {@code null} to transfer each round-up
+     * directly
+     */
+    public Duration getTransferFlushInterval() {
+
+        return transferFlushInterval;
+    }
+
+    /**
+     * @return interval between dumps of the API client metrics, or {@code null} for no dumps
+     */
+    public Duration getMetricsDumpInterval() {
+
+        return metricsDumpInterval;
+    }
+
+    /**
+     * @return whether metrics are dumped as JSON rather than text
+     */
+    public boolean isMetricsDumpJson() {
+
+        return metricsDumpJson;
+    }
+
+    private static boolean metricsDumpJson(String format) {
+
+        switch (format.trim().toLowerCase(Locale.ROOT)) {
+            case "text":
+                return false;
+            case "json":
+                return true;
+            default:
+                throw new IllegalArgumentException("Invalid format for metrics.dump.format: " + format);
+        }
+    }
+
+    private static Duration duration(Properties properties, String key, Duration defaultValue) {
+
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Duration.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid duration for " + key + ": " + value, e);
+        }
+    }
+
+    private static long number(Properties properties, String key, long defaultValue) {
+
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.starling.assignment.daemon;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.GoalAllocation;
+import com.starling.assignment.model.IncrementalRoundUp;
+import com.starling.assignment.model.RoundUp;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.service.BankingService;
+import com.starling.assignment.service.RoundUpService;
+import com.starling.assignment.service.SavingsGoalAllocator;
+import com.starling.assignment.service.TransferPipeline;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running round-up scheduler. Each account gets its own schedule, one run every configured interval plus a
+ * random jitter, so accounts do not all hit the API at the same moment. Every run calculates the round-up of the
+ * configured window and transfers it to the account's configured savings-goal, with no user interaction. The accounts
+ * are read again every interval: new accounts are scheduled and closed ones are dropped.
+ *
+ * Accounts without a configured savings-goal are not rounded up at all. A round-up is only recorded as done once it
+ * has been transferred: in incremental mode the account's checkpoint is saved after the transfers, and otherwise the
+ * next window starts where the last one that was transferred ended, so a window that is shorter than the time between
+ * two runs still leaves no gap.
+ *
+ * A round-up that is only partly transferred, because a transfer fails or the savings-goals have no room for all of
+ * it, is not recorded as done. The part that was transferred is remembered, and the next run, counting the same
+ * transactions again, only transfers what is still missing. Every transfer has a UID derived from the account,
+ * savings-goal, window and amount, so a transfer sent again after a failure whose outcome is not known is made once.
+ *
+ * Due runs are queued for a fixed number of workers. The queue is bounded: when it is full, or the previous run of
+ * the same account is still going, the run is skipped and the account is picked up again at its next slot. A skipped
+ * or failed run loses nothing; its transactions are counted by the next run that transfers its round-up.
+ *
+ * The daemon shares one {@link BankingService}, and so one HTTP client with its connection pool and cache, across all
+ * runs for as long as it is up. {@link #shutdown()} stops scheduling and lets queued and running round-ups finish
+ * within the configured drain timeout.
+ *
+ * Given a {@link TransferPipeline}, round-ups are handed to it instead of being transferred by the run itself, so the
+ * round-ups of an account are sent merged at the pipeline's flush interval. The pipeline is shut down, sending what is
+ * left, once the runs have drained.
+ */
+public class RoundUpDaemon {
+
+    private final BankingService bankingService;
+    private final RoundUpService roundUpService;
+    private final DaemonConfig config;
+    private final TransferPipeline transferPipeline;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor workers;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Latest known accounts, and those with a schedule, both guarded by this daemon.
+    private final Map<String, Account> accounts = new HashMap<>();
+    private final Set<String> scheduled = new HashSet<>();
+    // End of the last window transferred for each account, outside incremental mode.
+    private final Map<String, Date> transferredUntil = new ConcurrentHashMap<>();
+    // Round-up already transferred for each account's items not yet recorded as counted, in minor units.
+    private final Map<String, Long> transferredAhead = new ConcurrentHashMap<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private volatile boolean running;
+
+    public RoundUpDaemon(BankingService bankingService, RoundUpService roundUpService, DaemonConfig config) {
+
+        this(bankingService, roundUpService, config, null, Clock.systemUTC());
+    }
+
+    public RoundUpDaemon(BankingService bankingService, RoundUpService roundUpService, DaemonConfig config,
+                         TransferPipeline transferPipeline) {
+
+        this(bankingService, roundUpService, config, transferPipeline, Clock.systemUTC());
+    }
+
+    RoundUpDaemon(BankingService bankingService, RoundUpService roundUpService, DaemonConfig config,
+                  TransferPipeline transferPipeline, Clock clock) {
+
+        this.bankingService = bankingService;
+        this.roundUpService = roundUpService;
+        this.config = config;
+        this.transferPipeline = transferPipeline;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> newThread(runnable, "scheduler"));
+        this.workers = new ThreadPoolExecutor(config.getWorkers(), config.getWorkers(), 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(config.getQueueCapacity()), runnable -> newThread(runnable, "worker"));
+    }
+
+    /**
+     * Schedule every account returned by the {@link BankingService}, and read them again every interval. The first
+     * run of each account happens within the jitter of the time it is first read.
+     */
+    public void start() {
+
+        running = true;
+        if (transferPipeline != null) transferPipeline.start();
+        int accountCount = refreshAccounts();
+        long intervalMillis = config.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refreshAccounts();
+            } catch (RuntimeException e) {
+                log("Failed to read accounts, keeping the current ones: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log(String.format("Scheduled %d accounts every %s (jitter %s), %d workers.", accountCount,
+            config.getInterval(), config.getJitter(), config.getWorkers()));
+    }
+
+    /**
+     * Stop scheduling new runs and wait for queued and running round-ups to finish, up to the drain timeout. Round-ups
+     * still running after that are interrupted.
+     *
+     * @return {@code true} if all round-ups finished within the drain timeout
+     */
+    public boolean shutdown() {
+
+        running = false;
+        scheduler.shutdownNow();
+        workers.shutdown();
+        boolean drained;
+        try {
+            drained = workers.awaitTermination(config.getDrainTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = false;
+        }
+        if (!drained) workers.shutdownNow();
+        if (transferPipeline != null) transferPipeline.shutdown();
+
+        log(String.format("Stopped: %d completed, %d failed, %d skipped%s.", completedCount.get(), failedCount.get(),
+            skippedCount.get(), drained ? "" : ", drain timed out"));
+        terminated.countDown();
+        return drained;
+    }
+
+    /**
+     * Block until {@link #shutdown()} has completed.
+     */
+    public void awaitTermination() throws InterruptedException {
+
+        terminated.await();
+    }
+
+    public long getCompletedCount() {
+
+        return completedCount.get();
+    }
+
+    public long getFailedCount() {
+
+        return failedCount.get();
+    }
+
+    public long getSkippedCount() {
+
+        return skippedCount.get();
+    }
+
+    /**
+     * Calculate the round-up of the given account for the window ending at the start of today (UTC), and transfer it
+     * to the account's configured savings-goal, or split it across the account's goals when an allocation policy is
+     * configured. Transfers are journalled instead when there is a transfer pipeline. Nothing is calculated for an
+     * account without a configured savings-goal.
+     *
+     * Outside incremental mode the window starts where the last transferred window of the account ended, if this
+     * daemon transferred one, feed items already counted by an earlier run of an overlapping window are left out, and
+     * the items of this run are recorded as counted once all of its transfers are done or journalled.
+     *
+     * Whatever an earlier run already transferred for the same items is taken off the round-up. What is left
+     * unallocated or untransferred is logged and left to the next run, and nothing is recorded as counted.
+     *
+     * @return the transferred or journalled round-ups, one per savings-goal, empty if there was nothing to transfer or
+     * nowhere to transfer it to
+     * @throws RuntimeException if the round-up or a transfer fails
+     */
+    List<RoundUp> runRoundUp(Account account) {
+
+        String accountUid = account.getAccountUid();
+        if (config.getSavingsGoal(accountUid) == null) {
+            log(String.format("Account %s: round-up not calculated, no savings-goal configured.", accountUid));
+            return new ArrayList<>();
+        }
+
+        ZonedDateTime today = clock.instant().atZone(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS);
+        Date to = Date.from(today.toInstant());
+        Date from = Date.from(today.minusDays(config.getWindowDays()).toInstant());
+        Date lastTransferredUntil = config.isIncremental() ? null : transferredUntil.get(accountUid);
+        if (lastTransferredUntil != null) {
+            if (!lastTransferredUntil.before(to)) return new ArrayList<>();
+            from = lastTransferredUntil;
+        }
+
+        List<Transaction> transactions = null;
+        IncrementalRoundUp incrementalRoundUp = null;
+        Amount roundUpAmount;
+        if (config.isIncremental()) {
+            incrementalRoundUp = roundUpService.calculateIncrementalRoundUp(account, from, to);
+            roundUpAmount = incrementalRoundUp.getAmount();
+        } else {
+            transactions = roundUpService.selectUncounted(account, roundUpService.getTransactions(account, from, to));
+            roundUpAmount = roundUpService.calculateRoundUp(transactions, account.getCurrency());
+        }
+        // Part of the round-up may have been transferred by an earlier run that did not transfer all of it.
+        long alreadyTransferred = transferredAhead.getOrDefault(accountUid, 0L);
+        long due = roundUpAmount.getMinorUnits() - alreadyTransferred;
+        if (due <= 0L) {
+            recordCounted(account, incrementalRoundUp, transactions, to);
+            return new ArrayList<>();
+        }
+
+        Amount dueAmount = (alreadyTransferred == 0L) ? roundUpAmount : new Amount(roundUpAmount.getCurrency(), due);
+        List<GoalAllocation> allocations = allocate(accountUid, dueAmount);
+        if (allocations.isEmpty()) {
+            log(String.format("Account %s: round-up of %s not transferred, no eligible savings-goal; it is left to the "
+                + "next run.", accountUid, dueAmount.getDisplayValue()));
+            return new ArrayList<>();
+        }
+
+        String batch = incrementalRoundUp == null || incrementalRoundUp.getCheckpoint() == null ? null
+            : incrementalRoundUp.getCheckpoint().getLastFeedItemUid() + "@"
+                + incrementalRoundUp.getCheckpoint().getRoundUpTotal().getMinorUnits();
+        List<RoundUp> roundUps = new ArrayList<>();
+        long transferred = 0L;
+        try {
+            for (GoalAllocation allocation : allocations) {
+                roundUps.add(transfer(account, allocation, from, to, batch));
+                transferred += allocation.getAmount().getMinorUnits();
+            }
+        } finally {
+            if (transferred == due) {
+                recordCounted(account, incrementalRoundUp, transactions, to);
+            } else {
+                // Nothing is recorded as counted; the next run counts the same items again and only transfers what
+                // is still missing.
+                if (transferred > 0L) transferredAhead.put(accountUid, alreadyTransferred + transferred);
+                log(String.format("Account %s: %s of the round-up of %s not transferred; it is left to the next run.",
+                    accountUid, new Amount(roundUpAmount.getCurrency(), due - transferred).getDisplayValue(),
+                    dueAmount.getDisplayValue()));
+            }
+        }
+        return roundUps;
+    }
+
+    // Record the round-up of the run as done, once all of it has been transferred or journalled.
+    private void recordCounted(Account account, IncrementalRoundUp incrementalRoundUp, List<Transaction> transactions,
+                               Date to) {
+
+        if (incrementalRoundUp != null) roundUpService.saveCheckpoint(incrementalRoundUp);
+        if (transactions != null) roundUpService.markCounted(account, transactions);
+        if (!config.isIncremental()) transferredUntil.put(account.getAccountUid(), to);
+        transferredAhead.remove(account.getAccountUid());
+    }
+
+    private List<GoalAllocation> allocate(String accountUid, Amount roundUpAmount) {
+
+        String savingsGoalUid = config.getSavingsGoal(accountUid);
+        SavingsGoalAllocator.Policy policy = DaemonConfig.getAllocationPolicy(savingsGoalUid);
+        if (policy != null) return roundUpService.allocateRoundUp(accountUid, roundUpAmount, policy);
+
+        if (DaemonConfig.FIRST_ELIGIBLE.equals(savingsGoalUid)) {
+            List<SavingsGoal> savingsGoals = roundUpService.fetchSavingsGoalsForAmount(accountUid, roundUpAmount);
+            savingsGoalUid = savingsGoals.isEmpty() ? null : savingsGoals.get(0).getSavingsGoalUid();
+        }
+        List<GoalAllocation> allocations = new ArrayList<>();
+        if (savingsGoalUid != null) allocations.add(new GoalAllocation(savingsGoalUid, roundUpAmount));
+        return allocations;
+    }
+
+    private RoundUp transfer(Account account, GoalAllocation allocation, Date from, Date to, String batch) {
+
+        String accountUid = account.getAccountUid();
+        Amount amount = allocation.getAmount();
+        String savingsGoalUid = allocation.getSavingsGoalUid();
+        if (transferPipeline != null) {
+            RoundUp roundUp = new RoundUp(amount, accountUid, savingsGoalUid, from, to);
+            transferPipeline.submit(roundUp);
+            log(String.format("Account %s: journalled %s for savings-goal %s.", accountUid,
+                amount.getDisplayValue(), savingsGoalUid));
+            return roundUp;
+        }
+
+        RoundUp roundUp = roundUpService.transferRoundUpToSavingsGoal(account, amount, from, to, savingsGoalUid,
+            RoundUpService.transferUid(accountUid, savingsGoalUid, from, to, amount, batch));
+        if (roundUp == null) {
+            throw new RuntimeException("Transfer of " + amount.getDisplayValue() + " to savings-goal "
+                + savingsGoalUid + " failed.");
+        }
+        log(String.format("Account %s: transferred %s to savings-goal %s.", accountUid, amount.getDisplayValue(),
+            savingsGoalUid));
+        return roundUp;
+    }
+
+    // Read the accounts, schedule the new ones and drop those no longer returned; returns the number of accounts.
+    private int refreshAccounts() {
+
+        List<Account> current = bankingService.getAccounts();
+        Set<String> currentUids = new HashSet<>();
+        synchronized (this) {
+            for (Account account : current) {
+                String accountUid = account.getAccountUid();
+                currentUids.add(accountUid);
+                accounts.put(accountUid, account);
+                if (scheduled.add(accountUid)) scheduleNext(accountUid, jitterMillis());
+            }
+            accounts.keySet().retainAll(currentUids);
+        }
+        return current.size();
+    }
+
+    private void scheduleNext(String accountUid, long delayMillis) {
+
+        if (!running) return;
+        try {
+            scheduler.schedule(() -> submit(accountUid), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down.
+        }
+    }
+
+    private void submit(String accountUid) {
+
+        Account account;
+        synchronized (this) {
+            account = accounts.get(accountUid);
+            if (account == null) {
+                // No longer returned by the API; a later refresh schedules it again if it comes back.
+                scheduled.remove(accountUid);
+                return;
+            }
+        }
+
+        if (!inFlight.add(accountUid)) {
+            skip(accountUid, "previous run still queued or in progress");
+        } else {
+            try {
+                workers.execute(() -> execute(account));
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(accountUid);
+                if (running) skip(accountUid, "work queue full");
+            }
+        }
+        scheduleNext(accountUid, config.getInterval().toMillis() + jitterMillis());
+    }
+
+    private void execute(Account account) {
+
+        long start = System.nanoTime();
+        try {
+            runRoundUp(account);
+            completedCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+            log(String.format("Account %s: round-up failed after %d ms: %s", account.getAccountUid(),
+                Duration.ofNanos(System.nanoTime() - start).toMillis(), e.getMessage()));
+        } finally {
+            inFlight.remove(account.getAccountUid());
+        }
+    }
+
+    private void skip(String accountUid, String reason) {
+
+        skippedCount.incrementAndGet();
+        log(String.format("Account %s: run skipped, %s.", accountUid, reason));
+    }
+
+    private long jitterMillis() {
+
+        return ThreadLocalRandom.current().nextLong(config.getJitter().toMillis() + 1L);
+    }
+
+    private void log(String message) {
+
+        System.out.println(clock.instant() + " " + message);
+    }
+
+    private static Thread newThread(Runnable runnable, String name) {
+
+        Thread thread = new Thread(runnable, "round-up-daemon-" + name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,59 @@
+package com.starling.assignment.model;
+
+import java.time.Duration;
+
+/**
+ * Outcome of calculating the round-up of one account as part of a batch: either the round-up amount and the number
+ * of transactions it was calculated from, or the error that stopped it.
+ */
+public class AccountRoundUp {
+
+    private final Account account;
+    private final Amount amount;
+    private final int transactionCount;
+    private final Throwable error;
+    private final Duration elapsed;
+
+    public AccountRoundUp(Account account, Amount amount, int transactionCount, Duration elapsed) {
+
+        this(account, amount, transactionCount, null, elapsed);
+    }
+
+    public AccountRoundUp(Account account, Throwable error, Duration elapsed) {
+
+        this(account, null, 0, error, elapsed);
+    }
+
+    private AccountRoundUp(Account account, Amount amount, int transactionCount, Throwable error, Duration elapsed) {
+
+        this.account = account;
+        this.amount = amount;
+        this.transactionCount = transactionCount;
+        this.error = error;
+        this.elapsed = elapsed;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public Amount getAmount() {
+        return amount;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
@@ -1,16 +1,9 @@
 package com.starling.assignment.model;
 
-import java.text.DecimalFormat;
-import java.util.Locale;
+import java.util.Objects;
 
 public class Amount {
 
-    private static final DecimalFormat currencyFormat = (DecimalFormat) DecimalFormat.getCurrencyInstance(Locale.UK);
-
-    static {
-        currencyFormat.setMinimumFractionDigits(2);
-    }
-
     private final String currency;
     private final long minorUnits;
 
@@ -27,8 +20,49 @@ public class Amount {
         return minorUnits;
     }
 
+    /**
+     * @return this amount formatted for display, e.g. <code>&pound;1,234.56</code>
+     * @see Money
+     */
     public String getDisplayValue() {
 
-        return currencyFormat.format(minorUnits * 0.01d);
+        return Money.format(currency, minorUnits);
+    }
+
+    /**
+     * Append this amount, formatted as by {@link #getDisplayValue()}, to a reusable builder without allocating.
+     *
+     * @return {@code out}
+     */
+    public StringBuilder appendDisplayValue(StringBuilder out) {
+
+        return Money.appendTo(out, currency, minorUnits);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the amounts are in different currencies
+     * @throws ArithmeticException if the sum overflows
+     */
+    public Amount add(Amount other) {
+
+        checkSameCurrency(other);
+        return new Amount(currency, Money.add(minorUnits, other.minorUnits));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the amounts are in different currencies
+     * @throws ArithmeticException if the difference overflows
+     */
+    public Amount subtract(Amount other) {
+
+        checkSameCurrency(other);
+        return new Amount(currency, Money.subtract(minorUnits, other.minorUnits));
+    }
+
+    private void checkSameCurrency(Amount other) {
+
+        if (!Objects.equals(currency, other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
     }
 }
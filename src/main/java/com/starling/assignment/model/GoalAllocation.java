@@ -0,0 +1,29 @@
+package com.starling.assignment.model;
+
+/**
+ * Part of a round-up allocated to one savings-goal.
+ */
+public class GoalAllocation {
+
+    private final String savingsGoalUid;
+    private final Amount amount;
+
+    public GoalAllocation(String savingsGoalUid, Amount amount) {
+
+        this.savingsGoalUid = savingsGoalUid;
+        this.amount = amount;
+    }
+
+    public String getSavingsGoalUid() {
+        return savingsGoalUid;
+    }
+
+    public Amount getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return savingsGoalUid + "=" + amount.getDisplayValue();
+    }
+}
@@ -0,0 +1,29 @@
+package com.starling.assignment.model;
+
+/**
+ * Round-up of the transactions new since the last incremental run of an account, and the checkpoint that records
+ * them as counted. The checkpoint is only to be saved once the round-up has been transferred, so that a run which
+ * transfers nothing leaves the same transactions to the next one.
+ */
+public class IncrementalRoundUp {
+
+    private final Amount amount;
+    private final RoundUpCheckpoint checkpoint;
+
+    /**
+     * @param checkpoint checkpoint to save after the transfer, or {@code null} if the previous one still holds
+     */
+    public IncrementalRoundUp(Amount amount, RoundUpCheckpoint checkpoint) {
+
+        this.amount = amount;
+        this.checkpoint = checkpoint;
+    }
+
+    public Amount getAmount() {
+        return amount;
+    }
+
+    public RoundUpCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+}
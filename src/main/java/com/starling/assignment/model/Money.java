@@ -0,0 +1,158 @@
+package com.starling.assignment.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Integer-only money arithmetic and formatting for amounts held in minor units. The number of minor-unit digits of
+ * each currency comes from its ISO 4217 exponent (2 for GBP, 0 for JPY, 3 for BHD), and amounts are written in the UK
+ * style, e.g. <code>-&pound;1,234.56</code>, with the currency's UK symbol.
+ *
+ * Formatting never goes through floating point, so every {@code long} amount is written exactly, and writing into a
+ * caller-supplied {@link StringBuilder} or {@link Appendable} allocates nothing. All methods are stateless apart from
+ * an immutable per-currency lookup, so they are safe to call from any number of threads without locking.
+ */
+public final class Money {
+
+    private static final int DEFAULT_EXPONENT = 2;
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+        10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+        1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L};
+
+    // Amounts with no currency, or an unknown one, are written with two decimals and no symbol.
+    private static final CurrencyUnit UNKNOWN = new CurrencyUnit("", DEFAULT_EXPONENT);
+    private static final ConcurrentMap<String, CurrencyUnit> UNITS = new ConcurrentHashMap<>();
+
+    private Money() {
+    }
+
+    /**
+     * @return number of minor-unit digits of the given currency, 2 when the currency is unknown
+     */
+    public static int exponent(String currency) {
+
+        return unitOf(currency).exponent;
+    }
+
+    /**
+     * @return number of minor units in one major unit of the given currency, e.g. 100 for GBP and 1 for JPY
+     */
+    public static long minorUnitsPerMajorUnit(String currency) {
+
+        return POWERS_OF_TEN[unitOf(currency).exponent];
+    }
+
+    /**
+     * @throws ArithmeticException if the result overflows
+     */
+    public static long add(long minorUnits, long otherMinorUnits) {
+
+        return Math.addExact(minorUnits, otherMinorUnits);
+    }
+
+    /**
+     * @throws ArithmeticException if the result overflows
+     */
+    public static long subtract(long minorUnits, long otherMinorUnits) {
+
+        return Math.subtractExact(minorUnits, otherMinorUnits);
+    }
+
+    /**
+     * Format the given amount as a new string, e.g. <code>&pound;1,234.56</code>.
+     */
+    public static String format(String currency, long minorUnits) {
+
+        return appendTo(new StringBuilder(24), currency, minorUnits).toString();
+    }
+
+    /**
+     * Append the given amount to {@code out}, without allocating.
+     *
+     * @return {@code out}
+     */
+    public static StringBuilder appendTo(StringBuilder out, String currency, long minorUnits) {
+
+        try {
+            appendTo((Appendable) out, currency, minorUnits);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return out;
+    }
+
+    /**
+     * Append the given amount to {@code out}, without allocating.
+     *
+     * @throws IOException if {@code out} fails to append
+     */
+    public static void appendTo(Appendable out, String currency, long minorUnits) throws IOException {
+
+        CurrencyUnit unit = unitOf(currency);
+        if (minorUnits < 0L) out.append('-');
+        out.append(unit.symbol);
+
+        // Digits are taken from the negated value, which can hold Long.MIN_VALUE exactly.
+        long negative = (minorUnits < 0L) ? minorUnits : -minorUnits;
+        long scale = POWERS_OF_TEN[unit.exponent];
+        long negativeMajor = negative / scale;
+        long negativeMinor = negative % scale;
+
+        int majorDigits = digitCount(negativeMajor);
+        for (int digit = majorDigits - 1; digit >= 0; digit--) {
+            out.append((char) ('0' - (negativeMajor / POWERS_OF_TEN[digit]) % 10L));
+            if (digit > 0 && digit % 3 == 0) out.append(',');
+        }
+        if (unit.exponent > 0) {
+            out.append('.');
+            for (int digit = unit.exponent - 1; digit >= 0; digit--) {
+                out.append((char) ('0' - (negativeMinor / POWERS_OF_TEN[digit]) % 10L));
+            }
+        }
+    }
+
+    private static int digitCount(long negative) {
+
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && negative <= -POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static CurrencyUnit unitOf(String currency) {
+
+        if (currency == null) return UNKNOWN;
+
+        CurrencyUnit unit = UNITS.get(currency);
+        return (unit != null) ? unit : UNITS.computeIfAbsent(currency, Money::lookUp);
+    }
+
+    private static CurrencyUnit lookUp(String currencyCode) {
+
+        try {
+            Currency currency = Currency.getInstance(currencyCode);
+            int exponent = currency.getDefaultFractionDigits();
+            return new CurrencyUnit(currency.getSymbol(Locale.UK), (exponent < 0) ? DEFAULT_EXPONENT : exponent);
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static final class CurrencyUnit {
+
+        private final String symbol;
+        private final int exponent;
+
+        private CurrencyUnit(String symbol, int exponent) {
+
+            this.symbol = symbol;
+            this.exponent = exponent;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.starling.assignment.model;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Watermark of the transactions already included in the round-up of an account's category: the newest processed
+ * feed item (by {@code transactionTime}, then {@code feedItemUid}) and the running round-up total up to it.
+ *
+ * Feed items can still change or appear behind the watermark, a pending payment settling or an item arriving late
+ * with an older time, so the next run fetches the feed again from {@code rescanFrom} and leaves out the items counted
+ * since then, whose UIDs are kept with the checkpoint.
+ */
+public class RoundUpCheckpoint {
+
+    private final String accountUid;
+    private final String categoryUid;
+    private final Date lastTransactionTime;
+    private final String lastFeedItemUid;
+    private final Amount roundUpTotal;
+    private final Date rescanFrom;
+    private final Set<String> countedFeedItemUids;
+
+    public RoundUpCheckpoint(String accountUid, String categoryUid, Date lastTransactionTime, String lastFeedItemUid,
+                             Amount roundUpTotal) {
+
+        this(accountUid, categoryUid, lastTransactionTime, lastFeedItemUid, roundUpTotal, null,
+            Collections.emptySet());
+    }
+
+    /**
+     * @param rescanFrom time from which the feed is fetched again on the next run, or {@code null} to only fetch
+     * items after the watermark
+     * @param countedFeedItemUids UIDs of the items counted from {@code rescanFrom} on
+     */
+    public RoundUpCheckpoint(String accountUid, String categoryUid, Date lastTransactionTime, String lastFeedItemUid,
+                             Amount roundUpTotal, Date rescanFrom, Set<String> countedFeedItemUids) {
+
+        this.accountUid = accountUid;
+        this.categoryUid = categoryUid;
+        this.lastTransactionTime = lastTransactionTime;
+        this.lastFeedItemUid = lastFeedItemUid;
+        this.roundUpTotal = roundUpTotal;
+        this.rescanFrom = rescanFrom;
+        this.countedFeedItemUids = Collections.unmodifiableSet(new HashSet<>(countedFeedItemUids));
+    }
+
+    public String getAccountUid() {
+        return accountUid;
+    }
+
+    public String getCategoryUid() {
+        return categoryUid;
+    }
+
+    public Date getLastTransactionTime() {
+        return lastTransactionTime;
+    }
+
+    public String getLastFeedItemUid() {
+        return lastFeedItemUid;
+    }
+
+    public Amount getRoundUpTotal() {
+        return roundUpTotal;
+    }
+
+    public Date getRescanFrom() {
+        return rescanFrom;
+    }
+
+    public Set<String> getCountedFeedItemUids() {
+        return countedFeedItemUids;
+    }
+}
@@ -0,0 +1,40 @@
+package com.starling.assignment.model;
+
+import java.util.List;
+
+/**
+ * Everything needed to offer a round-up to the account holder: the account balance, the transactions within the
+ * round-up period, the round-up amount calculated from them, and the savings-goals that can take that amount.
+ */
+public class RoundUpPreview {
+
+    private final Balance balance;
+    private final List<Transaction> transactions;
+    private final Amount roundUpAmount;
+    private final List<SavingsGoal> savingsGoals;
+
+    public RoundUpPreview(Balance balance, List<Transaction> transactions, Amount roundUpAmount,
+                          List<SavingsGoal> savingsGoals) {
+
+        this.balance = balance;
+        this.transactions = transactions;
+        this.roundUpAmount = roundUpAmount;
+        this.savingsGoals = savingsGoals;
+    }
+
+    public Balance getBalance() {
+        return balance;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    public Amount getRoundUpAmount() {
+        return roundUpAmount;
+    }
+
+    public List<SavingsGoal> getSavingsGoals() {
+        return savingsGoals;
+    }
+}
@@ -0,0 +1,68 @@
+package com.starling.assignment.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only dictionary giving each distinct string a small integer code, so that objects repeating the same few
+ * values (currencies, transaction sources, category UIDs) can hold the code instead of a string of their own. Code
+ * {@code 0} stands for {@code null}; codes of other strings start at 1 and never change.
+ *
+ * Lookups by string go through a concurrent map and lookups by code through an array, neither taking a lock; only
+ * adding a new string does.
+ */
+final class StringDictionary {
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final int maxCode;
+    private volatile String[] values = new String[8];
+    private int size = 1;
+
+    /**
+     * @param maxCode highest code handed out, bounding the number of distinct strings
+     */
+    StringDictionary(int maxCode) {
+
+        this.maxCode = maxCode;
+    }
+
+    /**
+     * @return code of the given string, adding it if it is new
+     * @throws IllegalStateException if the string is new and the dictionary is full
+     */
+    int encode(String value) {
+
+        if (value == null) return 0;
+
+        Integer code = codes.get(value);
+        return (code != null) ? code : add(value);
+    }
+
+    /**
+     * @return the string with the given code; the same instance for every call
+     */
+    String decode(int code) {
+
+        return values[code];
+    }
+
+    synchronized int size() {
+
+        return size - 1;
+    }
+
+    private synchronized int add(String value) {
+
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        if (size > maxCode) throw new IllegalStateException("String dictionary is full, " + maxCode + " entries");
+
+        String[] current = values;
+        if (size == current.length) current = Arrays.copyOf(current, current.length * 2);
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+}
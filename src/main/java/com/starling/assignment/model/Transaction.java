@@ -1,7 +1,21 @@
 package com.starling.assignment.model;
 
 import java.util.Date;
-
+import java.util.UUID;
+
+/**
+ * Feed item of an account. Feeds of thousands of accounts are kept in memory for months, so a transaction is stored
+ * compactly, in one object of 64 bytes with no objects of its own:
+ * <ul>
+ * <li>the feed-item UID as two longs when it is a UUID in canonical, lower-case form, as Starling's are;</li>
+ * <li>the category UID, currency and source as codes into {@link StringDictionary dictionaries} shared by all
+ * transactions;</li>
+ * <li>the transaction time as epoch milliseconds and the amount as minor units.</li>
+ * </ul>
+ * {@link #getFeedItemUid()}, {@link #getAmount()} and {@link #getTransactionTime()} build their result from these
+ * fields on each call. Code on a hot path should use {@link #getMinorUnits()} and {@link #getTransactionTimeMillis()}
+ * instead.
+ */
 public class Transaction {
 
     public enum Direction {
@@ -24,49 +38,149 @@ public class Transaction {
         }
     }
 
-    private final String feedItemUid;
-    private final String categoryUid;
-    private final Amount amount;
-    private final Date transactionTime;
-    private final Direction direction;
-    private final Status status;
-    private final String source;
+    /**
+     * {@link #getTransactionTimeMillis()} of a transaction without a transaction time.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final StringDictionary CATEGORIES = new StringDictionary(Integer.MAX_VALUE);
+    private static final StringDictionary CURRENCIES = new StringDictionary(Short.MAX_VALUE);
+    private static final StringDictionary SOURCES = new StringDictionary(Short.MAX_VALUE);
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final byte UUID_FEED_ITEM_UID = 1;
+    private static final byte HAS_AMOUNT = 2;
+
+    private final long feedItemUidMostSigBits;
+    private final long feedItemUidLeastSigBits;
+    private final long transactionTime;
+    private final long minorUnits;
+    // Only set when the feed-item UID is not a canonical UUID.
+    private final String otherFeedItemUid;
+    private final int categoryCode;
+    private final short currencyCode;
+    private final short sourceCode;
+    // Enum ordinal + 1, 0 meaning null.
+    private final byte directionCode;
+    private final byte statusCode;
+    private final byte flags;
 
     public Transaction(String feedItemUid, String categoryUid, Amount amount, Date transactionTime, Direction direction, Status status, String source) {
-        this.feedItemUid = feedItemUid;
-        this.categoryUid = categoryUid;
-        this.amount = amount;
+
+        boolean uuid = isCanonicalUuid(feedItemUid);
+        this.feedItemUidMostSigBits = uuid ? parseHex(feedItemUid, 0, 18) : 0L;
+        this.feedItemUidLeastSigBits = uuid ? parseHex(feedItemUid, 19, 36) : 0L;
+        this.otherFeedItemUid = uuid ? null : feedItemUid;
+        this.transactionTime = (transactionTime == null) ? NO_TIME : transactionTime.getTime();
+        this.minorUnits = (amount == null) ? 0L : amount.getMinorUnits();
+        this.categoryCode = CATEGORIES.encode(categoryUid);
+        this.currencyCode = (short) CURRENCIES.encode(amount == null ? null : amount.getCurrency());
+        this.sourceCode = (short) SOURCES.encode(source);
+        this.directionCode = (byte) ((direction == null) ? 0 : direction.ordinal() + 1);
+        this.statusCode = (byte) ((status == null) ? 0 : status.ordinal() + 1);
+        this.flags = (byte) ((uuid ? UUID_FEED_ITEM_UID : 0) | (amount == null ? 0 : HAS_AMOUNT));
+    }
+
+    /**
+     * Create a transaction straight from primitive fields, without the intermediate objects of the other
+     * constructor.
+     *
+     * @param transactionTime epoch milliseconds, or {@link #NO_TIME}
+     */
+    public Transaction(UUID feedItemUid, String categoryUid, String currency, long minorUnits, long transactionTime,
+                       Direction direction, Status status, String source) {
+
+        this.feedItemUidMostSigBits = feedItemUid.getMostSignificantBits();
+        this.feedItemUidLeastSigBits = feedItemUid.getLeastSignificantBits();
+        this.otherFeedItemUid = null;
         this.transactionTime = transactionTime;
-        this.direction = direction;
-        this.status = status;
-        this.source = source;
+        this.minorUnits = minorUnits;
+        this.categoryCode = CATEGORIES.encode(categoryUid);
+        this.currencyCode = (short) CURRENCIES.encode(currency);
+        this.sourceCode = (short) SOURCES.encode(source);
+        this.directionCode = (byte) ((direction == null) ? 0 : direction.ordinal() + 1);
+        this.statusCode = (byte) ((status == null) ? 0 : status.ordinal() + 1);
+        this.flags = UUID_FEED_ITEM_UID | HAS_AMOUNT;
     }
 
     public String getFeedItemUid() {
-        return feedItemUid;
+        return ((flags & UUID_FEED_ITEM_UID) != 0) ? getFeedItemUuid().toString() : otherFeedItemUid;
+    }
+
+    /**
+     * @return the feed-item UID as a UUID, or {@code null} if it is not one
+     */
+    public UUID getFeedItemUuid() {
+        return ((flags & UUID_FEED_ITEM_UID) != 0) ? new UUID(feedItemUidMostSigBits, feedItemUidLeastSigBits) : null;
     }
 
     public String getCategoryUid() {
-        return categoryUid;
+        return CATEGORIES.decode(categoryCode);
     }
 
     public Amount getAmount() {
-        return amount;
+        return ((flags & HAS_AMOUNT) != 0) ? new Amount(getCurrency(), minorUnits) : null;
+    }
+
+    /**
+     * @return currency of the amount, or {@code null} if there is no amount
+     */
+    public String getCurrency() {
+        return CURRENCIES.decode(currencyCode);
+    }
+
+    /**
+     * @return minor units of the amount, 0 if there is no amount
+     */
+    public long getMinorUnits() {
+        return minorUnits;
     }
 
     public Date getTransactionTime() {
+        return (transactionTime == NO_TIME) ? null : new Date(transactionTime);
+    }
+
+    /**
+     * @return transaction time in epoch milliseconds, or {@link #NO_TIME}
+     */
+    public long getTransactionTimeMillis() {
         return transactionTime;
     }
 
     public Direction getDirection() {
-        return direction;
+        return (directionCode == 0) ? null : DIRECTIONS[directionCode - 1];
     }
 
     public Status getStatus() {
-        return status;
+        return (statusCode == 0) ? null : STATUSES[statusCode - 1];
     }
 
     public String getSource() {
-        return source;
+        return SOURCES.decode(sourceCode);
+    }
+
+    // 8-4-4-4-12 lower-case hex digits, the only form UUID.toString() gives back unchanged.
+    private static boolean isCanonicalUuid(String value) {
+
+        if (value == null || value.length() != 36) return false;
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            boolean valid = (i == 8 || i == 13 || i == 18 || i == 23)
+                ? c == '-'
+                : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+            if (!valid) return false;
+        }
+        return true;
+    }
+
+    private static long parseHex(String value, int from, int to) {
+
+        long bits = 0L;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c != '-') bits = (bits << 4) | Character.digit(c, 16);
+        }
+        return bits;
     }
 }
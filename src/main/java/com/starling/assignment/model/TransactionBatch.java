@@ -0,0 +1,178 @@
+package com.starling.assignment.model;
+
+import com.starling.assignment.model.Transaction.Direction;
+import com.starling.assignment.model.Transaction.Status;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Columnar view of a run of transactions, holding only what round-up needs in primitive arrays: the amount in minor
+ * units, the transaction time in epoch millis and a packed byte of {@link #OUT}, {@link #SETTLED} and
+ * {@link #INTERNAL_TRANSFER} flags. Scanning a batch touches three contiguous arrays instead of chasing a
+ * {@link Transaction}, its {@link Amount}, {@link Date} and enum references per item.
+ *
+ * All transactions of a batch are in one currency, taken from the first transaction added with an amount.
+ *
+ * A batch can be {@link #clear() cleared} and refilled, so a long backfill can stream any number of feed items
+ * through a single, fixed-size batch. Instances are not thread-safe.
+ */
+public final class TransactionBatch {
+
+    public static final byte OUT = 1;
+    public static final byte SETTLED = 1 << 1;
+    public static final byte INTERNAL_TRANSFER = 1 << 2;
+
+    // Transactions with no time are stored with this time, so they fall outside every date range.
+    private static final long NO_TIME = Transaction.NO_TIME;
+    private static final String INTERNAL_TRANSFER_SOURCE = "INTERNAL_TRANSFER";
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] minorUnits;
+    private long[] transactionTimes;
+    private byte[] flags;
+    private int size;
+    private String currency;
+
+    public TransactionBatch() {
+
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TransactionBatch(int capacity) {
+
+        if (capacity < 0) throw new IllegalArgumentException("Capacity must not be negative.");
+
+        this.minorUnits = new long[capacity];
+        this.transactionTimes = new long[capacity];
+        this.flags = new byte[capacity];
+    }
+
+    /**
+     * Build a batch holding all the given transactions, in order.
+     */
+    public static TransactionBatch of(List<Transaction> transactions) {
+
+        TransactionBatch batch = new TransactionBatch(transactions.size());
+        for (Transaction transaction : transactions) {
+            batch.add(transaction);
+        }
+        return batch;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the transaction is in a different currency from the batch
+     */
+    public void add(Transaction transaction) {
+
+        String transactionCurrency = transaction.getCurrency();
+        if (transactionCurrency != null) {
+            if (currency == null) {
+                currency = transactionCurrency;
+            } else if (!currency.equals(transactionCurrency)) {
+                throw new IllegalArgumentException(
+                    "Currency mismatch: batch of " + currency + " and transaction in " + transactionCurrency);
+            }
+        }
+        add(transaction.getMinorUnits(), transaction.getTransactionTimeMillis(),
+            flagsOf(transaction.getDirection(), transaction.getStatus(), transaction.getSource()));
+    }
+
+    public void add(long minorUnits, long transactionTime, byte flags) {
+
+        if (size == this.flags.length) grow();
+
+        this.minorUnits[size] = minorUnits;
+        this.transactionTimes[size] = transactionTime;
+        this.flags[size] = flags;
+        size++;
+    }
+
+    public static byte flagsOf(Direction direction, Status status, String source) {
+
+        int flags = 0;
+        if (direction == Direction.OUT) flags |= OUT;
+        if (status == Status.SETTLED) flags |= SETTLED;
+        if (INTERNAL_TRANSFER_SOURCE.equals(source)) flags |= INTERNAL_TRANSFER;
+        return (byte) flags;
+    }
+
+    /**
+     * Empty the batch, keeping its arrays for reuse.
+     */
+    public void clear() {
+
+        size = 0;
+        currency = null;
+    }
+
+    /**
+     * @return currency of the transactions in the batch, or {@code null} if none has been added yet
+     */
+    public String getCurrency() {
+
+        return currency;
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    public long getMinorUnits(int index) {
+
+        checkIndex(index);
+        return minorUnits[index];
+    }
+
+    public long getTransactionTime(int index) {
+
+        checkIndex(index);
+        return transactionTimes[index];
+    }
+
+    public byte getFlags(int index) {
+
+        checkIndex(index);
+        return flags[index];
+    }
+
+    /**
+     * Backing array of amounts in minor units; only the first {@link #size()} entries are valid. Exposed so that
+     * kernels can scan the batch without bounds checks per accessor call; callers must not modify it.
+     */
+    public long[] minorUnitsArray() {
+
+        return minorUnits;
+    }
+
+    /**
+     * Backing array of transaction times in epoch millis; only the first {@link #size()} entries are valid.
+     */
+    public long[] transactionTimesArray() {
+
+        return transactionTimes;
+    }
+
+    /**
+     * Backing array of packed flags; only the first {@link #size()} entries are valid.
+     */
+    public byte[] flagsArray() {
+
+        return flags;
+    }
+
+    private void grow() {
+
+        int capacity = Math.max(DEFAULT_CAPACITY, flags.length + (flags.length >> 1));
+        minorUnits = Arrays.copyOf(minorUnits, capacity);
+        transactionTimes = Arrays.copyOf(transactionTimes, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
+    private void checkIndex(int index) {
+
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+}
@@ -0,0 +1,38 @@
+package com.starling.assignment.model;
+
+import java.util.Date;
+
+/**
+ * Round-up of one account over a window of time, and the number of eligible transactions it was calculated from.
+ */
+public class WindowRoundUp {
+
+    private final Date from;
+    private final Date to;
+    private final Amount amount;
+    private final long transactionCount;
+
+    public WindowRoundUp(Date from, Date to, Amount amount, long transactionCount) {
+
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+        this.transactionCount = transactionCount;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public Amount getAmount() {
+        return amount;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+}
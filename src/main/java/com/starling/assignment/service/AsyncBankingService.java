@@ -0,0 +1,29 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.model.Transaction;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link BankingService} whose reads and transfers can also be started without blocking, so that independent calls
+ * can be overlapped and composed.
+ */
+public interface AsyncBankingService extends BankingService {
+
+    CompletableFuture<List<Account>> getAccountsAsync();
+
+    CompletableFuture<Balance> getAccountBalanceAsync(String accountUid);
+
+    CompletableFuture<List<Transaction>> getTransactionsAsync(String accountUid, String categoryUid, Date from, Date to);
+
+    CompletableFuture<List<SavingsGoal>> getSavingsGoalsAsync(String accountUid);
+
+    CompletableFuture<SavingsGoal> getSavingsGoalAsync(String accountUid, String savingsGoalUid);
+
+    CompletableFuture<Boolean> transferMoneyToSavingsGoalAsync(String accountUid, String savingsGoalUid, String transferUid, SavingsGoalAmount savingGoalAmount);
+}
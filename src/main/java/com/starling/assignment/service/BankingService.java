@@ -1,12 +1,16 @@
 package com.starling.assignment.service;
 
+import com.starling.assignment.client.PullPublisher;
 import com.starling.assignment.model.Account;
 import com.starling.assignment.model.Amount;
 import com.starling.assignment.model.Balance;
 import com.starling.assignment.model.SavingsGoal;
 import com.starling.assignment.model.Transaction;
 
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
 
 public interface BankingService {
 
@@ -16,6 +20,20 @@ public interface BankingService {
 
     List<Transaction> getTransactions(String accountUid, String categoryUid);
 
+    List<Transaction> getTransactions(String accountUid, String categoryUid, Date from, Date to);
+
+    /**
+     * Transactions of the given window as a publisher that delivers them as they are requested. By default the
+     * window is fetched with {@link #getTransactions(String, String, Date, Date)} on the common fork-join pool, for
+     * every subscriber on its first request; services that can stream the feed override this.
+     */
+    default Flow.Publisher<Transaction> getTransactionsPublisher(String accountUid, String categoryUid, Date from,
+                                                                 Date to) {
+
+        return PullPublisher.ofList(() -> getTransactions(accountUid, categoryUid, from, to),
+            ForkJoinPool.commonPool());
+    }
+
     List<SavingsGoal> getSavingsGoals(String accountUid);
 
     SavingsGoal getSavingsGoal(String accountUid, String savingsGoalUid);
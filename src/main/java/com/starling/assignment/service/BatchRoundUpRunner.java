@@ -0,0 +1,189 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.AccountRoundUp;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Transaction;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Calculates the round-up of every account returned by {@link BankingService#getAccounts()} concurrently, so the
+ * wall-clock time of a batch is close to that of its slowest account rather than the sum of all of them.
+ *
+ * At most {@code maxConcurrency} accounts are processed at a time, whatever executor is used. Each account's result is
+ * reported separately: an account that fails, or does not finish within {@code accountTimeout} of starting, is
+ * reported with its error and does not hold up or fail the others. An account that times out is interrupted.
+ */
+public class BatchRoundUpRunner {
+
+    private final BankingService bankingService;
+    private final RoundUpService roundUpService;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Duration accountTimeout;
+    private final ScheduledExecutorService timeouts =
+        Executors.newSingleThreadScheduledExecutor(runnable -> newThread(runnable, "round-up-timeout"));
+
+    public BatchRoundUpRunner(BankingService bankingService, RoundUpService roundUpService, int maxConcurrency,
+                              Duration accountTimeout) {
+
+        this(bankingService, roundUpService, defaultExecutor(maxConcurrency), maxConcurrency, accountTimeout);
+    }
+
+    public BatchRoundUpRunner(BankingService bankingService, RoundUpService roundUpService, ExecutorService executor,
+                              int maxConcurrency, Duration accountTimeout) {
+
+        if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be at least 1");
+
+        this.bankingService = bankingService;
+        this.roundUpService = roundUpService;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency);
+        this.accountTimeout = accountTimeout;
+    }
+
+    /**
+     * Calculate the round-up of all accounts for transactions within the {@code from} and {@code to} dates.
+     *
+     * @param from starting date, which should be older than {@code to}, time component should be midnight
+     * @param to ending date, which should be today, time component should be midnight
+     * @return one result per account, in the order the accounts were returned by the {@link BankingService}
+     */
+    public List<AccountRoundUp> run(Date from, Date to) {
+
+        List<CompletableFuture<AccountRoundUp>> roundUps = bankingService.getAccounts().stream()
+            .map(account -> roundUp(account, from, to))
+            .collect(Collectors.toList());
+
+        return roundUps.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    public void shutdown() {
+
+        executor.shutdown();
+        timeouts.shutdown();
+    }
+
+    private CompletableFuture<AccountRoundUp> roundUp(Account account, Date from, Date to) {
+
+        long start = System.nanoTime();
+        CompletableFuture<AccountRoundUp> roundUp = new CompletableFuture<>();
+        executor.execute(() -> withPermit(roundUp, () -> {
+            List<Transaction> transactions = roundUpService.getTransactions(account, from, to);
+            Amount amount = roundUpService.calculateRoundUp(transactions);
+            return new AccountRoundUp(account, amount, transactions.size(), elapsedSince(start));
+        }));
+
+        return roundUp.exceptionally(e -> new AccountRoundUp(account, unwrap(e), elapsedSince(start)));
+    }
+
+    /**
+     * Run the given task once a permit is free and complete {@code result} with its outcome. The account timeout only
+     * starts once the permit is held, so time spent waiting for one does not count against the account. A task still
+     * running when it expires is interrupted, so that it gives its permit back instead of holding it until a slow call
+     * returns.
+     */
+    private void withPermit(CompletableFuture<AccountRoundUp> result, Supplier<AccountRoundUp> task) {
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        Deadline deadline = new Deadline(Thread.currentThread());
+        ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+            if (result.completeExceptionally(new TimeoutException())) deadline.expire();
+        }, accountTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            result.complete(task.get());
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        } finally {
+            timeout.cancel(false);
+            deadline.finish();
+            permits.release();
+        }
+    }
+
+    private Throwable unwrap(Throwable e) {
+
+        Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+        return (cause instanceof TimeoutException) ? new TimeoutException(
+            String.format("Round-up did not complete within %d ms.", accountTimeout.toMillis())) : cause;
+    }
+
+    private static Duration elapsedSince(long start) {
+
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Virtual threads when running on a JDK that has them (21+), otherwise a fixed pool of {@code maxConcurrency}
+     * daemon threads. Looked up reflectively, as the project is compiled for Java 11.
+     */
+    static ExecutorService defaultExecutor(int maxConcurrency) {
+
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(maxConcurrency,
+                runnable -> newThread(runnable, "round-up-worker-" + threadCount.incrementAndGet()));
+        }
+    }
+
+    private static Thread newThread(Runnable runnable, String name) {
+
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Interrupts the thread of a task that outlived its timeout, but never once the task has finished, so that the
+     * interrupt cannot reach the next task run by the same thread.
+     */
+    private static class Deadline {
+
+        private final Thread worker;
+        private boolean finished;
+        private boolean expired;
+
+        Deadline(Thread worker) {
+
+            this.worker = worker;
+        }
+
+        synchronized void expire() {
+
+            if (finished) return;
+            expired = true;
+            worker.interrupt();
+        }
+
+        synchronized void finish() {
+
+            finished = true;
+            // An interrupt sent by expire() is cleared; any other is left for the executor.
+            if (expired) Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.model.Transaction;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link AsyncBankingService} decorator that keeps accounts, balances and savings-goals in memory for a per-method time to
+ * live, evicting the least recently used entries beyond {@code maxEntries}. Transactions are not cached.
+ *
+ * Writes invalidate what they affect as soon as they return: a transfer to a savings-goal invalidates that goal, the
+ * account's goal list and its balance, and creating a savings-goal invalidates the account's goal list. A write that
+ * fails with an exception invalidates the same entries, as its effect is unknown. A read that was in flight during an
+ * invalidation of its account does not cache its result; invalidating one account leaves reads of the others alone.
+ *
+ * Blocking and future-based reads share the same entries. The future-based methods use the delegate's own when it is
+ * an {@link AsyncBankingService}, and run its blocking methods on the common fork-join pool otherwise.
+ */
+public class CachingBankingService implements AsyncBankingService {
+
+    private static final String ACCOUNTS = "accounts";
+    private static final String BALANCE = "balance/";
+    private static final String SAVINGS_GOALS = "savings-goals/";
+    private static final String SAVINGS_GOAL = "savings-goal/";
+
+    private final BankingService bankingService;
+    private final AsyncBankingService asyncBankingService;
+    private final Duration accountsTtl;
+    private final Duration balanceTtl;
+    private final Duration savingsGoalsTtl;
+    private final Clock clock;
+    private final Map<String, CacheEntry> entries;
+    // Value of invalidations when each account, or every entry, was last invalidated.
+    private final Map<String, Long> accountInvalidations = new HashMap<>();
+    private long allInvalidation;
+    private long invalidations;
+
+    public CachingBankingService(BankingService bankingService, Duration accountsTtl, Duration balanceTtl,
+                                 Duration savingsGoalsTtl, int maxEntries) {
+
+        this(bankingService, accountsTtl, balanceTtl, savingsGoalsTtl, maxEntries, Clock.systemUTC());
+    }
+
+    public CachingBankingService(BankingService bankingService, Duration accountsTtl, Duration balanceTtl,
+                                 Duration savingsGoalsTtl, int maxEntries, Clock clock) {
+
+        this.bankingService = bankingService;
+        this.asyncBankingService =
+            (bankingService instanceof AsyncBankingService) ? (AsyncBankingService) bankingService : null;
+        this.accountsTtl = accountsTtl;
+        this.balanceTtl = balanceTtl;
+        this.savingsGoalsTtl = savingsGoalsTtl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public List<Account> getAccounts() {
+
+        return copy(cached(ACCOUNTS, null, accountsTtl, bankingService::getAccounts));
+    }
+
+    @Override
+    public CompletableFuture<List<Account>> getAccountsAsync() {
+
+        return cachedAsync(ACCOUNTS, null, accountsTtl,
+            () -> async(AsyncBankingService::getAccountsAsync, bankingService::getAccounts))
+            .thenApply(CachingBankingService::copy);
+    }
+
+    @Override
+    public Balance getAccountBalance(String accountUid) {
+
+        return cached(BALANCE + accountUid, accountUid, balanceTtl,
+            () -> bankingService.getAccountBalance(accountUid));
+    }
+
+    @Override
+    public CompletableFuture<Balance> getAccountBalanceAsync(String accountUid) {
+
+        return cachedAsync(BALANCE + accountUid, accountUid, balanceTtl,
+            () -> async(service -> service.getAccountBalanceAsync(accountUid),
+                () -> bankingService.getAccountBalance(accountUid)));
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String accountUid, String categoryUid) {
+
+        return bankingService.getTransactions(accountUid, categoryUid);
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String accountUid, String categoryUid, Date from, Date to) {
+
+        return bankingService.getTransactions(accountUid, categoryUid, from, to);
+    }
+
+    @Override
+    public CompletableFuture<List<Transaction>> getTransactionsAsync(String accountUid, String categoryUid, Date from,
+                                                                     Date to) {
+
+        return async(service -> service.getTransactionsAsync(accountUid, categoryUid, from, to),
+            () -> bankingService.getTransactions(accountUid, categoryUid, from, to));
+    }
+
+    @Override
+    public Flow.Publisher<Transaction> getTransactionsPublisher(String accountUid, String categoryUid, Date from,
+                                                                Date to) {
+
+        return bankingService.getTransactionsPublisher(accountUid, categoryUid, from, to);
+    }
+
+    @Override
+    public List<SavingsGoal> getSavingsGoals(String accountUid) {
+
+        return copy(cached(SAVINGS_GOALS + accountUid, accountUid, savingsGoalsTtl,
+            () -> bankingService.getSavingsGoals(accountUid)));
+    }
+
+    @Override
+    public CompletableFuture<List<SavingsGoal>> getSavingsGoalsAsync(String accountUid) {
+
+        return cachedAsync(SAVINGS_GOALS + accountUid, accountUid, savingsGoalsTtl,
+            () -> async(service -> service.getSavingsGoalsAsync(accountUid),
+                () -> bankingService.getSavingsGoals(accountUid)))
+            .thenApply(CachingBankingService::copy);
+    }
+
+    @Override
+    public SavingsGoal getSavingsGoal(String accountUid, String savingsGoalUid) {
+
+        return cached(SAVINGS_GOAL + accountUid + "/" + savingsGoalUid, accountUid, savingsGoalsTtl,
+            () -> bankingService.getSavingsGoal(accountUid, savingsGoalUid));
+    }
+
+    @Override
+    public CompletableFuture<SavingsGoal> getSavingsGoalAsync(String accountUid, String savingsGoalUid) {
+
+        return cachedAsync(SAVINGS_GOAL + accountUid + "/" + savingsGoalUid, accountUid, savingsGoalsTtl,
+            () -> async(service -> service.getSavingsGoalAsync(accountUid, savingsGoalUid),
+                () -> bankingService.getSavingsGoal(accountUid, savingsGoalUid)));
+    }
+
+    @Override
+    public String createSavingsGoal(String accountUid, SavingsGoalRequest savingsGoalRequest) {
+
+        String savingsGoalUid;
+        try {
+            savingsGoalUid = bankingService.createSavingsGoal(accountUid, savingsGoalRequest);
+        } catch (RuntimeException e) {
+            invalidate(accountUid, SAVINGS_GOALS + accountUid);
+            throw e;
+        }
+        if (savingsGoalUid != null) invalidate(accountUid, SAVINGS_GOALS + accountUid);
+
+        return savingsGoalUid;
+    }
+
+    @Override
+    public boolean transferMoneyToSavingsGoal(String accountUid, String savingsGoalUid, String transferUid,
+                                              SavingsGoalAmount savingGoalAmount) {
+
+        boolean transferred;
+        try {
+            transferred = bankingService.transferMoneyToSavingsGoal(
+                accountUid, savingsGoalUid, transferUid, savingGoalAmount);
+        } catch (RuntimeException e) {
+            invalidateTransferReads(accountUid, savingsGoalUid);
+            throw e;
+        }
+        if (transferred) invalidateTransferReads(accountUid, savingsGoalUid);
+
+        return transferred;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transferMoneyToSavingsGoalAsync(String accountUid, String savingsGoalUid,
+                                                                      String transferUid,
+                                                                      SavingsGoalAmount savingGoalAmount) {
+
+        return async(service -> service.transferMoneyToSavingsGoalAsync(accountUid, savingsGoalUid, transferUid,
+                savingGoalAmount),
+            () -> bankingService.transferMoneyToSavingsGoal(accountUid, savingsGoalUid, transferUid, savingGoalAmount))
+            .whenComplete((transferred, error) -> {
+                if (error != null || Boolean.TRUE.equals(transferred)) {
+                    invalidateTransferReads(accountUid, savingsGoalUid);
+                }
+            });
+    }
+
+    /**
+     * Drop every cached entry.
+     */
+    public synchronized void invalidateAll() {
+
+        entries.clear();
+        allInvalidation = ++invalidations;
+    }
+
+    private <T> T cached(String key, String accountUid, Duration ttl, Supplier<T> loader) {
+
+        CacheEntry entry = lookup(key);
+        if (entry != null) return entry.value();
+
+        long readStart = readStart();
+        T value = loader.get();
+        store(key, accountUid, ttl, readStart, value);
+
+        return value;
+    }
+
+    private <T> CompletableFuture<T> cachedAsync(String key, String accountUid, Duration ttl,
+                                                 Supplier<CompletableFuture<T>> loader) {
+
+        CacheEntry entry = lookup(key);
+        if (entry != null) return CompletableFuture.completedFuture(entry.value());
+
+        long readStart = readStart();
+        return loader.get().thenApply(value -> {
+            store(key, accountUid, ttl, readStart, value);
+            return value;
+        });
+    }
+
+    private synchronized CacheEntry lookup(String key) {
+
+        CacheEntry entry = entries.get(key);
+        return (entry != null && clock.millis() < entry.expiresAt) ? entry : null;
+    }
+
+    private synchronized long readStart() {
+
+        return invalidations;
+    }
+
+    // Not stored if every entry, or those of the account, were invalidated after the read started.
+    private synchronized void store(String key, String accountUid, Duration ttl, long readStart, Object value) {
+
+        long lastInvalidation = Math.max(allInvalidation,
+            (accountUid != null) ? accountInvalidations.getOrDefault(accountUid, 0L) : 0L);
+        if (value != null && lastInvalidation <= readStart) {
+            entries.put(key, new CacheEntry(value, clock.millis() + ttl.toMillis()));
+        }
+    }
+
+    private synchronized void invalidate(String accountUid, String... keys) {
+
+        for (String key : keys) {
+            entries.remove(key);
+        }
+        accountInvalidations.put(accountUid, ++invalidations);
+    }
+
+    private void invalidateTransferReads(String accountUid, String savingsGoalUid) {
+
+        invalidate(accountUid, SAVINGS_GOAL + accountUid + "/" + savingsGoalUid, SAVINGS_GOALS + accountUid,
+            BALANCE + accountUid);
+    }
+
+    private <T> CompletableFuture<T> async(Function<AsyncBankingService, CompletableFuture<T>> call,
+                                           Supplier<T> blockingCall) {
+
+        return (asyncBankingService != null) ? call.apply(asyncBankingService)
+            : CompletableFuture.supplyAsync(blockingCall);
+    }
+
+    private static <T> List<T> copy(List<T> list) {
+
+        return (list == null) ? null : new ArrayList<>(list);
+    }
+
+    private static class CacheEntry {
+
+        private final Object value;
+        private final long expiresAt;
+
+        private CacheEntry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T value() {
+            return (T) value;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link AsyncBankingService} decorator that coalesces concurrent identical reads ("single flight"). While a read
+ * with the same method and arguments is in flight, a later caller waits for its result instead of sending a request
+ * of its own. Blocking and future-based callers share the same in-flight reads, so a blocking call can be answered by
+ * a request started by a future-based one and the other way round. A failed read fails every caller waiting on it.
+ * Nothing is kept once a read completes; the next caller sends a new request.
+ *
+ * Every caller gets its own copy of returned lists, including the one whose request fetched them. Writes are never
+ * coalesced. Once a write returns, the reads it affects that are still in flight are no longer joined, so a caller
+ * that reads after its own write does not get a result fetched before it. Streamed transactions are not
+ * coalesced either; every subscriber streams its own feed.
+ *
+ * The future-based methods use the delegate's own when it is an {@link AsyncBankingService}, and run its blocking
+ * methods on the common fork-join pool otherwise.
+ */
+public class CoalescingBankingService implements AsyncBankingService {
+
+    private static final String ACCOUNTS = "accounts";
+    private static final String BALANCE = "balance/";
+    private static final String TRANSACTIONS = "transactions/";
+    private static final String SAVINGS_GOALS = "savings-goals/";
+    private static final String SAVINGS_GOAL = "savings-goal/";
+
+    private final BankingService bankingService;
+    private final AsyncBankingService asyncBankingService;
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    public CoalescingBankingService(BankingService bankingService) {
+
+        this.bankingService = bankingService;
+        this.asyncBankingService =
+            (bankingService instanceof AsyncBankingService) ? (AsyncBankingService) bankingService : null;
+    }
+
+    @Override
+    public List<Account> getAccounts() {
+
+        return coalesce(ACCOUNTS, bankingService::getAccounts, CoalescingBankingService::copy);
+    }
+
+    @Override
+    public CompletableFuture<List<Account>> getAccountsAsync() {
+
+        return coalesceAsync(ACCOUNTS, () -> async(AsyncBankingService::getAccountsAsync, bankingService::getAccounts),
+            CoalescingBankingService::copy);
+    }
+
+    @Override
+    public Balance getAccountBalance(String accountUid) {
+
+        return coalesce(BALANCE + accountUid, () -> bankingService.getAccountBalance(accountUid),
+            UnaryOperator.identity());
+    }
+
+    @Override
+    public CompletableFuture<Balance> getAccountBalanceAsync(String accountUid) {
+
+        return coalesceAsync(BALANCE + accountUid,
+            () -> async(service -> service.getAccountBalanceAsync(accountUid),
+                () -> bankingService.getAccountBalance(accountUid)),
+            UnaryOperator.identity());
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String accountUid, String categoryUid) {
+
+        return coalesce(TRANSACTIONS + accountUid + "/" + categoryUid,
+            () -> bankingService.getTransactions(accountUid, categoryUid), CoalescingBankingService::copy);
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String accountUid, String categoryUid, Date from, Date to) {
+
+        return coalesce(transactionsKey(accountUid, categoryUid, from, to),
+            () -> bankingService.getTransactions(accountUid, categoryUid, from, to), CoalescingBankingService::copy);
+    }
+
+    @Override
+    public CompletableFuture<List<Transaction>> getTransactionsAsync(String accountUid, String categoryUid, Date from,
+                                                                     Date to) {
+
+        return coalesceAsync(transactionsKey(accountUid, categoryUid, from, to),
+            () -> async(service -> service.getTransactionsAsync(accountUid, categoryUid, from, to),
+                () -> bankingService.getTransactions(accountUid, categoryUid, from, to)),
+            CoalescingBankingService::copy);
+    }
+
+    @Override
+    public Flow.Publisher<Transaction> getTransactionsPublisher(String accountUid, String categoryUid, Date from,
+                                                                Date to) {
+
+        return bankingService.getTransactionsPublisher(accountUid, categoryUid, from, to);
+    }
+
+    @Override
+    public List<SavingsGoal> getSavingsGoals(String accountUid) {
+
+        return coalesce(SAVINGS_GOALS + accountUid, () -> bankingService.getSavingsGoals(accountUid),
+            CoalescingBankingService::copy);
+    }
+
+    @Override
+    public CompletableFuture<List<SavingsGoal>> getSavingsGoalsAsync(String accountUid) {
+
+        return coalesceAsync(SAVINGS_GOALS + accountUid,
+            () -> async(service -> service.getSavingsGoalsAsync(accountUid),
+                () -> bankingService.getSavingsGoals(accountUid)),
+            CoalescingBankingService::copy);
+    }
+
+    @Override
+    public SavingsGoal getSavingsGoal(String accountUid, String savingsGoalUid) {
+
+        return coalesce(SAVINGS_GOAL + accountUid + "/" + savingsGoalUid,
+            () -> bankingService.getSavingsGoal(accountUid, savingsGoalUid), UnaryOperator.identity());
+    }
+
+    @Override
+    public CompletableFuture<SavingsGoal> getSavingsGoalAsync(String accountUid, String savingsGoalUid) {
+
+        return coalesceAsync(SAVINGS_GOAL + accountUid + "/" + savingsGoalUid,
+            () -> async(service -> service.getSavingsGoalAsync(accountUid, savingsGoalUid),
+                () -> bankingService.getSavingsGoal(accountUid, savingsGoalUid)),
+            UnaryOperator.identity());
+    }
+
+    @Override
+    public String createSavingsGoal(String accountUid, SavingsGoalRequest savingsGoalRequest) {
+
+        try {
+            return bankingService.createSavingsGoal(accountUid, savingsGoalRequest);
+        } finally {
+            detach(SAVINGS_GOALS + accountUid);
+        }
+    }
+
+    @Override
+    public boolean transferMoneyToSavingsGoal(String accountUid, String savingsGoalUid, String transferUid,
+                                              SavingsGoalAmount savingGoalAmount) {
+
+        try {
+            return bankingService.transferMoneyToSavingsGoal(accountUid, savingsGoalUid, transferUid,
+                savingGoalAmount);
+        } finally {
+            detachTransferReads(accountUid, savingsGoalUid);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transferMoneyToSavingsGoalAsync(String accountUid, String savingsGoalUid,
+                                                                      String transferUid,
+                                                                      SavingsGoalAmount savingGoalAmount) {
+
+        return async(service -> service.transferMoneyToSavingsGoalAsync(accountUid, savingsGoalUid, transferUid,
+                savingGoalAmount),
+            () -> bankingService.transferMoneyToSavingsGoal(accountUid, savingsGoalUid, transferUid, savingGoalAmount))
+            .whenComplete((transferred, error) -> detachTransferReads(accountUid, savingsGoalUid));
+    }
+
+    /**
+     * @return number of reads sent to the delegate
+     */
+    public long getRequestCount() {
+
+        return requestCount.sum();
+    }
+
+    /**
+     * @return number of reads answered by a read already in flight, without a request of their own
+     */
+    public long getCoalescedCount() {
+
+        return coalescedCount.sum();
+    }
+
+    /**
+     * @return number of reads in flight
+     */
+    public int getInFlightCount() {
+
+        return inFlight.size();
+    }
+
+    private <T> T coalesce(String key, Supplier<T> read, UnaryOperator<T> copy) {
+
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<T> existing = join(key, flight);
+        if (existing != null) return copy.apply(await(existing));
+
+        T result;
+        try {
+            result = read.get();
+        } catch (Throwable e) {
+            // Errors too, or the key would stay in flight and every later caller would wait on it forever.
+            land(key, flight, null, e);
+            throw e;
+        }
+        land(key, flight, result, null);
+        return copy.apply(result);
+    }
+
+    private <T> CompletableFuture<T> coalesceAsync(String key, Supplier<CompletableFuture<T>> read,
+                                                   UnaryOperator<T> copy) {
+
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<T> existing = join(key, flight);
+        if (existing != null) return existing.thenApply(copy);
+
+        try {
+            read.get().whenComplete((result, error) -> land(key, flight, result, error));
+        } catch (Throwable e) {
+            land(key, flight, null, e);
+        }
+        // A dependent future, so callers cannot complete or cancel the shared one.
+        return flight.thenApply(copy);
+    }
+
+    // The read in flight for the key, or null after registering the given one, whose caller must then send it.
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> join(String key, CompletableFuture<T> flight) {
+
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalescedCount.increment();
+        } else {
+            requestCount.increment();
+        }
+        return existing;
+    }
+
+    // Unregistered before completion, so callers arriving from then on send a new request.
+    private <T> void land(String key, CompletableFuture<T> flight, T result, Throwable error) {
+
+        inFlight.remove(key, flight);
+        if (error != null) {
+            flight.completeExceptionally(error);
+        } else {
+            flight.complete(result);
+        }
+    }
+
+    private void detach(String... keys) {
+
+        for (String key : keys) {
+            inFlight.remove(key);
+        }
+    }
+
+    private void detachTransferReads(String accountUid, String savingsGoalUid) {
+
+        detach(SAVINGS_GOAL + accountUid + "/" + savingsGoalUid, SAVINGS_GOALS + accountUid, BALANCE + accountUid);
+    }
+
+    private <T> CompletableFuture<T> async(Function<AsyncBankingService, CompletableFuture<T>> call,
+                                           Supplier<T> blockingCall) {
+
+        return (asyncBankingService != null) ? call.apply(asyncBankingService)
+            : CompletableFuture.supplyAsync(blockingCall);
+    }
+
+    private static <T> T await(CompletableFuture<T> flight) {
+
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    private static String transactionsKey(String accountUid, String categoryUid, Date from, Date to) {
+
+        return TRANSACTIONS + accountUid + "/" + categoryUid + "/" + from.getTime() + "/" + to.getTime();
+    }
+
+    private static <T> List<T> copy(List<T> list) {
+
+        return (list == null) ? null : new ArrayList<>(list);
+    }
+}
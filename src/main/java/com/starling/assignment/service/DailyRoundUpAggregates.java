@@ -0,0 +1,395 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Money;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.WindowRoundUp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Round-up of every account per UTC day, so that the round-up of any range of days is looked up instead of calculated
+ * from the feed again. For each account, the round-up minor units and the number of eligible transactions are kept as
+ * prefix sums over consecutive days, so the totals of a range are the difference of two entries of each array.
+ *
+ * Transactions are added with {@link #record(Account, List)}. As with incremental round-ups, transactions after the
+ * last one recorded for the account, by time and then feed-item UID, are added, so the feeds of overlapping windows
+ * can be recorded one after the other. Items behind that watermark are looked at again from the oldest one that was
+ * still awaiting settlement when recorded, {@link #getRescanFrom(Account)}, so a payment settling late is counted
+ * once it settles. The UIDs of the items counted from then on are kept with the sums, and every item is counted once.
+ *
+ * With a state directory, each account's sums and last recorded transaction are saved to a file of their own in it
+ * before {@link #record(Account, List)} returns: written to a temporary sibling, forced to disk and atomically renamed
+ * over the previous state, so a crash leaves either the old or the new sums, never a mix of both.
+ */
+public class DailyRoundUpAggregates {
+
+    private static final int MAGIC = 0x52554441;
+    private static final int FORMAT_VERSION = 2;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final Path stateDirectory;
+    private final Map<String, DailySums> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param stateDirectory directory the sums of every account are kept in, or {@code null} to keep them in memory
+     * only
+     */
+    public DailyRoundUpAggregates(Path stateDirectory) {
+
+        this.stateDirectory = stateDirectory;
+    }
+
+    /**
+     * Add the eligible transactions of the given account that were not counted yet: those newer than the last
+     * transaction recorded for it, and those from {@link #getRescanFrom(Account)} on that were not eligible when last
+     * seen. The watermark moves to the newest of the given transactions. The transactions may be in any order, and an
+     * item given more than once is added once. To count late settlements, the feed is to be given from
+     * {@link #getRescanFrom(Account)} on.
+     *
+     * @return number of eligible transactions added
+     * @throws RuntimeException if the sums cannot be written to the state directory; they are then left as they were
+     */
+    public int record(Account account, List<Transaction> transactions) {
+
+        if (transactions == null || transactions.isEmpty()) return 0;
+
+        String accountUid = account.getAccountUid();
+        DailySums sums = getSums(accountUid, account.getCurrency());
+        synchronized (sums) {
+            Set<String> seen = new HashSet<>();
+            List<Transaction> newTransactions = transactions.stream()
+                .filter(transaction -> transaction.getTransactionTimeMillis() != Transaction.NO_TIME)
+                .filter(sums::isUncounted)
+                .filter(transaction -> transaction.getFeedItemUid() == null || seen.add(transaction.getFeedItemUid()))
+                .sorted(RoundUpService.FEED_ORDER)
+                .collect(Collectors.toList());
+            if (newTransactions.isEmpty()) return 0;
+
+            DailySums updated = sums.copy();
+            int added = updated.add(newTransactions);
+            Transaction last = newTransactions.get(newTransactions.size() - 1);
+            if (sums.isAfterWatermark(last)) {
+                updated.lastTransactionTime = last.getTransactionTimeMillis();
+                updated.lastFeedItemUid = last.getFeedItemUid();
+            }
+            updated.rescanFrom = newTransactions.stream()
+                .filter(RoundUpService.AWAITING_SETTLEMENT)
+                .mapToLong(Transaction::getTransactionTimeMillis)
+                .findFirst().orElse(Transaction.NO_TIME);
+            updated.counted = counted(sums.counted, newTransactions, updated.rescanFrom);
+            if (stateDirectory != null) save(accountUid, updated);
+            sums.replaceWith(updated);
+            return added;
+        }
+    }
+
+    /**
+     * @return time of the last transaction recorded for the given account, or {@code null} if there is none, from
+     * which on its feed needs to be fetched to bring the sums up to date
+     */
+    public Date getLastRecordedTime(Account account) {
+
+        DailySums sums = getSums(account.getAccountUid(), account.getCurrency());
+        synchronized (sums) {
+            return (sums.lastTransactionTime == Transaction.NO_TIME) ? null : new Date(sums.lastTransactionTime);
+        }
+    }
+
+    /**
+     * @return time from which the feed of the given account needs to be fetched to bring the sums up to date: that of
+     * the oldest item still awaiting settlement when recorded, or else of the last transaction recorded; {@code null}
+     * if there is none
+     */
+    public Date getRescanFrom(Account account) {
+
+        DailySums sums = getSums(account.getAccountUid(), account.getCurrency());
+        synchronized (sums) {
+            long rescanFrom = (sums.rescanFrom != Transaction.NO_TIME) ? sums.rescanFrom : sums.lastTransactionTime;
+            return (rescanFrom == Transaction.NO_TIME) ? null : new Date(rescanFrom);
+        }
+    }
+
+    /**
+     * Look up the round-up of the given account over the UTC days from the day of {@code from} up to, but not
+     * including, the day of {@code to}. With dates at midnight, as used elsewhere, that is the range from {@code from}
+     * to {@code to}. Takes the same time however long the range.
+     *
+     * @return round-up and number of eligible transactions recorded within the range, zero if there are none
+     */
+    public WindowRoundUp query(Account account, Date from, Date to) {
+
+        DailySums sums = getSums(account.getAccountUid(), account.getCurrency());
+        synchronized (sums) {
+            long fromIndex = Math.floorDiv(from.getTime(), MILLIS_PER_DAY) - sums.firstDay;
+            long toIndex = Math.floorDiv(to.getTime(), MILLIS_PER_DAY) - sums.firstDay;
+            int days = sums.days();
+            int start = (int) Math.max(0L, Math.min(fromIndex, days));
+            int end = (int) Math.max(start, Math.min(toIndex, days));
+
+            return new WindowRoundUp(from, to,
+                new Amount(sums.currency, sums.roundUpSums[end] - sums.roundUpSums[start]),
+                sums.countSums[end] - sums.countSums[start]);
+        }
+    }
+
+    // Times of the eligible items counted from rescanFrom on, by feed-item UID: those counted before and the new ones.
+    private static Map<String, Long> counted(Map<String, Long> counted, List<Transaction> newTransactions,
+                                             long rescanFrom) {
+
+        Map<String, Long> updated = new HashMap<>();
+        if (rescanFrom == Transaction.NO_TIME) return updated;
+
+        counted.forEach((feedItemUid, time) -> {
+            if (time >= rescanFrom) updated.put(feedItemUid, time);
+        });
+        for (Transaction transaction : newTransactions) {
+            if (transaction.getTransactionTimeMillis() >= rescanFrom && transaction.getFeedItemUid() != null
+                && RoundUpService.OUTGOING_EXTERNAL.test(transaction)) {
+                updated.put(transaction.getFeedItemUid(), transaction.getTransactionTimeMillis());
+            }
+        }
+        return updated;
+    }
+
+    private DailySums getSums(String accountUid, String currency) {
+
+        DailySums sums = accounts.computeIfAbsent(accountUid, this::load);
+        synchronized (sums) {
+            if (sums.currency == null && currency != null) sums.currency = currency;
+        }
+        return sums;
+    }
+
+    private DailySums load(String accountUid) {
+
+        if (stateDirectory == null) return new DailySums();
+
+        Path stateFile = stateFile(accountUid);
+        if (Files.notExists(stateFile)) return new DailySums();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            int version = (in.readInt() == MAGIC) ? in.readInt() : -1;
+            if (version != 1 && version != FORMAT_VERSION) {
+                throw new RuntimeException("Unrecognised daily round-ups file for account " + accountUid);
+            }
+            DailySums sums = new DailySums();
+            sums.currency = in.readBoolean() ? in.readUTF() : null;
+            sums.lastTransactionTime = in.readLong();
+            sums.lastFeedItemUid = in.readBoolean() ? in.readUTF() : null;
+            // Version 1 kept no items awaiting settlement.
+            if (version == FORMAT_VERSION) {
+                sums.rescanFrom = in.readLong();
+                int countedItems = in.readInt();
+                for (int i = 0; i < countedItems; i++) {
+                    sums.counted.put(in.readUTF(), in.readLong());
+                }
+            }
+            sums.firstDay = in.readLong();
+            int days = in.readInt();
+            sums.roundUpSums = new long[days + 1];
+            sums.countSums = new long[days + 1];
+            for (int i = 1; i <= days; i++) {
+                sums.roundUpSums[i] = in.readLong();
+                sums.countSums[i] = in.readLong();
+            }
+            return sums;
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException reading daily round-ups of account " + accountUid
+                + ": " + e.getMessage());
+        }
+    }
+
+    private void save(String accountUid, DailySums sums) {
+
+        Path stateFile = stateFile(accountUid);
+        try {
+            Files.createDirectories(stateDirectory);
+            Path tempFile = Files.createTempFile(stateDirectory, stateFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out =
+                     new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeNullableUtf(out, sums.currency);
+                out.writeLong(sums.lastTransactionTime);
+                writeNullableUtf(out, sums.lastFeedItemUid);
+                out.writeLong(sums.rescanFrom);
+                out.writeInt(sums.counted.size());
+                for (Map.Entry<String, Long> counted : sums.counted.entrySet()) {
+                    out.writeUTF(counted.getKey());
+                    out.writeLong(counted.getValue());
+                }
+                out.writeLong(sums.firstDay);
+                out.writeInt(sums.days());
+                for (int i = 1; i <= sums.days(); i++) {
+                    out.writeLong(sums.roundUpSums[i]);
+                    out.writeLong(sums.countSums[i]);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException saving daily round-ups of account " + accountUid
+                + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeNullableUtf(DataOutputStream out, String value) throws IOException {
+
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private Path stateFile(String accountUid) {
+
+        return stateDirectory.resolve(FeedItemUidSet.toUuid(accountUid) + ".days");
+    }
+
+    /**
+     * Prefix sums of one account: entry {@code i} of each array is the total of the {@code i} days starting at
+     * {@code firstDay} (epoch day, UTC), so entry 0 is always zero. With them, the watermark, the time items are looked
+     * at again from, and the times of the items counted since then.
+     */
+    private static class DailySums {
+
+        private String currency;
+        private long lastTransactionTime = Transaction.NO_TIME;
+        private String lastFeedItemUid;
+        private long rescanFrom = Transaction.NO_TIME;
+        private Map<String, Long> counted = new HashMap<>();
+        private long firstDay;
+        private long[] roundUpSums = new long[1];
+        private long[] countSums = new long[1];
+
+        int days() {
+
+            return roundUpSums.length - 1;
+        }
+
+        boolean isUncounted(Transaction transaction) {
+
+            if (isAfterWatermark(transaction)) return true;
+
+            String feedItemUid = transaction.getFeedItemUid();
+            return rescanFrom != Transaction.NO_TIME && transaction.getTransactionTimeMillis() >= rescanFrom
+                && feedItemUid != null && !counted.containsKey(feedItemUid);
+        }
+
+        boolean isAfterWatermark(Transaction transaction) {
+
+            if (lastTransactionTime == Transaction.NO_TIME) return true;
+
+            int timeOrder = Long.compare(transaction.getTransactionTimeMillis(), lastTransactionTime);
+            if (timeOrder != 0) return timeOrder > 0;
+
+            String feedItemUid = transaction.getFeedItemUid();
+            return feedItemUid != null && (lastFeedItemUid == null || feedItemUid.compareTo(lastFeedItemUid) > 0);
+        }
+
+        /**
+         * Add the eligible transactions, sorted by time, to the sums, widening the range of days to cover them.
+         *
+         * @return number of eligible transactions
+         */
+        int add(List<Transaction> transactions) {
+
+            String sumsCurrency = (currency != null) ? currency : RoundUpService.DEFAULT_CURRENCY;
+            ToLongFunction<Transaction> roundUpCalculator =
+                RoundUpService.outgoingRoundUp(Money.minorUnitsPerMajorUnit(sumsCurrency));
+            long newFirstDay = day(transactions.get(0));
+            long newLastDay = day(transactions.get(transactions.size() - 1));
+            if (days() > 0) {
+                newFirstDay = Math.min(newFirstDay, firstDay);
+                newLastDay = Math.max(newLastDay, firstDay + days() - 1);
+            }
+            if (newLastDay - newFirstDay + 1 > Integer.MAX_VALUE - 1) {
+                throw new IllegalArgumentException("Transactions span too many days to aggregate");
+            }
+
+            // Daily totals of the new transactions, over the widened range.
+            int days = (int) (newLastDay - newFirstDay + 1);
+            long[] roundUps = new long[days];
+            long[] counts = new long[days];
+            int added = 0;
+            for (Transaction transaction : transactions) {
+                if (!RoundUpService.OUTGOING_EXTERNAL.test(transaction)) continue;
+                int index = (int) (day(transaction) - newFirstDay);
+                roundUps[index] = Math.addExact(roundUps[index], roundUpCalculator.applyAsLong(transaction));
+                counts[index]++;
+                added++;
+            }
+
+            // One pass merges them with the existing sums, whose first day is offset days into the widened range.
+            int oldDays = days();
+            int offset = (oldDays > 0) ? (int) (firstDay - newFirstDay) : 0;
+            long[] newRoundUpSums = new long[days + 1];
+            long[] newCountSums = new long[days + 1];
+            for (int i = 1; i <= days; i++) {
+                int oldDay = i - offset;
+                boolean existing = oldDay >= 1 && oldDay <= oldDays;
+                long roundUp = roundUps[i - 1] + (existing ? roundUpSums[oldDay] - roundUpSums[oldDay - 1] : 0L);
+                long count = counts[i - 1] + (existing ? countSums[oldDay] - countSums[oldDay - 1] : 0L);
+                newRoundUpSums[i] = Math.addExact(newRoundUpSums[i - 1], roundUp);
+                newCountSums[i] = newCountSums[i - 1] + count;
+            }
+
+            firstDay = newFirstDay;
+            roundUpSums = newRoundUpSums;
+            countSums = newCountSums;
+            return added;
+        }
+
+        // The arrays and counted items are replaced rather than written to, so the copy can share them.
+        DailySums copy() {
+
+            DailySums copy = new DailySums();
+            copy.currency = currency;
+            copy.lastTransactionTime = lastTransactionTime;
+            copy.lastFeedItemUid = lastFeedItemUid;
+            copy.rescanFrom = rescanFrom;
+            copy.counted = counted;
+            copy.firstDay = firstDay;
+            copy.roundUpSums = roundUpSums;
+            copy.countSums = countSums;
+            return copy;
+        }
+
+        void replaceWith(DailySums sums) {
+
+            currency = sums.currency;
+            lastTransactionTime = sums.lastTransactionTime;
+            lastFeedItemUid = sums.lastFeedItemUid;
+            rescanFrom = sums.rescanFrom;
+            counted = sums.counted;
+            firstDay = sums.firstDay;
+            roundUpSums = sums.roundUpSums;
+            countSums = sums.countSums;
+        }
+
+        private static long day(Transaction transaction) {
+
+            return Math.floorDiv(transaction.getTransactionTimeMillis(), MILLIS_PER_DAY);
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.Transaction.Direction;
+import com.starling.assignment.model.Transaction.Status;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link BankingService} decorator that keeps each account's transaction feed in a local append-only file, so that
+ * after a restart history is served from disk and only the tail of the feed is requested from the API.
+ *
+ * A feed file starts with a {@value #HEADER_SIZE} byte header followed by fixed-width {@value #RECORD_SIZE} byte
+ * records:
+ * <pre>
+ * header
+ *  0  int    magic
+ *  4  short  format version
+ *  6  short  record size
+ *  8  long   coveredFrom, epoch millis the file holds the feed from, Long.MIN_VALUE for the whole feed
+ * 16  long   syncedUntil, epoch millis the file was last brought up to date at
+ *
+ * transaction record
+ *  0  long   transactionTime, epoch millis
+ *  8  long   amount, minor units
+ * 16  long   feedItemUid, most significant bits
+ * 24  long   feedItemUid, least significant bits
+ * 32  byte   direction (bits 0-1) and status (bits 2-3), 0 meaning null
+ * 33  byte   source, 0 meaning null, an index into {@link #SOURCES}, or a code given by a source record
+ * 34  byte[3] currency, ASCII
+ * 37  byte[3] reserved
+ *
+ * source record, written ahead of the first transaction record with a source not in {@link #SOURCES}
+ *  0  byte[32] source, ASCII, padded with zeros
+ * 32  byte   0xFF, marking a source record
+ * 33  byte   code given to the source, from {@value #FIRST_SOURCE_CODE}
+ * </pre>
+ * Files are read back through a {@link MappedByteBuffer}. A newer record for the same {@code feedItemUid} (for example
+ * a pending transaction that has since settled) supersedes older ones, and superseded records are dropped by
+ * {@link #compact(String, String)}, which also runs automatically once they outnumber the live ones, or when items
+ * have disappeared from the tail of the feed. Files with an unknown header or a record that cannot be decoded are
+ * discarded and rebuilt from the API.
+ *
+ * A date range is served from the file when it holds the feed from the start of the range; otherwise the feed is
+ * fetched from the start of the range only, and the file is rebuilt to hold it from there.
+ *
+ * Feed items must have lower-case UUID {@code feedItemUid}s to be cached; feeds containing any other kind are passed
+ * through.
+ *
+ * Thread-safe. Reads of the same feed file are serialised, while those of different files run concurrently.
+ */
+public class DiskCachedBankingService implements BankingService {
+
+    private static final int MAGIC = 0x53474643;
+    private static final short VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 40;
+    private static final int SYNCED_UNTIL_POSITION = 16;
+    private static final byte SOURCE_RECORD = (byte) 0xFF;
+    private static final int MAX_SOURCE_LENGTH = 32;
+    private static final int FIRST_SOURCE_CODE = 128;
+    private static final int MAX_SOURCE_CODE = 255;
+    private static final long WHOLE_FEED = Long.MIN_VALUE;
+
+    // Append-only: the position of a source in this list is part of the file format.
+    private static final List<String> SOURCES = Collections.unmodifiableList(Arrays.asList(null,
+        "MASTER_CARD", "DIRECT_DEBIT", "DIRECT_CREDIT", "FASTER_PAYMENTS_IN", "FASTER_PAYMENTS_OUT",
+        "FASTER_PAYMENTS_REVERSAL", "INTERNAL_TRANSFER", "CHAPS", "CASH_DEPOSIT", "CASH_WITHDRAWAL_CHARGE",
+        "CHEQUE", "INTEREST_PAYMENT", "OVERDRAFT", "CARD_FEE_CHARGE", "SEPA_CREDIT_TRANSFER", "SEPA_DIRECT_DEBIT",
+        "SUBSCRIPTION_CHARGE", "SETTLE_UP", "ON_US_PAY_ME", "STRIPE_FUNDING", "MASTERCARD_MONEYSEND",
+        "MASTERCARD_CHARGEBACK", "DIRECT_DEBIT_DISPUTE", "NOSTRO_DEPOSIT"));
+
+    private static final Comparator<Transaction> FEED_ORDER = Comparator.comparingLong(Transaction::getTransactionTimeMillis);
+
+    private final BankingService bankingService;
+    private final Path cacheDirectory;
+    private final Map<Path, Object> feedLocks = new ConcurrentHashMap<>();
+
+    public DiskCachedBankingService(BankingService bankingService, Path cacheDirectory) {
+
+        this.bankingService = bankingService;
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    @Override
+    public List<Account> getAccounts() {
+
+        return bankingService.getAccounts();
+    }
+
+    @Override
+    public Balance getAccountBalance(String accountUid) {
+
+        return bankingService.getAccountBalance(accountUid);
+    }
+
+    /**
+     * Serve the account's feed from its cache file, after fetching and appending the tail of the feed: everything
+     * since the oldest cached pending transaction, or since the newest cached transaction if none are pending.
+     *
+     * @return transactions of the account's feed, oldest first
+     */
+    @Override
+    public List<Transaction> getTransactions(String accountUid, String categoryUid) {
+
+        return synchronise(accountUid, categoryUid, WHOLE_FEED);
+    }
+
+    /**
+     * Serve the given range of the account's feed as {@link #getTransactions(String, String)} does. Only the range is
+     * fetched when the cache file does not hold the feed from its start yet.
+     */
+    @Override
+    public List<Transaction> getTransactions(String accountUid, String categoryUid, Date from, Date to) {
+
+        long fromMillis = from.getTime();
+        long toMillis = to.getTime();
+        return synchronise(accountUid, categoryUid, fromMillis).stream().filter(transaction -> {
+            long transactionTime = transaction.getTransactionTimeMillis();
+            return transactionTime >= fromMillis && transactionTime <= toMillis;
+        }).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<SavingsGoal> getSavingsGoals(String accountUid) {
+
+        return bankingService.getSavingsGoals(accountUid);
+    }
+
+    @Override
+    public SavingsGoal getSavingsGoal(String accountUid, String savingsGoalUid) {
+
+        return bankingService.getSavingsGoal(accountUid, savingsGoalUid);
+    }
+
+    @Override
+    public String createSavingsGoal(String accountUid, SavingsGoalRequest savingsGoalRequest) {
+
+        return bankingService.createSavingsGoal(accountUid, savingsGoalRequest);
+    }
+
+    @Override
+    public boolean transferMoneyToSavingsGoal(String accountUid, String savingsGoalUid, String transferUid,
+                                              SavingsGoalAmount savingGoalAmount) {
+
+        return bankingService.transferMoneyToSavingsGoal(accountUid, savingsGoalUid, transferUid, savingGoalAmount);
+    }
+
+    /**
+     * Rewrite the cache file of the given account's feed, keeping only the newest record for each feed item.
+     */
+    public void compact(String accountUid, String categoryUid) {
+
+        Path feedFile = feedFile(accountUid, categoryUid);
+        synchronized (lock(feedFile)) {
+            FeedFile cached = readFeedFile(feedFile, categoryUid);
+            if (cached == null) return;
+
+            Map<String, Transaction> feed = new LinkedHashMap<>();
+            cached.transactions.forEach(transaction -> feed.put(transaction.getFeedItemUid(), transaction));
+            writeFeedFile(feedFile, feed.values(), cached.coveredFrom, cached.syncedUntil);
+        }
+    }
+
+    // Bring the cache file up to date, holding the feed from at least the given time, and return the feed it holds.
+    private List<Transaction> synchronise(String accountUid, String categoryUid, long since) {
+
+        Path feedFile = feedFile(accountUid, categoryUid);
+        synchronized (lock(feedFile)) {
+            return synchronise(feedFile, accountUid, categoryUid, since);
+        }
+    }
+
+    private List<Transaction> synchronise(Path feedFile, String accountUid, String categoryUid, long since) {
+
+        FeedFile cached = readFeedFile(feedFile, categoryUid);
+        if (cached == null || cached.coveredFrom > since) {
+            Date now = new Date();
+            List<Transaction> transactions = fetch(accountUid, categoryUid, since, now);
+            if (!isCacheable(transactions)) {
+                deleteFeedFile(feedFile);
+                return transactions;
+            }
+            writeFeedFile(feedFile, transactions, since, now.getTime());
+            return transactions.stream().sorted(FEED_ORDER).collect(Collectors.toList());
+        }
+
+        Map<String, Transaction> feed = new LinkedHashMap<>();
+        cached.transactions.forEach(transaction -> feed.put(transaction.getFeedItemUid(), transaction));
+
+        Date tailStart = feed.values().stream()
+            .filter(transaction -> Status.PENDING.equals(transaction.getStatus()))
+            .map(Transaction::getTransactionTime)
+            .min(Comparator.naturalOrder())
+            .orElseGet(() -> feed.values().stream().map(Transaction::getTransactionTime)
+                .max(Comparator.naturalOrder()).orElse(new Date(cached.syncedUntil)));
+        Date now = new Date();
+        List<Transaction> tail = bankingService.getTransactions(accountUid, categoryUid, tailStart, now);
+        if (!isCacheable(tail)) {
+            deleteFeedFile(feedFile);
+            return fetch(accountUid, categoryUid, since, now);
+        }
+
+        // Items of the tail's range that the API no longer returns have been removed from the feed.
+        Set<String> tailUids = tail.stream().map(Transaction::getFeedItemUid).collect(Collectors.toSet());
+        boolean removed = feed.values().removeIf(transaction ->
+            transaction.getTransactionTimeMillis() >= tailStart.getTime()
+                && !tailUids.contains(transaction.getFeedItemUid()));
+        tail.forEach(transaction -> feed.put(transaction.getFeedItemUid(), transaction));
+        List<Transaction> transactions = new ArrayList<>(feed.values());
+        if (!fitSourceCodes(new ArrayList<>(), transactions)) {
+            deleteFeedFile(feedFile);
+            return fetch(accountUid, categoryUid, since, now);
+        }
+        if (removed || cached.transactions.size() + tail.size() > 2 * feed.size()
+            || !fitSourceCodes(cached.sources, tail)) {
+            writeFeedFile(feedFile, transactions, cached.coveredFrom, now.getTime());
+        } else {
+            appendRecords(feedFile, tail, cached.sources, now.getTime());
+        }
+
+        transactions.sort(FEED_ORDER);
+        return transactions;
+    }
+
+    private List<Transaction> fetch(String accountUid, String categoryUid, long since, Date now) {
+
+        return (since == WHOLE_FEED) ? bankingService.getTransactions(accountUid, categoryUid)
+            : bankingService.getTransactions(accountUid, categoryUid, new Date(since), now);
+    }
+
+    // One lock per feed file, so feeds of different accounts are synchronised with the API concurrently.
+    private Object lock(Path feedFile) {
+
+        return feedLocks.computeIfAbsent(feedFile, file -> new Object());
+    }
+
+    private Path feedFile(String accountUid, String categoryUid) {
+
+        return cacheDirectory.resolve(accountUid + "_" + categoryUid + ".feed");
+    }
+
+    // The feed held in the given file, or null if there is none or it cannot be decoded, in which case it is deleted.
+    private FeedFile readFeedFile(Path feedFile, String categoryUid) {
+
+        if (Files.notExists(feedFile)) return null;
+
+        try (FileChannel channel = FileChannel.open(feedFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) return discard(feedFile);
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORD_SIZE) {
+                return discard(feedFile);
+            }
+
+            // A partially written trailing record from an interrupted append is ignored, and cut off by the next one.
+            int records = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+            FeedFile cached = new FeedFile(buffer.getLong(8), buffer.getLong(SYNCED_UNTIL_POSITION), records);
+            byte[] currency = new byte[3];
+            for (int i = 0; i < records; i++) {
+                int position = HEADER_SIZE + i * RECORD_SIZE;
+                byte codes = buffer.get(position + 32);
+                int sourceCode = buffer.get(position + 33) & 0xFF;
+                if (codes == SOURCE_RECORD) {
+                    if (sourceCode != FIRST_SOURCE_CODE + cached.sources.size()) return discard(feedFile);
+                    cached.sources.add(readSource(buffer, position));
+                    continue;
+                }
+
+                int directionCode = codes & 0x3;
+                int statusCode = (codes >> 2) & 0x3;
+                String source = (sourceCode < SOURCES.size()) ? SOURCES.get(sourceCode)
+                    : (sourceCode - FIRST_SOURCE_CODE >= 0 && sourceCode - FIRST_SOURCE_CODE < cached.sources.size())
+                    ? cached.sources.get(sourceCode - FIRST_SOURCE_CODE) : null;
+                if ((codes & ~0xF) != 0 || directionCode > Direction.values().length
+                    || statusCode > Status.values().length || (source == null && sourceCode != 0)) {
+                    return discard(feedFile);
+                }
+
+                buffer.position(position + 34);
+                buffer.get(currency);
+                cached.transactions.add(new Transaction(
+                    new UUID(buffer.getLong(position + 16), buffer.getLong(position + 24)),
+                    categoryUid,
+                    new String(currency, StandardCharsets.US_ASCII),
+                    buffer.getLong(position + 8),
+                    buffer.getLong(position),
+                    toDirection(directionCode),
+                    toStatus(statusCode),
+                    source));
+            }
+
+            return cached;
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException reading transaction cache: " + e.getMessage());
+        }
+    }
+
+    private void appendRecords(Path feedFile, List<Transaction> transactions, List<String> sources,
+                               long syncedUntil) {
+
+        try (FileChannel channel = FileChannel.open(feedFile, StandardOpenOption.WRITE)) {
+            long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+            channel.position(HEADER_SIZE + records * RECORD_SIZE);
+            writeFully(channel, encode(transactions, sources));
+            channel.force(false);
+            // Only moved on once the records are on disk; a stale value just makes the next tail longer.
+            ByteBuffer synced = ByteBuffer.allocate(Long.BYTES).putLong(0, syncedUntil);
+            while (synced.hasRemaining()) {
+                channel.write(synced, SYNCED_UNTIL_POSITION + synced.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException appending to transaction cache: " + e.getMessage());
+        }
+    }
+
+    private void writeFeedFile(Path feedFile, Iterable<Transaction> transactions, long coveredFrom,
+                               long syncedUntil) {
+
+        List<Transaction> records = new ArrayList<>();
+        transactions.forEach(records::add);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION)
+            .putShort((short) RECORD_SIZE).putLong(coveredFrom).putLong(syncedUntil);
+        header.rewind();
+
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path tempFile = Files.createTempFile(cacheDirectory, feedFile.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                writeFully(channel, header);
+                writeFully(channel, encode(records, new ArrayList<>()));
+                channel.force(true);
+            }
+            Files.move(tempFile, feedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException writing transaction cache: " + e.getMessage());
+        }
+    }
+
+    private FeedFile discard(Path feedFile) {
+
+        deleteFeedFile(feedFile);
+        return null;
+    }
+
+    private void deleteFeedFile(Path feedFile) {
+
+        try {
+            Files.deleteIfExists(feedFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException deleting transaction cache: " + e.getMessage());
+        }
+    }
+
+    // Encode the given transactions, preceded by a source record for each source not in SOURCES or in the given
+    // sources of the file, which are added to them.
+    private static ByteBuffer encode(List<Transaction> transactions, List<String> sources) {
+
+        List<String> newSources = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            String source = transaction.getSource();
+            if (!SOURCES.contains(source) && !sources.contains(source) && !newSources.contains(source)) {
+                newSources.add(source);
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((newSources.size() + transactions.size()) * RECORD_SIZE);
+        for (String source : newSources) {
+            byte[] name = source.getBytes(StandardCharsets.US_ASCII);
+            buffer.put(name).put(new byte[MAX_SOURCE_LENGTH - name.length])
+                .put(SOURCE_RECORD)
+                .put((byte) (FIRST_SOURCE_CODE + sources.size()))
+                .put(new byte[RECORD_SIZE - MAX_SOURCE_LENGTH - 2]);
+            sources.add(source);
+        }
+        for (Transaction transaction : transactions) {
+            UUID feedItemUid = transaction.getFeedItemUuid();
+            int sourceCode = SOURCES.indexOf(transaction.getSource());
+            buffer.putLong(transaction.getTransactionTimeMillis())
+                .putLong(transaction.getMinorUnits())
+                .putLong(feedItemUid.getMostSignificantBits())
+                .putLong(feedItemUid.getLeastSignificantBits())
+                .put((byte) (fromDirection(transaction.getDirection()) | fromStatus(transaction.getStatus()) << 2))
+                .put((byte) ((sourceCode >= 0) ? sourceCode
+                    : FIRST_SOURCE_CODE + sources.indexOf(transaction.getSource())))
+                .put(transaction.getCurrency().getBytes(StandardCharsets.US_ASCII), 0, 3)
+                .put(new byte[RECORD_SIZE - 37]);
+        }
+        buffer.flip();
+
+        return buffer;
+    }
+
+    private static String readSource(MappedByteBuffer buffer, int position) {
+
+        byte[] name = new byte[MAX_SOURCE_LENGTH];
+        buffer.position(position);
+        buffer.get(name);
+        int length = 0;
+        while (length < MAX_SOURCE_LENGTH && name[length] != 0) {
+            length++;
+        }
+        return new String(name, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static boolean isCacheable(List<Transaction> transactions) {
+
+        if (transactions == null) return false;
+
+        for (Transaction transaction : transactions) {
+            String currency = transaction.getCurrency();
+            if (transaction.getTransactionTimeMillis() == Transaction.NO_TIME || currency == null
+                || currency.length() != 3 || transaction.getFeedItemUuid() == null
+                || !isStorableSource(transaction.getSource())) {
+                return false;
+            }
+        }
+
+        return fitSourceCodes(new ArrayList<>(), transactions);
+    }
+
+    // Sources not in SOURCES are stored by name, so they must be short, non-empty ASCII.
+    private static boolean isStorableSource(String source) {
+
+        if (source == null || SOURCES.contains(source)) return true;
+        if (source.isEmpty() || source.length() > MAX_SOURCE_LENGTH) return false;
+        return source.chars().allMatch(c -> c > 0 && c < 128);
+    }
+
+    // Whether the sources of the given file and of the given transactions together have a code each.
+    private static boolean fitSourceCodes(List<String> sources, List<Transaction> transactions) {
+
+        Set<String> distinct = new HashSet<>(sources);
+        for (Transaction transaction : transactions) {
+            if (!SOURCES.contains(transaction.getSource())) distinct.add(transaction.getSource());
+        }
+        return distinct.size() <= MAX_SOURCE_CODE - FIRST_SOURCE_CODE + 1;
+    }
+
+    private static int fromDirection(Direction direction) {
+
+        return (direction == null) ? 0 : direction.ordinal() + 1;
+    }
+
+    private static Direction toDirection(int code) {
+
+        return (code == 0) ? null : Direction.values()[code - 1];
+    }
+
+    private static int fromStatus(Status status) {
+
+        return (status == null) ? 0 : status.ordinal() + 1;
+    }
+
+    private static Status toStatus(int code) {
+
+        return (code == 0) ? null : Status.values()[code - 1];
+    }
+
+    /**
+     * Contents of a feed file: every transaction record in file order, superseded ones included, and the sources
+     * given a code by its source records.
+     */
+    private static class FeedFile {
+
+        private final long coveredFrom;
+        private final long syncedUntil;
+        private final List<Transaction> transactions;
+        private final List<String> sources = new ArrayList<>();
+
+        FeedFile(long coveredFrom, long syncedUntil, int records) {
+
+            this.coveredFrom = coveredFrom;
+            this.syncedUntil = syncedUntil;
+            this.transactions = new ArrayList<>(records);
+        }
+    }
+}
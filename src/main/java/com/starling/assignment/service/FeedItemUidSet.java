@@ -0,0 +1,210 @@
+package com.starling.assignment.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Set of feed-item UIDs, kept as pairs of longs in an open-addressing hash table with linear probing rather than as
+ * strings in a {@code HashSet}. A UID takes a 16-byte slot and the table is kept at most three quarters full, so an
+ * item costs 21 to 43 bytes, against well over a hundred for a {@code HashSet<String>}. The table can live off-heap,
+ * in a direct buffer, so large sets add nothing to the garbage collector's work.
+ *
+ * With the Bloom filter enabled, a bit array of one byte per slot is checked before the table. Lookups of UIDs not in
+ * the set, the common case for a feed of new items, are then mostly answered from that much smaller array. The filter
+ * is rebuilt whenever the table grows, so its false-positive rate stays around one percent.
+ *
+ * Not thread-safe.
+ */
+public final class FeedItemUidSet {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final int BLOOM_HASHES = 7;
+
+    private final boolean offHeap;
+    private final boolean bloomFilter;
+    private LongBuffer table;
+    private long[] bloom;
+    private int capacity;
+    private int size;
+    // The all-zero UID marks empty slots, so it is kept aside.
+    private boolean containsZero;
+
+    /**
+     * @param expectedItems number of UIDs the set is sized for; it grows beyond that as needed
+     * @param offHeap keep the table in a direct buffer outside the Java heap
+     * @param bloomFilter check a Bloom filter before the table
+     */
+    public FeedItemUidSet(int expectedItems, boolean offHeap, boolean bloomFilter) {
+
+        if (expectedItems < 0) throw new IllegalArgumentException("expectedItems must not be negative");
+
+        this.offHeap = offHeap;
+        this.bloomFilter = bloomFilter;
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity * 3L / 4L < expectedItems) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Convert a feed-item UID to the pair of longs kept in the set. Starling feed-item UIDs are UUIDs; anything else is
+     * mapped to a name-based UUID, so it still gets a stable 128-bit key.
+     */
+    public static UUID toUuid(String feedItemUid) {
+
+        try {
+            return UUID.fromString(feedItemUid);
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(feedItemUid.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @return {@code true} if the UID was not in the set yet
+     */
+    public boolean add(UUID uid) {
+
+        return add(uid.getMostSignificantBits(), uid.getLeastSignificantBits());
+    }
+
+    /**
+     * @return {@code true} if the UID was not in the set yet
+     */
+    public boolean add(long mostSigBits, long leastSigBits) {
+
+        if (mostSigBits == 0L && leastSigBits == 0L) {
+            if (containsZero) return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int slot = find(mostSigBits, leastSigBits);
+        if (slot >= 0) return false;
+
+        if ((size + 1L) * 4L > capacity * 3L) {
+            if (capacity == MAX_CAPACITY) throw new IllegalStateException("Feed-item UID set is full");
+            resize(capacity << 1);
+            slot = find(mostSigBits, leastSigBits);
+        }
+        put(-slot - 1, mostSigBits, leastSigBits);
+        size++;
+        return true;
+    }
+
+    public boolean contains(UUID uid) {
+
+        return contains(uid.getMostSignificantBits(), uid.getLeastSignificantBits());
+    }
+
+    public boolean contains(long mostSigBits, long leastSigBits) {
+
+        if (mostSigBits == 0L && leastSigBits == 0L) return containsZero;
+        if (bloom != null && !mightContain(mostSigBits, leastSigBits)) return false;
+        return find(mostSigBits, leastSigBits) >= 0;
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * @return bytes held by the table and the Bloom filter
+     */
+    public long getMemoryBytes() {
+
+        return capacity * 16L + (bloom == null ? 0L : bloom.length * 8L);
+    }
+
+    public boolean isOffHeap() {
+
+        return offHeap;
+    }
+
+    // Slot of the UID if present, otherwise -(empty slot where it would go) - 1.
+    private int find(long mostSigBits, long leastSigBits) {
+
+        int mask = capacity - 1;
+        int slot = (int) mix(mostSigBits ^ Long.rotateLeft(leastSigBits, 32)) & mask;
+        while (true) {
+            long storedMost = table.get(2 * slot);
+            long storedLeast = table.get(2 * slot + 1);
+            if (storedMost == mostSigBits && storedLeast == leastSigBits) return slot;
+            if (storedMost == 0L && storedLeast == 0L) return -slot - 1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void put(int slot, long mostSigBits, long leastSigBits) {
+
+        table.put(2 * slot, mostSigBits);
+        table.put(2 * slot + 1, leastSigBits);
+        if (bloom != null) addToBloom(mostSigBits, leastSigBits);
+    }
+
+    private void resize(int newCapacity) {
+
+        LongBuffer oldTable = table;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long mostSigBits = oldTable.get(2 * slot);
+            long leastSigBits = oldTable.get(2 * slot + 1);
+            if (mostSigBits != 0L || leastSigBits != 0L) {
+                put(-find(mostSigBits, leastSigBits) - 1, mostSigBits, leastSigBits);
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+
+        capacity = newCapacity;
+        // Two longs per slot; a new buffer is zeroed, so every slot starts empty.
+        table = offHeap
+            ? ByteBuffer.allocateDirect(newCapacity * 16).order(ByteOrder.nativeOrder()).asLongBuffer()
+            : LongBuffer.allocate(newCapacity * 2);
+        // One byte, eight bits, per slot.
+        bloom = bloomFilter ? new long[newCapacity / 8] : null;
+    }
+
+    private boolean mightContain(long mostSigBits, long leastSigBits) {
+
+        int mask = bloom.length * 64 - 1;
+        long hash1 = mix(mostSigBits);
+        long hash2 = mix(leastSigBits) | 1L;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) (hash1 + i * hash2) & mask;
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0L) return false;
+        }
+        return true;
+    }
+
+    private void addToBloom(long mostSigBits, long leastSigBits) {
+
+        int mask = bloom.length * 64 - 1;
+        long hash1 = mix(mostSigBits);
+        long hash2 = mix(leastSigBits) | 1L;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) (hash1 + i * hash2) & mask;
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    // Finalizer of MurmurHash3, spreading every input bit over the whole result.
+    private static long mix(long value) {
+
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
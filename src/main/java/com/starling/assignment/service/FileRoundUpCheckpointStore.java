@@ -0,0 +1,108 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.RoundUpCheckpoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * {@link RoundUpCheckpointStore} that keeps the checkpoints of all accounts in one local properties file, one entry
+ * per account and category. Every save writes the whole file to a temporary sibling, forces it to disk and atomically
+ * renames it over the previous state, so a crash leaves either the old or the new checkpoint, never a mix of both.
+ */
+public class FileRoundUpCheckpointStore implements RoundUpCheckpointStore {
+
+    private static final String SEPARATOR = ",";
+    private static final String UID_SEPARATOR = ";";
+
+    private final Path stateFile;
+
+    public FileRoundUpCheckpointStore(Path stateFile) {
+
+        this.stateFile = stateFile;
+    }
+
+    @Override
+    public synchronized RoundUpCheckpoint load(String accountUid, String categoryUid) {
+
+        String value = readState().getProperty(key(accountUid, categoryUid));
+        if (value == null) return null;
+
+        // lastTransactionTime,lastFeedItemUid,currency,minorUnits[,rescanFrom,countedFeedItemUid;...]
+        String[] fields = value.split(SEPARATOR, -1);
+        if (fields.length != 4 && fields.length != 6) {
+            throw new RuntimeException("Malformed round-up checkpoint for account " + accountUid + ": " + value);
+        }
+
+        Date lastTransactionTime = new Date(Long.parseLong(fields[0]));
+        Amount roundUpTotal = new Amount(fields[2], Long.parseLong(fields[3]));
+        if (fields.length == 4) {
+            return new RoundUpCheckpoint(accountUid, categoryUid, lastTransactionTime, fields[1], roundUpTotal);
+        }
+
+        Date rescanFrom = fields[4].isEmpty() ? null : new Date(Long.parseLong(fields[4]));
+        Set<String> counted = fields[5].isEmpty() ? Collections.emptySet()
+            : new HashSet<>(Arrays.asList(fields[5].split(UID_SEPARATOR)));
+        return new RoundUpCheckpoint(accountUid, categoryUid, lastTransactionTime, fields[1], roundUpTotal, rescanFrom,
+            counted);
+    }
+
+    @Override
+    public synchronized void save(RoundUpCheckpoint checkpoint) {
+
+        Properties state = readState();
+        Amount total = checkpoint.getRoundUpTotal();
+        state.setProperty(key(checkpoint.getAccountUid(), checkpoint.getCategoryUid()),
+            checkpoint.getLastTransactionTime().getTime() + SEPARATOR + checkpoint.getLastFeedItemUid()
+                + SEPARATOR + total.getCurrency() + SEPARATOR + total.getMinorUnits()
+                + SEPARATOR + (checkpoint.getRescanFrom() == null ? "" : checkpoint.getRescanFrom().getTime())
+                + SEPARATOR + String.join(UID_SEPARATOR, checkpoint.getCountedFeedItemUids()));
+
+        try {
+            Path directory = stateFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path tempFile = Files.createTempFile(directory, stateFile.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                state.store(out, "Round-up checkpoints");
+            }
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException saving round-up checkpoint: " + e.getMessage());
+        }
+    }
+
+    private Properties readState() {
+
+        Properties state = new Properties();
+        if (Files.notExists(stateFile)) return state;
+
+        try (InputStream in = Files.newInputStream(stateFile)) {
+            state.load(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException reading round-up checkpoints: " + e.getMessage());
+        }
+
+        return state;
+    }
+
+    private static String key(String accountUid, String categoryUid) {
+
+        return accountUid + "/" + categoryUid;
+    }
+}
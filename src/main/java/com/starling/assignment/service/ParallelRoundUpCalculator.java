@@ -0,0 +1,127 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Money;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.TransactionBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Round-up calculation split across the cores of a {@link ForkJoinPool}. A feed is halved recursively until a range
+ * is no longer than the split threshold, each range is summed sequentially with the same rules as
+ * {@link RoundUpService}, and partial sums are combined with {@link Math#addExact(long, long)}. Integer addition is
+ * associative, so the result does not depend on the number of cores or on how the work was stolen, and an overflow
+ * anywhere fails the whole calculation instead of wrapping.
+ *
+ * Feeds shorter than the parallel threshold are better summed on the calling thread: below roughly a hundred thousand
+ * items a sequential scan takes well under a millisecond, which is the same order as forking and joining the tasks.
+ * The defaults reflect that; both thresholds can be tuned per deployment.
+ */
+public class ParallelRoundUpCalculator {
+
+    public static final int DEFAULT_SPLIT_THRESHOLD = 16_384;
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 131_072;
+
+    private final ForkJoinPool pool;
+    private final int splitThreshold;
+    private final int parallelThreshold;
+
+    /**
+     * Calculator running on the common fork-join pool with the default thresholds.
+     */
+    public ParallelRoundUpCalculator() {
+
+        this(ForkJoinPool.commonPool(), DEFAULT_SPLIT_THRESHOLD, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param pool pool to run the round-up tasks on
+     * @param splitThreshold largest number of transactions summed by a single task
+     * @param parallelThreshold smallest number of transactions worth calculating in parallel
+     */
+    public ParallelRoundUpCalculator(ForkJoinPool pool, int splitThreshold, int parallelThreshold) {
+
+        if (splitThreshold < 1) throw new IllegalArgumentException("Split threshold must be at least 1.");
+
+        this.pool = pool;
+        this.splitThreshold = splitThreshold;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @return whether a feed of the given size should be calculated in parallel
+     */
+    public boolean isParallel(int size) {
+
+        return size >= parallelThreshold && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Sum the round-up of the eligible transactions, to the next multiple of {@code unit} minor units.
+     *
+     * @throws ArithmeticException if the sum overflows
+     */
+    public long calculateRounding(List<Transaction> transactions, long unit) {
+
+        List<Transaction> indexed = (transactions instanceof RandomAccess) ? transactions
+            : new ArrayList<>(transactions);
+
+        return pool.invoke(new RoundUpTask((start, end) -> RoundUpService.calculateRounding(
+            indexed.subList(start, end), RoundUpService.OUTGOING_EXTERNAL, RoundUpService.outgoingRoundUp(unit)),
+            0, indexed.size(), splitThreshold));
+    }
+
+    /**
+     * Sum the round-up of the eligible transactions of the batch whose time is from {@code first} to {@code last},
+     * both inclusive and in epoch millis, to the next major unit of the batch's currency.
+     *
+     * @throws ArithmeticException if the sum overflows
+     */
+    public long calculateRounding(TransactionBatch batch, long first, long last) {
+
+        long unit = Money.minorUnitsPerMajorUnit(batch.getCurrency());
+
+        return pool.invoke(new RoundUpTask((start, end) -> RoundUpService.calculateRounding(
+            batch, unit, first, last, start, end), 0, batch.size(), splitThreshold));
+    }
+
+    private interface RangeRounding {
+
+        long calculate(int start, int end);
+    }
+
+    private static final class RoundUpTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RangeRounding rounding;
+        private final int start;
+        private final int end;
+        private final int splitThreshold;
+
+        RoundUpTask(RangeRounding rounding, int start, int end, int splitThreshold) {
+
+            this.rounding = rounding;
+            this.start = start;
+            this.end = end;
+            this.splitThreshold = splitThreshold;
+        }
+
+        @Override
+        protected Long compute() {
+
+            if (end - start <= splitThreshold) return rounding.calculate(start, end);
+
+            int middle = (start + end) >>> 1;
+            RoundUpTask left = new RoundUpTask(rounding, start, middle, splitThreshold);
+            left.fork();
+            long right = new RoundUpTask(rounding, middle, end, splitThreshold).compute();
+
+            return Math.addExact(left.join(), right);
+        }
+    }
+}
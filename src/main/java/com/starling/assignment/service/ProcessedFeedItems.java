@@ -0,0 +1,161 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Transaction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feed items already counted in a round-up, per account, so that runs over overlapping windows count every item
+ * exactly once. The UIDs of each account are held in a {@link FeedItemUidSet}.
+ *
+ * With a state directory, each account's UIDs are also appended to a file of their own in it, 16 bytes per item, and
+ * forced to disk before {@link #markProcessed(String, List)} returns; the file is read back the first time the account
+ * is used after a restart. A record torn by a crash is cut off at that point; its round-up had not been confirmed.
+ */
+public class ProcessedFeedItems {
+
+    private static final int RECORD_BYTES = 16;
+    private static final int EXPECTED_ITEMS_PER_ACCOUNT = 1024;
+
+    private final Path stateDirectory;
+    private final boolean offHeap;
+    private final boolean bloomFilter;
+    private final Map<String, FeedItemUidSet> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param stateDirectory directory the UIDs of every account are kept in, or {@code null} to keep them in memory
+     * only
+     * @param offHeap keep the UID tables outside the Java heap
+     * @param bloomFilter check a Bloom filter before the UID tables
+     */
+    public ProcessedFeedItems(Path stateDirectory, boolean offHeap, boolean bloomFilter) {
+
+        this.stateDirectory = stateDirectory;
+        this.offHeap = offHeap;
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Select the transactions not counted yet for the given account. A feed item appearing twice in the list is
+     * selected once.
+     */
+    public List<Transaction> selectUnprocessed(String accountUid, List<Transaction> transactions) {
+
+        FeedItemUidSet processed = getSet(accountUid);
+        FeedItemUidSet selected = new FeedItemUidSet(transactions.size(), false, false);
+        List<Transaction> unprocessed = new ArrayList<>();
+        synchronized (processed) {
+            for (Transaction transaction : transactions) {
+                UUID uid = uidOf(transaction);
+                if (!processed.contains(uid) && selected.add(uid)) unprocessed.add(transaction);
+            }
+        }
+        return unprocessed;
+    }
+
+    /**
+     * Record the given transactions as counted for the given account.
+     *
+     * @throws RuntimeException if they cannot be written to the state directory; they are still recorded in memory
+     */
+    public void markProcessed(String accountUid, List<Transaction> transactions) {
+
+        FeedItemUidSet processed = getSet(accountUid);
+        synchronized (processed) {
+            ByteBuffer records = ByteBuffer.allocate(transactions.size() * RECORD_BYTES);
+            for (Transaction transaction : transactions) {
+                UUID uid = uidOf(transaction);
+                if (processed.add(uid)) {
+                    records.putLong(uid.getMostSignificantBits()).putLong(uid.getLeastSignificantBits());
+                }
+            }
+            records.flip();
+            if (stateDirectory != null && records.hasRemaining()) append(accountUid, records);
+        }
+    }
+
+    /**
+     * @return number of feed items counted for the given account
+     */
+    public int getProcessedCount(String accountUid) {
+
+        FeedItemUidSet processed = getSet(accountUid);
+        synchronized (processed) {
+            return processed.size();
+        }
+    }
+
+    private FeedItemUidSet getSet(String accountUid) {
+
+        return accounts.computeIfAbsent(accountUid, this::load);
+    }
+
+    private FeedItemUidSet load(String accountUid) {
+
+        if (stateDirectory == null) return new FeedItemUidSet(EXPECTED_ITEMS_PER_ACCOUNT, offHeap, bloomFilter);
+
+        Path stateFile = stateFile(accountUid);
+        if (Files.notExists(stateFile)) return new FeedItemUidSet(EXPECTED_ITEMS_PER_ACCOUNT, offHeap, bloomFilter);
+
+        try (FileChannel channel = FileChannel.open(stateFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long completeBytes = channel.size() - channel.size() % RECORD_BYTES;
+            if (completeBytes > Integer.MAX_VALUE) {
+                throw new RuntimeException("Processed feed items of account " + accountUid + " are too large to load");
+            }
+            channel.truncate(completeBytes);
+
+            ByteBuffer records = ByteBuffer.allocate((int) completeBytes);
+            while (records.hasRemaining() && channel.read(records) >= 0) {
+                // Keep reading until the buffer is full.
+            }
+            records.flip();
+            FeedItemUidSet processed = new FeedItemUidSet(
+                Math.max(records.remaining() / RECORD_BYTES, EXPECTED_ITEMS_PER_ACCOUNT), offHeap, bloomFilter);
+            while (records.remaining() >= RECORD_BYTES) {
+                processed.add(records.getLong(), records.getLong());
+            }
+            return processed;
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException reading processed feed items of account "
+                + accountUid + ": " + e.getMessage());
+        }
+    }
+
+    private void append(String accountUid, ByteBuffer records) {
+
+        try {
+            Files.createDirectories(stateDirectory);
+            try (FileChannel channel = FileChannel.open(stateFile(accountUid), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Encountered IOException saving processed feed items of account "
+                + accountUid + ": " + e.getMessage());
+        }
+    }
+
+    private static UUID uidOf(Transaction transaction) {
+
+        UUID uuid = transaction.getFeedItemUuid();
+        return (uuid != null) ? uuid : FeedItemUidSet.toUuid(transaction.getFeedItemUid());
+    }
+
+    private Path stateFile(String accountUid) {
+
+        return stateDirectory.resolve(FeedItemUidSet.toUuid(accountUid) + ".uids");
+    }
+}
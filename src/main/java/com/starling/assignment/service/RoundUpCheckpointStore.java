@@ -0,0 +1,17 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.RoundUpCheckpoint;
+
+public interface RoundUpCheckpointStore {
+
+    /**
+     * @return the last saved checkpoint for the given account and category, or {@code null} if there is none
+     */
+    RoundUpCheckpoint load(String accountUid, String categoryUid);
+
+    /**
+     * Replace the checkpoint for the checkpoint's account and category. Implementations must make the new watermark
+     * and total visible together, or not at all.
+     */
+    void save(RoundUpCheckpoint checkpoint);
+}
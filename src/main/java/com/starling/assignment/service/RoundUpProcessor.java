@@ -0,0 +1,215 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Transaction;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link Flow.Processor} from the transactions of a feed to the running round-up of the selected ones. Each
+ * transaction is selected and rounded up as it arrives and only the running total is kept, so the memory used does
+ * not depend on the size of the feed.
+ *
+ * Transactions are requested in batches of {@code batchSize}, and a batch only while the subscriber has demand.
+ * After each batch the running total is published, and after the last transaction the total of the feed. A total
+ * the subscriber has not requested yet is replaced by a newer one rather than queued, and no further batch is
+ * requested until it has been delivered, so a slow subscriber slows down the feed instead of falling behind it.
+ *
+ * Supports a single subscriber. Signals to it are made on the threads of the upstream publisher and of the
+ * subscriber's own requests, one at a time.
+ */
+final class RoundUpProcessor implements Flow.Processor<Transaction, Amount>, Flow.Subscription {
+
+    private final String currency;
+    private final Predicate<Transaction> selector;
+    private final ToLongFunction<Transaction> roundUpCalculator;
+    private final int batchSize;
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicReference<Amount> ready = new AtomicReference<>();
+    // Signals not yet handled by a drain; only the caller that takes the count from zero drains.
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile Flow.Subscriber<? super Amount> downstream;
+    private volatile Flow.Subscription upstream;
+    private volatile boolean awaitingBatch;
+    private volatile boolean completed;
+    private volatile boolean cancelled;
+    private volatile Throwable error;
+
+    // Only touched by upstream signals, which are serialised by the publisher.
+    private long total;
+    private int received;
+
+    // Only touched while draining.
+    private boolean done;
+
+    /**
+     * @param currency currency of the published totals
+     * @param selector transactions counted in the round-up
+     * @param roundUpCalculator round-up of a selected transaction, in minor units
+     * @param batchSize number of transactions requested at a time
+     */
+    RoundUpProcessor(String currency, Predicate<Transaction> selector, ToLongFunction<Transaction> roundUpCalculator,
+                     int batchSize) {
+
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+
+        this.currency = currency;
+        this.selector = selector;
+        this.roundUpCalculator = roundUpCalculator;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super Amount> subscriber) {
+
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (downstream != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A round-up stream supports a single subscriber."));
+            return;
+        }
+
+        subscriber.onSubscribe(this);
+        downstream = subscriber;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+
+        if (upstream != null || cancelled || error != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(Transaction transaction) {
+
+        if (completed) return;
+
+        try {
+            if (selector.test(transaction)) {
+                total = Math.addExact(total, roundUpCalculator.applyAsLong(transaction));
+            }
+        } catch (RuntimeException e) {
+            // Upstream is cancelled by the drain, which may not see it until the signal in progress returns.
+            completed = true;
+            onError(e);
+            return;
+        }
+
+        if (++received == batchSize) {
+            received = 0;
+            ready.set(new Amount(currency, total));
+            awaitingBatch = false;
+            drain();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+
+        error = throwable;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+
+        if (completed) return;
+
+        ready.set(new Amount(currency, total));
+        completed = true;
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+
+        if (n <= 0) {
+            error = new IllegalArgumentException("Requested " + n + " totals; the number requested must be positive.");
+        } else {
+            requested.accumulateAndGet(n, (current, added) -> (current + added < 0) ? Long.MAX_VALUE
+                : current + added);
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+
+        cancelled = true;
+        drain();
+    }
+
+    private void drain() {
+
+        if (pending.getAndIncrement() != 0) return;
+
+        int missed = 1;
+        do {
+            drainOnce();
+            missed = pending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainOnce() {
+
+        Flow.Subscriber<? super Amount> subscriber = downstream;
+        Flow.Subscription subscription = upstream;
+        if (done) return;
+        if (cancelled) {
+            done = true;
+            if (subscription != null) subscription.cancel();
+            return;
+        }
+        if (subscriber == null) return;
+
+        Throwable failure = error;
+        if (failure != null) {
+            done = true;
+            if (subscription != null) subscription.cancel();
+            subscriber.onError(failure);
+            return;
+        }
+
+        boolean upstreamCompleted = completed;
+        if (requested.get() > 0) {
+            Amount runningTotal = ready.getAndSet(null);
+            if (runningTotal != null) {
+                requested.decrementAndGet();
+                subscriber.onNext(runningTotal);
+            }
+        }
+        if (upstreamCompleted && ready.get() == null) {
+            done = true;
+            subscriber.onComplete();
+            return;
+        }
+
+        if (!upstreamCompleted && subscription != null && !awaitingBatch && ready.get() == null
+            && requested.get() > 0) {
+            awaitingBatch = true;
+            subscription.request(batchSize);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Money;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.WindowRoundUp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Round-ups of one account over many windows of time from a single fetch of its feed, such as every week since the
+ * account was opened. The feed of the span covering all windows is fetched once and read once.
+ *
+ * The distinct start and end times of all windows are sorted into one boundary array, which splits the span into
+ * segments. Each eligible transaction is placed in its segment by binary search, and each window's totals are the
+ * difference of two prefix sums over the segments, so windows may overlap or leave gaps between them at no extra cost.
+ * Windows include their start and exclude their end.
+ */
+public class RoundUpReportEngine {
+
+    private static final Duration WEEK = Duration.ofDays(7L);
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final BankingService bankingService;
+
+    public RoundUpReportEngine(BankingService bankingService) {
+
+        this.bankingService = bankingService;
+    }
+
+    /**
+     * Fetch the feed of the given account over all the given windows in one request and calculate the round-up of
+     * each window.
+     *
+     * @return one result per window, in the order of the windows
+     */
+    public List<WindowRoundUp> report(Account account, List<Window> windows) {
+
+        if (windows.isEmpty()) return new ArrayList<>();
+
+        long from = Long.MAX_VALUE;
+        long to = Long.MIN_VALUE;
+        for (Window window : windows) {
+            from = Math.min(from, window.getFrom().getTime());
+            to = Math.max(to, window.getTo().getTime());
+        }
+        List<Transaction> transactions = (to > from) ? bankingService.getTransactions(account.getAccountUid(),
+            account.getDefaultCategory(), new Date(from), new Date(to)) : null;
+
+        return calculate(windows, transactions, account.getCurrency());
+    }
+
+    /**
+     * Round-up of every week of the given account, from the UTC day it was created up to {@code until}, with one
+     * fetch of its feed. The last week ends at {@code until} and may be shorter.
+     */
+    public List<WindowRoundUp> backfillWeekly(Account account, Date until) {
+
+        Date createdAt = (account.getCreatedAt() != null) ? account.getCreatedAt() : until;
+        Date since = new Date(Math.floorDiv(createdAt.getTime(), MILLIS_PER_DAY) * MILLIS_PER_DAY);
+
+        return report(account, consecutiveWindows(since, until, WEEK));
+    }
+
+    /**
+     * Calculate the round-up of each of the given windows over the given transactions, in one pass over them.
+     *
+     * @param currency currency of the transactions, usually the account currency
+     * @return one result per window, in the order of the windows
+     */
+    public static List<WindowRoundUp> calculate(List<Window> windows, List<Transaction> transactions,
+                                                String currency) {
+
+        String reportCurrency = (currency != null) ? currency : RoundUpService.DEFAULT_CURRENCY;
+        long[] boundaries = boundaries(windows);
+        int segments = Math.max(boundaries.length - 1, 0);
+        long[] roundUpSums = new long[segments + 1];
+        long[] countSums = new long[segments + 1];
+
+        if (transactions != null && segments > 0) {
+            ToLongFunction<Transaction> roundUpCalculator =
+                RoundUpService.outgoingRoundUp(Money.minorUnitsPerMajorUnit(reportCurrency));
+            long first = boundaries[0];
+            long last = boundaries[segments];
+            for (Transaction transaction : transactions) {
+                long transactionTime = transaction.getTransactionTimeMillis();
+                if (transactionTime < first || transactionTime >= last || transactionTime == Transaction.NO_TIME
+                    || !RoundUpService.OUTGOING_EXTERNAL.test(transaction)) {
+                    continue;
+                }
+                // Segment i is [boundaries[i], boundaries[i + 1]); a miss returns -(insertion point) - 1.
+                int index = Arrays.binarySearch(boundaries, transactionTime);
+                int segment = (index >= 0) ? index : -index - 2;
+                roundUpSums[segment + 1] =
+                    Math.addExact(roundUpSums[segment + 1], roundUpCalculator.applyAsLong(transaction));
+                countSums[segment + 1]++;
+            }
+            for (int i = 1; i <= segments; i++) {
+                roundUpSums[i] = Math.addExact(roundUpSums[i], roundUpSums[i - 1]);
+                countSums[i] += countSums[i - 1];
+            }
+        }
+
+        List<WindowRoundUp> roundUps = new ArrayList<>(windows.size());
+        for (Window window : windows) {
+            int start = Arrays.binarySearch(boundaries, window.getFrom().getTime());
+            int end = Math.max(Arrays.binarySearch(boundaries, window.getTo().getTime()), start);
+            roundUps.add(new WindowRoundUp(window.getFrom(), window.getTo(),
+                new Amount(reportCurrency, roundUpSums[end] - roundUpSums[start]), countSums[end] - countSums[start]));
+        }
+        return roundUps;
+    }
+
+    /**
+     * @return consecutive windows of the given length from {@code since}, the last one ending at {@code until}
+     */
+    public static List<Window> consecutiveWindows(Date since, Date until, Duration length) {
+
+        if (length.isNegative() || length.isZero()) {
+            throw new IllegalArgumentException("Window length must be positive: " + length);
+        }
+
+        List<Window> windows = new ArrayList<>();
+        long step = length.toMillis();
+        for (long from = since.getTime(); from < until.getTime(); from += step) {
+            windows.add(new Window(new Date(from), new Date(Math.min(from + step, until.getTime()))));
+        }
+        return windows;
+    }
+
+    // Sorted, distinct start and end times of all windows.
+    private static long[] boundaries(List<Window> windows) {
+
+        long[] boundaries = new long[windows.size() * 2];
+        int i = 0;
+        for (Window window : windows) {
+            boundaries[i++] = window.getFrom().getTime();
+            boundaries[i++] = window.getTo().getTime();
+        }
+        Arrays.sort(boundaries);
+
+        int distinct = 0;
+        for (int j = 0; j < boundaries.length; j++) {
+            if (j == 0 || boundaries[j] != boundaries[distinct - 1]) boundaries[distinct++] = boundaries[j];
+        }
+        return Arrays.copyOf(boundaries, distinct);
+    }
+
+    /**
+     * Window of time from {@code from}, inclusive, to {@code to}, exclusive.
+     */
+    public static class Window {
+
+        private final Date from;
+        private final Date to;
+
+        public Window(Date from, Date to) {
+
+            this.from = from;
+            this.to = to;
+        }
+
+        public Date getFrom() {
+            return from;
+        }
+
+        public Date getTo() {
+            return to;
+        }
+    }
+}
@@ -1,17 +1,34 @@
 package com.starling.assignment.service;
 
+import com.starling.assignment.client.PullPublisher;
 import com.starling.assignment.model.Account;
 import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.GoalAllocation;
+import com.starling.assignment.model.IncrementalRoundUp;
+import com.starling.assignment.model.Money;
 import com.starling.assignment.model.RoundUp;
+import com.starling.assignment.model.RoundUpCheckpoint;
+import com.starling.assignment.model.RoundUpPreview;
 import com.starling.assignment.model.SavingsGoal;
 import com.starling.assignment.model.Transaction;
 import com.starling.assignment.model.Transaction.Direction;
 import com.starling.assignment.model.Transaction.Status;
+import com.starling.assignment.model.TransactionBatch;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
 import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
@@ -28,17 +45,69 @@ import java.util.stream.Collectors;
 public class RoundUpService {
 
     private final BankingService bankingService;
+    private final RoundUpCheckpointStore checkpointStore;
+    private final ParallelRoundUpCalculator parallelCalculator;
+    private final ProcessedFeedItems processedFeedItems;
 
+    static final String DEFAULT_CURRENCY = "GBP";
     private static final String INTERNAL_TRANSFER = "INTERNAL_TRANSFER";
+    private static final int STREAM_BATCH_SIZE = 256;
+    /**
+     * How far back incremental runs look again for items that show up late, such as card payments settling.
+     */
+    static final Duration SETTLEMENT_LOOKBACK = Duration.ofDays(3L);
+    private static final int ELIGIBILITY_FLAGS =
+        TransactionBatch.OUT | TransactionBatch.SETTLED | TransactionBatch.INTERNAL_TRANSFER;
+    private static final int ELIGIBLE = TransactionBatch.OUT | TransactionBatch.SETTLED;
+    static final Predicate<Transaction> OUTGOING_EXTERNAL =
+        transaction -> Direction.OUT.equals(transaction.getDirection())
+            && (Status.SETTLED.equals(transaction.getStatus()))
+            && (!INTERNAL_TRANSFER.equals(transaction.getSource()));
+    static final Predicate<Transaction> AWAITING_SETTLEMENT =
+        transaction -> Direction.OUT.equals(transaction.getDirection())
+            && (Status.PENDING.equals(transaction.getStatus()))
+            && (!INTERNAL_TRANSFER.equals(transaction.getSource()));
+    static final Comparator<Transaction> FEED_ORDER = Comparator
+        .comparingLong(Transaction::getTransactionTimeMillis)
+        .thenComparing(Transaction::getFeedItemUid, Comparator.nullsFirst(Comparator.naturalOrder()));
 
     public RoundUpService(BankingService bankingService) {
 
+        this(bankingService, null);
+    }
+
+    public RoundUpService(BankingService bankingService, RoundUpCheckpointStore checkpointStore) {
+
+        this(bankingService, checkpointStore, null);
+    }
+
+    /**
+     * @param parallelCalculator calculator used for round-ups over feeds large enough to be worth splitting across
+     * cores, or {@code null} to always calculate sequentially
+     */
+    public RoundUpService(BankingService bankingService, RoundUpCheckpointStore checkpointStore,
+                          ParallelRoundUpCalculator parallelCalculator) {
+
+        this(bankingService, checkpointStore, parallelCalculator, null);
+    }
+
+    /**
+     * @param processedFeedItems feed items already counted per account, used by {@link #selectUncounted} and
+     * {@link #markCounted}, or {@code null} to count every transaction of every window
+     */
+    public RoundUpService(BankingService bankingService, RoundUpCheckpointStore checkpointStore,
+                          ParallelRoundUpCalculator parallelCalculator, ProcessedFeedItems processedFeedItems) {
+
         this.bankingService = bankingService;
+        this.checkpointStore = checkpointStore;
+        this.parallelCalculator = parallelCalculator;
+        this.processedFeedItems = processedFeedItems;
     }
 
     /**
      * Fetch transactions for the given account and filter-in (select) transactions that fall within the {@code from}
-     * and {@code to} dates.
+     * and {@code to} dates. Only the requested date range is fetched from the {@link BankingService}, so the cost
+     * depends on the size of the range rather than the age of the account.
      *
      * @param account account to retrieve transactions for
      * @param from starting date, which should be older than {@code to}, time component should be midnight
@@ -50,41 +119,260 @@ public class RoundUpService {
         if (account == null || !to.after(from)) return new ArrayList<>();
 
         List<Transaction> transactions = bankingService.getTransactions(
-            account.getAccountUid(), account.getDefaultCategory());
-        if (transactions == null || transactions.isEmpty()) return new ArrayList<>();
+            account.getAccountUid(), account.getDefaultCategory(), from, to);
 
-        return transactions.stream().filter(transaction -> {
-            Date transactionTime = transaction.getTransactionTime();
-            return transactionTime.after(from) && transactionTime.before(to);
-        }).collect(Collectors.toList());
+        return selectTransactionsWithin(transactions, from, to);
+    }
+
+    /**
+     * Fetch everything needed to offer a round-up for the given account and date range. The balance, transactions
+     * and savings-goals are requested at the same time, so the returned future completes after roughly the slowest of
+     * those calls rather than after all three in turn. The {@link BankingService} calls are made without blocking
+     * when it is an {@link AsyncBankingService}, and on the common fork-join pool otherwise.
+     *
+     * @param account account to prepare the round-up for
+     * @param from starting date, which should be older than {@code to}, time component should be midnight
+     * @param to ending date, which should be today, time component should be midnight
+     * @return future of the account balance, transactions within the date range, their round-up amount and the
+     * savings-goals with enough of a target left for that amount
+     */
+    public CompletableFuture<RoundUpPreview> prepareRoundUpAsync(Account account, Date from, Date to) {
+
+        String accountUid = account.getAccountUid();
+        CompletableFuture<Balance> balance;
+        CompletableFuture<List<Transaction>> transactions;
+        CompletableFuture<List<SavingsGoal>> savingsGoals;
+        if (bankingService instanceof AsyncBankingService) {
+            AsyncBankingService asyncBankingService = (AsyncBankingService) bankingService;
+            balance = asyncBankingService.getAccountBalanceAsync(accountUid);
+            transactions = to.after(from) ? asyncBankingService.getTransactionsAsync(
+                accountUid, account.getDefaultCategory(), from, to) : CompletableFuture.completedFuture(null);
+            savingsGoals = asyncBankingService.getSavingsGoalsAsync(accountUid);
+        } else {
+            balance = CompletableFuture.supplyAsync(() -> bankingService.getAccountBalance(accountUid));
+            transactions = CompletableFuture.supplyAsync(() -> getTransactions(account, from, to));
+            savingsGoals = CompletableFuture.supplyAsync(() -> bankingService.getSavingsGoals(accountUid));
+        }
+
+        CompletableFuture<List<Transaction>> selectedTransactions =
+            transactions.thenApply(feed -> selectTransactionsWithin(feed, from, to));
+        CompletableFuture<Amount> roundUpAmount =
+            selectedTransactions.thenApply(selected -> calculateRoundUp(selected, account.getCurrency()));
+
+        return CompletableFuture.allOf(balance, roundUpAmount, savingsGoals).thenApply(ignored -> new RoundUpPreview(
+            balance.join(),
+            selectedTransactions.join(),
+            roundUpAmount.join(),
+            selectSavingsGoalsForAmount(savingsGoals.join(), roundUpAmount.join())));
+    }
+
+    /**
+     * Stream the round-up of the given account and date range while its transactions are being fetched. Transactions
+     * are taken from {@link BankingService#getTransactionsPublisher} {@value #STREAM_BATCH_SIZE} at a time, each
+     * selected and rounded up as {@link #calculateRoundUp(List)} would as soon as it arrives, without being collected.
+     * The running round-up is published after every batch, so the first partial total is available long before a
+     * large feed has been downloaded, and the round-up of the whole range is published last.
+     *
+     * Batches are only requested while the subscriber has demand for a total, so memory stays bounded by one batch
+     * however large the feed, and a subscriber that stops requesting stops the download. Every subscriber gets a
+     * stream of its own.
+     *
+     * @param account account to calculate the round-up for
+     * @param from starting date, which should be older than {@code to}, time component should be midnight
+     * @param to ending date, which should be today, time component should be midnight
+     * @return publisher of running round-up amounts in the account currency, the last one being the total
+     */
+    public Flow.Publisher<Amount> streamRoundUp(Account account, Date from, Date to) {
+
+        String currency = (account == null || account.getCurrency() == null) ? DEFAULT_CURRENCY : account.getCurrency();
+        long fromMillis = from.getTime();
+        long toMillis = to.getTime();
+        Predicate<Transaction> withinRange = transaction -> {
+            long transactionTime = transaction.getTransactionTimeMillis();
+            return transactionTime > fromMillis && transactionTime < toMillis;
+        };
+        Predicate<Transaction> selector = withinRange.and(OUTGOING_EXTERNAL);
+        ToLongFunction<Transaction> roundUpCalculator = outgoingRoundUp(Money.minorUnitsPerMajorUnit(currency));
+
+        return subscriber -> {
+            RoundUpProcessor processor = new RoundUpProcessor(currency, selector, roundUpCalculator, STREAM_BATCH_SIZE);
+            processor.subscribe(subscriber);
+            Flow.Publisher<Transaction> transactions = (account == null || !to.after(from))
+                ? PullPublisher.ofList(Collections::emptyList, ForkJoinPool.commonPool())
+                : bankingService.getTransactionsPublisher(account.getAccountUid(), account.getDefaultCategory(), from,
+                    to);
+            transactions.subscribe(processor);
+        };
     }
 
     /**
      * Calculate round-up amount for given transactions. This method only considers 'OUT', 'SETTLED' and
-     * non-'INTERNAL_TRANSFER' transactions to calculate round-up amount.
+     * non-'INTERNAL_TRANSFER' transactions to calculate round-up amount. Each amount is rounded up to the next whole
+     * major unit of the transactions' currency, e.g. pounds for GBP.
      *
      * @param transactions list of candidate transactions to calculate round-up amount
      * @return instance of {@link RoundUp}
      */
     public Amount calculateRoundUp(List<Transaction> transactions) {
 
-        if (transactions == null || transactions.isEmpty()) return new Amount("GBP", 0L);
+        return calculateRoundUp(transactions, currencyOf(transactions));
+    }
+
+    /**
+     * Calculate round-up amount for given transactions, all in the given currency, as
+     * {@link #calculateRoundUp(List)}. An empty list yields a zero amount in that currency.
+     *
+     * @param transactions list of candidate transactions to calculate round-up amount
+     * @param currency currency of the transactions, usually the account currency
+     * @return round-up amount in the given currency
+     */
+    public Amount calculateRoundUp(List<Transaction> transactions, String currency) {
 
-        Predicate<Transaction> outgoingExternal =
-            transaction -> Direction.OUT.equals(transaction.getDirection())
-                && (Status.SETTLED.equals(transaction.getStatus()))
-                && (!INTERNAL_TRANSFER.equals(transaction.getSource()));
+        if (transactions == null || transactions.isEmpty()) return new Amount(currency, 0L);
 
-        ToLongFunction<Transaction> outgoingRoundUp = transaction -> {
-            long amount = transaction.getAmount().getMinorUnits();
-            long remainder = amount % 100L;
+        long unit = Money.minorUnitsPerMajorUnit(currency);
+        long transactionsRoundUp = (parallelCalculator != null && parallelCalculator.isParallel(transactions.size()))
+            ? parallelCalculator.calculateRounding(transactions, unit)
+            : calculateRounding(transactions, OUTGOING_EXTERNAL, outgoingRoundUp(unit));
 
-            return (remainder == 0L) ? 0L : (100L - remainder);
-        };
+        return new Amount(currency, transactionsRoundUp);
+    }
+
+    /**
+     * Select the transactions of the given account not counted by an earlier round-up, so that round-ups of
+     * overlapping windows count each feed item once. Returns the transactions as they are when there is no
+     * {@link ProcessedFeedItems}.
+     */
+    public List<Transaction> selectUncounted(Account account, List<Transaction> transactions) {
+
+        if (processedFeedItems == null || transactions.isEmpty()) return transactions;
+        return processedFeedItems.selectUnprocessed(account.getAccountUid(), transactions);
+    }
+
+    /**
+     * Record the eligible transactions among the given ones as counted, once their round-up has been transferred.
+     * Transactions that are not eligible yet, such as pending ones, are left to be counted when they are.
+     */
+    public void markCounted(Account account, List<Transaction> transactions) {
+
+        if (processedFeedItems == null) return;
+        processedFeedItems.markProcessed(account.getAccountUid(),
+            transactions.stream().filter(OUTGOING_EXTERNAL).collect(Collectors.toList()));
+    }
+
+    /**
+     * Calculate round-up amount for a columnar batch of transactions, using the same eligibility rules and rounding
+     * as {@link #calculateRoundUp(List)} and returning the same amount. The scan is a single pass over the batch's
+     * primitive arrays with no allocation per item, and eligibility is a mask compare rather than a branch per rule.
+     *
+     * @param batch candidate transactions to calculate round-up amount
+     * @return round-up amount of the eligible transactions in the batch
+     */
+    public Amount calculateRoundUp(TransactionBatch batch) {
+
+        // Inclusive bounds over the whole range of longs, so transactions without a time are counted as well.
+        return calculateRoundUp(batch, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Calculate round-up amount for the transactions of a columnar batch that fall within the {@code from} and
+     * {@code to} dates, with the same exclusive bounds as {@link #getTransactions(Account, Date, Date)}. Equivalent to
+     * selecting the transactions within the range and passing them to {@link #calculateRoundUp(List)}, without
+     * building the intermediate list.
+     *
+     * @param batch candidate transactions to calculate round-up amount
+     * @param from starting date, exclusive
+     * @param to ending date, exclusive
+     * @return round-up amount of the eligible transactions within the date range
+     */
+    public Amount calculateRoundUp(TransactionBatch batch, Date from, Date to) {
+
+        long first = (from.getTime() == Long.MAX_VALUE) ? Long.MAX_VALUE : from.getTime() + 1L;
+        long last = (to.getTime() == Long.MIN_VALUE) ? Long.MIN_VALUE : to.getTime() - 1L;
+        return calculateRoundUp(batch, first, last);
+    }
+
+    /**
+     * Calculate the round-up of the transactions that arrived since the last incremental run for the given account.
+     * Only the feed from the account's checkpoint on is fetched, so the cost tracks new activity rather than the
+     * history window.
+     *
+     * An item can become eligible after a run has seen it, a pending payment settling, or show up late with an older
+     * time. The returned checkpoint therefore has the next run fetch the feed again from the oldest payment still
+     * pending, and from at least {@link #SETTLEMENT_LOOKBACK} before {@code to}, leaving out the items counted since
+     * then by their UID.
+     *
+     * Nothing is saved here: the returned checkpoint is to be saved with {@link #saveCheckpoint(IncrementalRoundUp)}
+     * once the round-up has been transferred. Until then the next run counts the same transactions again, so a
+     * round-up that is not transferred is not lost; items are never counted twice.
+     *
+     * @param account account to calculate round-up for
+     * @param from starting date, only used when the account has no checkpoint yet
+     * @param to ending date, which should be today, time component should be midnight
+     * @return round-up amount of the newly processed transactions, and the checkpoint recording them
+     */
+    public IncrementalRoundUp calculateIncrementalRoundUp(Account account, Date from, Date to) {
+
+        if (checkpointStore == null) {
+            throw new IllegalStateException("Incremental round-up requires a RoundUpCheckpointStore.");
+        }
+
+        String accountUid = account.getAccountUid();
+        String categoryUid = account.getDefaultCategory();
+        IncrementalRoundUp none = new IncrementalRoundUp(new Amount(account.getCurrency(), 0L), null);
+        RoundUpCheckpoint checkpoint = checkpointStore.load(accountUid, categoryUid);
+        Date since = (checkpoint == null) ? from
+            : (checkpoint.getRescanFrom() != null) ? checkpoint.getRescanFrom() : checkpoint.getLastTransactionTime();
+        if (!to.after(since)) return none;
 
-        long transactionsRoundUp = calculateRounding(transactions, outgoingExternal, outgoingRoundUp);
+        List<Transaction> transactions = bankingService.getTransactions(accountUid, categoryUid, since, to);
+        if (transactions == null || transactions.isEmpty()) return none;
 
-        return new Amount("GBP", transactionsRoundUp);
+        List<Transaction> newTransactions = transactions.stream()
+            .filter(transaction -> transaction.getTransactionTimeMillis() < to.getTime())
+            .filter(transaction -> isUncounted(transaction, checkpoint, from))
+            .sorted(FEED_ORDER)
+            .collect(Collectors.toList());
+        if (newTransactions.isEmpty()) return none;
+
+        Amount roundUpAmount = calculateRoundUp(newTransactions, account.getCurrency());
+        Amount roundUpTotal = (checkpoint == null) ? roundUpAmount
+            : checkpoint.getRoundUpTotal().add(roundUpAmount);
+        Transaction last = newTransactions.get(newTransactions.size() - 1);
+        boolean newWatermark = (checkpoint == null) || isAfterWatermark(last, checkpoint);
+
+        // Never earlier than what this run covered: the first run only counted transactions after from.
+        long coveredFrom = (checkpoint == null) ? from.getTime() + 1L : (checkpoint.getRescanFrom() != null)
+            ? checkpoint.getRescanFrom().getTime() : checkpoint.getLastTransactionTime().getTime() + 1L;
+        long lowerBound = to.getTime() - SETTLEMENT_LOOKBACK.toMillis();
+        for (Transaction transaction : newTransactions) {
+            if (AWAITING_SETTLEMENT.test(transaction)) {
+                lowerBound = Math.min(lowerBound, transaction.getTransactionTimeMillis());
+                break;
+            }
+        }
+        long rescanFromMillis = Math.max(lowerBound, coveredFrom);
+        Set<String> counted = transactions.stream()
+            .filter(transaction -> transaction.getTransactionTimeMillis() >= rescanFromMillis
+                && transaction.getTransactionTimeMillis() < to.getTime())
+            .filter(OUTGOING_EXTERNAL)
+            .map(Transaction::getFeedItemUid)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+
+        return new IncrementalRoundUp(roundUpAmount, new RoundUpCheckpoint(accountUid, categoryUid,
+            newWatermark ? last.getTransactionTime() : checkpoint.getLastTransactionTime(),
+            newWatermark ? last.getFeedItemUid() : checkpoint.getLastFeedItemUid(),
+            roundUpTotal, new Date(rescanFromMillis), counted));
+    }
+
+    /**
+     * Save the checkpoint of an incremental round-up, once its amount has been transferred, or there was nothing to
+     * transfer. Does nothing if the round-up has no new checkpoint.
+     */
+    public void saveCheckpoint(IncrementalRoundUp roundUp) {
+
+        if (roundUp.getCheckpoint() != null) checkpointStore.save(roundUp.getCheckpoint());
     }
 
     public List<SavingsGoal> fetchSavingsGoalsForAmount(String accountUid, Amount amount) {
@@ -93,13 +381,31 @@ public class RoundUpService {
 
         List<SavingsGoal> savingsGoals = bankingService.getSavingsGoals(accountUid);
 
-        return savingsGoals.stream()
-            .filter(goal -> (goal.getTarget().getMinorUnits() - goal.getTotalSaved().getMinorUnits())
-                >= amount.getMinorUnits()).collect(Collectors.toList());
+        return selectSavingsGoalsForAmount(savingsGoals, amount);
+    }
+
+    /**
+     * Split the given round-up across the savings-goals of the account following the given policy.
+     *
+     * @param accountUid account whose savings-goals to allocate to, in the order returned by the API for
+     * {@link SavingsGoalAllocator.Policy#PRIORITY}
+     * @param amount round-up to allocate
+     * @return allocations to transfer, empty if there is nothing to allocate or no goal has room left
+     */
+    public List<GoalAllocation> allocateRoundUp(String accountUid, Amount amount,
+                                                SavingsGoalAllocator.Policy policy) {
+
+        if (amount == null || amount.getMinorUnits() == 0) return new ArrayList<>();
+
+        List<SavingsGoal> savingsGoals = bankingService.getSavingsGoals(accountUid);
+        if (savingsGoals == null) return new ArrayList<>();
+
+        return new SavingsGoalAllocator(savingsGoals, amount.getCurrency(), policy).allocate(amount);
     }
 
     /**
-     * Transfer the given {@code roundUpAmount} from {@code account} to the provided {@code savingsGoalUid}.
+     * Transfer the given {@code roundUpAmount} from {@code account} to the provided {@code savingsGoalUid}, under a
+     * new random transfer UID, so that every call is a transfer of its own.
      *
      * @param account account to transfer money from
      * @param roundUpAmount round-up amount to transfer
@@ -111,18 +417,159 @@ public class RoundUpService {
     public RoundUp transferRoundUpToSavingsGoal(Account account, Amount roundUpAmount, Date from, Date to,
                                                 String savingsGoalUid) {
 
+        return transferRoundUpToSavingsGoal(account, roundUpAmount, from, to, savingsGoalUid,
+            UUID.randomUUID().toString());
+    }
+
+    /**
+     * Transfer the given {@code roundUpAmount} from {@code account} to the provided {@code savingsGoalUid} under the
+     * given transfer UID. The API makes a transfer once per UID, so sending it again after a failure whose outcome is
+     * not known cannot pay the savings-goal twice.
+     *
+     * @param transferUid UID of the transfer, the same every time the same round-up is sent
+     * @return the transferred round-up, or {@code null} if the transfer was not accepted
+     */
+    public RoundUp transferRoundUpToSavingsGoal(Account account, Amount roundUpAmount, Date from, Date to,
+                                                String savingsGoalUid, String transferUid) {
+
         if (roundUpAmount.getMinorUnits() == 0L) return null;
 
         BankingService.SavingsGoalAmount savingsGoalAmount = new BankingService.SavingsGoalAmount(roundUpAmount);
         boolean transferred = bankingService.transferMoneyToSavingsGoal(
-            account.getAccountUid(), savingsGoalUid, UUID.randomUUID().toString(), savingsGoalAmount);
+            account.getAccountUid(), savingsGoalUid, transferUid, savingsGoalAmount);
 
         return (transferred) ? new RoundUp(roundUpAmount, account.getAccountUid(), savingsGoalUid, from, to) : null;
     }
 
-    private long calculateRounding(List<Transaction> transactions, Predicate<Transaction> selector,
+    /**
+     * Derive the UID of a round-up transfer from what identifies it, so that every attempt at the same transfer uses
+     * the same UID.
+     *
+     * @param batch anything else telling apart round-ups of the same account, goal, dates and amount, such as the
+     * checkpoint they lead to, or {@code null}
+     */
+    public static String transferUid(String accountUid, String savingsGoalUid, Date from, Date to, Amount amount,
+                                     String batch) {
+
+        String key = String.join("|", String.valueOf(accountUid), savingsGoalUid, String.valueOf(from.getTime()),
+            String.valueOf(to.getTime()), amount.getCurrency(), String.valueOf(amount.getMinorUnits()),
+            String.valueOf(batch));
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private List<Transaction> selectTransactionsWithin(List<Transaction> transactions, Date from, Date to) {
+
+        if (transactions == null || transactions.isEmpty()) return new ArrayList<>();
+
+        long fromMillis = from.getTime();
+        long toMillis = to.getTime();
+        return transactions.stream().filter(transaction -> {
+            long transactionTime = transaction.getTransactionTimeMillis();
+            return transactionTime > fromMillis && transactionTime < toMillis;
+        }).collect(Collectors.toList());
+    }
+
+    private List<SavingsGoal> selectSavingsGoalsForAmount(List<SavingsGoal> savingsGoals, Amount amount) {
+
+        if (savingsGoals == null || amount == null || amount.getMinorUnits() == 0) return new ArrayList<>();
+
+        return savingsGoals.stream()
+            .filter(goal -> (goal.getTarget().getMinorUnits() - goal.getTotalSaved().getMinorUnits())
+                >= amount.getMinorUnits()).collect(Collectors.toList());
+    }
+
+    private boolean isUncounted(Transaction transaction, RoundUpCheckpoint checkpoint, Date from) {
+
+        long transactionTime = transaction.getTransactionTimeMillis();
+        if (checkpoint == null) return transactionTime > from.getTime();
+        if (checkpoint.getCountedFeedItemUids().contains(transaction.getFeedItemUid())) return false;
+
+        Date rescanFrom = checkpoint.getRescanFrom();
+        return (rescanFrom != null && transactionTime >= rescanFrom.getTime())
+            || isAfterWatermark(transaction, checkpoint);
+    }
+
+    private boolean isAfterWatermark(Transaction transaction, RoundUpCheckpoint checkpoint) {
+
+        int timeOrder = Long.compare(transaction.getTransactionTimeMillis(),
+            checkpoint.getLastTransactionTime().getTime());
+        if (timeOrder != 0) return timeOrder > 0;
+
+        // A watermark without a feed-item UID sorts before every item of its time that has one.
+        String feedItemUid = transaction.getFeedItemUid();
+        String lastFeedItemUid = checkpoint.getLastFeedItemUid();
+        return feedItemUid != null && (lastFeedItemUid == null || feedItemUid.compareTo(lastFeedItemUid) > 0);
+    }
+
+    // Transactions whose time is from first to last, both inclusive.
+    private Amount calculateRoundUp(TransactionBatch batch, long first, long last) {
+
+        String currency = (batch == null || batch.getCurrency() == null) ? DEFAULT_CURRENCY : batch.getCurrency();
+        if (batch == null) return new Amount(currency, 0L);
+
+        long unit = Money.minorUnitsPerMajorUnit(currency);
+        long transactionsRoundUp = (parallelCalculator != null && parallelCalculator.isParallel(batch.size()))
+            ? parallelCalculator.calculateRounding(batch, first, last)
+            : calculateRounding(batch, unit, first, last, 0, batch.size());
+
+        return new Amount(currency, transactionsRoundUp);
+    }
+
+    private static String currencyOf(List<Transaction> transactions) {
+
+        if (transactions != null) {
+            for (Transaction transaction : transactions) {
+                if (transaction.getCurrency() != null) return transaction.getCurrency();
+            }
+        }
+        return DEFAULT_CURRENCY;
+    }
+
+    /**
+     * @return function giving the round-up of a transaction to the next multiple of {@code unit} minor units
+     */
+    static ToLongFunction<Transaction> outgoingRoundUp(long unit) {
+
+        return transaction -> {
+            long amount = transaction.getMinorUnits();
+            long remainder = amount % unit;
+
+            return (remainder == 0L) ? 0L : (unit - remainder);
+        };
+    }
+
+    /**
+     * Sum the round-up, to the next multiple of {@code unit} minor units, of the eligible transactions at indexes
+     * {@code start} (inclusive) to {@code end} (exclusive) of the batch whose time is from {@code first} to
+     * {@code last}, both inclusive. Bounds of {@code Long.MIN_VALUE} and {@code Long.MAX_VALUE} select every
+     * transaction, those without a time included.
+     *
+     * @throws ArithmeticException if the sum overflows
+     */
+    static long calculateRounding(TransactionBatch batch, long unit, long first, long last, int start, int end) {
+
+        long[] minorUnits = batch.minorUnitsArray();
+        long[] transactionTimes = batch.transactionTimesArray();
+        byte[] flags = batch.flagsArray();
+
+        // Both selections are written as conditional moves rather than control flow, so the loop has no
+        // data-dependent branches to mispredict on a mixed feed.
+        long transactionsRoundUp = 0L;
+        for (int i = start; i < end; i++) {
+            long remainder = minorUnits[i] % unit;
+            long roundUp = (remainder == 0L) ? 0L : (unit - remainder);
+            long transactionTime = transactionTimes[i];
+            boolean selected = ((flags[i] & ELIGIBILITY_FLAGS) == ELIGIBLE)
+                & (transactionTime >= first) & (transactionTime <= last);
+            transactionsRoundUp = Math.addExact(transactionsRoundUp, selected ? roundUp : 0L);
+        }
+
+        return transactionsRoundUp;
+    }
+
+    static long calculateRounding(List<Transaction> transactions, Predicate<Transaction> selector,
                                   ToLongFunction<Transaction> roundUpCalculator) {
 
-        return transactions.stream().filter(selector).mapToLong(roundUpCalculator).sum();
+        return transactions.stream().filter(selector).mapToLong(roundUpCalculator).reduce(0L, Math::addExact);
     }
 }
@@ -0,0 +1,208 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.GoalAllocation;
+import com.starling.assignment.model.SavingsGoal;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Splits round-ups across the savings-goals of an account. Goals are kept in an index ordered for the policy, by
+ * remaining capacity (target minus total saved) or by priority, and every allocation updates it, so successive
+ * round-ups see the capacity left by earlier ones. Each transfer an allocation produces costs one O(log n) index
+ * update, however many goals there are.
+ * <ul>
+ * <li>{@link Policy#BEST_FIT}: the whole round-up goes to the goal with the least remaining capacity that can take
+ * it. If no goal can, it is split over the goals with the most capacity, largest first, in as few transfers as
+ * possible.</li>
+ * <li>{@link Policy#PROPORTIONAL}: the round-up is split over all goals in proportion to their remaining capacity,
+ * in whole minor units.</li>
+ * <li>{@link Policy#PRIORITY}: goals are filled one at a time in priority order, which is the order they were given
+ * in.</li>
+ * </ul>
+ * Goals in another currency than the allocator's, and full goals, take no part. Whatever no goal has room for is left
+ * unallocated, for the caller to carry over.
+ *
+ * Not thread-safe; an allocator is meant for the round-ups of one account in one run.
+ */
+public class SavingsGoalAllocator {
+
+    public enum Policy {
+        BEST_FIT,
+        PROPORTIONAL,
+        PRIORITY
+    }
+
+    private static final Comparator<GoalCapacity> BY_CAPACITY =
+        Comparator.<GoalCapacity>comparingLong(goal -> goal.remaining).thenComparingInt(goal -> goal.rank);
+    private static final Comparator<GoalCapacity> BY_PRIORITY = Comparator.comparingInt(goal -> goal.rank);
+
+    private final Policy policy;
+    private final String currency;
+    private final TreeSet<GoalCapacity> index;
+    private long totalCapacity;
+
+    /**
+     * @param savingsGoals goals to allocate to, highest priority first
+     * @param currency currency of the round-ups to allocate
+     * @param policy how round-ups are split across the goals
+     */
+    public SavingsGoalAllocator(List<SavingsGoal> savingsGoals, String currency, Policy policy) {
+
+        this.policy = policy;
+        this.currency = currency;
+        this.index = new TreeSet<>(policy == Policy.PRIORITY ? BY_PRIORITY : BY_CAPACITY);
+        for (int rank = 0; rank < savingsGoals.size(); rank++) {
+            SavingsGoal savingsGoal = savingsGoals.get(rank);
+            if (!currency.equals(savingsGoal.getTarget().getCurrency())) continue;
+
+            long remaining = savingsGoal.getTarget().getMinorUnits() - savingsGoal.getTotalSaved().getMinorUnits();
+            if (remaining > 0L) {
+                index.add(new GoalCapacity(savingsGoal.getSavingsGoalUid(), rank, remaining));
+                totalCapacity = Math.addExact(totalCapacity, remaining);
+            }
+        }
+    }
+
+    /**
+     * Split the given round-up across the goals and take it off their remaining capacity.
+     *
+     * @return one allocation per goal receiving part of the round-up, none of them zero; their sum is less than the
+     * round-up if the goals do not have room for all of it
+     * @throws IllegalArgumentException if the round-up is negative or not in the allocator's currency
+     */
+    public List<GoalAllocation> allocate(Amount roundUp) {
+
+        if (!currency.equals(roundUp.getCurrency())) {
+            throw new IllegalArgumentException("Cannot allocate " + roundUp.getCurrency() + " round-up to "
+                + currency + " savings-goals");
+        }
+        if (roundUp.getMinorUnits() < 0L) throw new IllegalArgumentException("Round-up must not be negative");
+
+        List<GoalAllocation> allocations = new ArrayList<>();
+        if (roundUp.getMinorUnits() == 0L || index.isEmpty()) return allocations;
+
+        switch (policy) {
+            case BEST_FIT:
+                allocateBestFit(roundUp.getMinorUnits(), allocations);
+                break;
+            case PROPORTIONAL:
+                allocateProportionally(roundUp.getMinorUnits(), allocations);
+                break;
+            case PRIORITY:
+                allocateByPriority(roundUp.getMinorUnits(), allocations);
+                break;
+            default:
+                throw new IllegalStateException("Unknown policy " + policy);
+        }
+        return allocations;
+    }
+
+    /**
+     * @return capacity left across all goals, in minor units
+     */
+    public long getTotalCapacity() {
+
+        return totalCapacity;
+    }
+
+    /**
+     * @return number of goals with capacity left
+     */
+    public int getGoalCount() {
+
+        return index.size();
+    }
+
+    private void allocateBestFit(long amount, List<GoalAllocation> allocations) {
+
+        GoalCapacity fit = index.ceiling(new GoalCapacity(null, Integer.MIN_VALUE, amount));
+        if (fit != null) {
+            take(fit, amount, allocations);
+            return;
+        }
+
+        long rest = amount;
+        while (rest > 0L && !index.isEmpty()) {
+            GoalCapacity largest = index.last();
+            long share = Math.min(largest.remaining, rest);
+            take(largest, share, allocations);
+            rest -= share;
+        }
+    }
+
+    private void allocateProportionally(long amount, List<GoalAllocation> allocations) {
+
+        List<GoalCapacity> goals = new ArrayList<>(index);
+        if (amount >= totalCapacity) {
+            goals.forEach(goal -> take(goal, goal.remaining, allocations));
+            return;
+        }
+
+        long[] shares = new long[goals.size()];
+        long allocated = 0L;
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = share(amount, goals.get(i).remaining, totalCapacity);
+            allocated += shares[i];
+        }
+        // Rounding down leaves fewer minor units than goals; they go to the goals with the most capacity.
+        for (int i = shares.length - 1; i >= 0 && allocated < amount; i--) {
+            if (shares[i] < goals.get(i).remaining) {
+                shares[i]++;
+                allocated++;
+            }
+        }
+        for (int i = shares.length - 1; i >= 0; i--) {
+            if (shares[i] > 0L) take(goals.get(i), shares[i], allocations);
+        }
+    }
+
+    private void allocateByPriority(long amount, List<GoalAllocation> allocations) {
+
+        long rest = amount;
+        while (rest > 0L && !index.isEmpty()) {
+            GoalCapacity first = index.first();
+            long share = Math.min(first.remaining, rest);
+            take(first, share, allocations);
+            rest -= share;
+        }
+    }
+
+    private void take(GoalCapacity goal, long amount, List<GoalAllocation> allocations) {
+
+        index.remove(goal);
+        goal.remaining -= amount;
+        totalCapacity -= amount;
+        if (goal.remaining > 0L) index.add(goal);
+        allocations.add(new GoalAllocation(goal.savingsGoalUid, new Amount(currency, amount)));
+    }
+
+    // amount * capacity / total, rounded down, without overflowing.
+    private static long share(long amount, long capacity, long total) {
+
+        try {
+            return Math.multiplyExact(amount, capacity) / total;
+        } catch (ArithmeticException e) {
+            return BigInteger.valueOf(amount).multiply(BigInteger.valueOf(capacity))
+                .divide(BigInteger.valueOf(total)).longValueExact();
+        }
+    }
+
+    private static final class GoalCapacity {
+
+        private final String savingsGoalUid;
+        private final int rank;
+        private long remaining;
+
+        private GoalCapacity(String savingsGoalUid, int rank, long remaining) {
+
+            this.savingsGoalUid = savingsGoalUid;
+            this.rank = rank;
+            this.remaining = remaining;
+        }
+    }
+}
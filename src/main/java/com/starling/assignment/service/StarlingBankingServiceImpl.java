@@ -1,14 +1,25 @@
 package com.starling.assignment.service;
 
+import com.starling.assignment.client.AsyncStarlingApiClient;
 import com.starling.assignment.client.StarlingApiClient;
 import com.starling.assignment.model.Account;
 import com.starling.assignment.model.Balance;
 import com.starling.assignment.model.SavingsGoal;
 import com.starling.assignment.model.Transaction;
 
+import java.util.Date;
 import java.util.List;
-
-public class StarlingBankingServiceImpl implements BankingService {
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link AsyncBankingService} backed by a {@link StarlingApiClient}. Asynchronous calls use the client's own
+ * non-blocking methods when it is an {@link AsyncStarlingApiClient}, and otherwise run its blocking methods on the
+ * common fork-join pool.
+ */
+public class StarlingBankingServiceImpl implements AsyncBankingService {
 
     private final StarlingApiClient apiClient;
 
@@ -23,30 +34,79 @@ public class StarlingBankingServiceImpl implements BankingService {
         return apiClient.getAccounts();
     }
 
+    @Override
+    public CompletableFuture<List<Account>> getAccountsAsync() {
+
+        return async(AsyncStarlingApiClient::getAccountsAsync, apiClient::getAccounts);
+    }
+
     @Override
     public Balance getAccountBalance(String accountUid) {
 
         return apiClient.getAccountBalance(accountUid);
     }
 
+    @Override
+    public CompletableFuture<Balance> getAccountBalanceAsync(String accountUid) {
+
+        return async(client -> client.getAccountBalanceAsync(accountUid),
+            () -> apiClient.getAccountBalance(accountUid));
+    }
+
     @Override
     public List<Transaction> getTransactions(String accountUid, String categoryUid) {
 
         return apiClient.getTransactionFeed(accountUid, categoryUid);
     }
 
+    @Override
+    public List<Transaction> getTransactions(String accountUid, String categoryUid, Date from, Date to) {
+
+        return apiClient.getTransactionFeed(accountUid, categoryUid, from, to);
+    }
+
+    @Override
+    public CompletableFuture<List<Transaction>> getTransactionsAsync(String accountUid, String categoryUid,
+                                                                     Date from, Date to) {
+
+        return async(client -> client.getTransactionFeedAsync(accountUid, categoryUid, from, to),
+            () -> apiClient.getTransactionFeed(accountUid, categoryUid, from, to));
+    }
+
+    @Override
+    public Flow.Publisher<Transaction> getTransactionsPublisher(String accountUid, String categoryUid, Date from,
+                                                                Date to) {
+
+        return (apiClient instanceof AsyncStarlingApiClient)
+            ? ((AsyncStarlingApiClient) apiClient).getTransactionFeedPublisher(accountUid, categoryUid, from, to)
+            : AsyncBankingService.super.getTransactionsPublisher(accountUid, categoryUid, from, to);
+    }
+
     @Override
     public List<SavingsGoal> getSavingsGoals(String accountUid) {
 
         return apiClient.getSavingsGoals(accountUid);
     }
 
+    @Override
+    public CompletableFuture<List<SavingsGoal>> getSavingsGoalsAsync(String accountUid) {
+
+        return async(client -> client.getSavingsGoalsAsync(accountUid), () -> apiClient.getSavingsGoals(accountUid));
+    }
+
     @Override
     public SavingsGoal getSavingsGoal(String accountUid, String savingsGoalUid) {
 
         return apiClient.getSavingsGoal(accountUid, savingsGoalUid);
     }
 
+    @Override
+    public CompletableFuture<SavingsGoal> getSavingsGoalAsync(String accountUid, String savingsGoalUid) {
+
+        return async(client -> client.getSavingsGoalAsync(accountUid, savingsGoalUid),
+            () -> apiClient.getSavingsGoal(accountUid, savingsGoalUid));
+    }
+
     @Override
     public String createSavingsGoal(String accountUid, BankingService.SavingsGoalRequest savingsGoalRequest) {
 
@@ -58,4 +118,18 @@ public class StarlingBankingServiceImpl implements BankingService {
 
         return apiClient.transferMoneyToSavingsGoal(accountUid, savingsGoalUid, transferUid, savingGoalAmount);
     }
+
+    @Override
+    public CompletableFuture<Boolean> transferMoneyToSavingsGoalAsync(String accountUid, String savingsGoalUid, String transferUid, BankingService.SavingsGoalAmount savingGoalAmount) {
+
+        return async(client -> client.transferMoneyToSavingsGoalAsync(accountUid, savingsGoalUid, transferUid, savingGoalAmount),
+            () -> apiClient.transferMoneyToSavingsGoal(accountUid, savingsGoalUid, transferUid, savingGoalAmount));
+    }
+
+    private <T> CompletableFuture<T> async(Function<AsyncStarlingApiClient, CompletableFuture<T>> asyncCall,
+                                           Supplier<T> blockingCall) {
+
+        return (apiClient instanceof AsyncStarlingApiClient)
+            ? asyncCall.apply((AsyncStarlingApiClient) apiClient) : CompletableFuture.supplyAsync(blockingCall);
+    }
 }
@@ -0,0 +1,459 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.RoundUp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Local, append-only journal of round-ups waiting to be transferred to savings-goals. Every record is forced to disk
+ * before the call that wrote it returns, so a round-up accepted by {@link #append(RoundUp)} survives a crash.
+ *
+ * Pending round-ups of the same account, savings-goal and currency are merged by {@link #prepareTransfers()} into one
+ * transfer, whose intent is journalled with a transfer UID derived from the merged round-ups before it is sent. A
+ * transfer that was prepared but not {@link #complete(JournaledTransfer) completed} when the process stopped is
+ * returned again, with the same UID, after a restart, so sending it again is idempotent on the API side. UIDs include
+ * a random id of the journal itself, so a journal that is deleted and recreated never reuses a UID.
+ *
+ * Failed attempts of a transfer are counted in the journal. A transfer that is not to be sent again is
+ * {@link #deadLetter(JournaledTransfer, String) dead-lettered}: it is no longer returned for sending, but is kept with
+ * the reason, for someone to look at, until the journal file is removed.
+ *
+ * Once {@link #close() closed}, the journal refuses every further write with an {@link IllegalStateException}.
+ *
+ * The journal is one text file with one record per line:
+ * <pre>
+ * J,journalUid,nextId                                                        header, written on compaction
+ * P,id,accountUid,savingsGoalUid,currency,minorUnits,startMillis,endMillis   pending round-up
+ * F,transferUid,accountUid,savingsGoalUid,currency,minorUnits,lastPendingId  transfer about to be sent
+ * D,transferUid                                                              transfer done
+ * A,transferUid,failedAttempts                                               transfer attempt failed
+ * X,transferUid,reason                                                       transfer dead-lettered
+ * </pre>
+ * It is rewritten with only the outstanding records when opened and by {@link #compact()}, using the same
+ * write-to-temporary-then-rename scheme as {@link FileRoundUpCheckpointStore}. A torn last line left by a crash is
+ * dropped at that point; its round-up had not been acknowledged.
+ */
+public class TransferJournal implements Closeable {
+
+    private static final String SEPARATOR = ",";
+    private static final String PENDING = "P";
+    private static final String FLUSHING = "F";
+    private static final String DONE = "D";
+    private static final String HEADER = "J";
+    private static final String FAILED = "A";
+    private static final String DEAD_LETTER = "X";
+
+    private final Path journalFile;
+    private final Map<Long, PendingRoundUp> pending = new LinkedHashMap<>();
+    private final Map<String, JournaledTransfer> outstanding = new LinkedHashMap<>();
+    private final Map<String, Integer> failedAttempts = new HashMap<>();
+    private final Map<String, DeadLetter> deadLetters = new LinkedHashMap<>();
+    private FileChannel channel;
+    private boolean closed;
+    private String journalUid;
+    private long nextId;
+
+    public TransferJournal(Path journalFile) {
+
+        this.journalFile = journalFile;
+        replay();
+        if (journalUid == null) journalUid = UUID.randomUUID().toString();
+        compact();
+    }
+
+    /**
+     * Journal a round-up to be transferred by a later {@link #prepareTransfers()}.
+     */
+    public synchronized void append(RoundUp roundUp) {
+
+        PendingRoundUp pendingRoundUp = new PendingRoundUp(nextId++, roundUp.getAccountUid(),
+            roundUp.getSavingsGoalUid(), roundUp.getAmount(), roundUp.getStart().getTime(), roundUp.getEnd().getTime());
+        write(pendingRoundUp.toRecord());
+        pending.put(pendingRoundUp.id, pendingRoundUp);
+    }
+
+    /**
+     * Merge the pending round-ups into one transfer per account, savings-goal and currency, and journal the intent to
+     * send each of them.
+     *
+     * @return every transfer not yet completed, including those prepared before a restart, oldest first
+     */
+    public synchronized List<JournaledTransfer> prepareTransfers() {
+
+        Map<String, List<PendingRoundUp>> groups = new LinkedHashMap<>();
+        for (PendingRoundUp pendingRoundUp : pending.values()) {
+            groups.computeIfAbsent(pendingRoundUp.groupKey(), key -> new ArrayList<>()).add(pendingRoundUp);
+        }
+
+        StringBuilder records = new StringBuilder();
+        List<JournaledTransfer> prepared = new ArrayList<>();
+        for (List<PendingRoundUp> group : groups.values()) {
+            PendingRoundUp first = group.get(0);
+            PendingRoundUp last = group.get(group.size() - 1);
+            Amount total = first.amount;
+            for (PendingRoundUp pendingRoundUp : group.subList(1, group.size())) {
+                total = total.add(pendingRoundUp.amount);
+            }
+            String transferUid = UUID.nameUUIDFromBytes(String.join(SEPARATOR, journalUid, first.accountUid,
+                first.savingsGoalUid, total.getCurrency(), String.valueOf(first.id), String.valueOf(last.id))
+                .getBytes(StandardCharsets.UTF_8)).toString();
+            JournaledTransfer transfer =
+                new JournaledTransfer(transferUid, first.accountUid, first.savingsGoalUid, total, last.id);
+            records.append(transfer.toRecord());
+            prepared.add(transfer);
+        }
+        if (prepared.isEmpty()) return new ArrayList<>(outstanding.values());
+
+        write(records.toString());
+        for (JournaledTransfer transfer : prepared) {
+            removePendingCoveredBy(transfer);
+            outstanding.put(transfer.getTransferUid(), transfer);
+        }
+        return new ArrayList<>(outstanding.values());
+    }
+
+    /**
+     * Record that the given transfer has been accepted by the API.
+     */
+    public synchronized void complete(JournaledTransfer transfer) {
+
+        if (outstanding.remove(transfer.getTransferUid()) == null) return;
+        failedAttempts.remove(transfer.getTransferUid());
+        write(DONE + SEPARATOR + transfer.getTransferUid() + "\n");
+    }
+
+    /**
+     * Record a failed attempt to send the given transfer, which stays outstanding.
+     *
+     * @return number of failed attempts of the transfer so far, including those before a restart
+     */
+    public synchronized int fail(JournaledTransfer transfer) {
+
+        String transferUid = transfer.getTransferUid();
+        if (!outstanding.containsKey(transferUid)) return 0;
+        int attempts = failedAttempts.merge(transferUid, 1, Integer::sum);
+        write(String.join(SEPARATOR, FAILED, transferUid, String.valueOf(attempts)) + "\n");
+        return attempts;
+    }
+
+    /**
+     * Stop sending the given transfer and keep it aside, with the reason, instead.
+     */
+    public synchronized void deadLetter(JournaledTransfer transfer, String reason) {
+
+        String transferUid = transfer.getTransferUid();
+        if (outstanding.remove(transferUid) == null) return;
+        failedAttempts.remove(transferUid);
+        DeadLetter deadLetter = new DeadLetter(transfer, reason);
+        deadLetters.put(transferUid, deadLetter);
+        write(deadLetter.toRecord());
+    }
+
+    /**
+     * @return transfers that were dead-lettered, oldest first
+     */
+    public synchronized List<JournaledTransfer> getDeadLetters() {
+
+        List<JournaledTransfer> transfers = new ArrayList<>();
+        deadLetters.values().forEach(deadLetter -> transfers.add(deadLetter.transfer));
+        return transfers;
+    }
+
+    /**
+     * @return number of journalled round-ups not yet merged into a transfer
+     */
+    public synchronized int getPendingCount() {
+
+        return pending.size();
+    }
+
+    /**
+     * @return number of transfers prepared but not yet completed
+     */
+    public synchronized int getOutstandingCount() {
+
+        return outstanding.size();
+    }
+
+    /**
+     * Rewrite the journal with only the records still needed, dropping completed transfers.
+     */
+    public synchronized void compact() {
+
+        ensureOpen();
+        StringBuilder records = new StringBuilder()
+            .append(String.join(SEPARATOR, HEADER, journalUid, String.valueOf(nextId))).append('\n');
+        for (JournaledTransfer transfer : outstanding.values()) {
+            records.append(transfer.toRecord());
+            Integer attempts = failedAttempts.get(transfer.getTransferUid());
+            if (attempts != null) {
+                records.append(String.join(SEPARATOR, FAILED, transfer.getTransferUid(), attempts.toString()))
+                    .append('\n');
+            }
+        }
+        deadLetters.values().forEach(deadLetter -> records.append(deadLetter.transfer.toRecord())
+            .append(deadLetter.toRecord()));
+        pending.values().forEach(pendingRoundUp -> records.append(pendingRoundUp.toRecord()));
+
+        try {
+            closeChannel();
+            Path directory = journalFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporaryFile = Files.createTempFile(directory, journalFile.getFileName().toString(), ".tmp");
+            try (FileChannel temporary = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                writeFully(temporary, records.toString());
+                temporary.force(true);
+            }
+            Files.move(temporaryFile, journalFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact transfer journal " + journalFile, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+
+        closed = true;
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close transfer journal " + journalFile, e);
+        }
+    }
+
+    private void replay() {
+
+        if (!Files.exists(journalFile)) return;
+
+        String content;
+        try {
+            content = new String(Files.readAllBytes(journalFile), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read transfer journal " + journalFile, e);
+        }
+
+        // Only newline-terminated records are complete; anything after the last newline is a torn write.
+        int end = content.lastIndexOf('\n');
+        for (String record : content.substring(0, end + 1).split("\n")) {
+            if (!record.isEmpty()) replay(record.split(SEPARATOR, -1));
+        }
+    }
+
+    private void replay(String[] fields) {
+
+        switch (fields[0]) {
+            case PENDING:
+                PendingRoundUp pendingRoundUp = PendingRoundUp.fromRecord(fields);
+                pending.put(pendingRoundUp.id, pendingRoundUp);
+                nextId = Math.max(nextId, pendingRoundUp.id + 1);
+                break;
+            case FLUSHING:
+                JournaledTransfer transfer = JournaledTransfer.fromRecord(fields);
+                removePendingCoveredBy(transfer);
+                outstanding.put(transfer.getTransferUid(), transfer);
+                nextId = Math.max(nextId, transfer.lastPendingId + 1);
+                break;
+            case DONE:
+                outstanding.remove(fields[1]);
+                failedAttempts.remove(fields[1]);
+                break;
+            case FAILED:
+                if (outstanding.containsKey(fields[1])) failedAttempts.put(fields[1], Integer.parseInt(fields[2]));
+                break;
+            case DEAD_LETTER:
+                JournaledTransfer deadTransfer = outstanding.remove(fields[1]);
+                failedAttempts.remove(fields[1]);
+                // The reason may itself contain separators.
+                String reason = String.join(SEPARATOR, Arrays.asList(fields).subList(2, fields.length));
+                if (deadTransfer != null) deadLetters.put(fields[1], new DeadLetter(deadTransfer, reason));
+                break;
+            case HEADER:
+                journalUid = fields[1];
+                nextId = Math.max(nextId, Long.parseLong(fields[2]));
+                break;
+            default:
+                throw new RuntimeException("Malformed transfer journal record in " + journalFile + ": "
+                    + String.join(SEPARATOR, fields));
+        }
+    }
+
+    private void removePendingCoveredBy(JournaledTransfer transfer) {
+
+        Iterator<PendingRoundUp> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            PendingRoundUp pendingRoundUp = iterator.next();
+            if (pendingRoundUp.id <= transfer.lastPendingId && pendingRoundUp.groupKey().equals(transfer.groupKey())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void write(String records) {
+
+        ensureOpen();
+        try {
+            writeFully(channel, records);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write transfer journal " + journalFile, e);
+        }
+    }
+
+    private void ensureOpen() {
+
+        if (closed) throw new IllegalStateException("Transfer journal " + journalFile + " is closed.");
+    }
+
+    private void closeChannel() throws IOException {
+
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, String records) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static String groupKey(String accountUid, String savingsGoalUid, String currency) {
+
+        return accountUid + SEPARATOR + savingsGoalUid + SEPARATOR + currency;
+    }
+
+    /**
+     * A merged transfer of one or more journalled round-ups to a savings-goal.
+     */
+    public static final class JournaledTransfer {
+
+        private final String transferUid;
+        private final String accountUid;
+        private final String savingsGoalUid;
+        private final Amount amount;
+        private final long lastPendingId;
+
+        JournaledTransfer(String transferUid, String accountUid, String savingsGoalUid, Amount amount,
+                          long lastPendingId) {
+
+            this.transferUid = transferUid;
+            this.accountUid = accountUid;
+            this.savingsGoalUid = savingsGoalUid;
+            this.amount = amount;
+            this.lastPendingId = lastPendingId;
+        }
+
+        public String getTransferUid() {
+            return transferUid;
+        }
+
+        public String getAccountUid() {
+            return accountUid;
+        }
+
+        public String getSavingsGoalUid() {
+            return savingsGoalUid;
+        }
+
+        public Amount getAmount() {
+            return amount;
+        }
+
+        private String groupKey() {
+
+            return TransferJournal.groupKey(accountUid, savingsGoalUid, amount.getCurrency());
+        }
+
+        private String toRecord() {
+
+            return String.join(SEPARATOR, FLUSHING, transferUid, accountUid, savingsGoalUid, amount.getCurrency(),
+                String.valueOf(amount.getMinorUnits()), String.valueOf(lastPendingId)) + "\n";
+        }
+
+        private static JournaledTransfer fromRecord(String[] fields) {
+
+            return new JournaledTransfer(fields[1], fields[2], fields[3],
+                new Amount(fields[4], Long.parseLong(fields[5])), Long.parseLong(fields[6]));
+        }
+    }
+
+    private static final class DeadLetter {
+
+        private final JournaledTransfer transfer;
+        private final String reason;
+
+        private DeadLetter(JournaledTransfer transfer, String reason) {
+
+            this.transfer = transfer;
+            // The reason is the last field of its record, so it must not end the line.
+            this.reason = (reason == null) ? "" : reason.replaceAll("[\r\n]+", " ");
+        }
+
+        private String toRecord() {
+
+            return String.join(SEPARATOR, DEAD_LETTER, transfer.getTransferUid(), reason) + "\n";
+        }
+    }
+
+    private static final class PendingRoundUp {
+
+        private final long id;
+        private final String accountUid;
+        private final String savingsGoalUid;
+        private final Amount amount;
+        private final long startMillis;
+        private final long endMillis;
+
+        private PendingRoundUp(long id, String accountUid, String savingsGoalUid, Amount amount, long startMillis,
+                               long endMillis) {
+
+            this.id = id;
+            this.accountUid = accountUid;
+            this.savingsGoalUid = savingsGoalUid;
+            this.amount = amount;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        private String groupKey() {
+
+            return TransferJournal.groupKey(accountUid, savingsGoalUid, amount.getCurrency());
+        }
+
+        private String toRecord() {
+
+            return String.join(SEPARATOR, PENDING, String.valueOf(id), accountUid, savingsGoalUid,
+                amount.getCurrency(), String.valueOf(amount.getMinorUnits()), String.valueOf(startMillis),
+                String.valueOf(endMillis)) + "\n";
+        }
+
+        private static PendingRoundUp fromRecord(String[] fields) {
+
+            return new PendingRoundUp(Long.parseLong(fields[1]), fields[2], fields[3],
+                new Amount(fields[4], Long.parseLong(fields[5])), Long.parseLong(fields[6]), Long.parseLong(fields[7]));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.client.StarlingApiException;
+import com.starling.assignment.model.RoundUp;
+import com.starling.assignment.service.TransferJournal.JournaledTransfer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends round-ups to their savings-goals in batches instead of one transfer per round-up. Round-ups handed to
+ * {@link #submit(RoundUp)} are written to a {@link TransferJournal} and sent every flush interval, merged into one
+ * transfer per account and savings-goal.
+ *
+ * Delivery is at-least-once: a transfer that fails, times out or is interrupted by a crash is sent again at the next
+ * flush with the same transfer UID, which the API treats as the same transfer. A transfer the API rejects, by not
+ * accepting it or with a 4xx status other than 408 and 429, is dead-lettered in the journal at once, and so is one
+ * that has failed {@code maxAttempts} times, rather than being sent at every flush forever.
+ */
+public class TransferPipeline {
+
+    /**
+     * Attempts of a transfer before it is dead-lettered, unless given.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private static final int REQUEST_TIMEOUT = 408;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final BankingService bankingService;
+    private final TransferJournal journal;
+    private final Duration flushInterval;
+    private final int maxAttempts;
+    private final ScheduledExecutorService scheduler;
+
+    public TransferPipeline(BankingService bankingService, TransferJournal journal, Duration flushInterval) {
+
+        this(bankingService, journal, flushInterval, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    public TransferPipeline(BankingService bankingService, TransferJournal journal, Duration flushInterval,
+                            int maxAttempts) {
+
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("flushInterval must be positive");
+        }
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be at least 1");
+
+        this.bankingService = bankingService;
+        this.journal = journal;
+        this.flushInterval = flushInterval;
+        this.maxAttempts = maxAttempts;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transfer-pipeline-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start flushing every flush interval. Transfers left over from before a restart are sent by the first flush.
+     */
+    public void start() {
+
+        long intervalMillis = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Journal a round-up for the next flush. Once this returns the round-up will be transferred, even if the process
+     * stops before then.
+     *
+     * @throws IllegalStateException if the pipeline has been shut down
+     */
+    public void submit(RoundUp roundUp) {
+
+        journal.append(roundUp);
+    }
+
+    /**
+     * Merge the journalled round-ups and send every outstanding transfer.
+     *
+     * @return number of transfers accepted by the API
+     */
+    public synchronized int flush() {
+
+        int transferred = 0;
+        for (JournaledTransfer transfer : journal.prepareTransfers()) {
+            boolean accepted;
+            try {
+                accepted = bankingService.transferMoneyToSavingsGoal(transfer.getAccountUid(),
+                    transfer.getSavingsGoalUid(), transfer.getTransferUid(),
+                    new BankingService.SavingsGoalAmount(transfer.getAmount()));
+            } catch (RuntimeException e) {
+                if (!isRetryable(e)) {
+                    deadLetter(transfer, "rejected: " + e.getMessage());
+                } else if (journal.fail(transfer) >= maxAttempts) {
+                    deadLetter(transfer, "failed " + maxAttempts + " times, last: " + e.getMessage());
+                } else {
+                    log(String.format("Transfer %s failed, will retry: %s", transfer.getTransferUid(),
+                        e.getMessage()));
+                }
+                continue;
+            }
+
+            if (accepted) {
+                journal.complete(transfer);
+                transferred++;
+                log(String.format("Account %s: transferred %s to savings-goal %s.", transfer.getAccountUid(),
+                    transfer.getAmount().getDisplayValue(), transfer.getSavingsGoalUid()));
+            } else {
+                deadLetter(transfer, "not accepted by the API");
+            }
+        }
+        journal.compact();
+        return transferred;
+    }
+
+    /**
+     * Stop the periodic flush, send what is left once more and close the journal. Anything still not transferred
+     * stays in the journal for the next start.
+     */
+    public void shutdown() {
+
+        // A flush already running holds the lock, so the final flush starts after it.
+        scheduler.shutdown();
+        flushQuietly();
+        journal.close();
+    }
+
+    private void deadLetter(JournaledTransfer transfer, String reason) {
+
+        journal.deadLetter(transfer, reason);
+        log(String.format("Account %s: transfer %s of %s to savings-goal %s dead-lettered, %s.",
+            transfer.getAccountUid(), transfer.getTransferUid(), transfer.getAmount().getDisplayValue(),
+            transfer.getSavingsGoalUid(), reason));
+    }
+
+    // Failures without a response, timeouts, throttling and server errors may pass; other client errors will not.
+    private static boolean isRetryable(RuntimeException e) {
+
+        if (!(e instanceof StarlingApiException)) return true;
+        int statusCode = ((StarlingApiException) e).getStatusCode();
+        return statusCode == 0 || statusCode == REQUEST_TIMEOUT || statusCode == TOO_MANY_REQUESTS
+            || statusCode >= 500;
+    }
+
+    private void flushQuietly() {
+
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log("Transfer flush failed: " + e.getMessage());
+        }
+    }
+
+    private static void log(String message) {
+
+        System.out.println(Instant.now() + " " + message);
+    }
+}
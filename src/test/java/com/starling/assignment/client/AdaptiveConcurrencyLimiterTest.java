@@ -0,0 +1,62 @@
+package com.starling.assignment.client;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(50).toNanos();
+    private static final long SLOW = Duration.ofSeconds(5).toNanos();
+
+    private final AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(4, 1, 8, Duration.ofSeconds(1), 0.5d);
+
+    @Test
+    public void limit_grows_additively_while_fast_and_fully_used() throws Exception {
+
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < limiter.getLimit(); j++) limiter.acquire();
+            for (int j = limiter.getInFlight(); j > 0; j--) limiter.onSuccess(FAST);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(8);
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void limit_is_cut_on_rejection_and_slow_responses_down_to_minimum() throws Exception {
+
+        limiter.acquire();
+        limiter.onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        limiter.acquire();
+        limiter.onSuccess(SLOW);
+        assertThat(limiter.getLimit()).isEqualTo(1);
+
+        limiter.acquire();
+        limiter.onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    public void listener_follows_every_change_of_the_whole_number_limit() throws Exception {
+
+        List<Integer> limits = new ArrayList<>();
+        limiter.setLimitListener(limits::add);
+
+        limiter.acquire();
+        limiter.onDropped();
+        limiter.acquire();
+        limiter.onSuccess(FAST);
+        limiter.acquire();
+        limiter.onSuccess(SLOW);
+
+        assertThat(limits).containsExactly(4, 2, 1);
+    }
+}
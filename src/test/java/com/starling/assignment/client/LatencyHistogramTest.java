@@ -0,0 +1,76 @@
+package com.starling.assignment.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void percentiles_are_within_bucket_precision() {
+
+        for (long value = 1L; value <= 100_000L; value++) {
+            histogram.record(value * 1_000L);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100_000L);
+        assertThat(histogram.getMax()).isEqualTo(100_000_000L);
+        assertWithinPrecision(histogram.getValueAtQuantile(0.5d), 50_000_000L);
+        assertWithinPrecision(histogram.getValueAtQuantile(0.99d), 99_000_000L);
+        assertWithinPrecision(histogram.getValueAtQuantile(0.999d), 99_900_000L);
+        assertThat(histogram.getValueAtQuantile(1d)).isEqualTo(100_000_000L);
+    }
+
+    @Test
+    public void small_values_are_exact_and_large_values_share_last_bucket() {
+
+        histogram.record(7L);
+        histogram.record(Long.MAX_VALUE);
+
+        assertThat(histogram.getValueAtQuantile(0.5d)).isEqualTo(7L);
+        assertThat(LatencyHistogram.bucketOf(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.bucketOf(1L << 43));
+        assertThat(histogram.getValueAtQuantile(1d)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void every_value_falls_in_a_bucket_whose_highest_value_is_not_below_it() {
+
+        for (long value = 0L; value < 1L << 20; value += 7L) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertThat(LatencyHistogram.highestValueOf(bucket)).isGreaterThanOrEqualTo(value);
+            if (bucket > 0) assertThat(LatencyHistogram.highestValueOf(bucket - 1)).isLessThan(value);
+        }
+    }
+
+    @Test
+    public void concurrent_recording_loses_no_values() throws Exception {
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(400_000L);
+        assertThat(histogram.getMax()).isEqualTo(99_999L);
+        assertThat(histogram.getValueAtQuantile(1d)).isEqualTo(99_999L);
+    }
+
+    private static void assertWithinPrecision(long actual, long expected) {
+
+        assertThat(actual).isBetween(expected, expected + expected / 32L);
+    }
+}
@@ -0,0 +1,75 @@
+package com.starling.assignment.client;
+
+import com.google.gson.Gson;
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.service.BankingService;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ModelTypeAdaptersTest {
+
+    @Test
+    public void accounts_are_read_without_reflection_and_unknown_fields_skipped() throws Exception {
+
+        String json = "{\"accounts\":[{\"accountUid\":\"a1\",\"accountType\":\"PRIMARY\",\"defaultCategory\":\"c1\","
+            + "\"currency\":\"GBP\",\"createdAt\":\"2019-01-01T10:00:00.000Z\",\"name\":null}]}";
+
+        List<Account> accounts = ModelTypeAdapters.readList(new StringReader(json), "accounts",
+            ModelTypeAdapters.ACCOUNT);
+
+        assertThat(accounts).hasSize(1);
+        assertThat(accounts.get(0).getAccountUid()).isEqualTo("a1");
+        assertThat(accounts.get(0).getDefaultCategory()).isEqualTo("c1");
+        assertThat(accounts.get(0).getCurrency()).isEqualTo("GBP");
+        assertThat(accounts.get(0).getCreatedAt().getTime()).isEqualTo(1546336800000L);
+    }
+
+    @Test
+    public void savings_goals_and_balance_are_read() throws Exception {
+
+        String goals = "{\"savingsGoalList\":[{\"savingsGoalUid\":\"g1\",\"name\":\"Trip\","
+            + "\"target\":{\"currency\":\"GBP\",\"minorUnits\":10000},"
+            + "\"totalSaved\":{\"currency\":\"GBP\",\"minorUnits\":2500},\"savedPercentage\":25}]}";
+        String balance = "{\"clearedBalance\":{\"currency\":\"GBP\",\"minorUnits\":1},"
+            + "\"amount\":{\"currency\":\"GBP\",\"minorUnits\":4321}}";
+
+        List<SavingsGoal> savingsGoals = ModelTypeAdapters.readList(new StringReader(goals), "savingsGoalList",
+            ModelTypeAdapters.SAVINGS_GOAL);
+        Balance accountBalance = ModelTypeAdapters.read(new StringReader(balance), ModelTypeAdapters.BALANCE);
+
+        assertThat(savingsGoals).hasSize(1);
+        assertThat(savingsGoals.get(0).getName()).isEqualTo("Trip");
+        assertThat(savingsGoals.get(0).getTarget().getMinorUnits()).isEqualTo(10000L);
+        assertThat(savingsGoals.get(0).getTotalSaved().getMinorUnits()).isEqualTo(2500L);
+        assertThat(accountBalance.getAmount().getMinorUnits()).isEqualTo(4321L);
+    }
+
+    @Test
+    public void request_amounts_are_written_with_registered_adapter() {
+
+        Gson gson = ModelTypeAdapters.gson();
+
+        String json = gson.toJson(new BankingService.SavingsGoalAmount(new Amount("GBP", 158L)));
+
+        assertThat(json).isEqualTo("{\"amount\":{\"currency\":\"GBP\",\"minorUnits\":158}}");
+    }
+
+    @Test
+    public void timestamps_match_offset_date_time_parsing() {
+
+        String[] timestamps = {"2019-05-01T12:34:56.789Z", "2019-05-01T12:34:56Z", "2019-05-01T12:34:56.7+01:00",
+            "2020-02-29T23:59:59.123456789-05:30", "1969-12-31T23:59:59.999Z", "2019-05-01T12:34Z"};
+
+        for (String timestamp : timestamps) {
+            assertThat(Iso8601.parseEpochMillis(timestamp)).isEqualTo(OffsetDateTime.parse(timestamp).toInstant().toEpochMilli());
+        }
+    }
+}
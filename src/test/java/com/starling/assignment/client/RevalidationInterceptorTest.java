@@ -0,0 +1,54 @@
+package com.starling.assignment.client;
+
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RevalidationInterceptorTest {
+
+    private final RevalidationInterceptor interceptor = new RevalidationInterceptor();
+    private final Request request = new Request.Builder()
+        .url("https://api.starlingbank.com/api/v2/accounts")
+        .tag(Endpoint.class, Endpoint.ACCOUNTS)
+        .get()
+        .build();
+
+    @Test
+    public void every_revalidation_in_a_row_keeps_the_response_revalidated_before_use() throws Exception {
+
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(request);
+        when(chain.proceed(any())).thenReturn(response(200, "OK"), response(304, "Not Modified"),
+            response(304, "Not Modified"));
+
+        for (int i = 0; i < 3; i++) {
+            Response response = interceptor.intercept(chain);
+
+            assertThat(response.header("Cache-Control")).isEqualTo("no-cache");
+            assertThat(response.header("Expires")).isNull();
+            assertThat(response.header("ETag")).isEqualTo("\"v1\"");
+        }
+        assertThat(interceptor.getNotModifiedCount()).isEqualTo(2L);
+    }
+
+    // Server response that would make the cached copy fresh for an hour if stored as it is.
+    private Response response(int code, String message) {
+
+        return new Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message(message)
+            .header("ETag", "\"v1\"")
+            .header("Cache-Control", "private, max-age=3600")
+            .header("Expires", "Thu, 01 Jan 2099 00:00:00 GMT")
+            .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.starling.assignment.client;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TrafficControlInterceptorTest {
+
+    private final AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(4, 1, 8, Duration.ofSeconds(1), 0.5d);
+    private final Request request = new Request.Builder()
+        .url("https://api.starlingbank.com/api/v2/accounts")
+        .tag(Endpoint.class, Endpoint.ACCOUNTS)
+        .get()
+        .build();
+    private final Interceptor.Chain chain = mock(Interceptor.Chain.class);
+
+    @Before
+    public void beforeTest() {
+
+        when(chain.request()).thenReturn(request);
+        when(chain.call()).thenReturn(mock(Call.class));
+    }
+
+    @Test
+    public void throttled_trial_request_does_not_leave_the_circuit_half_open() throws Exception {
+
+        TrafficControlInterceptor interceptor = new TrafficControlInterceptor(limiter,
+            new RetryPolicy(1, Duration.ofMillis(1), Duration.ofMillis(10)), 1, Duration.ZERO);
+        when(chain.proceed(any())).thenReturn(response(500, null), response(429, null), response(200, null));
+
+        interceptor.intercept(chain).close();
+        interceptor.intercept(chain).close();
+        Response response = interceptor.intercept(chain);
+
+        assertThat(response.code()).isEqualTo(200);
+    }
+
+    @Test
+    public void retry_after_longer_than_the_maximum_delay_returns_the_response_without_retrying() throws Exception {
+
+        TrafficControlInterceptor interceptor = new TrafficControlInterceptor(limiter,
+            new RetryPolicy(4, Duration.ofMillis(1), Duration.ofMillis(10)), 5, Duration.ofSeconds(30));
+        when(chain.proceed(any())).thenReturn(response(503, "120"));
+
+        Response response = interceptor.intercept(chain);
+
+        assertThat(response.code()).isEqualTo(503);
+        verify(chain, times(1)).proceed(any());
+    }
+
+    @Test
+    public void limiter_slot_is_held_until_the_response_body_is_closed() throws Exception {
+
+        TrafficControlInterceptor interceptor = new TrafficControlInterceptor(limiter,
+            new RetryPolicy(4, Duration.ofMillis(1), Duration.ofMillis(10)), 5, Duration.ofSeconds(30));
+        when(chain.proceed(any())).thenReturn(response(200, null));
+
+        Response response = interceptor.intercept(chain);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+
+        response.close();
+        response.close();
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+    }
+
+    private Response response(int code, String retryAfter) {
+
+        Response.Builder builder = new Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("status " + code)
+            .body(ResponseBody.create(MediaType.get("application/json"), "{}"));
+        if (retryAfter != null) builder.header("Retry-After", retryAfter);
+        return builder.build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.starling.assignment.client;
+
+import com.starling.assignment.model.Transaction;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransactionFeedReaderTest {
+
+    private static final String FEED = "{\"feedItems\":["
+        + "{\"feedItemUid\":\"11221122-1122-1122-1122-112211221122\",\"categoryUid\":\"ccddccdd-ccdd-ccdd-ccdd-ccddccddccdd\","
+        + "\"amount\":{\"currency\":\"GBP\",\"minorUnits\":1234},"
+        + "\"sourceAmount\":{\"currency\":\"GBP\",\"minorUnits\":1234},"
+        + "\"direction\":\"OUT\",\"updatedAt\":\"2019-05-02T10:00:00.000Z\","
+        + "\"transactionTime\":\"2019-05-01T12:34:56.789Z\",\"settlementTime\":\"2019-05-02T10:00:00.000Z\","
+        + "\"source\":\"MASTER_CARD\",\"sourceSubType\":\"CONTACTLESS\",\"status\":\"SETTLED\","
+        + "\"counterPartyType\":\"MERCHANT\",\"counterPartyName\":\"Coffee\",\"reference\":null,"
+        + "\"roundUp\":{\"goalCategoryUid\":\"x\",\"amount\":{\"currency\":\"GBP\",\"minorUnits\":66}}},"
+        + "{\"feedItemUid\":\"33443344-3344-3344-3344-334433443344\","
+        + "\"amount\":{\"currency\":\"GBP\",\"minorUnits\":500},"
+        + "\"direction\":\"IN\",\"transactionTime\":\"2019-05-03T08:00:00Z\","
+        + "\"source\":\"FASTER_PAYMENTS_IN\",\"status\":\"UPCOMING\"}"
+        + "]}";
+
+    @Test
+    public void feed_items_are_decoded_with_round_up_fields() throws Exception {
+
+        List<Transaction> transactions = TransactionFeedReader.readFeedItems(new StringReader(FEED), "category");
+
+        assertThat(transactions).hasSize(2);
+
+        Transaction first = transactions.get(0);
+        assertThat(first.getFeedItemUid()).isEqualTo("11221122-1122-1122-1122-112211221122");
+        assertThat(first.getCategoryUid()).isEqualTo("category");
+        assertThat(first.getAmount().getCurrency()).isEqualTo("GBP");
+        assertThat(first.getAmount().getMinorUnits()).isEqualTo(1234L);
+        assertThat(first.getTransactionTime()).isEqualTo(Date.from(Instant.parse("2019-05-01T12:34:56.789Z")));
+        assertThat(first.getDirection()).isEqualTo(Transaction.Direction.OUT);
+        assertThat(first.getStatus()).isEqualTo(Transaction.Status.SETTLED);
+        assertThat(first.getSource()).isEqualTo("MASTER_CARD");
+    }
+
+    @Test
+    public void unknown_enum_values_are_decoded_as_null() throws Exception {
+
+        List<Transaction> transactions = TransactionFeedReader.readFeedItems(new StringReader(FEED), "category");
+
+        Transaction second = transactions.get(1);
+        assertThat(second.getDirection()).isEqualTo(Transaction.Direction.IN);
+        assertThat(second.getStatus()).isNull();
+    }
+
+    @Test
+    public void missing_feed_items_returns_empty_list() throws Exception {
+
+        List<Transaction> transactions = TransactionFeedReader.readFeedItems(new StringReader("{}"), "category");
+
+        assertThat(transactions).isEmpty();
+    }
+}
@@ -0,0 +1,316 @@
+package com.starling.assignment.daemon;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.GoalAllocation;
+import com.starling.assignment.model.IncrementalRoundUp;
+import com.starling.assignment.model.RoundUp;
+import com.starling.assignment.model.SavingsGoal;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.service.BankingService;
+import com.starling.assignment.service.RoundUpService;
+import com.starling.assignment.service.SavingsGoalAllocator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(value = MockitoJUnitRunner.class)
+public class RoundUpDaemonTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2019-05-08T09:30:00Z"), ZoneOffset.UTC);
+    private static final Date FROM = Date.from(Instant.parse("2019-05-01T00:00:00Z"));
+    private static final Date TO = Date.from(Instant.parse("2019-05-08T00:00:00Z"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private BankingService bankingService;
+
+    @Mock
+    private RoundUpService roundUpService;
+
+    private final Account account = new Account("account", "category", "GBP", new Date());
+    private final Amount roundUpAmount = new Amount("GBP", 158L);
+    private final IncrementalRoundUp incrementalRoundUp = new IncrementalRoundUp(roundUpAmount, null);
+
+    @Test
+    public void round_up_is_transferred_to_configured_savings_goal() {
+
+        RoundUp roundUp = new RoundUp(roundUpAmount, "account", "goal", FROM, TO);
+        when(roundUpService.calculateIncrementalRoundUp(account, FROM, TO)).thenReturn(incrementalRoundUp);
+        when(roundUpService.transferRoundUpToSavingsGoal(eq(account), eq(roundUpAmount), eq(FROM), eq(TO), eq("goal"),
+            anyString())).thenReturn(roundUp);
+
+        RoundUpDaemon daemon = daemon(config(null, Collections.singletonMap("account", "goal")));
+
+        assertThat(daemon.runRoundUp(account)).containsExactly(roundUp);
+        verify(roundUpService).saveCheckpoint(incrementalRoundUp);
+    }
+
+    @Test
+    public void first_eligible_savings_goal_is_used_when_configured() {
+
+        SavingsGoal goal = new SavingsGoal("eligible", "Trip", new Amount("GBP", 10000L), new Amount("GBP", 0L));
+        when(roundUpService.calculateIncrementalRoundUp(account, FROM, TO)).thenReturn(incrementalRoundUp);
+        when(roundUpService.fetchSavingsGoalsForAmount("account", roundUpAmount))
+            .thenReturn(Collections.singletonList(goal));
+
+        RoundUp roundUp = new RoundUp(roundUpAmount, "account", "eligible", FROM, TO);
+        when(roundUpService.transferRoundUpToSavingsGoal(eq(account), eq(roundUpAmount), eq(FROM), eq(TO),
+            eq("eligible"), anyString())).thenReturn(roundUp);
+
+        assertThat(daemon(config(DaemonConfig.FIRST_ELIGIBLE, Collections.emptyMap())).runRoundUp(account))
+            .containsExactly(roundUp);
+    }
+
+    @Test
+    public void round_up_is_not_calculated_without_savings_goal() {
+
+        List<RoundUp> roundUps = daemon(config(null, Collections.emptyMap())).runRoundUp(account);
+
+        assertThat(roundUps).isEmpty();
+        verify(roundUpService, never()).calculateIncrementalRoundUp(any(), any(), any());
+        verify(roundUpService, never()).saveCheckpoint(any());
+    }
+
+    @Test
+    public void checkpoint_is_not_saved_when_no_savings_goal_is_eligible() {
+
+        when(roundUpService.calculateIncrementalRoundUp(account, FROM, TO)).thenReturn(incrementalRoundUp);
+        when(roundUpService.fetchSavingsGoalsForAmount("account", roundUpAmount)).thenReturn(Collections.emptyList());
+
+        List<RoundUp> roundUps =
+            daemon(config(DaemonConfig.FIRST_ELIGIBLE, Collections.emptyMap())).runRoundUp(account);
+
+        assertThat(roundUps).isEmpty();
+        verify(roundUpService, never())
+            .transferRoundUpToSavingsGoal(any(), any(), any(), any(), anyString(), anyString());
+        verify(roundUpService, never()).saveCheckpoint(any());
+    }
+
+    @Test
+    public void partly_failed_round_up_only_transfers_what_is_missing_on_the_next_run() {
+
+        when(roundUpService.calculateIncrementalRoundUp(account, FROM, TO)).thenReturn(incrementalRoundUp);
+        when(roundUpService.allocateRoundUp(eq("account"), any(), eq(SavingsGoalAllocator.Policy.PRIORITY)))
+            .thenReturn(Arrays.asList(allocation("first", 100L), allocation("second", 58L)))
+            .thenReturn(Collections.singletonList(allocation("second", 58L)));
+        RoundUp first = new RoundUp(new Amount("GBP", 100L), "account", "first", FROM, TO);
+        RoundUp second = new RoundUp(new Amount("GBP", 58L), "account", "second", FROM, TO);
+        when(roundUpService.transferRoundUpToSavingsGoal(eq(account), any(), eq(FROM), eq(TO), eq("first"),
+            anyString())).thenReturn(first);
+        when(roundUpService.transferRoundUpToSavingsGoal(eq(account), any(), eq(FROM), eq(TO), eq("second"),
+            anyString())).thenReturn(null).thenReturn(second);
+        RoundUpDaemon daemon = daemon(config(DaemonConfig.PRIORITY, Collections.emptyMap()));
+
+        assertThatThrownBy(() -> daemon.runRoundUp(account)).isInstanceOf(RuntimeException.class);
+        verify(roundUpService, never()).saveCheckpoint(any());
+
+        assertThat(daemon.runRoundUp(account)).containsExactly(second);
+        verify(roundUpService).allocateRoundUp(eq("account"), argThat(amount -> amount.getMinorUnits() == 58L),
+            eq(SavingsGoalAllocator.Policy.PRIORITY));
+        verify(roundUpService, times(1)).transferRoundUpToSavingsGoal(eq(account), any(), eq(FROM), eq(TO),
+            eq("first"), anyString());
+        verify(roundUpService).saveCheckpoint(incrementalRoundUp);
+    }
+
+    @Test
+    public void round_up_beyond_the_room_left_in_savings_goals_is_left_to_the_next_run() {
+
+        when(roundUpService.calculateIncrementalRoundUp(account, FROM, TO)).thenReturn(incrementalRoundUp);
+        when(roundUpService.allocateRoundUp(eq("account"), any(), eq(SavingsGoalAllocator.Policy.BEST_FIT)))
+            .thenReturn(Collections.singletonList(allocation("goal", 100L)))
+            .thenReturn(Collections.emptyList());
+        RoundUp roundUp = new RoundUp(new Amount("GBP", 100L), "account", "goal", FROM, TO);
+        when(roundUpService.transferRoundUpToSavingsGoal(eq(account), any(), eq(FROM), eq(TO), eq("goal"),
+            anyString())).thenReturn(roundUp);
+        RoundUpDaemon daemon = daemon(config(DaemonConfig.BEST_FIT, Collections.emptyMap()));
+
+        assertThat(daemon.runRoundUp(account)).containsExactly(roundUp);
+        assertThat(daemon.runRoundUp(account)).isEmpty();
+
+        verify(roundUpService).allocateRoundUp(eq("account"), argThat(amount -> amount.getMinorUnits() == 58L),
+            eq(SavingsGoalAllocator.Policy.BEST_FIT));
+        verify(roundUpService, never()).saveCheckpoint(any());
+    }
+
+    @Test
+    public void transactions_are_only_marked_counted_once_their_round_up_is_transferred() {
+
+        Date from = Date.from(Instant.parse("2019-05-07T00:00:00Z"));
+        List<Transaction> transactions = Collections.singletonList(mock(Transaction.class));
+        when(roundUpService.getTransactions(account, from, TO)).thenReturn(transactions);
+        when(roundUpService.selectUncounted(account, transactions)).thenReturn(transactions);
+        when(roundUpService.calculateRoundUp(transactions, "GBP")).thenReturn(roundUpAmount);
+        RoundUp roundUp = new RoundUp(roundUpAmount, "account", "goal", from, TO);
+        when(roundUpService.transferRoundUpToSavingsGoal(eq(account), any(), eq(from), eq(TO), eq("goal"),
+            anyString())).thenReturn(null).thenReturn(roundUp);
+        RoundUpDaemon daemon = daemon(new DaemonConfig(Duration.ofHours(24), Duration.ZERO, 1L, false, 2, 4,
+            Duration.ofSeconds(5), "goal", Collections.emptyMap()));
+
+        assertThatThrownBy(() -> daemon.runRoundUp(account)).isInstanceOf(RuntimeException.class);
+        verify(roundUpService, never()).markCounted(any(), any());
+
+        // The window is not moved on either, so the same transactions are counted again.
+        assertThat(daemon.runRoundUp(account)).containsExactly(roundUp);
+        verify(roundUpService, times(2)).getTransactions(account, from, TO);
+        verify(roundUpService).markCounted(account, transactions);
+    }
+
+    @Test
+    public void window_starts_where_the_last_transferred_window_ended() {
+
+        Date skippedDay = Date.from(Instant.parse("2019-05-09T00:00:00Z"));
+        Date nextTo = Date.from(Instant.parse("2019-05-10T00:00:00Z"));
+        List<Transaction> transactions = Collections.emptyList();
+        when(roundUpService.getTransactions(eq(account), any(), any())).thenReturn(transactions);
+        when(roundUpService.selectUncounted(account, transactions)).thenReturn(transactions);
+        when(roundUpService.calculateRoundUp(transactions, "GBP")).thenReturn(new Amount("GBP", 0L));
+        DaemonConfig config = new DaemonConfig(Duration.ofHours(24), Duration.ZERO, 1L, false, 2, 4,
+            Duration.ofSeconds(5), "goal", Collections.emptyMap());
+        SettableClock clock = new SettableClock(CLOCK.instant());
+        RoundUpDaemon daemon = new RoundUpDaemon(bankingService, roundUpService, config, null, clock);
+
+        daemon.runRoundUp(account);
+        // The next run is a day late, past the day the window covers.
+        clock.now = Instant.parse("2019-05-10T00:01:00Z");
+        daemon.runRoundUp(account);
+
+        verify(roundUpService).getTransactions(account, Date.from(Instant.parse("2019-05-07T00:00:00Z")), TO);
+        verify(roundUpService).getTransactions(account, TO, nextTo);
+        verify(roundUpService, never()).getTransactions(account, skippedDay, nextTo);
+    }
+
+    @Test
+    public void window_longer_than_the_interval_is_refused_outside_incremental_mode() {
+
+        assertThatThrownBy(() -> new DaemonConfig(Duration.ofHours(24), Duration.ZERO, 7L, false, 2, 4,
+            Duration.ofSeconds(5), "goal", Collections.emptyMap()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void accounts_are_read_again_every_interval() throws Exception {
+
+        Account other = new Account("other", "category", "GBP", new Date());
+        when(bankingService.getAccounts()).thenReturn(Collections.singletonList(account))
+            .thenReturn(Arrays.asList(account, other));
+        when(roundUpService.calculateIncrementalRoundUp(any(), any(), any())).thenReturn(
+            new IncrementalRoundUp(new Amount("GBP", 0L), null));
+        RoundUpDaemon daemon = new RoundUpDaemon(bankingService, roundUpService,
+            new DaemonConfig(Duration.ofMillis(200), Duration.ZERO, 7L, true, 2, 4, Duration.ofSeconds(5), "goal",
+                Collections.emptyMap()));
+
+        daemon.start();
+        verify(roundUpService, timeout(5000)).calculateIncrementalRoundUp(eq(other), any(), any());
+
+        assertThat(daemon.shutdown()).isTrue();
+    }
+
+    @Test
+    public void scheduled_accounts_are_rounded_up_and_drained_on_shutdown() throws Exception {
+
+        when(bankingService.getAccounts()).thenReturn(Collections.singletonList(account));
+        when(roundUpService.calculateIncrementalRoundUp(eq(account), any(), any())).thenReturn(
+            new IncrementalRoundUp(new Amount("GBP", 0L), null));
+        RoundUpDaemon daemon = new RoundUpDaemon(bankingService, roundUpService,
+            config("goal", Collections.emptyMap()));
+
+        daemon.start();
+        verify(roundUpService, timeout(5000)).calculateIncrementalRoundUp(eq(account), any(), any());
+
+        assertThat(daemon.shutdown()).isTrue();
+        daemon.awaitTermination();
+        assertThat(daemon.getFailedCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void configuration_is_read_from_properties_file() throws Exception {
+
+        Path file = folder.newFile("daemon.properties").toPath();
+        Files.write(file, ("interval=PT72H\njitter=PT0S\nwindow.days=3\nincremental=false\nworkers=2\n"
+            + "queue.capacity=10\ngoal.default=first-eligible\ngoal.account=goal\n").getBytes(StandardCharsets.UTF_8));
+
+        DaemonConfig config = DaemonConfig.load(file, 7L);
+
+        assertThat(config.getInterval()).isEqualTo(Duration.ofHours(72));
+        assertThat(config.getWindowDays()).isEqualTo(3L);
+        assertThat(config.isIncremental()).isFalse();
+        assertThat(config.getWorkers()).isEqualTo(2);
+        assertThat(config.getSavingsGoal("account")).isEqualTo("goal");
+        assertThat(config.getSavingsGoal("other")).isEqualTo(DaemonConfig.FIRST_ELIGIBLE);
+        assertThat(DaemonConfig.load(folder.getRoot().toPath().resolve("missing"), 7L).getWindowDays())
+            .isEqualTo(7L);
+    }
+
+    private RoundUpDaemon daemon(DaemonConfig config) {
+
+        return new RoundUpDaemon(bankingService, roundUpService, config, null, CLOCK);
+    }
+
+    private static GoalAllocation allocation(String savingsGoalUid, long minorUnits) {
+
+        return new GoalAllocation(savingsGoalUid, new Amount("GBP", minorUnits));
+    }
+
+    private static DaemonConfig config(String defaultGoal, Map<String, String> goals) {
+
+        return new DaemonConfig(Duration.ofHours(24), Duration.ZERO, 7L, true, 2, 4, Duration.ofSeconds(5),
+            defaultGoal, goals);
+    }
+
+    private static class SettableClock extends Clock {
+
+        private Instant now;
+
+        SettableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.starling.assignment.model;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MoneyTest {
+
+    @Test
+    public void amounts_are_formatted_with_symbol_grouping_and_minor_units() {
+
+        assertThat(new Amount("GBP", 0L).getDisplayValue()).isEqualTo("\u00a30.00");
+        assertThat(new Amount("GBP", 87L).getDisplayValue()).isEqualTo("\u00a30.87");
+        assertThat(new Amount("GBP", 123456789L).getDisplayValue()).isEqualTo("\u00a31,234,567.89");
+        assertThat(new Amount("GBP", -4200L).getDisplayValue()).isEqualTo("-\u00a342.00");
+        assertThat(new Amount("GBP", Long.MIN_VALUE).getDisplayValue())
+            .isEqualTo("-\u00a392,233,720,368,547,758.08");
+    }
+
+    @Test
+    public void minor_units_follow_the_currency_exponent() {
+
+        assertThat(Money.minorUnitsPerMajorUnit("GBP")).isEqualTo(100L);
+        assertThat(Money.minorUnitsPerMajorUnit("JPY")).isEqualTo(1L);
+        assertThat(Money.minorUnitsPerMajorUnit("BHD")).isEqualTo(1000L);
+        assertThat(Money.format("BHD", 1234567L)).isEqualTo("BHD1,234.567");
+        assertThat(Money.format(null, 1234L)).isEqualTo("12.34");
+    }
+
+    @Test
+    public void display_value_is_appended_to_a_reusable_builder() {
+
+        StringBuilder out = new StringBuilder("Total: ");
+
+        new Amount("GBP", 1050L).appendDisplayValue(out).append(", ");
+        new Amount("GBP", 5L).appendDisplayValue(out);
+
+        assertThat(out.toString()).isEqualTo("Total: \u00a310.50, \u00a30.05");
+    }
+
+    @Test
+    public void arithmetic_fails_on_overflow_and_currency_mismatch() {
+
+        Amount amount = new Amount("GBP", 150L);
+
+        assertThat(amount.add(new Amount("GBP", 50L)).getMinorUnits()).isEqualTo(200L);
+        assertThat(amount.subtract(new Amount("GBP", 200L)).getMinorUnits()).isEqualTo(-50L);
+        assertThatThrownBy(() -> new Amount("GBP", Long.MAX_VALUE).add(amount))
+            .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> amount.add(new Amount("EUR", 1L))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
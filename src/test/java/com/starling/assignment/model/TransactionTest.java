@@ -0,0 +1,64 @@
+package com.starling.assignment.model;
+
+import com.starling.assignment.model.Transaction.Direction;
+import com.starling.assignment.model.Transaction.Status;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransactionTest {
+
+    @Test
+    public void getters_return_the_values_given_to_the_constructor() {
+
+        String feedItemUid = "0f3d2c1b-aa55-4e6f-9b8a-ffffffffffff";
+        Transaction transaction = new Transaction(feedItemUid, "category", new Amount("GBP", -1_234L),
+            new Date(1546300800000L), Direction.OUT, Status.PENDING, "MASTER_CARD");
+
+        assertThat(transaction.getFeedItemUid()).isEqualTo(feedItemUid);
+        assertThat(transaction.getFeedItemUuid()).isEqualTo(UUID.fromString(feedItemUid));
+        assertThat(transaction.getCategoryUid()).isEqualTo("category");
+        assertThat(transaction.getAmount().getCurrency()).isEqualTo("GBP");
+        assertThat(transaction.getAmount().getMinorUnits()).isEqualTo(-1_234L);
+        assertThat(transaction.getTransactionTime()).isEqualTo(new Date(1546300800000L));
+        assertThat(transaction.getDirection()).isEqualTo(Direction.OUT);
+        assertThat(transaction.getStatus()).isEqualTo(Status.PENDING);
+        assertThat(transaction.getSource()).isEqualTo("MASTER_CARD");
+    }
+
+    @Test
+    public void uids_that_are_not_canonical_uuids_and_missing_fields_are_kept_as_given() {
+
+        String upperCase = "0F3D2C1B-AA55-4E6F-9B8A-FFFFFFFFFFFF";
+        Transaction transaction = new Transaction(upperCase, null, null, null, null, null, null);
+
+        assertThat(transaction.getFeedItemUid()).isEqualTo(upperCase);
+        assertThat(transaction.getFeedItemUuid()).isNull();
+        assertThat(transaction.getCategoryUid()).isNull();
+        assertThat(transaction.getAmount()).isNull();
+        assertThat(transaction.getCurrency()).isNull();
+        assertThat(transaction.getTransactionTime()).isNull();
+        assertThat(transaction.getTransactionTimeMillis()).isEqualTo(Transaction.NO_TIME);
+        assertThat(transaction.getDirection()).isNull();
+        assertThat(transaction.getStatus()).isNull();
+        assertThat(transaction.getSource()).isNull();
+        assertThat(new Transaction("feed-item", null, null, null, null, null, null).getFeedItemUid())
+            .isEqualTo("feed-item");
+    }
+
+    @Test
+    public void repeated_strings_are_shared_through_the_dictionary() {
+
+        Transaction first = new Transaction(UUID.randomUUID(), new String("category"), new String("GBP"), 1L, 0L,
+            Direction.IN, Status.SETTLED, new String("FASTER_PAYMENTS_IN"));
+        Transaction second = new Transaction(UUID.randomUUID(), new String("category"), new String("GBP"), 2L, 0L,
+            Direction.IN, Status.SETTLED, new String("FASTER_PAYMENTS_IN"));
+
+        assertThat(second.getCategoryUid()).isSameAs(first.getCategoryUid());
+        assertThat(second.getCurrency()).isSameAs(first.getCurrency());
+        assertThat(second.getSource()).isSameAs(first.getSource());
+    }
+}
@@ -0,0 +1,120 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.AccountRoundUp;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@RunWith(value = MockitoJUnitRunner.class)
+public class BatchRoundUpRunnerTest {
+
+    @Mock
+    private BankingService bankingService;
+
+    private BatchRoundUpRunner runner;
+    private Date from;
+    private Date to;
+
+    @Before
+    public void beforeTest() {
+
+        runner = new BatchRoundUpRunner(bankingService, new RoundUpService(bankingService), 2,
+            Duration.ofMillis(500));
+        ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        from = Date.from(today.minusDays(7).toInstant());
+        to = Date.from(today.toInstant());
+    }
+
+    @After
+    public void afterTest() {
+
+        runner.shutdown();
+    }
+
+    @Test
+    public void failing_and_slow_accounts_do_not_affect_other_accounts() {
+
+        Account healthy = new Account("healthy", "category", "GBP", new Date());
+        Account failing = new Account("failing", "category", "GBP", new Date());
+        Account slow = new Account("slow", "category", "GBP", new Date());
+        Transaction transaction = new Transaction("1", "category", new Amount("GBP", 87),
+            Date.from(to.toInstant().minusSeconds(3600)), Transaction.Direction.OUT, Transaction.Status.SETTLED,
+            "MASTER_CARD");
+
+        when(bankingService.getAccounts()).thenReturn(Arrays.asList(healthy, failing, slow));
+        when(bankingService.getTransactions(eq("healthy"), eq("category"), any(Date.class), any(Date.class)))
+            .thenReturn(Collections.singletonList(transaction));
+        when(bankingService.getTransactions(eq("failing"), eq("category"), any(Date.class), any(Date.class)))
+            .thenThrow(new RuntimeException("HTTP response code 500 received from Starling API."));
+        when(bankingService.getTransactions(eq("slow"), eq("category"), any(Date.class), any(Date.class)))
+            .thenAnswer(invocation -> {
+                Thread.sleep(5_000L);
+                return Collections.emptyList();
+            });
+
+        List<AccountRoundUp> roundUps = runner.run(from, to);
+
+        assertThat(roundUps).hasSize(3);
+        assertThat(roundUps.get(0).isSuccessful()).isTrue();
+        assertThat(roundUps.get(0).getAmount().getMinorUnits()).isEqualTo(13L);
+        assertThat(roundUps.get(0).getTransactionCount()).isEqualTo(1);
+        assertThat(roundUps.get(1).isSuccessful()).isFalse();
+        assertThat(roundUps.get(1).getError().getMessage()).isEqualTo("HTTP response code 500 received from Starling API.");
+        assertThat(roundUps.get(2).getError()).isInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    public void timeout_starts_with_the_permit_and_a_timed_out_account_gives_its_permit_back() {
+
+        BatchRoundUpRunner serialRunner = new BatchRoundUpRunner(bankingService, new RoundUpService(bankingService),
+            1, Duration.ofMillis(500));
+        Account slow = new Account("slow", "category", "GBP", new Date());
+        Account first = new Account("first", "category", "GBP", new Date());
+        Account second = new Account("second", "category", "GBP", new Date());
+
+        when(bankingService.getAccounts()).thenReturn(Arrays.asList(slow, first, second));
+        when(bankingService.getTransactions(eq("slow"), eq("category"), any(Date.class), any(Date.class)))
+            .thenAnswer(invocation -> {
+                Thread.sleep(60_000L);
+                return Collections.emptyList();
+            });
+        when(bankingService.getTransactions(eq("first"), eq("category"), any(Date.class), any(Date.class)))
+            .thenAnswer(invocation -> {
+                Thread.sleep(300L);
+                return Collections.emptyList();
+            });
+        when(bankingService.getTransactions(eq("second"), eq("category"), any(Date.class), any(Date.class)))
+            .thenAnswer(invocation -> {
+                Thread.sleep(300L);
+                return Collections.emptyList();
+            });
+
+        List<AccountRoundUp> roundUps = serialRunner.run(from, to);
+        serialRunner.shutdown();
+
+        assertThat(roundUps.get(0).getError()).isInstanceOf(TimeoutException.class);
+        assertThat(roundUps.get(1).isSuccessful()).isTrue();
+        assertThat(roundUps.get(2).isSuccessful()).isTrue();
+    }
+}
@@ -0,0 +1,154 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(value = MockitoJUnitRunner.class)
+public class CachingBankingServiceTest {
+
+    @Mock
+    private BankingService bankingService;
+
+    private TickingClock clock;
+    private CachingBankingService cachingBankingService;
+
+    @Before
+    public void beforeTest() {
+
+        clock = new TickingClock();
+        cachingBankingService = new CachingBankingService(bankingService, Duration.ofMinutes(10),
+            Duration.ofSeconds(30), Duration.ofMinutes(5), 2, clock);
+    }
+
+    @Test
+    public void reads_are_served_from_cache_until_ttl_expires() {
+
+        when(bankingService.getAccountBalance("1")).thenReturn(new Balance(new Amount("GBP", 100)));
+
+        cachingBankingService.getAccountBalance("1");
+        clock.advance(Duration.ofSeconds(29));
+        cachingBankingService.getAccountBalance("1");
+        verify(bankingService, times(1)).getAccountBalance("1");
+
+        clock.advance(Duration.ofSeconds(1));
+        cachingBankingService.getAccountBalance("1");
+        verify(bankingService, times(2)).getAccountBalance("1");
+    }
+
+    @Test
+    public void least_recently_used_entries_are_evicted() {
+
+        when(bankingService.getAccountBalance(anyString())).thenReturn(new Balance(new Amount("GBP", 100)));
+
+        cachingBankingService.getAccountBalance("1");
+        cachingBankingService.getAccountBalance("2");
+        cachingBankingService.getAccountBalance("1");
+        cachingBankingService.getAccountBalance("3");
+        cachingBankingService.getAccountBalance("1");
+        cachingBankingService.getAccountBalance("2");
+
+        verify(bankingService, times(1)).getAccountBalance("1");
+        verify(bankingService, times(2)).getAccountBalance("2");
+    }
+
+    @Test
+    public void successful_transfer_invalidates_goal_goal_list_and_balance() {
+
+        SavingsGoal goal = new SavingsGoal("goal", "Goal", new Amount("GBP", 1000), new Amount("GBP", 0));
+        when(bankingService.getSavingsGoal("1", "goal")).thenReturn(goal);
+        when(bankingService.getSavingsGoals("1")).thenReturn(Collections.singletonList(goal));
+        when(bankingService.transferMoneyToSavingsGoal(anyString(), anyString(), anyString(),
+            any(BankingService.SavingsGoalAmount.class))).thenReturn(true);
+
+        cachingBankingService.getSavingsGoal("1", "goal");
+        cachingBankingService.getSavingsGoals("1");
+        boolean transferred = cachingBankingService.transferMoneyToSavingsGoal("1", "goal", "transfer",
+            new BankingService.SavingsGoalAmount(new Amount("GBP", 10)));
+        cachingBankingService.getSavingsGoal("1", "goal");
+        cachingBankingService.getSavingsGoals("1");
+
+        assertThat(transferred).isTrue();
+        verify(bankingService, times(2)).getSavingsGoal("1", "goal");
+        verify(bankingService, times(2)).getSavingsGoals("1");
+    }
+
+    @Test
+    public void read_in_flight_is_cached_unless_its_own_account_is_invalidated() {
+
+        when(bankingService.transferMoneyToSavingsGoal(anyString(), anyString(), anyString(),
+            any(BankingService.SavingsGoalAmount.class))).thenReturn(true);
+        when(bankingService.getAccountBalance(anyString())).thenAnswer(invocation -> {
+            cachingBankingService.transferMoneyToSavingsGoal("1", "goal", "transfer",
+                new BankingService.SavingsGoalAmount(new Amount("GBP", 10)));
+            return new Balance(new Amount("GBP", 100));
+        });
+
+        cachingBankingService.getAccountBalance("1");
+        cachingBankingService.getAccountBalance("1");
+        cachingBankingService.getAccountBalance("2");
+        cachingBankingService.getAccountBalance("2");
+
+        verify(bankingService, times(2)).getAccountBalance("1");
+        verify(bankingService, times(1)).getAccountBalance("2");
+    }
+
+    @Test
+    public void async_reads_share_the_cache_with_blocking_reads() {
+
+        SavingsGoal goal = new SavingsGoal("goal", "Goal", new Amount("GBP", 1000), new Amount("GBP", 0));
+        when(bankingService.getSavingsGoals("1")).thenReturn(Collections.singletonList(goal));
+
+        List<SavingsGoal> fetched = cachingBankingService.getSavingsGoalsAsync("1").join();
+        List<SavingsGoal> cached = cachingBankingService.getSavingsGoals("1");
+        cachingBankingService.getSavingsGoalsAsync("1").join();
+
+        assertThat(fetched).containsExactly(goal);
+        assertThat(cached).containsExactly(goal);
+        verify(bankingService, times(1)).getSavingsGoals("1");
+    }
+
+    private static class TickingClock extends Clock {
+
+        private Instant now = Instant.parse("2019-05-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.SavingsGoal;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(value = MockitoJUnitRunner.class)
+public class CoalescingBankingServiceTest {
+
+    @Mock
+    private AsyncBankingService bankingService;
+
+    private CoalescingBankingService coalescingBankingService;
+
+    @Before
+    public void beforeTest() {
+
+        coalescingBankingService = new CoalescingBankingService(bankingService);
+    }
+
+    @Test
+    public void concurrent_identical_reads_share_one_request() throws Exception {
+
+        CompletableFuture<List<SavingsGoal>> response = new CompletableFuture<>();
+        when(bankingService.getSavingsGoalsAsync("1")).thenReturn(response);
+
+        CompletableFuture<List<SavingsGoal>> first = coalescingBankingService.getSavingsGoalsAsync("1");
+        CompletableFuture<List<SavingsGoal>> second = coalescingBankingService.getSavingsGoalsAsync("1");
+        CompletableFuture<List<SavingsGoal>> blocking =
+            CompletableFuture.supplyAsync(() -> coalescingBankingService.getSavingsGoals("1"));
+        awaitCoalescedCount(2L);
+
+        SavingsGoal goal = new SavingsGoal("goal", "Trip", new Amount("GBP", 1_000L), new Amount("GBP", 0L));
+        response.complete(Collections.singletonList(goal));
+
+        assertThat(first.get()).containsExactly(goal);
+        assertThat(second.get()).containsExactly(goal);
+        assertThat(blocking.get()).containsExactly(goal);
+        assertThat(first.get()).isNotSameAs(second.get());
+        verify(bankingService, times(1)).getSavingsGoalsAsync("1");
+        assertThat(coalescingBankingService.getRequestCount()).isEqualTo(1L);
+        assertThat(coalescingBankingService.getInFlightCount()).isEqualTo(0);
+
+        when(bankingService.getSavingsGoalsAsync("1")).thenReturn(CompletableFuture.completedFuture(null));
+        assertThat(coalescingBankingService.getSavingsGoalsAsync("1").get()).isNull();
+        verify(bankingService, times(2)).getSavingsGoalsAsync("1");
+    }
+
+    @Test
+    public void failed_read_fails_every_caller_waiting_on_it() {
+
+        CompletableFuture<Balance> response = new CompletableFuture<>();
+        when(bankingService.getAccountBalanceAsync("1")).thenReturn(response);
+
+        CompletableFuture<Balance> first = coalescingBankingService.getAccountBalanceAsync("1");
+        CompletableFuture<Balance> blocking =
+            CompletableFuture.supplyAsync(() -> coalescingBankingService.getAccountBalance("1"));
+        awaitCoalescedCount(1L);
+        response.completeExceptionally(new IllegalStateException("Service Unavailable"));
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(blocking::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(coalescingBankingService.getInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void read_throwing_an_error_is_no_longer_in_flight() {
+
+        when(bankingService.getAccounts()).thenThrow(new StackOverflowError());
+        when(bankingService.getAccountBalanceAsync("1")).thenThrow(new StackOverflowError());
+
+        assertThatThrownBy(() -> coalescingBankingService.getAccounts()).isInstanceOf(StackOverflowError.class);
+        assertThatThrownBy(coalescingBankingService.getAccountBalanceAsync("1")::join)
+            .hasCauseInstanceOf(StackOverflowError.class);
+
+        assertThat(coalescingBankingService.getInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void reads_after_a_write_do_not_join_reads_started_before_it() {
+
+        when(bankingService.getAccountBalanceAsync("1")).thenReturn(new CompletableFuture<>());
+        when(bankingService.transferMoneyToSavingsGoal(any(), any(), any(), any())).thenReturn(true);
+
+        coalescingBankingService.getAccountBalanceAsync("1");
+        coalescingBankingService.transferMoneyToSavingsGoal("1", "goal", "transfer",
+            new BankingService.SavingsGoalAmount(new Amount("GBP", 10L)));
+        coalescingBankingService.getAccountBalanceAsync("1");
+
+        verify(bankingService, times(2)).getAccountBalanceAsync("1");
+        assertThat(coalescingBankingService.getCoalescedCount()).isEqualTo(0L);
+    }
+
+    private void awaitCoalescedCount(long expected) {
+
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (coalescingBankingService.getCoalescedCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertThat(coalescingBankingService.getCoalescedCount()).isEqualTo(expected);
+    }
+}
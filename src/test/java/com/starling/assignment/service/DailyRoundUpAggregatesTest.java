@@ -0,0 +1,146 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.Transaction.Direction;
+import com.starling.assignment.model.Transaction.Status;
+import com.starling.assignment.model.WindowRoundUp;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DailyRoundUpAggregatesTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long FIRST_DAY = 1546300800000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Account account = new Account("account", "category", "GBP", new Date(FIRST_DAY));
+
+    @Test
+    public void any_range_of_days_matches_a_scan_of_the_feed() {
+
+        List<Transaction> feed = createFeed(new Random(3L), 5_000, 400);
+        DailyRoundUpAggregates aggregates = new DailyRoundUpAggregates(null);
+        aggregates.record(account, feed);
+
+        Random random = new Random(5L);
+        for (int i = 0; i < 200; i++) {
+            int fromDay = random.nextInt(420) - 10;
+            int toDay = fromDay + random.nextInt(120);
+            Date from = new Date(FIRST_DAY + fromDay * DAY);
+            Date to = new Date(FIRST_DAY + toDay * DAY);
+
+            WindowRoundUp roundUp = aggregates.query(account, from, to);
+
+            List<Transaction> scanned = feed.stream()
+                .filter(transaction -> transaction.getTransactionTimeMillis() >= from.getTime()
+                    && transaction.getTransactionTimeMillis() < to.getTime())
+                .filter(RoundUpService.OUTGOING_EXTERNAL)
+                .collect(Collectors.toList());
+            assertThat(roundUp.getAmount().getMinorUnits())
+                .isEqualTo(RoundUpService.calculateRounding(scanned, transaction -> true,
+                    RoundUpService.outgoingRoundUp(100L)));
+            assertThat(roundUp.getTransactionCount()).isEqualTo((long) scanned.size());
+            assertThat(roundUp.getAmount().getCurrency()).isEqualTo("GBP");
+        }
+    }
+
+    @Test
+    public void feeds_of_overlapping_windows_count_each_item_once() {
+
+        List<Transaction> feed = createFeed(new Random(7L), 2_000, 60);
+        DailyRoundUpAggregates once = new DailyRoundUpAggregates(null);
+        once.record(account, feed);
+
+        DailyRoundUpAggregates incremental = new DailyRoundUpAggregates(null);
+        int recorded = 0;
+        for (int window = 0; window < 60; window += 10) {
+            long from = FIRST_DAY + window * DAY;
+            long to = from + 20 * DAY;
+            recorded += incremental.record(account, feed.stream()
+                .filter(transaction -> transaction.getTransactionTimeMillis() >= from
+                    && transaction.getTransactionTimeMillis() < to)
+                .collect(Collectors.toList()));
+        }
+
+        Date from = new Date(FIRST_DAY);
+        Date to = new Date(FIRST_DAY + 60 * DAY);
+        assertThat((long) recorded).isEqualTo(once.query(account, from, to).getTransactionCount());
+        assertThat(incremental.query(account, from, to).getAmount().getMinorUnits())
+            .isEqualTo(once.query(account, from, to).getAmount().getMinorUnits());
+        assertThat(incremental.getLastRecordedTime(account)).isEqualTo(once.getLastRecordedTime(account));
+        assertThat(incremental.record(account, feed)).isEqualTo(0);
+    }
+
+    @Test
+    public void sums_are_read_back_after_a_restart() throws Exception {
+
+        List<Transaction> feed = createFeed(new Random(11L), 1_000, 30);
+        DailyRoundUpAggregates aggregates = new DailyRoundUpAggregates(folder.getRoot().toPath());
+        aggregates.record(account, feed.subList(0, 500));
+        aggregates.record(account, feed.subList(500, 1_000));
+
+        DailyRoundUpAggregates restarted = new DailyRoundUpAggregates(folder.getRoot().toPath());
+        Date from = new Date(FIRST_DAY + 5 * DAY);
+        Date to = new Date(FIRST_DAY + 25 * DAY);
+
+        assertThat(restarted.query(account, from, to).getAmount().getMinorUnits())
+            .isEqualTo(aggregates.query(account, from, to).getAmount().getMinorUnits());
+        assertThat(restarted.query(account, from, to).getTransactionCount())
+            .isEqualTo(aggregates.query(account, from, to).getTransactionCount());
+        assertThat(restarted.getLastRecordedTime(account)).isEqualTo(aggregates.getLastRecordedTime(account));
+    }
+
+    @Test
+    public void payment_settling_after_later_items_were_recorded_is_counted_once() {
+
+        UUID paymentUid = UUID.randomUUID();
+        long paymentTime = FIRST_DAY + DAY;
+        Transaction later = new Transaction(UUID.randomUUID(), "category", "GBP", 120L, FIRST_DAY + 2 * DAY,
+            Direction.OUT, Status.SETTLED, "MASTER_CARD");
+        DailyRoundUpAggregates aggregates = new DailyRoundUpAggregates(folder.getRoot().toPath());
+
+        assertThat(aggregates.record(account, Arrays.asList(later, new Transaction(paymentUid, "category", "GBP",
+            250L, paymentTime, Direction.OUT, Status.PENDING, "MASTER_CARD")))).isEqualTo(1);
+        assertThat(aggregates.getRescanFrom(account)).isEqualTo(new Date(paymentTime));
+
+        Transaction settled = new Transaction(paymentUid, "category", "GBP", 250L, paymentTime, Direction.OUT,
+            Status.SETTLED, "MASTER_CARD");
+        DailyRoundUpAggregates restarted = new DailyRoundUpAggregates(folder.getRoot().toPath());
+        assertThat(restarted.record(account, Arrays.asList(settled, later, settled))).isEqualTo(1);
+        assertThat(restarted.record(account, Arrays.asList(settled, later))).isEqualTo(0);
+
+        WindowRoundUp roundUp = restarted.query(account, new Date(FIRST_DAY), new Date(FIRST_DAY + 3 * DAY));
+        assertThat(roundUp.getTransactionCount()).isEqualTo(2L);
+        assertThat(roundUp.getAmount().getMinorUnits()).isEqualTo(130L);
+        assertThat(restarted.getRescanFrom(account)).isEqualTo(later.getTransactionTime());
+    }
+
+    // Transactions in time order, spread over the given number of days, a mix of eligible and ineligible ones.
+    private static List<Transaction> createFeed(Random random, int size, int days) {
+
+        List<Transaction> feed = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long time = FIRST_DAY + (long) i * days * DAY / size;
+            Direction direction = random.nextInt(4) == 0 ? Direction.IN : Direction.OUT;
+            Status status = random.nextInt(8) == 0 ? Status.PENDING : Status.SETTLED;
+            String source = random.nextInt(10) == 0 ? "INTERNAL_TRANSFER" : "MASTER_CARD";
+            feed.add(new Transaction(UUID.randomUUID(), "category", "GBP", 1 + random.nextInt(20_000), time,
+                direction, status, source));
+        }
+        return feed;
+    }
+}
@@ -0,0 +1,180 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Transaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(value = MockitoJUnitRunner.class)
+public class DiskCachedBankingServiceTest {
+
+    private static final String ACCOUNT = "account";
+    private static final String CATEGORY = "category";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private BankingService bankingService;
+
+    private DiskCachedBankingService cachedBankingService;
+
+    @Before
+    public void beforeTest() throws Exception {
+
+        cachedBankingService = new DiskCachedBankingService(bankingService, temporaryFolder.newFolder().toPath());
+    }
+
+    @Test
+    public void cold_cache_fetches_whole_feed_and_warm_cache_fetches_only_tail() {
+
+        Transaction settled = transaction("00000000-0000-0000-0000-000000000001", 1000L, 87L,
+            Transaction.Status.SETTLED, "MASTER_CARD");
+        Transaction later = transaction("00000000-0000-0000-0000-000000000002", 2000L, 520L,
+            Transaction.Status.SETTLED, "INTERNAL_TRANSFER");
+        Transaction newest = transaction("00000000-0000-0000-0000-000000000003", 3000L, 435L,
+            Transaction.Status.SETTLED, "DIRECT_DEBIT");
+        when(bankingService.getTransactions(ACCOUNT, CATEGORY)).thenReturn(Arrays.asList(settled, later));
+        when(bankingService.getTransactions(eq(ACCOUNT), eq(CATEGORY), eq(new Date(2000L)), any(Date.class)))
+            .thenReturn(Arrays.asList(later, newest));
+
+        cachedBankingService.getTransactions(ACCOUNT, CATEGORY);
+        List<Transaction> result = cachedBankingService.getTransactions(ACCOUNT, CATEGORY);
+
+        verify(bankingService, times(1)).getTransactions(ACCOUNT, CATEGORY);
+        assertThat(result).hasSize(3);
+        assertRecord(result.get(0), settled);
+        assertRecord(result.get(1), later);
+        assertRecord(result.get(2), newest);
+    }
+
+    @Test
+    public void feeds_of_different_accounts_are_synchronised_concurrently() throws Exception {
+
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bankingService.getTransactions("other", CATEGORY)).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.emptyList();
+        });
+        when(bankingService.getTransactions(ACCOUNT, CATEGORY)).thenReturn(Collections.emptyList());
+
+        CompletableFuture<List<Transaction>> other =
+            CompletableFuture.supplyAsync(() -> cachedBankingService.getTransactions("other", CATEGORY));
+        assertThat(fetching.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(cachedBankingService.getTransactions(ACCOUNT, CATEGORY)).isEmpty();
+        assertThat(other.isDone()).isFalse();
+
+        release.countDown();
+        assertThat(other.get()).isEmpty();
+    }
+
+    @Test
+    public void pending_transactions_are_refreshed_from_the_api() {
+
+        Transaction pending = transaction("00000000-0000-0000-0000-000000000001", 1000L, 87L,
+            Transaction.Status.PENDING, "MASTER_CARD");
+        Transaction settled = transaction("00000000-0000-0000-0000-000000000001", 1000L, 87L,
+            Transaction.Status.SETTLED, "MASTER_CARD");
+        Transaction newest = transaction("00000000-0000-0000-0000-000000000002", 3000L, 435L,
+            Transaction.Status.SETTLED, "DIRECT_DEBIT");
+        when(bankingService.getTransactions(ACCOUNT, CATEGORY)).thenReturn(Arrays.asList(pending, newest));
+        when(bankingService.getTransactions(eq(ACCOUNT), eq(CATEGORY), eq(new Date(1000L)), any(Date.class)))
+            .thenReturn(Arrays.asList(settled, newest));
+
+        cachedBankingService.getTransactions(ACCOUNT, CATEGORY);
+        List<Transaction> result = cachedBankingService.getTransactions(ACCOUNT, CATEGORY);
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).getStatus()).isEqualTo(Transaction.Status.SETTLED);
+    }
+
+    @Test
+    public void feeds_without_uuid_feed_item_uids_are_not_cached() {
+
+        Transaction transaction = transaction("1", 1000L, 87L, Transaction.Status.SETTLED, "MASTER_CARD");
+        when(bankingService.getTransactions(ACCOUNT, CATEGORY)).thenReturn(Collections.singletonList(transaction));
+
+        cachedBankingService.getTransactions(ACCOUNT, CATEGORY);
+        cachedBankingService.getTransactions(ACCOUNT, CATEGORY);
+
+        verify(bankingService, times(2)).getTransactions(ACCOUNT, CATEGORY);
+        verify(bankingService, never()).getTransactions(eq(ACCOUNT), eq(CATEGORY), any(Date.class), any(Date.class));
+    }
+
+    @Test
+    public void unknown_sources_are_kept_and_removed_items_are_purged() {
+
+        Transaction unknown = transaction("00000000-0000-0000-0000-000000000001", 1000L, 87L,
+            Transaction.Status.SETTLED, "SOME_NEW_SOURCE");
+        Transaction removed = transaction("00000000-0000-0000-0000-000000000002", 2000L, 520L,
+            Transaction.Status.PENDING, "MASTER_CARD");
+        when(bankingService.getTransactions(ACCOUNT, CATEGORY)).thenReturn(Arrays.asList(unknown, removed));
+        when(bankingService.getTransactions(eq(ACCOUNT), eq(CATEGORY), eq(new Date(2000L)), any(Date.class)))
+            .thenReturn(Collections.emptyList());
+
+        cachedBankingService.getTransactions(ACCOUNT, CATEGORY);
+        List<Transaction> result = cachedBankingService.getTransactions(ACCOUNT, CATEGORY);
+
+        assertThat(result).hasSize(1);
+        assertRecord(result.get(0), unknown);
+    }
+
+    @Test
+    public void cold_cache_fetches_only_the_requested_range_and_caches_an_empty_feed() {
+
+        Date from = new Date(5000L);
+        Date to = new Date(9000L);
+        when(bankingService.getTransactions(eq(ACCOUNT), eq(CATEGORY), eq(from), any(Date.class)))
+            .thenReturn(Collections.emptyList());
+
+        assertThat(cachedBankingService.getTransactions(ACCOUNT, CATEGORY, from, to)).isEmpty();
+        assertThat(cachedBankingService.getTransactions(ACCOUNT, CATEGORY, from, to)).isEmpty();
+
+        verify(bankingService, never()).getTransactions(ACCOUNT, CATEGORY);
+        verify(bankingService, times(1)).getTransactions(eq(ACCOUNT), eq(CATEGORY), eq(from), any(Date.class));
+    }
+
+    private static Transaction transaction(String feedItemUid, long epochMillis, long minorUnits,
+                                           Transaction.Status status, String source) {
+
+        return new Transaction(feedItemUid, CATEGORY, new Amount("GBP", minorUnits),
+            Date.from(Instant.ofEpochMilli(epochMillis)), Transaction.Direction.OUT, status, source);
+    }
+
+    private static void assertRecord(Transaction actual, Transaction expected) {
+
+        assertThat(actual.getFeedItemUid()).isEqualTo(expected.getFeedItemUid());
+        assertThat(actual.getCategoryUid()).isEqualTo(expected.getCategoryUid());
+        assertThat(actual.getAmount().getCurrency()).isEqualTo(expected.getAmount().getCurrency());
+        assertThat(actual.getAmount().getMinorUnits()).isEqualTo(expected.getAmount().getMinorUnits());
+        assertThat(actual.getTransactionTime()).isEqualTo(expected.getTransactionTime());
+        assertThat(actual.getDirection()).isEqualTo(expected.getDirection());
+        assertThat(actual.getStatus()).isEqualTo(expected.getStatus());
+        assertThat(actual.getSource()).isEqualTo(expected.getSource());
+    }
+}
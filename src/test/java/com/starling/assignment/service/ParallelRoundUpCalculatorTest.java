@@ -0,0 +1,71 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.TransactionBatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelRoundUpCalculatorTest {
+
+    private ForkJoinPool pool;
+    private ParallelRoundUpCalculator calculator;
+
+    @Before
+    public void beforeTest() {
+
+        pool = new ForkJoinPool(4);
+        calculator = new ParallelRoundUpCalculator(pool, 100, 1_000);
+    }
+
+    @After
+    public void afterTest() {
+
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void parallel_round_up_matches_sequential_round_up() {
+
+        List<Transaction> transactions = createTransactions(50_000);
+        RoundUpService sequential = new RoundUpService(null);
+        RoundUpService parallel = new RoundUpService(null, null, calculator);
+        long expected = sequential.calculateRoundUp(transactions).getMinorUnits();
+
+        assertThat(parallel.calculateRoundUp(transactions).getMinorUnits()).isEqualTo(expected);
+        assertThat(parallel.calculateRoundUp(new LinkedList<>(transactions)).getMinorUnits()).isEqualTo(expected);
+        assertThat(parallel.calculateRoundUp(TransactionBatch.of(transactions)).getMinorUnits()).isEqualTo(expected);
+    }
+
+    @Test
+    public void small_feeds_are_not_calculated_in_parallel() {
+
+        assertThat(calculator.isParallel(999)).isFalse();
+        assertThat(calculator.isParallel(1_000)).isTrue();
+        assertThat(new ParallelRoundUpCalculator(new ForkJoinPool(1), 100, 1_000).isParallel(1_000)).isFalse();
+    }
+
+    private List<Transaction> createTransactions(int count) {
+
+        Random random = new Random(7L);
+        List<String> sources = Arrays.asList("MASTER_CARD", "INTERNAL_TRANSFER", "DIRECT_DEBIT");
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(new Transaction(String.valueOf(i), "1", new Amount("GBP", random.nextInt(100_000)),
+                new Date(1_546_300_800_000L + i * 1_000L), Transaction.Direction.values()[random.nextInt(2)],
+                Transaction.Status.values()[random.nextInt(3)], sources.get(random.nextInt(sources.size()))));
+        }
+        return transactions;
+    }
+}
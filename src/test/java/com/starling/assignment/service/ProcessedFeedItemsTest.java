@@ -0,0 +1,106 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.Transaction.Direction;
+import com.starling.assignment.model.Transaction.Status;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProcessedFeedItemsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Account account = new Account("account", "category", "GBP", new Date());
+
+    @Test
+    public void uid_set_matches_hash_set_on_and_off_heap() {
+
+        for (boolean offHeap : new boolean[] {false, true}) {
+            FeedItemUidSet set = new FeedItemUidSet(0, offHeap, true);
+            Set<UUID> expected = new HashSet<>();
+            Random random = new Random(7L);
+            for (int i = 0; i < 20_000; i++) {
+                // Few distinct high bits, so many UIDs share a most significant half.
+                UUID uid = (i % 1_000 == 0) ? new UUID(0L, 0L) : new UUID(random.nextInt(64), random.nextLong());
+                assertThat(set.add(uid)).isEqualTo(expected.add(uid));
+            }
+            assertThat(set.size()).isEqualTo(expected.size());
+            for (UUID uid : expected) {
+                assertThat(set.contains(uid)).isTrue();
+            }
+            assertThat(set.contains(new UUID(1L, 1L))).isEqualTo(expected.contains(new UUID(1L, 1L)));
+            assertThat(set.contains(UUID.randomUUID())).isFalse();
+        }
+    }
+
+    @Test
+    public void overlapping_windows_count_each_eligible_item_once() {
+
+        RoundUpService roundUpService = new RoundUpService(null, null, null, new ProcessedFeedItems(null, false, true));
+        Transaction first = transaction("11111111-1111-1111-1111-111111111111", 250L, Status.SETTLED);
+        Transaction pending = transaction("22222222-2222-2222-2222-222222222222", 430L, Status.PENDING);
+        List<Transaction> window1 = Arrays.asList(first, pending, first);
+
+        List<Transaction> uncounted = roundUpService.selectUncounted(account, window1);
+        assertThat(uncounted).containsExactly(first, pending);
+        assertThat(roundUpService.calculateRoundUp(uncounted, "GBP").getMinorUnits()).isEqualTo(50L);
+        roundUpService.markCounted(account, uncounted);
+
+        Transaction settled = transaction("22222222-2222-2222-2222-222222222222", 430L, Status.SETTLED);
+        Transaction second = transaction("not-a-uuid", 1_010L, Status.SETTLED);
+        uncounted = roundUpService.selectUncounted(account, Arrays.asList(first, settled, second));
+
+        assertThat(uncounted).containsExactly(settled, second);
+        assertThat(roundUpService.calculateRoundUp(uncounted, "GBP").getMinorUnits()).isEqualTo(160L);
+    }
+
+    @Test
+    public void processed_items_survive_restart_and_torn_record_is_dropped() throws IOException {
+
+        Path directory = folder.getRoot().toPath().resolve("processed");
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            transactions.add(transaction(UUID.randomUUID().toString(), 199L, Status.SETTLED));
+        }
+        new ProcessedFeedItems(directory, true, true).markProcessed("account", transactions);
+
+        Path stateFile;
+        try (Stream<Path> files = Files.list(directory)) {
+            stateFile = files.findFirst().orElseThrow(IllegalStateException::new);
+        }
+        assertThat(Files.size(stateFile)).isEqualTo(3_000L * 16L);
+        Files.write(stateFile, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+        ProcessedFeedItems reloaded = new ProcessedFeedItems(directory, false, false);
+        assertThat(reloaded.getProcessedCount("account")).isEqualTo(3_000);
+        assertThat(reloaded.getProcessedCount("other")).isEqualTo(0);
+        assertThat(reloaded.selectUnprocessed("account", transactions)).isEmpty();
+        assertThat(Files.size(stateFile)).isEqualTo(3_000L * 16L);
+    }
+
+    private static Transaction transaction(String feedItemUid, long minorUnits, Status status) {
+
+        return new Transaction(feedItemUid, "category", new Amount("GBP", minorUnits), new Date(), Direction.OUT,
+            status, "MASTER_CARD");
+    }
+}
@@ -0,0 +1,139 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.client.PullPublisher;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.Transaction.Direction;
+import com.starling.assignment.model.Transaction.Status;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoundUpProcessorTest {
+
+    @Test
+    public void running_round_up_is_published_after_every_batch_and_the_total_last() {
+
+        List<Transaction> transactions = Arrays.asList(transaction(120L, Direction.OUT),
+            transaction(250L, Direction.OUT), transaction(999L, Direction.IN), transaction(1_001L, Direction.OUT),
+            transaction(300L, Direction.OUT));
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+        subscribe(PullPublisher.ofList(() -> transactions, Runnable::run), subscriber, 2);
+
+        assertThat(subscriber.totals).containsExactly(130L, 229L, 229L);
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscriber.error).isNull();
+    }
+
+    @Test
+    public void transactions_are_only_requested_while_the_subscriber_has_demand() {
+
+        AtomicInteger read = new AtomicInteger();
+        PullPublisher<Transaction> transactions = new PullPublisher<>(() -> new PullPublisher.Source<Transaction>() {
+
+            @Override
+            public Transaction next() {
+
+                read.incrementAndGet();
+                return transaction(150L, Direction.OUT);
+            }
+
+            @Override
+            public void close() {
+            }
+        }, Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1L);
+
+        subscribe(transactions, subscriber, 10);
+
+        assertThat(subscriber.totals).containsExactly(500L);
+        assertThat(read.get()).isEqualTo(10);
+
+        subscriber.subscription.request(2L);
+
+        assertThat(subscriber.totals).containsExactly(500L, 1_000L, 1_500L);
+        assertThat(read.get()).isEqualTo(30);
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1L);
+
+        assertThat(read.get()).isEqualTo(30);
+        assertThat(subscriber.completed).isFalse();
+    }
+
+    @Test
+    public void failure_to_fetch_transactions_is_published() {
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+        subscribe(PullPublisher.ofList(() -> {
+            throw new IllegalStateException("Service Unavailable");
+        }, Runnable::run), subscriber, 2);
+
+        assertThat(subscriber.totals).isEmpty();
+        assertThat(subscriber.error).isInstanceOf(IllegalStateException.class);
+        assertThat(subscriber.completed).isFalse();
+    }
+
+    private static void subscribe(Flow.Publisher<Transaction> transactions, RecordingSubscriber subscriber,
+                                  int batchSize) {
+
+        RoundUpProcessor processor = new RoundUpProcessor("GBP", RoundUpService.OUTGOING_EXTERNAL,
+            RoundUpService.outgoingRoundUp(100L), batchSize);
+        processor.subscribe(subscriber);
+        transactions.subscribe(processor);
+    }
+
+    private static Transaction transaction(long minorUnits, Direction direction) {
+
+        return new Transaction(UUID.randomUUID(), "category", "GBP", minorUnits, 1546300800000L, direction,
+            Status.SETTLED, "MASTER_CARD");
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Amount> {
+
+        private final long initialDemand;
+        private final List<Long> totals = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private boolean completed;
+        private Throwable error;
+
+        RecordingSubscriber(long initialDemand) {
+
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(Amount amount) {
+
+            totals.add(amount.getMinorUnits());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+
+            completed = true;
+        }
+    }
+}
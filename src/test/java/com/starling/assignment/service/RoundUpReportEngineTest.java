@@ -0,0 +1,97 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Account;
+import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.Transaction.Direction;
+import com.starling.assignment.model.Transaction.Status;
+import com.starling.assignment.model.WindowRoundUp;
+import com.starling.assignment.service.RoundUpReportEngine.Window;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(value = MockitoJUnitRunner.class)
+public class RoundUpReportEngineTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long FIRST_DAY = 1546300800000L;
+
+    @Mock
+    private BankingService bankingService;
+
+    @Test
+    public void every_window_matches_a_scan_of_its_transactions() {
+
+        Random random = new Random(13L);
+        List<Transaction> feed = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            long time = FIRST_DAY + (long) (random.nextDouble() * 100 * DAY);
+            feed.add(new Transaction(UUID.randomUUID(), "category", "GBP", 1 + random.nextInt(20_000), time,
+                random.nextBoolean() ? Direction.OUT : Direction.IN,
+                random.nextInt(8) == 0 ? Status.PENDING : Status.SETTLED, "MASTER_CARD"));
+        }
+        // Consecutive weeks, plus windows that overlap them and each other, and one that ends before it starts.
+        List<Window> windows = new ArrayList<>(RoundUpReportEngine.consecutiveWindows(new Date(FIRST_DAY),
+            new Date(FIRST_DAY + 100 * DAY), Duration.ofDays(7L)));
+        for (int i = 0; i < 50; i++) {
+            long from = FIRST_DAY - 5 * DAY + (long) (random.nextDouble() * 110 * DAY);
+            windows.add(new Window(new Date(from), new Date(from + (long) (random.nextDouble() * 30 * DAY))));
+        }
+        windows.add(new Window(new Date(FIRST_DAY + 10 * DAY), new Date(FIRST_DAY)));
+        Collections.shuffle(windows, random);
+
+        List<WindowRoundUp> roundUps = RoundUpReportEngine.calculate(windows, feed, "GBP");
+
+        assertThat(roundUps).hasSize(windows.size());
+        for (int i = 0; i < windows.size(); i++) {
+            Window window = windows.get(i);
+            List<Transaction> scanned = feed.stream()
+                .filter(transaction -> transaction.getTransactionTimeMillis() >= window.getFrom().getTime()
+                    && transaction.getTransactionTimeMillis() < window.getTo().getTime())
+                .filter(RoundUpService.OUTGOING_EXTERNAL)
+                .collect(Collectors.toList());
+            WindowRoundUp roundUp = roundUps.get(i);
+            assertThat(roundUp.getFrom()).isEqualTo(window.getFrom());
+            assertThat(roundUp.getAmount().getMinorUnits()).isEqualTo(RoundUpService.calculateRounding(scanned,
+                transaction -> true, RoundUpService.outgoingRoundUp(100L)));
+            assertThat(roundUp.getTransactionCount()).isEqualTo((long) scanned.size());
+        }
+    }
+
+    @Test
+    public void weekly_backfill_fetches_the_feed_once_from_the_day_the_account_was_created() {
+
+        Account account = new Account("account", "category", "GBP", new Date(FIRST_DAY + 15 * 3_600_000L));
+        Date until = new Date(FIRST_DAY + 30 * DAY);
+        when(bankingService.getTransactions(anyString(), anyString(), any(), any()))
+            .thenReturn(Collections.singletonList(new Transaction(UUID.randomUUID(), "category", "GBP", 250L,
+                FIRST_DAY + 8 * DAY, Direction.OUT, Status.SETTLED, "MASTER_CARD")));
+
+        List<WindowRoundUp> roundUps = new RoundUpReportEngine(bankingService).backfillWeekly(account, until);
+
+        verify(bankingService, times(1)).getTransactions("account", "category", new Date(FIRST_DAY), until);
+        assertThat(roundUps).hasSize(5);
+        assertThat(roundUps.get(4).getFrom()).isEqualTo(new Date(FIRST_DAY + 28 * DAY));
+        assertThat(roundUps.get(4).getTo()).isEqualTo(until);
+        assertThat(roundUps.get(1).getAmount().getMinorUnits()).isEqualTo(50L);
+        assertThat(roundUps.get(1).getTransactionCount()).isEqualTo(1L);
+        assertThat(roundUps.get(0).getTransactionCount()).isEqualTo(0L);
+    }
+}
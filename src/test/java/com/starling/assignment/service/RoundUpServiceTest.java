@@ -2,9 +2,14 @@ package com.starling.assignment.service;
 
 import com.starling.assignment.model.Account;
 import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.Balance;
+import com.starling.assignment.model.IncrementalRoundUp;
 import com.starling.assignment.model.RoundUp;
+import com.starling.assignment.model.RoundUpCheckpoint;
+import com.starling.assignment.model.RoundUpPreview;
 import com.starling.assignment.model.SavingsGoal;
 import com.starling.assignment.model.Transaction;
+import com.starling.assignment.model.TransactionBatch;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -15,14 +20,18 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,12 +42,15 @@ public class RoundUpServiceTest {
     @Mock
     private BankingService bankingService;
 
+    @Mock
+    private RoundUpCheckpointStore checkpointStore;
+
     private RoundUpService roundUpService;
 
     @Before
     public void beforeTest() {
 
-        roundUpService = new RoundUpService(bankingService);
+        roundUpService = new RoundUpService(bankingService, checkpointStore);
     }
 
     @Test
@@ -46,15 +58,16 @@ public class RoundUpServiceTest {
 
         Account account = mock(Account.class);
         List<Transaction> transactions = createTransactions();
-        when(bankingService.getTransactions(account.getAccountUid(), account.getDefaultCategory())).thenReturn(transactions);
-
         ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
         Date from = Date.from(today.minusDays(4).toInstant());
         Date to = Date.from(today.toInstant());
 
+        when(bankingService.getTransactions(account.getAccountUid(), account.getDefaultCategory(), from, to))
+            .thenReturn(transactions);
+
         List<Transaction> result = roundUpService.getTransactions(account, from, to);
 
-        verify(bankingService, only()).getTransactions(account.getAccountUid(), account.getDefaultCategory());
+        verify(bankingService, only()).getTransactions(account.getAccountUid(), account.getDefaultCategory(), from, to);
         assertThat(result.size()).isEqualTo(4);
         assertThat(result).contains(transactions.get(0), transactions.get(1), transactions.get(2), transactions.get(3));
     }
@@ -83,6 +96,55 @@ public class RoundUpServiceTest {
         assertThat(roundUpAmount.getMinorUnits()).isEqualTo(158L);
     }
 
+    @Test
+    public void batch_round_up_matches_transaction_list_round_up() {
+
+        Random random = new Random(42L);
+        String[] sources = {"MASTER_CARD", "INTERNAL_TRANSFER", "DIRECT_DEBIT", null};
+        List<Transaction> transactions = new ArrayList<>(createTransactions());
+        for (int i = 0; i < 10_000; i++) {
+            transactions.add(new Transaction(String.valueOf(i), "1",
+                new Amount("GBP", random.nextInt(200_000) - 1_000),
+                new Date(1_546_300_800_000L + i * 60_000L),
+                random.nextInt(5) == 0 ? null : Transaction.Direction.values()[random.nextInt(2)],
+                random.nextInt(5) == 0 ? null : Transaction.Status.values()[random.nextInt(3)],
+                sources[random.nextInt(sources.length)]));
+        }
+        transactions.add(new Transaction("no-time", "1", new Amount("GBP", 1_250L), null,
+            Transaction.Direction.OUT, Transaction.Status.SETTLED, "MASTER_CARD"));
+        Date from = new Date(1_546_300_800_000L + 1_000 * 60_000L);
+        Date to = new Date(1_546_300_800_000L + 9_000 * 60_000L);
+        List<Transaction> within = transactions.stream()
+            .filter(transaction -> transaction.getTransactionTime() != null
+                && transaction.getTransactionTime().after(from) && transaction.getTransactionTime().before(to))
+            .collect(Collectors.toList());
+
+        TransactionBatch batch = TransactionBatch.of(transactions);
+
+        assertThat(batch.size()).isEqualTo(transactions.size());
+        assertThat(roundUpService.calculateRoundUp(batch).getMinorUnits())
+            .isEqualTo(roundUpService.calculateRoundUp(transactions).getMinorUnits());
+        assertThat(roundUpService.calculateRoundUp(batch, from, to).getMinorUnits())
+            .isEqualTo(roundUpService.calculateRoundUp(within).getMinorUnits());
+    }
+
+    @Test
+    public void round_up_is_to_the_next_major_unit_of_the_currency() {
+
+        Date time = new Date();
+        List<Transaction> transactions = Arrays.asList(
+            new Transaction("1", "1", new Amount("BHD", 1250L), time, Transaction.Direction.OUT,
+                Transaction.Status.SETTLED, "MASTER_CARD"),
+            new Transaction("2", "1", new Amount("BHD", 3000L), time, Transaction.Direction.OUT,
+                Transaction.Status.SETTLED, "MASTER_CARD"));
+
+        Amount roundUpAmount = roundUpService.calculateRoundUp(transactions);
+
+        assertThat(roundUpAmount.getCurrency()).isEqualTo("BHD");
+        assertThat(roundUpAmount.getMinorUnits()).isEqualTo(750L);
+        assertThat(roundUpService.calculateRoundUp(TransactionBatch.of(transactions)).getMinorUnits()).isEqualTo(750L);
+    }
+
     @Test
     public void select_savings_goals_with_enough_target_for_round_up_amount() {
 
@@ -125,6 +187,173 @@ public class RoundUpServiceTest {
         assertThat(roundUp.getEnd()).isEqualTo(to);
     }
 
+    @Test
+    public void transfer_uid_is_the_same_for_the_same_round_up() {
+
+        Amount amount = new Amount("GBP", 158L);
+        Date from = new Date(1_000L);
+        Date to = new Date(2_000L);
+        String transferUid = RoundUpService.transferUid("account", "goal", from, to, amount, null);
+
+        assertThat(RoundUpService.transferUid("account", "goal", from, to, new Amount("GBP", 158L), null))
+            .isEqualTo(transferUid);
+        assertThat(RoundUpService.transferUid("account", "other", from, to, amount, null))
+            .isNotEqualTo(transferUid);
+        assertThat(RoundUpService.transferUid("account", "goal", from, to, amount, "batch"))
+            .isNotEqualTo(transferUid);
+    }
+
+    @Test
+    public void round_up_preview_combines_balance_transactions_and_eligible_savings_goals() {
+
+        Account account = new Account("account", "category", "GBP", new Date());
+        List<Transaction> transactions = createTransactions();
+        ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        Date from = Date.from(today.minusDays(4).toInstant());
+        Date to = Date.from(today.toInstant());
+        SavingsGoal smallGoal = new SavingsGoal("1", "Goal 1",
+            new Amount("GBP", 10000), new Amount("GBP", 9900));
+        SavingsGoal largeGoal = new SavingsGoal("2", "Goal 2",
+            new Amount("GBP", 20000), new Amount("GBP", 11000));
+
+        when(bankingService.getAccountBalance("account")).thenReturn(new Balance(new Amount("GBP", 5000)));
+        when(bankingService.getTransactions("account", "category", from, to)).thenReturn(transactions);
+        when(bankingService.getSavingsGoals("account")).thenReturn(Arrays.asList(smallGoal, largeGoal));
+
+        RoundUpPreview preview = roundUpService.prepareRoundUpAsync(account, from, to).join();
+
+        assertThat(preview.getBalance().getAmount().getMinorUnits()).isEqualTo(5000L);
+        assertThat(preview.getTransactions()).hasSize(4);
+        assertThat(preview.getRoundUpAmount().getMinorUnits()).isEqualTo(158L);
+        assertThat(preview.getSavingsGoals()).containsExactly(largeGoal);
+    }
+
+    @Test
+    public void first_incremental_round_up_processes_whole_range_and_saves_checkpoint_when_asked() {
+
+        Account account = new Account("account", "category", "GBP", new Date());
+        List<Transaction> transactions = createTransactions();
+        ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        Date from = Date.from(today.minusDays(7).toInstant());
+        Date to = Date.from(today.toInstant());
+
+        when(bankingService.getTransactions("account", "category", from, to)).thenReturn(transactions);
+
+        IncrementalRoundUp roundUp = roundUpService.calculateIncrementalRoundUp(account, from, to);
+
+        verify(checkpointStore, never()).save(any());
+        assertThat(roundUp.getAmount().getMinorUnits()).isEqualTo(158L);
+        assertThat(roundUp.getCheckpoint().getLastFeedItemUid()).isEqualTo("1");
+        assertThat(roundUp.getCheckpoint().getLastTransactionTime())
+            .isEqualTo(transactions.get(0).getTransactionTime());
+        assertThat(roundUp.getCheckpoint().getRoundUpTotal().getMinorUnits()).isEqualTo(158L);
+
+        roundUpService.saveCheckpoint(roundUp);
+
+        verify(checkpointStore).save(roundUp.getCheckpoint());
+    }
+
+    @Test
+    public void incremental_round_up_only_counts_transactions_after_checkpoint() {
+
+        Account account = new Account("account", "category", "GBP", new Date());
+        List<Transaction> transactions = createTransactions();
+        Transaction processed = transactions.get(2);
+        ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        Date from = Date.from(today.minusDays(7).toInstant());
+        Date to = Date.from(today.toInstant());
+
+        when(checkpointStore.load("account", "category")).thenReturn(new RoundUpCheckpoint("account", "category",
+            processed.getTransactionTime(), processed.getFeedItemUid(), new Amount("GBP", 100L)));
+        when(bankingService.getTransactions("account", "category", processed.getTransactionTime(), to))
+            .thenReturn(transactions.subList(0, 3));
+
+        IncrementalRoundUp roundUp = roundUpService.calculateIncrementalRoundUp(account, from, to);
+
+        assertThat(roundUp.getAmount().getMinorUnits()).isEqualTo(93L);
+        assertThat(roundUp.getCheckpoint().getLastFeedItemUid()).isEqualTo("1");
+        assertThat(roundUp.getCheckpoint().getRoundUpTotal().getMinorUnits()).isEqualTo(193L);
+    }
+
+    @Test
+    public void checkpoint_without_last_feed_item_uid_counts_items_of_its_time_that_have_one() {
+
+        Account account = new Account("account", "category", "GBP", new Date());
+        List<Transaction> transactions = createTransactions();
+        Transaction processed = transactions.get(2);
+        ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        Date from = Date.from(today.minusDays(7).toInstant());
+        Date to = Date.from(today.toInstant());
+
+        when(checkpointStore.load("account", "category")).thenReturn(new RoundUpCheckpoint("account", "category",
+            processed.getTransactionTime(), null, new Amount("GBP", 0L)));
+        when(bankingService.getTransactions("account", "category", processed.getTransactionTime(), to))
+            .thenReturn(transactions.subList(0, 3));
+
+        IncrementalRoundUp roundUp = roundUpService.calculateIncrementalRoundUp(account, from, to);
+
+        assertThat(roundUp.getAmount().getMinorUnits()).isEqualTo(158L);
+        assertThat(roundUp.getCheckpoint().getLastFeedItemUid()).isEqualTo("1");
+    }
+
+    @Test
+    public void incremental_round_up_without_new_transactions_keeps_checkpoint() {
+
+        Account account = new Account("account", "category", "GBP", new Date());
+        List<Transaction> transactions = createTransactions();
+        Transaction processed = transactions.get(0);
+        ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        Date from = Date.from(today.minusDays(7).toInstant());
+        Date to = Date.from(today.toInstant());
+
+        when(checkpointStore.load("account", "category")).thenReturn(new RoundUpCheckpoint("account", "category",
+            processed.getTransactionTime(), processed.getFeedItemUid(), new Amount("GBP", 158L)));
+        when(bankingService.getTransactions("account", "category", processed.getTransactionTime(), to))
+            .thenReturn(transactions.subList(0, 1));
+
+        IncrementalRoundUp roundUp = roundUpService.calculateIncrementalRoundUp(account, from, to);
+
+        assertThat(roundUp.getCheckpoint()).isNull();
+        assertThat(roundUp.getAmount().getMinorUnits()).isEqualTo(0L);
+    }
+
+    @Test
+    public void pending_and_late_transactions_are_counted_by_a_later_incremental_round_up() {
+
+        Account account = new Account("account", "category", "GBP", new Date());
+        ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.of("UTC"));
+        Date from = Date.from(today.minusDays(7).toInstant());
+        Date to = Date.from(today.toInstant());
+        Date tomorrow = Date.from(today.plusDays(1).toInstant());
+        Date pendingTime = Date.from(today.minusDays(5).toInstant());
+        Transaction settled = new Transaction("a", "category", new Amount("GBP", 120L),
+            Date.from(today.minusDays(1).toInstant()), Transaction.Direction.OUT, Transaction.Status.SETTLED,
+            "MASTER_CARD");
+        Transaction pending = new Transaction("b", "category", new Amount("GBP", 250L), pendingTime,
+            Transaction.Direction.OUT, Transaction.Status.PENDING, "MASTER_CARD");
+        Transaction nowSettled = new Transaction("b", "category", new Amount("GBP", 250L), pendingTime,
+            Transaction.Direction.OUT, Transaction.Status.SETTLED, "MASTER_CARD");
+        Transaction late = new Transaction("c", "category", new Amount("GBP", 1_010L),
+            Date.from(today.minusDays(2).toInstant()), Transaction.Direction.OUT, Transaction.Status.SETTLED,
+            "MASTER_CARD");
+
+        when(bankingService.getTransactions("account", "category", from, to))
+            .thenReturn(Arrays.asList(settled, pending));
+        IncrementalRoundUp first = roundUpService.calculateIncrementalRoundUp(account, from, to);
+
+        assertThat(first.getAmount().getMinorUnits()).isEqualTo(80L);
+        assertThat(first.getCheckpoint().getRescanFrom()).isEqualTo(pendingTime);
+
+        when(checkpointStore.load("account", "category")).thenReturn(first.getCheckpoint());
+        when(bankingService.getTransactions("account", "category", pendingTime, tomorrow))
+            .thenReturn(Arrays.asList(settled, nowSettled, late));
+        IncrementalRoundUp second = roundUpService.calculateIncrementalRoundUp(account, from, tomorrow);
+
+        assertThat(second.getAmount().getMinorUnits()).isEqualTo(140L);
+        assertThat(second.getCheckpoint().getRoundUpTotal().getMinorUnits()).isEqualTo(220L);
+        assertThat(second.getCheckpoint().getLastFeedItemUid()).isEqualTo("a");
+    }
+
     private List<Transaction> createTransactions() {
 
         ZonedDateTime today = Instant.now().atZone(ZoneId.of("UTC"));
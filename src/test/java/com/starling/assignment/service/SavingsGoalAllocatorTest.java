@@ -0,0 +1,85 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.GoalAllocation;
+import com.starling.assignment.model.SavingsGoal;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SavingsGoalAllocatorTest {
+
+    private final List<SavingsGoal> savingsGoals = Arrays.asList(
+        goal("holiday", 10_000L, 9_000L),
+        goal("car", 50_000L, 10_000L),
+        goal("rainy-day", 5_000L, 4_800L),
+        goal("full", 1_000L, 1_000L),
+        new SavingsGoal("dollars", "dollars", new Amount("USD", 10_000L), new Amount("USD", 0L)));
+
+    @Test
+    public void best_fit_picks_goal_with_least_capacity_that_takes_whole_round_up() {
+
+        SavingsGoalAllocator allocator = allocator(SavingsGoalAllocator.Policy.BEST_FIT);
+
+        assertAllocations(allocator.allocate(gbp(150L)), "rainy-day", 150L);
+        assertAllocations(allocator.allocate(gbp(150L)), "holiday", 150L);
+        assertThat(allocator.getTotalCapacity()).isEqualTo(40_900L);
+    }
+
+    @Test
+    public void best_fit_splits_over_largest_goals_when_none_fits() {
+
+        SavingsGoalAllocator allocator = allocator(SavingsGoalAllocator.Policy.BEST_FIT);
+
+        assertAllocations(allocator.allocate(gbp(41_100L)), "car", 40_000L, "holiday", 1_000L, "rainy-day", 100L);
+        assertThat(allocator.getGoalCount()).isEqualTo(1);
+        assertAllocations(allocator.allocate(gbp(500L)), "rainy-day", 100L);
+        assertThat(allocator.allocate(gbp(1L))).isEmpty();
+    }
+
+    @Test
+    public void proportional_splits_by_remaining_capacity_in_whole_minor_units() {
+
+        List<GoalAllocation> allocations = allocator(SavingsGoalAllocator.Policy.PROPORTIONAL).allocate(gbp(413L));
+
+        // Capacities 40000, 1000 and 200 of 41200; the minor unit lost to rounding down goes to the largest.
+        assertAllocations(allocations, "car", 401L, "holiday", 10L, "rainy-day", 2L);
+    }
+
+    @Test
+    public void priority_fills_goals_in_order() {
+
+        SavingsGoalAllocator allocator = allocator(SavingsGoalAllocator.Policy.PRIORITY);
+
+        assertAllocations(allocator.allocate(gbp(1_500L)), "holiday", 1_000L, "car", 500L);
+        assertAllocations(allocator.allocate(gbp(100L)), "car", 100L);
+    }
+
+    private SavingsGoalAllocator allocator(SavingsGoalAllocator.Policy policy) {
+
+        return new SavingsGoalAllocator(savingsGoals, "GBP", policy);
+    }
+
+    private static void assertAllocations(List<GoalAllocation> allocations, Object... expected) {
+
+        assertThat(allocations).hasSize(expected.length / 2);
+        for (int i = 0; i < allocations.size(); i++) {
+            assertThat(allocations.get(i).getSavingsGoalUid()).isEqualTo(expected[2 * i]);
+            assertThat(allocations.get(i).getAmount().getMinorUnits()).isEqualTo(expected[2 * i + 1]);
+            assertThat(allocations.get(i).getAmount().getCurrency()).isEqualTo("GBP");
+        }
+    }
+
+    private static SavingsGoal goal(String uid, long target, long totalSaved) {
+
+        return new SavingsGoal(uid, uid, new Amount("GBP", target), new Amount("GBP", totalSaved));
+    }
+
+    private static Amount gbp(long minorUnits) {
+
+        return new Amount("GBP", minorUnits);
+    }
+}
@@ -0,0 +1,170 @@
+package com.starling.assignment.service;
+
+import com.starling.assignment.client.StarlingApiException;
+import com.starling.assignment.model.Amount;
+import com.starling.assignment.model.RoundUp;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(value = MockitoJUnitRunner.class)
+public class TransferPipelineTest {
+
+    private static final String ACCOUNT = "account";
+    private static final String GOAL = "goal";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private BankingService bankingService;
+
+    private Path journalFile;
+
+    @Before
+    public void beforeTest() throws Exception {
+
+        journalFile = temporaryFolder.newFolder().toPath().resolve("transfer-journal.log");
+    }
+
+    @Test
+    public void round_ups_of_same_account_and_goal_are_sent_as_one_transfer() {
+
+        when(bankingService.transferMoneyToSavingsGoal(anyString(), anyString(), anyString(), any()))
+            .thenReturn(true);
+        TransferPipeline pipeline = pipeline();
+
+        pipeline.submit(roundUp(GOAL, 87L));
+        pipeline.submit(roundUp(GOAL, 13L));
+        pipeline.submit(roundUp("other-goal", 5L));
+
+        assertThat(pipeline.flush()).isEqualTo(2);
+        ArgumentCaptor<BankingService.SavingsGoalAmount> amount =
+            ArgumentCaptor.forClass(BankingService.SavingsGoalAmount.class);
+        verify(bankingService).transferMoneyToSavingsGoal(eq(ACCOUNT), eq(GOAL), anyString(), amount.capture());
+        assertThat(amount.getValue().getAmount().getMinorUnits()).isEqualTo(100L);
+        assertThat(pipeline.flush()).isEqualTo(0);
+    }
+
+    @Test
+    public void failed_transfer_is_retried_with_same_uid_after_restart() {
+
+        when(bankingService.transferMoneyToSavingsGoal(anyString(), anyString(), anyString(), any()))
+            .thenThrow(new RuntimeException("timeout"))
+            .thenReturn(true);
+        TransferJournal journal = new TransferJournal(journalFile);
+        TransferPipeline pipeline = new TransferPipeline(bankingService, journal, Duration.ofMinutes(1));
+        pipeline.submit(roundUp(GOAL, 87L));
+        assertThat(pipeline.flush()).isEqualTo(0);
+        journal.close();
+
+        TransferJournal reopened = new TransferJournal(journalFile);
+        assertThat(reopened.getOutstandingCount()).isEqualTo(1);
+        assertThat(new TransferPipeline(bankingService, reopened, Duration.ofMinutes(1)).flush()).isEqualTo(1);
+
+        ArgumentCaptor<String> transferUid = ArgumentCaptor.forClass(String.class);
+        verify(bankingService, times(2)).transferMoneyToSavingsGoal(eq(ACCOUNT), eq(GOAL), transferUid.capture(),
+            any());
+        assertThat(transferUid.getAllValues().get(1)).isEqualTo(transferUid.getAllValues().get(0));
+        assertThat(reopened.getOutstandingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void pending_round_ups_survive_restart_and_torn_record_is_dropped() throws Exception {
+
+        TransferJournal journal = new TransferJournal(journalFile);
+        journal.append(roundUp(GOAL, 87L));
+        journal.close();
+        Files.write(journalFile, "P,1,account,goal,GBP,4".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+
+        TransferJournal reopened = new TransferJournal(journalFile);
+
+        assertThat(reopened.getPendingCount()).isEqualTo(1);
+        assertThat(reopened.prepareTransfers()).hasSize(1);
+        assertThat(reopened.prepareTransfers().get(0).getAmount().getMinorUnits()).isEqualTo(87L);
+    }
+
+    @Test
+    public void rejected_transfers_are_dead_lettered_and_not_sent_again() {
+
+        when(bankingService.transferMoneyToSavingsGoal(anyString(), eq(GOAL), anyString(), any()))
+            .thenThrow(new StarlingApiException("HTTP response code 400", 400));
+        when(bankingService.transferMoneyToSavingsGoal(anyString(), eq("other-goal"), anyString(), any()))
+            .thenReturn(false);
+        TransferJournal journal = new TransferJournal(journalFile);
+        TransferPipeline pipeline = new TransferPipeline(bankingService, journal, Duration.ofMinutes(1));
+        pipeline.submit(roundUp(GOAL, 87L));
+        pipeline.submit(roundUp("other-goal", 5L));
+
+        assertThat(pipeline.flush()).isEqualTo(0);
+        assertThat(pipeline.flush()).isEqualTo(0);
+        journal.close();
+
+        verify(bankingService, times(1)).transferMoneyToSavingsGoal(anyString(), eq(GOAL), anyString(), any());
+        verify(bankingService, times(1)).transferMoneyToSavingsGoal(anyString(), eq("other-goal"), anyString(), any());
+        TransferJournal reopened = new TransferJournal(journalFile);
+        assertThat(reopened.getOutstandingCount()).isEqualTo(0);
+        assertThat(reopened.getDeadLetters()).hasSize(2);
+    }
+
+    @Test
+    public void transfer_failing_max_attempts_times_across_restarts_is_dead_lettered() {
+
+        when(bankingService.transferMoneyToSavingsGoal(anyString(), anyString(), anyString(), any()))
+            .thenThrow(new StarlingApiException("HTTP response code 503", 503));
+        TransferJournal journal = new TransferJournal(journalFile);
+        TransferPipeline pipeline = new TransferPipeline(bankingService, journal, Duration.ofMinutes(1), 3);
+        pipeline.submit(roundUp(GOAL, 87L));
+        pipeline.flush();
+        pipeline.flush();
+        journal.close();
+
+        TransferJournal reopened = new TransferJournal(journalFile);
+        new TransferPipeline(bankingService, reopened, Duration.ofMinutes(1), 3).flush();
+
+        verify(bankingService, times(3)).transferMoneyToSavingsGoal(anyString(), anyString(), anyString(), any());
+        assertThat(reopened.getOutstandingCount()).isEqualTo(0);
+        assertThat(reopened.getDeadLetters()).hasSize(1);
+    }
+
+    @Test
+    public void round_up_submitted_after_shutdown_is_refused() {
+
+        TransferPipeline pipeline = pipeline();
+        pipeline.shutdown();
+
+        assertThatThrownBy(() -> pipeline.submit(roundUp(GOAL, 87L))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private TransferPipeline pipeline() {
+
+        return new TransferPipeline(bankingService, new TransferJournal(journalFile), Duration.ofMinutes(1));
+    }
+
+    private static RoundUp roundUp(String savingsGoalUid, long minorUnits) {
+
+        return new RoundUp(new Amount("GBP", minorUnits), ACCOUNT, savingsGoalUid, new Date(0L), new Date(1000L));
+    }
+}